@@ -0,0 +1,123 @@
+/*******************************************************************************
+ * Copyright (c) 2009 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.core.archive.cache;
+
+import org.junit.Test;
+
+import junit.framework.TestCase;
+
+public class SystemCacheManagerTest extends TestCase
+{
+
+	static final int SIZE = Cacheable.DEFAULT_CACHE_SIZE;
+
+	@Test
+	public void testMemoryBudget( )
+	{
+		SystemCacheManager system = new SystemCacheManager( 4 * SIZE );
+		FileCacheManager file1 = new FileCacheManager( );
+		FileCacheManager file2 = new FileCacheManager( );
+		file1.setSystemCacheManager( system );
+		file2.setSystemCacheManager( system );
+		assertEquals( 2, system.getFileCount( ) );
+
+		// the locked caches are never released
+		CachedObject[] objects = new CachedObject[6];
+		for ( int i = 0; i < objects.length; i++ )
+		{
+			objects[i] = new CachedObject( file1, i );
+			file1.addCache( objects[i] );
+		}
+		assertEquals( 6 * SIZE, system.getUsedCacheSize( ) );
+
+		// the free caches are kept until the budget is exceeded
+		for ( int i = 0; i < 4; i++ )
+		{
+			file1.releaseCache( objects[i] );
+		}
+		assertEquals( 4 * SIZE, system.getUsedCacheSize( ) );
+		assertEquals( 2, system.getEvictionCount( ) );
+		assertNull( file1.getCache( 0 ) );
+		assertNull( file1.getCache( 1 ) );
+		assertEquals( objects[2], file1.getCache( 2 ) );
+		file1.releaseCache( objects[2] );
+
+		// the file using the most memory is released first
+		CachedObject o = new CachedObject( file2, 0 );
+		file2.addCache( o );
+		file2.releaseCache( o );
+		assertEquals( 4 * SIZE, system.getUsedCacheSize( ) );
+		assertEquals( SIZE, file2.getUsedCacheBytes( ) );
+		assertEquals( 3 * SIZE, file1.getUsedCacheBytes( ) );
+
+		assertEquals( 1, system.getHitCount( ) );
+		assertEquals( 2, system.getMissCount( ) );
+
+		file1.clear( );
+		assertEquals( SIZE, system.getUsedCacheSize( ) );
+		assertEquals( 1, system.getFileCount( ) );
+		file2.clear( );
+		assertEquals( 0, system.getUsedCacheSize( ) );
+	}
+
+	@Test
+	public void testScanResistance( )
+	{
+		FileCacheManager file = new FileCacheManager( 8 );
+		// the hot caches are used again
+		CachedObject[] hot = new CachedObject[4];
+		for ( int i = 0; i < hot.length; i++ )
+		{
+			hot[i] = new CachedObject( file, i );
+			file.addCache( hot[i] );
+			file.releaseCache( hot[i] );
+			assertEquals( hot[i], file.getCache( i ) );
+			file.releaseCache( hot[i] );
+		}
+		// scan a lot of caches which are used only once
+		for ( int i = 100; i < 200; i++ )
+		{
+			CachedObject o = new CachedObject( file, i );
+			file.addCache( o );
+			file.releaseCache( o );
+		}
+		assertEquals( 8, file.getUsedCacheSize( ) );
+		for ( int i = 0; i < hot.length; i++ )
+		{
+			assertEquals( hot[i], file.getCache( i ) );
+			file.releaseCache( hot[i] );
+		}
+	}
+
+	@Test
+	public void testBudgetChange( )
+	{
+		SystemCacheManager system = new SystemCacheManager( 10 * SIZE );
+		FileCacheManager file = new FileCacheManager( );
+		file.setSystemCacheManager( system );
+		for ( int i = 0; i < 10; i++ )
+		{
+			CachedObject o = new CachedObject( file, i );
+			file.addCache( o );
+			file.releaseCache( o );
+		}
+		assertEquals( 10 * SIZE, system.getUsedCacheSize( ) );
+		system.setMaxCacheSize( 2 * SIZE );
+		assertEquals( 2 * SIZE, system.getUsedCacheSize( ) );
+		assertEquals( 2, file.getUsedCacheSize( ) );
+
+		// detached file releases all the free caches
+		file.setSystemCacheManager( null );
+		assertEquals( 0, system.getUsedCacheSize( ) );
+		assertEquals( 0, file.getUsedCacheSize( ) );
+	}
+}
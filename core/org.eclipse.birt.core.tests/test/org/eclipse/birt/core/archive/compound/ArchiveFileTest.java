@@ -3,6 +3,8 @@ package org.eclipse.birt.core.archive.compound;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
 
 import org.junit.After;
 import org.junit.Before;
@@ -118,6 +120,31 @@ public class ArchiveFileTest extends TestCase
 		archive.close( );
 	}
 	@Test
+    public void testModificationId( ) throws IOException
+	{
+		ArchiveFile archive = new ArchiveFile( ARCHIVE_FILE, "rw" );
+		createArchive( archive );
+		String createdId = archive.getModificationId( );
+		assertTrue( createdId != null );
+		archive.close( );
+
+		archive = new ArchiveFile( ARCHIVE_FILE, "r" );
+		assertEquals( createdId, archive.getModificationId( ) );
+
+		// the new id is saved as soon as the archive is opened for appending
+		ArchiveFile appending = new ArchiveFile( ARCHIVE_FILE, "rw+" );
+		String appendedId = appending.getModificationId( );
+		assertTrue( appendedId != null );
+		assertTrue( !appendedId.equals( createdId ) );
+		ArchiveFile reader = new ArchiveFile( ARCHIVE_FILE, "r" );
+		assertEquals( appendedId, reader.getModificationId( ) );
+		reader.close( );
+		appending.close( );
+
+		assertEquals( createdId, archive.getModificationId( ) );
+		archive.close( );
+	}
+	@Test
     public void testSaveAs( ) throws IOException
 	{
 		ArchiveFile archive = new ArchiveFile( TRANSIENT_ARCHIVE_FILE, "rwt" );
@@ -144,6 +171,277 @@ public class ArchiveFileTest extends TestCase
 		archive.close( );
 	}
 
+	@Test
+    public void testConcurrentRead( ) throws Exception
+	{
+		ArchiveFile archive = new ArchiveFile( ARCHIVE_FILE, "rw" );
+		createDataArchive( archive );
+		archive.close( );
+		archive = new ArchiveFile( ARCHIVE_FILE, "r" );
+		archive.setCacheSize( 16 * 1024 );
+		checkConcurrentRead( archive );
+		archive.close( );
+
+		IArchiveFile archiveV2 = new ArchiveFileV2( ARCHIVE_FILE, "rw" );
+		createDataArchive( archiveV2 );
+		archiveV2.close( );
+		archiveV2 = new ArchiveFileV2( ARCHIVE_FILE, "r" );
+		archiveV2.setCacheSize( 16 * 1024 );
+		checkConcurrentRead( archiveV2 );
+		archiveV2.close( );
+	}
+
+	@Test
+    public void testMappedArchive( ) throws Exception
+	{
+		ArchiveFile archive = new ArchiveFile( ARCHIVE_FILE, "rw" );
+		createDataArchive( archive );
+		archive.close( );
+		archive = new ArchiveFile( ARCHIVE_FILE, "rm" );
+		assertTrue( archive.exists( "/data/63" ) );
+		assertFalse( archive.exists( "/data/64" ) );
+		checkConcurrentRead( archive );
+		archive.close( );
+
+		archive = new ArchiveFile( ARCHIVE_FILE, "rw" );
+		createArchive( archive );
+		archive.close( );
+		archive = new ArchiveFile( ARCHIVE_FILE, "rm" );
+		checkArchive( archive );
+		archive.close( );
+	}
+
+	@Test
+    public void testMappedArchiveSparseEntry( ) throws Exception
+	{
+		ArchiveFile archive = new ArchiveFile( ARCHIVE_FILE, "rw" );
+		ArchiveEntry entry = archive.createEntry( "/sparse" );
+		entry.write( 0, new byte[]{1, 2, 3}, 0, 3 );
+		// the blocks after the first one are never allocated
+		entry.setLength( 20000 );
+		entry.write( 20000, new byte[]{4}, 0, 1 );
+		entry.close( );
+		archive.close( );
+
+		archive = new ArchiveFile( ARCHIVE_FILE, "rm" );
+		entry = archive.openEntry( "/sparse" );
+		assertEquals( 20001, entry.getLength( ) );
+		byte[] b = new byte[20001];
+		Arrays.fill( b, (byte) -1 );
+		assertEquals( 20001, entry.read( 0, b, 0, b.length ) );
+		assertEquals( 1, b[0] );
+		assertEquals( 2, b[1] );
+		assertEquals( 3, b[2] );
+		for ( int i = 3; i < 20000; i++ )
+		{
+			assertEquals( 0, b[i] );
+		}
+		assertEquals( 4, b[20000] );
+		// a read inside a block not allocated
+		Arrays.fill( b, (byte) -1 );
+		assertEquals( 100, entry.read( 10000, b, 50, 100 ) );
+		for ( int i = 50; i < 150; i++ )
+		{
+			assertEquals( 0, b[i] );
+		}
+		assertEquals( -1, b[49] );
+		assertEquals( -1, b[150] );
+		entry.close( );
+		archive.close( );
+	}
+
+	@Test
+    public void testCompressedEntries( ) throws Exception
+	{
+		ArchiveFileV3 archive = new ArchiveFileV3( ARCHIVE_FILE, "rw" );
+		archive.setCompressedEntries( "/data/.*" );
+		createDataArchive( archive );
+
+		ArchiveEntry entry = archive.createEntry( "/data/random" );
+		byte[] b = new byte[100];
+		for ( int i = 0; i < 1000; i++ )
+		{
+			Arrays.fill( b, (byte) i );
+			entry.write( i * 100, b, 0, b.length );
+		}
+		entry.write( 40000, new byte[]{1, 2, 3}, 0, 3 );
+		entry.setLength( 50000 );
+		entry.write( 70000, new byte[]{4}, 0, 1 );
+		entry.close( );
+		archive.close( );
+		assertTrue( new File( ARCHIVE_FILE ).length( ) < 512 * 1024 );
+
+		archive = new ArchiveFileV3( ARCHIVE_FILE, "r" );
+		checkConcurrentRead( archive );
+		entry = archive.openEntry( "/data/random" );
+		assertEquals( 70001, entry.getLength( ) );
+		b = new byte[70001];
+		assertEquals( 70001, entry.read( 0, b, 0, b.length ) );
+		for ( int i = 0; i < 50000; i++ )
+		{
+			if ( i >= 40000 && i < 40003 )
+			{
+				assertEquals( i - 39999, b[i] );
+			}
+			else
+			{
+				assertEquals( (byte) ( i / 100 ), b[i] );
+			}
+		}
+		for ( int i = 50000; i < 70000; i++ )
+		{
+			assertEquals( 0, b[i] );
+		}
+		assertEquals( 4, b[70000] );
+		entry.close( );
+		archive.close( );
+	}
+
+	@Test
+    public void testCompressedEntryRewrite( ) throws Exception
+	{
+		ArchiveFileV3 archive = new ArchiveFileV3( ARCHIVE_FILE, "rw" );
+		archive.setCompressedEntries( "/data/.*" );
+		ArchiveEntry entry = archive.createEntry( "/data/patched" );
+		// random data can't be compressed, each chunk is stored as it is
+		byte[] b = new byte[16 * CompressedArchiveEntryV3.CHUNK_SIZE];
+		new Random( 0 ).nextBytes( b );
+		entry.write( 0, b, 0, b.length );
+		entry.flush( );
+
+		// patch each chunk again and again, as the page index is updated
+		for ( int i = 0; i < 1000; i++ )
+		{
+			int pos = ( i % 16 ) * CompressedArchiveEntryV3.CHUNK_SIZE + i;
+			b[pos] = (byte) i;
+			entry.write( pos, b, pos, 1 );
+			entry.flush( );
+		}
+		entry.close( );
+		archive.close( );
+		// each chunk uses two slots at most
+		assertTrue( new File( ARCHIVE_FILE ).length( ) < 3 * b.length );
+
+		archive = new ArchiveFileV3( ARCHIVE_FILE, "r" );
+		entry = archive.openEntry( "/data/patched" );
+		byte[] data = new byte[b.length];
+		assertEquals( b.length, entry.read( 0, data, 0, data.length ) );
+		assertTrue( Arrays.equals( b, data ) );
+		entry.close( );
+		archive.close( );
+	}
+
+	@Test
+    public void testCompressedEntryLiveRead( ) throws Exception
+	{
+		ArchiveFileV3 archive = new ArchiveFileV3( ARCHIVE_FILE, "rw" );
+		archive.setCompressedEntries( "/data/.*" );
+		ArchiveEntry writer = archive.createEntry( "/data/live" );
+		ArchiveEntry reader = archive.openEntry( "/data/live" );
+		assertEquals( 0, reader.getLength( ) );
+
+		byte[] b = new byte[100];
+		Arrays.fill( b, (byte) 1 );
+		writer.write( 0, b, 0, b.length );
+		writer.flush( );
+		assertEquals( 100, reader.getLength( ) );
+		byte[] data = new byte[100];
+		assertEquals( 100, reader.read( 0, data, 0, 100 ) );
+		assertTrue( Arrays.equals( b, data ) );
+
+		// the chunks are visible once they are full
+		b = new byte[CompressedArchiveEntryV3.CHUNK_SIZE * 3];
+		Arrays.fill( b, (byte) 2 );
+		writer.write( 100, b, 0, b.length );
+		assertTrue( reader.getLength( ) >= CompressedArchiveEntryV3.CHUNK_SIZE * 2 );
+		assertEquals( 2, reader.read( 99, data, 0, 2 ) );
+		assertEquals( 1, data[0] );
+		assertEquals( 2, data[1] );
+
+		// the back-patched data is visible once it is flushed
+		writer.write( 0, new byte[]{3}, 0, 1 );
+		writer.flush( );
+		assertEquals( 100 + b.length, reader.getLength( ) );
+		assertEquals( 1, reader.read( 0, data, 0, 1 ) );
+		assertEquals( 3, data[0] );
+		assertEquals( 1, reader.read( 100 + b.length - 1, data, 0, 1 ) );
+		assertEquals( 2, data[0] );
+
+		writer.close( );
+		reader.close( );
+		archive.close( );
+	}
+
+	void createDataArchive( IArchiveFile archive ) throws IOException
+	{
+		for ( int i = 0; i < 64; i++ )
+		{
+			byte[] b = new byte[( i + 1 ) * 997];
+			for ( int j = 0; j < b.length; j++ )
+			{
+				b[j] = (byte) ( i + j );
+			}
+			ArchiveEntry entry = archive.createEntry( "/data/" + i );
+			entry.write( 0, b, 0, b.length );
+			entry.close( );
+		}
+	}
+
+	void checkConcurrentRead( final IArchiveFile archive ) throws Exception
+	{
+		final Throwable[] errors = new Throwable[8];
+		Thread[] threads = new Thread[errors.length];
+		for ( int t = 0; t < threads.length; t++ )
+		{
+			final int threadId = t;
+			threads[t] = new Thread( ) {
+
+				public void run( )
+				{
+					try
+					{
+						for ( int n = 0; n < 64; n++ )
+						{
+							int i = ( n + threadId * 7 ) % 64;
+							ArchiveEntry entry = archive.openEntry( "/data/" + i );
+							try
+							{
+								byte[] b = new byte[( i + 1 ) * 997];
+								assertEquals( b.length, entry.getLength( ) );
+								assertEquals( b.length, entry.read( 0, b, 0, b.length ) );
+								for ( int j = 0; j < b.length; j++ )
+								{
+									assertEquals( (byte) ( i + j ), b[j] );
+								}
+							}
+							finally
+							{
+								entry.close( );
+							}
+						}
+					}
+					catch ( Throwable ex )
+					{
+						errors[threadId] = ex;
+					}
+				}
+			};
+			threads[t].start( );
+		}
+		for ( int t = 0; t < threads.length; t++ )
+		{
+			threads[t].join( );
+			if ( errors[t] instanceof Error )
+			{
+				throw (Error) errors[t];
+			}
+			if ( errors[t] != null )
+			{
+				throw (Exception) errors[t];
+			}
+		}
+	}
+
 	void createArchive( ArchiveFile archive ) throws IOException
 	{
 		int entryCount = 1024;
@@ -14,6 +14,7 @@ package org.eclipse.birt.core.btree;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.TreeMap;
 
 import org.junit.Test;
 
@@ -68,6 +69,64 @@ public class BTreeMultipleThreadTest extends TestCase
 			file.close( );
 		}
 	}
+	@Test
+    public void testReadOnlyCursor( ) throws Exception
+	{
+		new File( "./utest/btree.dat" ).delete( );
+		FileBTreeFile file = new FileBTreeFile( "./utest/btree.dat" );
+		try
+		{
+			BTreeOption<String, String> option = new BTreeOption<String, String>( );
+			option.setFile( file, true );
+			BTree<String, String> btree = new BTree<String, String>( option );
+			TreeMap<String, String> entries = new TreeMap<String, String>( );
+			for ( int i = 0; i < KEY_COUNT; i++ )
+			{
+				String value = String.valueOf( i );
+				entries.put( value, value );
+			}
+			btree.bulkLoad( entries.entrySet( ).iterator( ) );
+			btree.close( );
+
+			// the readers load the nodes concurrently with a small cache
+			option.setReadOnly( true );
+			option.setCacheSize( 4 );
+			btree = new BTree<String, String>( option );
+			try
+			{
+				for ( int i = 0; i < 4; i++ )
+				{
+					new Thread( new TestThread( btree.createCursor( ) ) )
+							.start( );
+				}
+				while ( TestThread.hasActiveThread( ) )
+				{
+					try
+					{
+						Thread.sleep( 200 );
+					}
+					catch ( Exception ex )
+					{
+					}
+				}
+			}
+			finally
+			{
+				btree.close( );
+			}
+
+			if ( TestThread.hasErrors( ) )
+			{
+				TestThread.printErrors( );
+				fail( "HAS ERROR!" );
+			}
+		}
+		finally
+		{
+			file.close( );
+		}
+	}
+
 	static boolean hasError;
 
 	static void createBTree( BTree<String, String> btree ) throws IOException
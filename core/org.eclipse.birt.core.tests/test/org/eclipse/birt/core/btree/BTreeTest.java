@@ -20,6 +20,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Random;
+import java.util.TreeMap;
 
 import org.junit.Ignore;
 import org.junit.Test;
@@ -444,4 +445,81 @@ public class BTreeTest extends BTreeTestCase
 
 		btree.close( );
 	}
+
+	@Test
+    public void testBulkLoad( ) throws IOException
+	{
+		RAMBTreeFile file = new RAMBTreeFile( );
+		BTreeOption<Integer, String> option = new BTreeOption<Integer, String>( );
+		option.setHasValue( true );
+		option.setKeySize( 4 );
+		option.setKeySerializer( new IntegerSerializer( ) );
+		option.setFile( file );
+
+		BTree<Integer, String> btree = new BTree<Integer, String>( option );
+		TreeMap<Integer, String> entries = new TreeMap<Integer, String>( );
+		for ( int i = 0; i < 10000; i++ )
+		{
+			entries.put( Integer.valueOf( i * 2 ), String.valueOf( i * 2 ) );
+		}
+		btree.bulkLoad( entries.entrySet( ).iterator( ) );
+		assertEquals( 10000, btree.getTotalKeys( ) );
+
+		// the nodes are filled up by the bulk load
+		RAMBTreeFile insertFile = new RAMBTreeFile( );
+		option.setFile( insertFile );
+		BTree<Integer, String> insertBTree = new BTree<Integer, String>(
+				option );
+		for ( Map.Entry<Integer, String> entry : entries.entrySet( ) )
+		{
+			insertBTree.insert( entry.getKey( ), entry.getValue( ) );
+		}
+		insertBTree.close( );
+		assertTrue( file.getTotalBlock( ) * 3 < insertFile.getTotalBlock( ) * 2 );
+
+		// the keys less than the last key are inserted one by one
+		TreeMap<Integer, String> moreEntries = new TreeMap<Integer, String>( );
+		for ( int i = 0; i < 100; i++ )
+		{
+			moreEntries.put( Integer.valueOf( i * 2 + 1 ),
+					String.valueOf( i * 2 + 1 ) );
+		}
+		for ( int i = 20000; i < 21000; i++ )
+		{
+			moreEntries.put( Integer.valueOf( i ), String.valueOf( i ) );
+		}
+		btree.bulkLoad( moreEntries.entrySet( ).iterator( ) );
+		entries.putAll( moreEntries );
+		assertEquals( entries.size( ), btree.getTotalKeys( ) );
+		btree.close( );
+
+		option.setFile( file );
+		btree = new BTree<Integer, String>( option );
+		assertEquals( entries.size( ), btree.getTotalKeys( ) );
+		assertEquals( entries.size( ), btree.getTotalValues( ) );
+		for ( Map.Entry<Integer, String> entry : entries.entrySet( ) )
+		{
+			assertEquals( entry.getValue( ), btree.getValue( entry.getKey( ) ) );
+		}
+		assertFalse( btree.exist( Integer.valueOf( 201 ) ) );
+
+		BTreeCursor<Integer, String> cursor = btree.createCursor( );
+		try
+		{
+			for ( Map.Entry<Integer, String> entry : entries.entrySet( ) )
+			{
+				assertTrue( cursor.next( ) );
+				assertEquals( entry.getKey( ), cursor.getKey( ) );
+				assertEquals( entry.getValue( ), cursor.getValue( ) );
+			}
+			assertFalse( cursor.next( ) );
+			assertTrue( cursor.last( ) );
+			assertEquals( Integer.valueOf( 20999 ), cursor.getKey( ) );
+		}
+		finally
+		{
+			cursor.close( );
+		}
+		btree.close( );
+	}
 }
@@ -16,11 +16,20 @@ import java.util.concurrent.atomic.AtomicInteger;
 public class Cacheable
 {
 
+	/**
+	 * the default memory used by a cache object, it is the block size.
+	 */
+	public static final int DEFAULT_CACHE_SIZE = 4096;
+
 	protected FileCacheManager manager;
 	protected Comparable cacheKey;
 	protected AtomicInteger referenceCount;
 	protected Cacheable prev;
 	protected Cacheable next;
+	/**
+	 * the cache has been used again after it is added, see FileCacheManager.
+	 */
+	boolean referenced;
 
 	public Cacheable( FileCacheManager manager, Comparable cacheKey )
 	{
@@ -38,6 +47,14 @@ public class Cacheable
 		return cacheKey;
 	}
 
+	/**
+	 * @return the memory used by the cache object in bytes.
+	 */
+	public int getCacheSize( )
+	{
+		return DEFAULT_CACHE_SIZE;
+	}
+
 	public AtomicInteger getReferenceCount( )
 	{
 		return referenceCount;
@@ -15,6 +15,19 @@ import java.util.Arrays;
 import java.util.Comparator;
 import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * The caches used by a single archive file.
+ *
+ * The caches which are not locked by any stream are kept in two free lists: a
+ * cache released for the first time is put into the probation list, a cache
+ * which has been used again is put into the protected list. The probation list
+ * is released first, so a scan of a large stream doesn't flush the caches used
+ * again and again.
+ *
+ * The free caches are limited by the max cache size of the file. If the file
+ * is attached to a system cache manager, they are limited by the memory budget
+ * shared by all the files too.
+ */
 public class FileCacheManager
 {
 
@@ -27,16 +40,30 @@ public class FileCacheManager
 	 */
 	private int lockedCacheSize;
 	/**
-	 * the free caches
+	 * the free caches which have been used again.
 	 */
 	protected CacheList freeCaches;
+	/**
+	 * the free caches which are only used once.
+	 */
+	protected CacheList probationCaches;
 	/**
 	 * the maximum cache should be used in locked and free list
 	 */
 	private int maxCacheSize;
+	/**
+	 * the memory used by the caches in bytes.
+	 */
+	private volatile long usedCacheBytes;
+
+	private long hitCount;
+	private long missCount;
+	private long evictionCount;
 
 	private CacheListener listener;
 
+	private volatile SystemCacheManager systemCacheManager;
+
 	public FileCacheManager( )
 	{
 		this( 0 );
@@ -48,6 +75,7 @@ public class FileCacheManager
 		this.lockedCacheSize = 0;
 		this.caches = new ConcurrentHashMap<Object, Cacheable>( 2 );
 		this.freeCaches = new CacheList( );
+		this.probationCaches = new CacheList( );
 	}
 
 	public void setCacheListener( CacheListener listener )
@@ -55,15 +83,61 @@ public class FileCacheManager
 		this.listener = listener;
 	}
 
-	synchronized public void setMaxCacheSize( int maxCacheSize )
+	/**
+	 * attach the file cache to the system cache manager. The free caches are
+	 * kept until the memory budget of the system is exceeded, even if the max
+	 * cache size of the file is 0.
+	 *
+	 * The caches must not be dirty when they are released by the system, the
+	 * system cache can only be used by read only files.
+	 *
+	 * @param systemCacheManager
+	 *            the system cache, null to detach the file.
+	 */
+	public void setSystemCacheManager( SystemCacheManager systemCacheManager )
 	{
-		this.maxCacheSize = maxCacheSize;
-		adjustFreeCaches( );
+		synchronized ( this )
+		{
+			SystemCacheManager oldManager = this.systemCacheManager;
+			if ( oldManager == systemCacheManager )
+			{
+				return;
+			}
+			if ( oldManager != null )
+			{
+				oldManager.removeFileCacheManager( this, usedCacheBytes );
+			}
+			this.systemCacheManager = systemCacheManager;
+			if ( systemCacheManager != null )
+			{
+				systemCacheManager.addFileCacheManager( this, usedCacheBytes );
+			}
+			else
+			{
+				adjustFreeCaches( );
+			}
+		}
+		adjustSystemCaches( );
+	}
+
+	public SystemCacheManager getSystemCacheManager( )
+	{
+		return systemCacheManager;
+	}
+
+	public void setMaxCacheSize( int maxCacheSize )
+	{
+		synchronized ( this )
+		{
+			this.maxCacheSize = maxCacheSize;
+			adjustFreeCaches( );
+		}
+		adjustSystemCaches( );
 	}
 
 	public int getUsedCacheSize( )
 	{
-		return lockedCacheSize + freeCaches.size( );
+		return lockedCacheSize + freeCaches.size( ) + probationCaches.size( );
 	}
 
 	public int getTotalUsedCacheSize( )
@@ -71,37 +145,177 @@ public class FileCacheManager
 		return caches.size( );
 	}
 
+	/**
+	 * @return the memory used by the caches of this file in bytes.
+	 */
+	public long getUsedCacheBytes( )
+	{
+		return usedCacheBytes;
+	}
+
+	/**
+	 * @return the times a cache is found by <code>getCache</code>.
+	 */
+	synchronized public long getHitCount( )
+	{
+		return hitCount;
+	}
+
+	/**
+	 * @return the times a cache is not found by <code>getCache</code>.
+	 */
+	synchronized public long getMissCount( )
+	{
+		return missCount;
+	}
+
+	/**
+	 * @return the count of free caches released to limit the cache size.
+	 */
+	synchronized public long getEvictionCount( )
+	{
+		return evictionCount;
+	}
+
+	int getFreeCacheSize( )
+	{
+		return freeCaches.size( ) + probationCaches.size( );
+	}
+
 	protected void adjustFreeCaches( )
 	{
-		// release the free cache
-		if ( freeCaches.size( ) <= 0 )
+		if ( maxCacheSize <= 0 )
 		{
+			if ( systemCacheManager == null )
+			{
+				evictFreeCaches( getFreeCacheSize( ) );
+			}
 			return;
 		}
-		int releasedCacheSize = ( lockedCacheSize + freeCaches.size( ) )
+		// release the free cache
+		int releasedCacheSize = ( lockedCacheSize + getFreeCacheSize( ) )
 				- maxCacheSize;
-		releasedCacheSize = releasedCacheSize > freeCaches.size( ) ? freeCaches
-				.size( ) : releasedCacheSize;
-		if ( releasedCacheSize <= 0 )
+		if ( releasedCacheSize > 0 )
 		{
-			return;
+			evictFreeCaches( releasedCacheSize );
 		}
+	}
+
+	/**
+	 * release the free caches, the probation caches are released first unless
+	 * the probation list is less than a quarter of the free caches.
+	 *
+	 * @param releasedCacheSize
+	 *            the count of the caches to be released.
+	 */
+	private void evictFreeCaches( int releasedCacheSize )
+	{
 		for ( int i = 0; i < releasedCacheSize; i++ )
 		{
-			Cacheable freeCache = freeCaches.remove( );
+			Cacheable freeCache;
+			if ( freeCaches.size( ) == 0
+					|| probationCaches.size( ) * 4 > getFreeCacheSize( ) )
+			{
+				freeCache = probationCaches.remove( );
+			}
+			else
+			{
+				freeCache = freeCaches.remove( );
+			}
+			if ( freeCache == null )
+			{
+				return;
+			}
 			if ( listener != null )
 			{
 				listener.onCacheRelease( freeCache );
 			}
-			caches.remove( freeCache.getCacheKey( ) );
+			removeCache( freeCache );
+			evictionCount++;
+			SystemCacheManager system = systemCacheManager;
+			if ( system != null )
+			{
+				system.increaseEvictionCount( );
+			}
+		}
+	}
+
+	/**
+	 * called by the system cache manager to reduce the memory used by this
+	 * file.
+	 *
+	 * @param size
+	 *            the memory to be released in bytes.
+	 * @return the memory released in bytes.
+	 */
+	synchronized long releaseFreeCaches( long size )
+	{
+		long usedBytes = usedCacheBytes;
+		while ( usedBytes - usedCacheBytes < size && getFreeCacheSize( ) > 0 )
+		{
+			evictFreeCaches( 1 );
+		}
+		return usedBytes - usedCacheBytes;
+	}
+
+	private void putCache( Object cacheKey, Cacheable cache )
+	{
+		Cacheable oldCache = caches.put( cacheKey, cache );
+		long size = cache.getCacheSize( );
+		if ( oldCache != null )
+		{
+			size -= oldCache.getCacheSize( );
+		}
+		increaseUsedCacheBytes( size );
+	}
+
+	private void removeCache( Cacheable cache )
+	{
+		if ( caches.remove( cache.getCacheKey( ), cache ) )
+		{
+			increaseUsedCacheBytes( -cache.getCacheSize( ) );
+		}
+	}
+
+	private void increaseUsedCacheBytes( long size )
+	{
+		usedCacheBytes += size;
+		SystemCacheManager system = systemCacheManager;
+		if ( system != null )
+		{
+			system.increaseUsedCacheSize( size );
 		}
 	}
 
+	/**
+	 * release the memory used by other files if the budget of the system
+	 * cache is exceeded. It must be called without holding the lock of this
+	 * object, as the system locks the other files.
+	 */
+	private void adjustSystemCaches( )
+	{
+		SystemCacheManager system = systemCacheManager;
+		if ( system != null )
+		{
+			system.adjustCaches( );
+		}
+	}
+
+	/**
+	 * clear all the caches. The file is detached from the system cache.
+	 */
 	synchronized public void clear( )
 	{
+		if ( systemCacheManager != null )
+		{
+			systemCacheManager.removeFileCacheManager( this, usedCacheBytes );
+			systemCacheManager = null;
+		}
 		caches.clear( );
+		usedCacheBytes = 0;
 		lockedCacheSize = 0;
 		freeCaches.clear( );
+		probationCaches.clear( );
 	}
 
 	synchronized public void touchAllCaches( )
@@ -152,43 +366,55 @@ public class FileCacheManager
 	/**
 	 * return the cache object to the system. The object should be added into
 	 * the system or it is got from the system.
-	 * 
+	 *
 	 * @param cache
 	 *            the cache object.
 	 */
-	synchronized public void releaseCache( Cacheable cache )
+	public void releaseCache( Cacheable cache )
 	{
-		assert ( cache.getReferenceCount( ).get( ) > 0 );
-		int referenceCount = cache.getReferenceCount( ).decrementAndGet( );
-		if ( referenceCount > 0 )
+		synchronized ( this )
 		{
-			// there still some one locked the cache object, return directly
-			return;
-		}
-		// the lock count must be zero
-		assert ( referenceCount == 0 );
-		lockedCacheSize--;
-		if ( maxCacheSize > 0 )
-		{
-			// return it to the free list
-			freeCaches.add( cache );
-			adjustFreeCaches( );
-		}
-		else
-		{
-			if ( listener != null )
+			assert ( cache.getReferenceCount( ).get( ) > 0 );
+			int referenceCount = cache.getReferenceCount( ).decrementAndGet( );
+			if ( referenceCount > 0 )
 			{
-				listener.onCacheRelease( cache );
+				// there still some one locked the cache object, return directly
+				return;
+			}
+			// the lock count must be zero
+			assert ( referenceCount == 0 );
+			lockedCacheSize--;
+			if ( maxCacheSize > 0 || systemCacheManager != null )
+			{
+				// return it to the free list
+				if ( cache.referenced )
+				{
+					freeCaches.add( cache );
+				}
+				else
+				{
+					probationCaches.add( cache );
+				}
+				adjustFreeCaches( );
+			}
+			else
+			{
+				if ( listener != null )
+				{
+					listener.onCacheRelease( cache );
+				}
+				removeCache( cache );
+				return;
 			}
-			caches.remove( cache.getCacheKey( ) );
 		}
+		adjustSystemCaches( );
 	}
 
 	/**
 	 * get the cache from the cache system
-	 * 
+	 *
 	 * @param cacheKey
-	 * 
+	 *
 	 * @return the cached object
 	 */
 	synchronized public Cacheable getCache( Object cacheKey )
@@ -196,58 +422,102 @@ public class FileCacheManager
 		Cacheable cache = caches.get( cacheKey );
 		if ( cache == null )
 		{
+			countCacheAccess( false );
 			return null;
 		}
 		int referenceCount = cache.getReferenceCount( ).incrementAndGet( );
 		if ( referenceCount > 1 )
 		{
+			cache.referenced = true;
+			countCacheAccess( true );
 			return cache;
 		}
 		if ( referenceCount == 1 )
 		{
-			freeCaches.remove( cache );
+			if ( cache.referenced )
+			{
+				freeCaches.remove( cache );
+			}
+			else
+			{
+				probationCaches.remove( cache );
+			}
+			cache.referenced = true;
 			lockedCacheSize++;
+			countCacheAccess( true );
 			return cache;
 		}
 		if ( referenceCount == 0 )
 		{
 			lockedCacheSize++;
 			cache.getReferenceCount( ).set( 1 );
+			countCacheAccess( true );
 			return cache;
 		}
+		countCacheAccess( false );
 		return null;
 	}
 
+	private void countCacheAccess( boolean hit )
+	{
+		if ( hit )
+		{
+			hitCount++;
+		}
+		else
+		{
+			missCount++;
+		}
+		SystemCacheManager system = systemCacheManager;
+		if ( system != null )
+		{
+			system.countCacheAccess( hit );
+		}
+	}
+
 	/**
 	 * add a cache object into the cache system.
-	 * 
+	 *
 	 * @param cache
 	 *            the cache object to be added.
 	 */
-	synchronized public void addCache( Cacheable cache )
+	public void addCache( Cacheable cache )
 	{
-		cache.getReferenceCount( ).set( 1 );
-		Object cacheKey = cache.getCacheKey( );
-
-		Cacheable oldCache = caches.get( cacheKey );
-		if ( oldCache != null )
+		synchronized ( this )
 		{
-			int referenceCount = oldCache.getReferenceCount( ).get( );
-			if ( referenceCount >= 1 )
+			cache.getReferenceCount( ).set( 1 );
+			cache.referenced = false;
+			Object cacheKey = cache.getCacheKey( );
+
+			Cacheable oldCache = caches.get( cacheKey );
+			if ( oldCache != null )
 			{
-				throw new IllegalStateException( "Reference count is not zero" );
+				int referenceCount = oldCache.getReferenceCount( ).get( );
+				if ( referenceCount >= 1 )
+				{
+					throw new IllegalStateException(
+							"Reference count is not zero" );
+				}
+				if ( referenceCount == 0 )
+				{
+					// the cache exist in the free cache
+					if ( oldCache.referenced )
+					{
+						freeCaches.remove( oldCache );
+					}
+					else
+					{
+						probationCaches.remove( oldCache );
+					}
+				}
 			}
-			if ( referenceCount == 0 )
+			putCache( cacheKey, cache );
+			lockedCacheSize++;
+			if ( maxCacheSize > 0 )
 			{
-				// the cache exist in the free cache
-				freeCaches.remove( oldCache );
+				adjustFreeCaches( );
 			}
 		}
-		caches.put( cacheKey, cache );
-		lockedCacheSize++;
-		if ( maxCacheSize > 0 )
-		{
-			adjustFreeCaches( );
-		}
+		adjustSystemCaches( );
 	}
 }
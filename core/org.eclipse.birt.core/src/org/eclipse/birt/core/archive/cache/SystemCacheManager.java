@@ -11,16 +11,25 @@
 
 package org.eclipse.birt.core.archive.cache;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
- * The cache is divided into four levels:
- * 
- * System Cache: It is the File Cache: the cache shared by a single archive
- * file. Once the file is closed, the cached data is release. The user can set
- * the max cache used by a single file. Stream Cache: Each opened stream locks
- * at most 4 blocks, 1 data block, 3 FAT block.
- * 
+ * The cache is divided into three levels:
+ *
+ * System Cache: the memory budget shared by all the archive files attached to
+ * it. File Cache: the cache used by a single archive file. Once the file is
+ * closed, the cached data is release. The user can set the max cache used by a
+ * single file. Stream Cache: Each opened stream locks at most 4 blocks, 1 data
+ * block, 3 FAT block.
+ *
+ * Once the memory used by the attached files exceeds the budget, the free
+ * caches of the file using the most memory are released first, so each file
+ * gets a fair share of the budget. The locked caches are never released.
+ *
+ * The manager is thread safe.
  */
 public class SystemCacheManager
 {
@@ -28,111 +37,180 @@ public class SystemCacheManager
 	protected static Logger logger = Logger.getLogger( SystemCacheManager.class
 			.getName( ) );
 
-	protected int maxCacheSize;
-	protected int usedCacheSize;
-	protected CacheList caches;
-	protected boolean enableSystemCache;
+	/**
+	 * the memory budget in bytes.
+	 */
+	protected volatile long maxCacheSize;
+	/**
+	 * the memory used by the attached files in bytes.
+	 */
+	protected final AtomicLong usedCacheSize = new AtomicLong( );
+
+	private final ConcurrentHashMap<FileCacheManager, Boolean> fileCaches = new ConcurrentHashMap<FileCacheManager, Boolean>( );
+
+	private final AtomicLong hitCount = new AtomicLong( );
+	private final AtomicLong missCount = new AtomicLong( );
+	private final AtomicLong evictionCount = new AtomicLong( );
 
 	public SystemCacheManager( )
 	{
 		this( 0 );
 	}
 
-	public SystemCacheManager( int maxCacheSize )
+	/**
+	 * @param maxCacheSize
+	 *            the memory budget in bytes.
+	 */
+	public SystemCacheManager( long maxCacheSize )
 	{
 		this.maxCacheSize = maxCacheSize;
-		this.usedCacheSize = 0;
-		this.caches = new CacheList( );
 	}
 
-	public void setMaxCacheSize( int size )
+	/**
+	 * set the memory budget, the free caches are released at once if the
+	 * budget is exceeded.
+	 *
+	 * @param size
+	 *            the memory budget in bytes.
+	 */
+	public void setMaxCacheSize( long size )
 	{
 		maxCacheSize = size;
+		adjustCaches( );
 	}
 
-	void increaseUsedCacheSize( int size )
+	public long getMaxCacheSize( )
 	{
-		usedCacheSize += size;
+		return maxCacheSize;
 	}
 
-	public int getUsedCacheSize( )
+	/**
+	 * @return the memory used by all the attached files in bytes, including
+	 *         the locked caches.
+	 */
+	public long getUsedCacheSize( )
 	{
-		return usedCacheSize;
+		return usedCacheSize.get( );
 	}
 
-	void removeCaches( FileCacheManager manager )
+	/**
+	 * @return the count of the attached files.
+	 */
+	public int getFileCount( )
 	{
-		Cacheable cache = caches.first( );
-		while ( cache != null )
-		{
-			Cacheable next = cache.getNext( );
-			if ( cache.manager == manager )
-			{
-				caches.remove( cache );
-				manager.caches.remove( cache.getCacheKey( ) );
-				usedCacheSize--;
-			}
-			cache = next;
-		}
+		return fileCaches.size( );
 	}
 
-	void removeCache( Cacheable cache )
+	/**
+	 * @return the times a cache is found in the attached files.
+	 */
+	public long getHitCount( )
 	{
-		caches.remove( cache );
+		return hitCount.get( );
 	}
 
-	void addCaches( Cacheable[] caches )
+	/**
+	 * @return the times a cache is not found in the attached files.
+	 */
+	public long getMissCount( )
 	{
-		if ( maxCacheSize == 0 )
-		{
-			// remove the cache directly
-			for ( Cacheable cache : caches )
-			{
-				cache.getReferenceCount( ).set( -2 );
-				cache.manager.caches.remove( cache.getCacheKey( ) );
-			}
-		}
-		else
+		return missCount.get( );
+	}
+
+	/**
+	 * @return the count of the free caches released by the attached files.
+	 */
+	public long getEvictionCount( )
+	{
+		return evictionCount.get( );
+	}
+
+	void addFileCacheManager( FileCacheManager manager, long usedSize )
+	{
+		fileCaches.put( manager, Boolean.TRUE );
+		usedCacheSize.addAndGet( usedSize );
+	}
+
+	void removeFileCacheManager( FileCacheManager manager, long usedSize )
+	{
+		if ( fileCaches.remove( manager ) != null )
 		{
-			for ( Cacheable cache : caches )
-			{
-				cache.getReferenceCount( ).set( -1 );
-				this.caches.add( cache );
-			}
-			adjustSystemCaches( );
+			usedCacheSize.addAndGet( -usedSize );
 		}
 	}
 
-	void addCache( Cacheable cache )
+	void increaseUsedCacheSize( long size )
+	{
+		usedCacheSize.addAndGet( size );
+	}
+
+	void countCacheAccess( boolean hit )
 	{
-		if ( maxCacheSize == 0 )
+		if ( hit )
 		{
-			// remove the cache directly
-			cache.getReferenceCount( ).set( -2 );
-			cache.manager.caches.remove( cache.getCacheKey( ) );
+			hitCount.incrementAndGet( );
 		}
 		else
 		{
-			cache.getReferenceCount( ).set( -1 );
-			caches.add( cache );
-			adjustSystemCaches( );
+			missCount.incrementAndGet( );
 		}
 	}
 
-	private void adjustSystemCaches( )
+	void increaseEvictionCount( )
+	{
+		evictionCount.incrementAndGet( );
+	}
+
+	/**
+	 * release the free caches until the used memory is in the budget. It must
+	 * not be called with the lock of any file cache manager.
+	 */
+	void adjustCaches( )
 	{
-		int releaseCacheSize = caches.size( ) - maxCacheSize;
-		if ( releaseCacheSize > 0 )
+		if ( usedCacheSize.get( ) <= maxCacheSize )
 		{
-			for ( int i = 0; i < releaseCacheSize; i++ )
+			return;
+		}
+		synchronized ( this )
+		{
+			long releaseSize = usedCacheSize.get( ) - maxCacheSize;
+			while ( releaseSize > 0 )
 			{
-				Cacheable removed = caches.remove( );
-				if ( removed.getReferenceCount( ).compareAndSet( -1, -2 ) )
+				FileCacheManager victim = null;
+				long victimSize = 0;
+				for ( FileCacheManager manager : fileCaches.keySet( ) )
+				{
+					long size = manager.getUsedCacheBytes( );
+					if ( size > victimSize && manager.getFreeCacheSize( ) > 0 )
+					{
+						victim = manager;
+						victimSize = size;
+					}
+				}
+				if ( victim == null )
+				{
+					// all the caches are locked
+					break;
+				}
+				// release the victim to its fair share at most
+				int fileCount = fileCaches.size( );
+				long fairShare = fileCount == 0 ? 0 : maxCacheSize / fileCount;
+				long size = Math.min( releaseSize, victimSize - fairShare );
+				if ( size <= 0 )
+				{
+					size = releaseSize;
+				}
+				if ( victim.releaseFreeCaches( size ) <= 0 )
 				{
-					removed.manager.caches.remove( removed.getCacheKey( ) );
-					usedCacheSize--;
+					break;
 				}
+				releaseSize = usedCacheSize.get( ) - maxCacheSize;
+			}
+			if ( logger.isLoggable( Level.FINEST ) )
+			{
+				logger.log( Level.FINEST, "system cache used: {0}, max: {1}", //$NON-NLS-1$
+						new Object[]{usedCacheSize.get( ), maxCacheSize} );
 			}
 		}
 	}
-}
\ No newline at end of file
+}
@@ -28,6 +28,12 @@ interface ArchiveConstants
 	 * the system property defines the block size, it should be times of 1024.
 	 */
 	static final String PROPERTY_DEFAULT_BLOCK_SIZE = "org.eclipse.birt.core.archive.compound.DEFAULT_BLOCK_SIZE";
+
+	/**
+	 * the system property defines the regular expression of the entry names
+	 * compressed in the new created archives.
+	 */
+	static final String PROPERTY_COMPRESSED_ENTRIES = "org.eclipse.birt.core.archive.compound.COMPRESSED_ENTRIES";
 	
 	/**
 	 * Size of a physical block, counted in bytes.
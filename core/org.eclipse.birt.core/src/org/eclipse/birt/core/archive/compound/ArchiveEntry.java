@@ -12,6 +12,7 @@
 package org.eclipse.birt.core.archive.compound;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import org.eclipse.birt.core.archive.RAOutputStream;
 
@@ -59,6 +60,18 @@ abstract public class ArchiveEntry
 	{
 	}
 
+	/**
+	 * map the entry into memory.
+	 * 
+	 * @return the read only buffers holding the data of the entry in order,
+	 *         or null if the entry can't be memory mapped.
+	 * @throws IOException
+	 */
+	public ByteBuffer[] map( ) throws IOException
+	{
+		return null;
+	}
+
 	abstract public int read( long pos, byte[] b, int off, int len )
 			throws IOException;
 
@@ -12,6 +12,7 @@
 package org.eclipse.birt.core.archive.compound;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import org.eclipse.birt.core.archive.RAOutputStream;
 
@@ -50,6 +51,12 @@ public class ArchiveEntryAdapter extends ArchiveEntry
 		entry.refresh( );
 	}
 
+	@Override
+	public ByteBuffer[] map( ) throws IOException
+	{
+		return entry.map( );
+	}
+
 	@Override
 	public int read( long offset, byte[] b, int off, int size )
 			throws IOException
@@ -13,6 +13,7 @@ package org.eclipse.birt.core.archive.compound;
 
 import java.io.EOFException;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import org.eclipse.birt.core.archive.ArchiveUtil;
 import org.eclipse.birt.core.archive.RAInputStream;
@@ -109,6 +110,19 @@ public class ArchiveEntryInputStream extends RAInputStream
 		return entry.getLength( );
 	}
 
+	/**
+	 * map the stream into memory, the buffers can be read without this
+	 * stream.
+	 * 
+	 * @return the read only buffers holding the data of the stream in order,
+	 *         or null if the stream can't be memory mapped.
+	 * @throws IOException
+	 */
+	public ByteBuffer[] map( ) throws IOException
+	{
+		return entry.map( );
+	}
+
 	public void readFully( byte[] b, int off, int len ) throws IOException
 	{
 		int n = 0;
@@ -12,6 +12,7 @@
 package org.eclipse.birt.core.archive.compound;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import org.eclipse.birt.core.archive.compound.v3.Ext2File;
 
@@ -47,6 +48,12 @@ public class ArchiveEntryV3 extends ArchiveEntry
 		return file.read( b, off, len );
 	}
 
+	@Override
+	public ByteBuffer[] map( ) throws IOException
+	{
+		return file.map( );
+	}
+
 	@Override
 	public void setLength( long length ) throws IOException
 	{
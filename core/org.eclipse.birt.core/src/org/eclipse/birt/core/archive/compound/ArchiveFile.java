@@ -35,8 +35,12 @@ public class ArchiveFile implements IArchiveFile
 {
 
 	public static final boolean enableSystemCache = true;
+	/**
+	 * the cache shared by all the archives opened for reading, the default
+	 * budget is 1024 blocks.
+	 */
 	public static final SystemCacheManager systemCacheManager = new SystemCacheManager(
-			1024 );
+			1024 * 4096 );
 	public static final boolean enableFileCache = true;
 	public static final int FILE_CACHE_SIZE = 1024;
 
@@ -78,6 +82,10 @@ public class ArchiveFile implements IArchiveFile
 		{
 			openArchiveForReading( );
 		}
+		else if ( "rm".equals( mode ) )
+		{
+			openArchiveForReading( mode );
+		}
 		else if ( "rw+".equals( mode ) )
 		{
 			openArchiveForAppending( );
@@ -107,6 +115,19 @@ public class ArchiveFile implements IArchiveFile
 	}
 
 	protected void openArchiveForReading( ) throws IOException
+	{
+		openArchiveForReading( "r" );
+	}
+
+	/**
+	 * open the archive for reading. Only the ext2 archives can be memory
+	 * mapped, other archives are opened in "r" mode.
+	 * 
+	 * @param mode
+	 *            "r" or "rm"
+	 * @throws IOException
+	 */
+	protected void openArchiveForReading( String mode ) throws IOException
 	{
 		// test if we need upgrade the document
 		RandomAccessFile rf = new RandomAccessFile( archiveName, "r" );
@@ -121,7 +142,7 @@ public class ArchiveFile implements IArchiveFile
 			}
 			else if ( magicTag == ARCHIVE_V3_TAG )
 			{
-				ArchiveFileV3 fs = new ArchiveFileV3( archiveName, rf, "r" );
+				ArchiveFileV3 fs = new ArchiveFileV3( archiveName, rf, mode );
 				upgradeSystemId( fs );
 				af = fs;
 			}
@@ -129,7 +150,7 @@ public class ArchiveFile implements IArchiveFile
 			{
 				tmpFileName = getTmpFileName( );
 				unzip( archiveName, tmpFileName );
-				ArchiveFileV3 fs = new ArchiveFileV3( tmpFileName, "r" );
+				ArchiveFileV3 fs = new ArchiveFileV3( tmpFileName, mode );
 				af = fs;
 			}
 			else
@@ -213,6 +234,22 @@ public class ArchiveFile implements IArchiveFile
 		return systemId;
 	}
 
+	/**
+	 * get the modification id of the archive, which is changed each time the
+	 * archive is opened for writing.
+	 * 
+	 * @return the modification id, null if the archive is not an ext2 archive
+	 *         or is written by an older version.
+	 */
+	public String getModificationId( )
+	{
+		if ( af instanceof ArchiveFileV3 )
+		{
+			return ( (ArchiveFileV3) af ).getModificationId( );
+		}
+		return null;
+	}
+
 	/**
 	 * close the archive.
 	 * 
@@ -262,20 +299,19 @@ public class ArchiveFile implements IArchiveFile
 
 	static public long getTotalUsedCache( )
 	{
-		return (long) systemCacheManager.getUsedCacheSize( ) * 4096;
+		return systemCacheManager.getUsedCacheSize( );
 	}
 
+	/**
+	 * set the memory budget of the cache shared by all the archives opened
+	 * for reading.
+	 * 
+	 * @param size
+	 *            the budget in bytes
+	 */
 	static public void setTotalCacheSize( long size )
 	{
-		long blockCount = ( size + 4095 ) / 4096;
-		if ( blockCount > Integer.MAX_VALUE )
-		{
-			systemCacheManager.setMaxCacheSize( Integer.MAX_VALUE );
-		}
-		else
-		{
-			systemCacheManager.setMaxCacheSize( (int) blockCount );
-		}
+		systemCacheManager.setMaxCacheSize( size );
 	}
 
 	public void saveAs( String fileName ) throws IOException
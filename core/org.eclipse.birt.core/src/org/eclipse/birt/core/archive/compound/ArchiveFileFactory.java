@@ -65,12 +65,15 @@ public class ArchiveFileFactory implements IArchiveFileFactory
 	 * Open the archive with <code>archiveId</code> in <code>mode</code>. 
 	 * The <code>mode</code> could be:
 	 *  - r		read 
+	 *  - rm	read, the ext2 archive is memory mapped
 	 *  - rw	read & write (Here should first create a new file)
 	 *  - rw+	read & append
 	 *  
 	 *  1. in "r" mode
 	 *  	a. view: open view in r mode, and open archive in r mode at the same time.
 	 *  	b. archive: open archive in r mode directly.
+	 *  	"rm" mode is the same as "r" mode, the depended archive is opened
+	 *  	in "rm" mode too.
 	 *  
 	 *  2. in "rw" mode
 	 *  	a. view: create new view file, so no depend file exists.
@@ -88,7 +91,8 @@ public class ArchiveFileFactory implements IArchiveFileFactory
 		String dependId = file.getDependId( );
 		if ( dependId != null && dependId.length( ) > 0 )
 		{
-			IArchiveFile archive = openArchive( dependId, "r" );
+			IArchiveFile archive = openArchive( dependId,
+					"rm".equals( mode ) ? "rm" : "r" );
 			return new ArchiveView( file, archive, false );
 		}
 		return file;
@@ -40,6 +40,11 @@ public class ArchiveFileV2 implements IArchiveFile, ArchiveConstants
 	/** the physical file correspond to this compound file system */
 	protected RandomAccessFile rf;
 
+	/**
+	 * reads the blocks in parallel if the archive is opened for read only.
+	 */
+	protected ConcurrentFileReader concurrentReader;
+
 	/**
 	 * if the file is closed.
 	 */
@@ -237,6 +242,10 @@ public class ArchiveFileV2 implements IArchiveFile, ArchiveConstants
 		{
 			openDocument( );
 		}
+		if ( ArchiveFile.enableSystemCache && !isWritable )
+		{
+			caches.setSystemCacheManager( ArchiveFile.systemCacheManager );
+		}
 
 		isClosed = false;
 	}
@@ -322,6 +331,10 @@ public class ArchiveFileV2 implements IArchiveFile, ArchiveConstants
 			{
 				entries.put( nameEnt.getName( ), nameEnt );
 			}
+			if ( !isWritable )
+			{
+				concurrentReader = new ConcurrentFileReader( archiveName );
+			}
 		}
 		catch ( IOException ex )
 		{
@@ -408,6 +421,11 @@ public class ArchiveFileV2 implements IArchiveFile, ArchiveConstants
 			rf.close( );
 			rf = null;
 		}
+		if ( concurrentReader != null )
+		{
+			concurrentReader.close( );
+			concurrentReader = null;
+		}
 		if ( isTransient )
 		{
 			new File( archiveName ).delete( );
@@ -615,7 +633,25 @@ public class ArchiveFileV2 implements IArchiveFile, ArchiveConstants
 	 *            read length
 	 * @throws IOException
 	 */
-	synchronized int read( int blockId, int blockOff, byte[] b, int off, int len )
+	int read( int blockId, int blockOff, byte[] b, int off, int len )
+			throws IOException
+	{
+		ConcurrentFileReader reader = concurrentReader;
+		if ( reader != null )
+		{
+			// positional reads don't share the file pointer, no lock needed
+			return reader.read( (long) blockId * BLOCK_SIZE + blockOff,
+					b,
+					off,
+					len );
+		}
+		synchronized ( this )
+		{
+			return readFile( blockId, blockOff, b, off, len );
+		}
+	}
+
+	private int readFile( int blockId, int blockOff, byte[] b, int off, int len )
 			throws IOException
 	{
 		assertOpen( );
@@ -675,17 +711,43 @@ public class ArchiveFileV2 implements IArchiveFile, ArchiveConstants
 		caches.releaseCache( block );
 	}
 
-	synchronized Block loadBlock( int blockId ) throws IOException
+	Block loadBlock( int blockId ) throws IOException
 	{
 		Object cacheKey = Integer.valueOf( blockId );
+		if ( concurrentReader == null )
+		{
+			synchronized ( this )
+			{
+				Block block = (Block) caches.getCache( cacheKey );
+				if ( block == null )
+				{
+					block = new Block( this, blockId, BLOCK_SIZE );
+					block.refresh( );
+					caches.addCache( block );
+				}
+				return block;
+			}
+		}
+
 		Block block = (Block) caches.getCache( cacheKey );
-		if ( block == null )
+		if ( block != null )
 		{
-			block = new Block( this, blockId, BLOCK_SIZE );
-			block.refresh( );
-			caches.addCache( block );
+			return block;
+		}
+		// load the block without holding the lock, the threads loading the
+		// same block at the same time share the first cached one.
+		Block newBlock = new Block( this, blockId, BLOCK_SIZE );
+		newBlock.refresh( );
+		synchronized ( this )
+		{
+			block = (Block) caches.getCache( cacheKey );
+			if ( block == null )
+			{
+				block = newBlock;
+				caches.addCache( block );
+			}
+			return block;
 		}
-		return block;
 	}
 
 	private void ensureFileCreated( ) throws IOException
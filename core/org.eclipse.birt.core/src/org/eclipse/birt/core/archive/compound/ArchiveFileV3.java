@@ -14,22 +14,38 @@ package org.eclipse.birt.core.archive.compound;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.security.AccessController;
+import java.security.PrivilegedAction;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
+import java.util.UUID;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
 
 import org.eclipse.birt.core.archive.compound.v3.Ext2Entry;
 import org.eclipse.birt.core.archive.compound.v3.Ext2File;
 import org.eclipse.birt.core.archive.compound.v3.Ext2FileSystem;
+import org.eclipse.birt.core.i18n.CoreMessages;
+import org.eclipse.birt.core.i18n.ResourceConstants;
 
 public class ArchiveFileV3 implements IArchiveFile
 {
 
 	public static final String PROPERTY_SYSTEM_ID = "archive.system-id";
 	public static final String PROPERTY_DEPEND_ID = "archive.depened-id";
+	/**
+	 * the regular expression of the entry names compressed in the archive.
+	 */
+	public static final String PROPERTY_COMPRESSED_ENTRIES = "archive.compressed-entries";
+	/**
+	 * the unique id generated each time the archive is opened for writing.
+	 */
+	public static final String PROPERTY_MODIFICATION_ID = "archive.modification-id";
 
 	protected Ext2FileSystem fs;
 	protected HashSet<ArchiveEntryV3> openedEntries = new HashSet<ArchiveEntryV3>( );
+	protected Pattern compressedEntries;
 
 	public ArchiveFileV3( String fileName, String mode ) throws IOException
 
@@ -46,6 +62,96 @@ public class ArchiveFileV3 implements IArchiveFile
 		{
 			fs.setCacheSize( ArchiveFile.FILE_CACHE_SIZE );
 		}
+		if ( ArchiveFile.enableSystemCache && fs.isReadOnly( ) )
+		{
+			fs.setSystemCacheManager( ArchiveFile.systemCacheManager );
+		}
+		String namePattern = fs.getProperty( PROPERTY_COMPRESSED_ENTRIES );
+		if ( namePattern == null && isEmpty( ) )
+		{
+			namePattern = getDefaultCompressedEntries( );
+		}
+		if ( namePattern != null )
+		{
+			setCompressedEntries( namePattern );
+		}
+		if ( !fs.isReadOnly( ) )
+		{
+			fs.setProperty( PROPERTY_MODIFICATION_ID, UUID.randomUUID( )
+					.toString( ) );
+			if ( "rw+".equals( mode ) )
+			{
+				// save the new id before the entries are changed, so the
+				// readers opened from now on don't take the archive for the
+				// old one.
+				fs.flush( );
+			}
+		}
+	}
+
+	private boolean isEmpty( )
+	{
+		return !fs.isReadOnly( ) && !fs.listAllFiles( ).iterator( ).hasNext( );
+	}
+
+	private String getDefaultCompressedEntries( )
+	{
+		String value = (String) AccessController
+				.doPrivileged( new PrivilegedAction<Object>( ) {
+
+					public Object run( )
+					{
+						return System
+								.getProperty( ArchiveConstants.PROPERTY_COMPRESSED_ENTRIES );
+					}
+				} );
+		if ( value != null )
+		{
+			try
+			{
+				Pattern.compile( value );
+				return value;
+			}
+			catch ( PatternSyntaxException ex )
+			{
+				// just skip the invalid pattern
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * compress the entries whose name matches the pattern. The pattern is
+	 * saved in the archive, so it can only be set before any entry is created.
+	 * 
+	 * @param namePattern
+	 *            the regular expression of the entry names.
+	 */
+	public void setCompressedEntries( String namePattern )
+	{
+		String oldPattern = fs.getProperty( PROPERTY_COMPRESSED_ENTRIES );
+		if ( !namePattern.equals( oldPattern ) )
+		{
+			if ( !isEmpty( ) )
+			{
+				throw new IllegalStateException(
+						CoreMessages
+								.getString( ResourceConstants.COMPRESSED_ENTRIES_CHANGED ) );
+			}
+			fs.setProperty( PROPERTY_COMPRESSED_ENTRIES, namePattern );
+		}
+		compressedEntries = Pattern.compile( namePattern );
+	}
+
+	private ArchiveEntryV3 createArchiveEntry( Ext2File file )
+			throws IOException
+	{
+		if ( compressedEntries != null
+				&& compressedEntries.matcher( file.getName( ) ).matches( ) )
+		{
+			return new CompressedArchiveEntryV3( this, file );
+		}
+		return new ArchiveEntryV3( this, file );
 	}
 
 	synchronized public void close( ) throws IOException
@@ -80,7 +186,7 @@ public class ArchiveFileV3 implements IArchiveFile
 	synchronized public ArchiveEntry createEntry( String name ) throws IOException
 	{
 		Ext2File file = fs.createFile( name );
-		return new ArchiveEntryV3( this, file );
+		return createArchiveEntry( file );
 	}
 
 	public boolean exists( String name )
@@ -108,7 +214,7 @@ public class ArchiveFileV3 implements IArchiveFile
 		if ( fs.existFile( name ) )
 		{
 			Ext2File file = fs.openFile( name );
-			return new ArchiveEntryV3( this, file );
+			return createArchiveEntry( file );
 		}
 		throw new FileNotFoundException( name );
 	}
@@ -118,6 +224,19 @@ public class ArchiveFileV3 implements IArchiveFile
 		return fs.getFileName( );
 	}
 
+	/**
+	 * get the modification id of the archive. The id is changed each time the
+	 * archive is opened for writing, so two archives with the same id have
+	 * the same content.
+	 * 
+	 * @return the modification id, null if the archive is written by an older
+	 *         version.
+	 */
+	public String getModificationId( )
+	{
+		return fs.getProperty( PROPERTY_MODIFICATION_ID );
+	}
+
 	public String getSystemId( )
 	{
 		return fs.getProperty( PROPERTY_SYSTEM_ID );
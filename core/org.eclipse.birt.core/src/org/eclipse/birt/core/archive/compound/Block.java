@@ -59,6 +59,12 @@ public class Block extends Cacheable implements ArchiveConstants
 		dataSize = 0;
 	}
 
+	@Override
+	public int getCacheSize( )
+	{
+		return blockSize;
+	}
+
 	public void refresh( ) throws IOException
 	{
 		dataSize = af.read( id, 0, blockData, 0, blockSize );
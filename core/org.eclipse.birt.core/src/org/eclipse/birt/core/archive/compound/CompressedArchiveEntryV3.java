@@ -0,0 +1,671 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.core.archive.compound;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import org.eclipse.birt.core.archive.compound.v3.Ext2File;
+import org.eclipse.birt.core.i18n.CoreMessages;
+import org.eclipse.birt.core.i18n.ResourceConstants;
+
+/**
+ * An entry whose data is compressed in chunks.
+ *
+ * The logical stream is divided into chunks of CHUNK_SIZE bytes, each chunk is
+ * deflated on its own, so any position can be read by inflating a single
+ * chunk. The index records the position of each chunk:
+ *
+ * <pre>
+ *  header: TAG(int), CHUNK_SIZE(int), length(long), modCount(long),
+ *          index offset(long), index capacity(int), chunk count(int), slot count(int)
+ *  index:  [offset(long), size(int), capacity(int), spare offset(long), spare capacity(int), 0(int)]*
+ *          a negative size means the chunk is not deflated.
+ * </pre>
+ *
+ * Each chunk has two slots which are used in turn: a chunk written again is
+ * stored in the spare slot, so the slot read by the other entries is never
+ * overwritten by the next write. A slot is reused as long as the chunk fits in
+ * it, otherwise it is extended if it is at the end of the file or moved to the
+ * end of the file with a larger capacity, so a back-patched entry doesn't grow
+ * with the number of writes. The index has its own space which is doubled and
+ * moved when it is full.
+ *
+ * The chunk data, its index entry and the header are written each time a
+ * chunk is flushed, the header is written at last and increases the modCount.
+ * The entries opened in a writable archive read the header again before each
+ * read, so they see the data once the writer has flushed the chunk or the
+ * entry. A chunk read while the modCount changes is read again. Only one entry
+ * can write the same file at a time.
+ */
+class CompressedArchiveEntryV3 extends ArchiveEntryV3
+{
+
+	/** the tag of compressed entry: "BCE0" */
+	static final int COMPRESSED_ENTRY_TAG = 0x42434530;
+	static final int HEADER_SIZE = 64;
+	static final int INDEX_ENTRY_SIZE = 32;
+	static final int MIN_INDEX_CAPACITY = 16;
+	static final int CHUNK_SIZE = 32 * 1024;
+
+	private int chunkSize = CHUNK_SIZE;
+	private long length;
+	private long modCount;
+	private long indexOffset;
+	private int indexCapacity;
+	private int chunkCount;
+	private int slotCount;
+
+	/**
+	 * the index is read from the file for each chunk as the file may be
+	 * written by another entry. It is false once the entry writes the file or
+	 * if the archive is read only, then the whole index is cached.
+	 */
+	private boolean live;
+	private long appendPosition = HEADER_SIZE;
+	private long[] chunkOffsets = new long[MIN_INDEX_CAPACITY];
+	private int[] chunkSizes = new int[MIN_INDEX_CAPACITY];
+	private int[] chunkCapacities = new int[MIN_INDEX_CAPACITY];
+	private long[] spareOffsets = new long[MIN_INDEX_CAPACITY];
+	private int[] spareCapacities = new int[MIN_INDEX_CAPACITY];
+
+	/**
+	 * the chunk in memory
+	 */
+	private byte[] chunk;
+	private int chunkId = -1;
+	private boolean chunkDirty;
+
+	private byte[] buffer;
+	private Deflater deflater;
+	private Inflater inflater;
+
+	CompressedArchiveEntryV3( ArchiveFileV3 archive, Ext2File file )
+			throws IOException
+	{
+		super( archive, file );
+		try
+		{
+			readHeader( );
+			live = !archive.fs.isReadOnly( );
+			if ( !live )
+			{
+				readIndex( );
+			}
+		}
+		catch ( IOException ex )
+		{
+			super.close( );
+			throw ex;
+		}
+		if ( chunk == null )
+		{
+			chunk = new byte[chunkSize];
+		}
+	}
+
+	/**
+	 * read the header, the chunk in memory is dropped if the file has been
+	 * changed since the last read.
+	 */
+	private void readHeader( ) throws IOException
+	{
+		if ( file.length( ) < HEADER_SIZE )
+		{
+			// nothing has been flushed yet
+			return;
+		}
+		DataInputStream in = new DataInputStream( new ByteArrayInputStream(
+				readFully( 0, HEADER_SIZE ) ) );
+		int tag = in.readInt( );
+		if ( tag != COMPRESSED_ENTRY_TAG )
+		{
+			throw new IOException( CoreMessages.getFormattedString(
+					ResourceConstants.INVALID_MAGIC_TAG, new Object[]{tag} ) );
+		}
+		int size = in.readInt( );
+		length = in.readLong( );
+		long count = in.readLong( );
+		indexOffset = in.readLong( );
+		indexCapacity = in.readInt( );
+		chunkCount = in.readInt( );
+		slotCount = in.readInt( );
+		if ( size != chunkSize || chunk == null )
+		{
+			chunkSize = size;
+			chunk = new byte[chunkSize];
+			chunkId = -1;
+		}
+		if ( count != modCount )
+		{
+			modCount = count;
+			chunkId = -1;
+		}
+	}
+
+	private long readModCount( ) throws IOException
+	{
+		if ( file.length( ) < HEADER_SIZE )
+		{
+			return modCount;
+		}
+		return new DataInputStream( new ByteArrayInputStream( readFully( 16, 8 ) ) )
+				.readLong( );
+	}
+
+	/**
+	 * read the whole index and find the end of the used space.
+	 */
+	private void readIndex( ) throws IOException
+	{
+		ensureIndexCapacity( slotCount );
+		DataInputStream in = new DataInputStream( new ByteArrayInputStream(
+				readFully( indexOffset, slotCount * INDEX_ENTRY_SIZE ) ) );
+		appendPosition = Math.max( HEADER_SIZE, indexOffset + (long) indexCapacity
+				* INDEX_ENTRY_SIZE );
+		for ( int i = 0; i < slotCount; i++ )
+		{
+			readIndexEntry( in, i );
+			appendPosition = Math.max( appendPosition, chunkOffsets[i]
+					+ chunkCapacities[i] );
+			appendPosition = Math.max( appendPosition, spareOffsets[i]
+					+ spareCapacities[i] );
+		}
+	}
+
+	private void readIndexEntry( DataInputStream in, int id )
+			throws IOException
+	{
+		chunkOffsets[id] = in.readLong( );
+		chunkSizes[id] = in.readInt( );
+		chunkCapacities[id] = in.readInt( );
+		spareOffsets[id] = in.readLong( );
+		spareCapacities[id] = in.readInt( );
+		in.readInt( );
+	}
+
+	private byte[] readFully( long pos, int size ) throws IOException
+	{
+		byte[] bytes = new byte[size];
+		file.seek( pos );
+		if ( size > 0 && file.read( bytes, 0, size ) != size )
+		{
+			throw new EOFException( );
+		}
+		return bytes;
+	}
+
+	private void ensureIndexCapacity( int size )
+	{
+		if ( size > chunkOffsets.length )
+		{
+			int capacity = Math.max( size, chunkOffsets.length * 2 );
+			chunkOffsets = Arrays.copyOf( chunkOffsets, capacity );
+			chunkSizes = Arrays.copyOf( chunkSizes, capacity );
+			chunkCapacities = Arrays.copyOf( chunkCapacities, capacity );
+			spareOffsets = Arrays.copyOf( spareOffsets, capacity );
+			spareCapacities = Arrays.copyOf( spareCapacities, capacity );
+		}
+	}
+
+	@Override
+	public void refresh( ) throws IOException
+	{
+		if ( live )
+		{
+			readHeader( );
+		}
+	}
+
+	/**
+	 * the chunks are deflated, they can't be mapped.
+	 */
+	@Override
+	public ByteBuffer[] map( ) throws IOException
+	{
+		return null;
+	}
+
+	@Override
+	public long getLength( ) throws IOException
+	{
+		if ( live )
+		{
+			readHeader( );
+		}
+		return length;
+	}
+
+	@Override
+	public int read( long pos, byte[] b, int off, int len ) throws IOException
+	{
+		if ( live )
+		{
+			readHeader( );
+		}
+		if ( len == 0 )
+		{
+			return 0;
+		}
+		if ( pos >= length )
+		{
+			return -1;
+		}
+		if ( len > length - pos )
+		{
+			len = (int) ( length - pos );
+		}
+		int read = 0;
+		while ( read < len )
+		{
+			loadChunk( (int) ( pos / chunkSize ) );
+			int chunkOff = (int) ( pos % chunkSize );
+			int size = Math.min( len - read, chunkSize - chunkOff );
+			System.arraycopy( chunk, chunkOff, b, off + read, size );
+			read += size;
+			pos += size;
+		}
+		return read;
+	}
+
+	@Override
+	public void write( long pos, byte[] b, int off, int len )
+			throws IOException
+	{
+		startWrite( );
+		int written = 0;
+		while ( written < len )
+		{
+			int id = (int) ( pos / chunkSize );
+			int chunkOff = (int) ( pos % chunkSize );
+			int size = Math.min( len - written, chunkSize - chunkOff );
+			if ( size == chunkSize )
+			{
+				// the whole chunk is replaced, needn't load it
+				if ( id != chunkId )
+				{
+					flushChunk( );
+					chunkId = id;
+				}
+			}
+			else
+			{
+				loadChunk( id );
+			}
+			System.arraycopy( b, off + written, chunk, chunkOff, size );
+			chunkDirty = true;
+			written += size;
+			pos += size;
+			if ( pos > length )
+			{
+				length = pos;
+			}
+		}
+	}
+
+	@Override
+	public void setLength( long newLength ) throws IOException
+	{
+		startWrite( );
+		if ( newLength == 0 )
+		{
+			// the slots are kept to be reused
+			chunkCount = 0;
+			chunkId = -1;
+			chunkDirty = false;
+		}
+		else if ( newLength < length )
+		{
+			int lastChunkId = (int) ( ( newLength - 1 ) / chunkSize );
+			int lastChunkOff = (int) ( ( newLength - 1 ) % chunkSize ) + 1;
+			if ( lastChunkOff < chunkSize
+					&& ( lastChunkId < chunkCount || lastChunkId == chunkId ) )
+			{
+				// clear the tail, it is read as 0 if the entry grows again
+				loadChunk( lastChunkId );
+				Arrays.fill( chunk, lastChunkOff, chunkSize, (byte) 0 );
+				chunkDirty = true;
+			}
+			if ( chunkId > lastChunkId )
+			{
+				chunkId = -1;
+				chunkDirty = false;
+			}
+			if ( chunkCount > lastChunkId + 1 )
+			{
+				chunkCount = lastChunkId + 1;
+			}
+		}
+		length = newLength;
+		if ( chunkDirty )
+		{
+			flushChunk( );
+		}
+		else
+		{
+			writeHeader( );
+		}
+	}
+
+	@Override
+	public void flush( ) throws IOException
+	{
+		super.flush( );
+		flushChunk( );
+	}
+
+	@Override
+	public void close( ) throws IOException
+	{
+		try
+		{
+			flushChunk( );
+		}
+		finally
+		{
+			if ( deflater != null )
+			{
+				deflater.end( );
+				deflater = null;
+			}
+			if ( inflater != null )
+			{
+				inflater.end( );
+				inflater = null;
+			}
+			super.close( );
+		}
+	}
+
+	/**
+	 * the entry becomes the writer of the file, it reads the latest index and
+	 * caches it from now on.
+	 */
+	private void startWrite( ) throws IOException
+	{
+		if ( archive.fs.isReadOnly( ) )
+		{
+			throw new IOException(
+					CoreMessages.getString( ResourceConstants.FILE_IN_READONLY_MODE ) );
+		}
+		if ( live )
+		{
+			readHeader( );
+			readIndex( );
+			live = false;
+		}
+	}
+
+	private void loadChunk( int id ) throws IOException
+	{
+		if ( id == chunkId )
+		{
+			return;
+		}
+		flushChunk( );
+		chunkId = -1;
+		if ( !live )
+		{
+			readChunk( id );
+			chunkId = id;
+			return;
+		}
+		while ( true )
+		{
+			long count = modCount;
+			try
+			{
+				if ( id < chunkCount )
+				{
+					ensureIndexCapacity( id + 1 );
+					readIndexEntry( new DataInputStream( new ByteArrayInputStream(
+							readFully( indexOffset + (long) id
+									* INDEX_ENTRY_SIZE, INDEX_ENTRY_SIZE ) ) ),
+							id );
+				}
+				readChunk( id );
+				if ( readModCount( ) == count )
+				{
+					chunkId = id;
+					return;
+				}
+			}
+			catch ( IOException ex )
+			{
+				if ( readModCount( ) == count )
+				{
+					throw ex;
+				}
+			}
+			// the chunk has been written again while it is read
+			readHeader( );
+		}
+	}
+
+	private void readChunk( int id ) throws IOException
+	{
+		int size = id < chunkCount ? chunkSizes[id] : 0;
+		int chunkLength = 0;
+		if ( size < 0 )
+		{
+			file.seek( chunkOffsets[id] );
+			chunkLength = file.read( chunk, 0, -size );
+		}
+		else if ( size > 0 )
+		{
+			byte[] data = getBuffer( size );
+			file.seek( chunkOffsets[id] );
+			if ( file.read( data, 0, size ) != size )
+			{
+				throw new EOFException( );
+			}
+			if ( inflater == null )
+			{
+				inflater = new Inflater( );
+			}
+			inflater.reset( );
+			inflater.setInput( data, 0, size );
+			try
+			{
+				while ( chunkLength < chunkSize && !inflater.finished( ) )
+				{
+					int count = inflater.inflate( chunk, chunkLength, chunkSize
+							- chunkLength );
+					if ( count == 0 && inflater.needsInput( ) )
+					{
+						throw new EOFException( );
+					}
+					chunkLength += count;
+				}
+			}
+			catch ( DataFormatException ex )
+			{
+				IOException ioex = new IOException( ex.getMessage( ) );
+				ioex.initCause( ex );
+				throw ioex;
+			}
+		}
+		if ( chunkLength < chunkSize )
+		{
+			Arrays.fill( chunk, Math.max( chunkLength, 0 ), chunkSize, (byte) 0 );
+		}
+	}
+
+	/**
+	 * write the chunk in memory to its spare slot, then its index entry and
+	 * the header.
+	 */
+	private void flushChunk( ) throws IOException
+	{
+		if ( !chunkDirty )
+		{
+			return;
+		}
+		int size = (int) Math.min( chunkSize, length - (long) chunkId
+				* chunkSize );
+		byte[] data = getBuffer( size );
+		if ( deflater == null )
+		{
+			deflater = new Deflater( Deflater.BEST_SPEED );
+		}
+		deflater.reset( );
+		deflater.setInput( chunk, 0, size );
+		deflater.finish( );
+		int storedSize = 0;
+		while ( !deflater.finished( ) && storedSize < size )
+		{
+			storedSize += deflater.deflate( data, storedSize, size
+					- storedSize );
+		}
+		if ( !deflater.finished( ) || storedSize >= size )
+		{
+			// it can't be compressed
+			data = chunk;
+			storedSize = -size;
+		}
+		int storedLength = Math.abs( storedSize );
+
+		int firstEntry = Math.min( chunkId, chunkCount );
+		if ( chunkId >= slotCount )
+		{
+			ensureIndexCapacity( chunkId + 1 );
+			for ( int i = slotCount; i <= chunkId; i++ )
+			{
+				chunkOffsets[i] = 0;
+				chunkCapacities[i] = 0;
+				spareOffsets[i] = 0;
+				spareCapacities[i] = 0;
+			}
+			slotCount = chunkId + 1;
+		}
+		if ( chunkId >= chunkCount )
+		{
+			// the chunks in between are read as 0
+			for ( int i = chunkCount; i < chunkId; i++ )
+			{
+				chunkSizes[i] = 0;
+			}
+			chunkCount = chunkId + 1;
+		}
+
+		long offset = spareOffsets[chunkId];
+		int capacity = spareCapacities[chunkId];
+		if ( storedLength > capacity )
+		{
+			if ( capacity > 0 && offset + capacity == appendPosition )
+			{
+				// the slot is at the end of the file, extend it
+				capacity = storedLength;
+			}
+			else
+			{
+				// the first slot is allocated as it is, a moved slot doubles
+				// its capacity so it is seldom moved again
+				offset = appendPosition;
+				capacity = capacity == 0 ? storedLength : Math.min( chunkSize,
+						Math.max( storedLength, capacity * 2 ) );
+			}
+			appendPosition = Math.max( appendPosition, offset + capacity );
+		}
+		file.seek( offset );
+		file.write( data, 0, storedLength );
+
+		spareOffsets[chunkId] = chunkOffsets[chunkId];
+		spareCapacities[chunkId] = chunkCapacities[chunkId];
+		chunkOffsets[chunkId] = offset;
+		chunkCapacities[chunkId] = capacity;
+		chunkSizes[chunkId] = storedSize;
+		chunkDirty = false;
+
+		writeIndex( firstEntry, chunkId + 1 );
+		writeHeader( );
+	}
+
+	/**
+	 * write the index entries from <code>from</code> to <code>to</code>. The
+	 * whole index is written to a new place if it is full.
+	 */
+	private void writeIndex( int from, int to ) throws IOException
+	{
+		if ( slotCount > indexCapacity )
+		{
+			indexCapacity = Math.max( MIN_INDEX_CAPACITY, Math.max(
+					slotCount, indexCapacity * 2 ) );
+			// keep the index entries aligned, so none of them crosses a block
+			indexOffset = ( appendPosition + INDEX_ENTRY_SIZE - 1 )
+					/ INDEX_ENTRY_SIZE * INDEX_ENTRY_SIZE;
+			appendPosition = indexOffset + (long) indexCapacity
+					* INDEX_ENTRY_SIZE;
+			from = 0;
+			to = indexCapacity;
+		}
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream( ( to - from )
+				* INDEX_ENTRY_SIZE );
+		DataOutputStream out = new DataOutputStream( bytes );
+		for ( int i = from; i < to; i++ )
+		{
+			if ( i < slotCount )
+			{
+				out.writeLong( chunkOffsets[i] );
+				out.writeInt( chunkSizes[i] );
+				out.writeInt( chunkCapacities[i] );
+				out.writeLong( spareOffsets[i] );
+				out.writeInt( spareCapacities[i] );
+				out.writeInt( 0 );
+			}
+			else
+			{
+				out.write( new byte[INDEX_ENTRY_SIZE] );
+			}
+		}
+		byte[] index = bytes.toByteArray( );
+		file.seek( indexOffset + (long) from * INDEX_ENTRY_SIZE );
+		file.write( index, 0, index.length );
+	}
+
+	private void writeHeader( ) throws IOException
+	{
+		modCount++;
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream( HEADER_SIZE );
+		DataOutputStream out = new DataOutputStream( bytes );
+		out.writeInt( COMPRESSED_ENTRY_TAG );
+		out.writeInt( chunkSize );
+		out.writeLong( length );
+		out.writeLong( modCount );
+		out.writeLong( indexOffset );
+		out.writeInt( indexCapacity );
+		out.writeInt( chunkCount );
+		out.writeInt( slotCount );
+		out.write( new byte[HEADER_SIZE - bytes.size( )] );
+		byte[] header = bytes.toByteArray( );
+		file.seek( 0 );
+		file.write( header, 0, header.length );
+	}
+
+	private byte[] getBuffer( int size )
+	{
+		if ( buffer == null || buffer.length < size )
+		{
+			buffer = new byte[Math.max( size, chunkSize )];
+		}
+		return buffer;
+	}
+}
@@ -0,0 +1,138 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2008 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.core.archive.compound;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedByInterruptException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+
+import org.eclipse.birt.core.i18n.CoreMessages;
+import org.eclipse.birt.core.i18n.ResourceConstants;
+
+/**
+ * Reads a file which is not changed any more with positional reads, so many
+ * threads can read it at the same time without sharing a file pointer.
+ * <p>
+ * The reader uses its own file handle. If the channel is closed because a
+ * reading thread is interrupted, the channel is reopened for the other
+ * readers.
+ */
+public class ConcurrentFileReader
+{
+
+	private final String fileName;
+	private volatile FileChannel channel;
+	private boolean closed;
+
+	/**
+	 * @param fileName
+	 *            the file to read.
+	 */
+	public ConcurrentFileReader( String fileName )
+	{
+		this.fileName = fileName;
+	}
+
+	/**
+	 * read up to <code>len</code> bytes from <code>position</code>. It only
+	 * returns less bytes if the end of file is reached.
+	 *
+	 * @param position
+	 *            the file position
+	 * @param b
+	 *            read buffer
+	 * @param off
+	 *            buffer offset
+	 * @param len
+	 *            read length
+	 * @return the bytes read
+	 * @throws IOException
+	 */
+	public int read( long position, byte[] b, int off, int len )
+			throws IOException
+	{
+		ByteBuffer buffer = ByteBuffer.wrap( b, off, len );
+		FileChannel readChannel = getChannel( null );
+		while ( buffer.hasRemaining( ) )
+		{
+			try
+			{
+				int size = readChannel.read( buffer, position
+						+ buffer.position( ) - off );
+				if ( size < 0 )
+				{
+					break;
+				}
+			}
+			catch ( ClosedByInterruptException ex )
+			{
+				throw ex;
+			}
+			catch ( ClosedChannelException ex )
+			{
+				// closed by another interrupted reader
+				readChannel = getChannel( readChannel );
+			}
+		}
+		return buffer.position( ) - off;
+	}
+
+	/**
+	 * get an open channel.
+	 *
+	 * @param failedChannel
+	 *            the channel which has been closed, or null.
+	 * @return
+	 * @throws IOException
+	 */
+	private FileChannel getChannel( FileChannel failedChannel )
+			throws IOException
+	{
+		FileChannel readChannel = channel;
+		if ( readChannel != null && readChannel != failedChannel
+				&& readChannel.isOpen( ) )
+		{
+			return readChannel;
+		}
+		synchronized ( this )
+		{
+			if ( closed )
+			{
+				throw new IOException( CoreMessages
+						.getString( ResourceConstants.FILE_HAS_BEEN_CLOSED ) );
+			}
+			if ( channel == null || !channel.isOpen( ) )
+			{
+				channel = new RandomAccessFile( fileName, "r" ).getChannel( );
+			}
+			return channel;
+		}
+	}
+
+	/**
+	 * close the reader.
+	 *
+	 * @throws IOException
+	 */
+	public synchronized void close( ) throws IOException
+	{
+		closed = true;
+		if ( channel != null )
+		{
+			channel.close( );
+			channel = null;
+		}
+	}
+}
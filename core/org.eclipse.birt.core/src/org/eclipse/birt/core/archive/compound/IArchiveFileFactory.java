@@ -19,6 +19,8 @@ public interface IArchiveFileFactory
 	/**
 	 * Open the archive or view. The mode can be either:
 	 * 	- "r" 	the archive file is opened for read only. 
+	 * 	- "rm" 	the archive file is opened for read only and memory mapped,
+	 * 			it should only be used for the finished archives.
 	 * 	- "rw" 	the archive file is opened for read and write.
 	 *  - "rw+"	the archive file is opened for read and append.
 	 * 
@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2008 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.core.archive.compound;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.util.List;
+
+import org.eclipse.birt.core.i18n.CoreMessages;
+import org.eclipse.birt.core.i18n.ResourceConstants;
+
+/**
+ * Reads a finished file through read only memory mappings. The reads are
+ * copied from the OS page cache directly, without any system call, and the
+ * page cache is shared by all the processes reading the same file.
+ * <p>
+ * The whole file is mapped when the reader is created and the file handle is
+ * closed at once. The mappings are released by the garbage collector after the
+ * reader is closed, as unmapping a region which may still be read by another
+ * thread is not safe.
+ */
+public class MappedFileReader extends ConcurrentFileReader
+{
+
+	/**
+	 * the region size, it is a multiple of the block size so a block never
+	 * crosses two regions.
+	 */
+	static final int REGION_SIZE_BITS = 30;
+	static final int REGION_SIZE = 1 << REGION_SIZE_BITS;
+	static final int REGION_OFFSET_MASK = REGION_SIZE - 1;
+
+	private volatile MappedByteBuffer[] regions;
+	private final long length;
+
+	/**
+	 * @param fileName
+	 *            the file to map.
+	 * @throws IOException
+	 *             the file can't be opened or mapped.
+	 */
+	public MappedFileReader( String fileName ) throws IOException
+	{
+		super( fileName );
+		RandomAccessFile rf = new RandomAccessFile( fileName, "r" );
+		try
+		{
+			FileChannel channel = rf.getChannel( );
+			length = channel.size( );
+			int regionCount = (int) ( ( length + REGION_SIZE - 1 ) >> REGION_SIZE_BITS );
+			MappedByteBuffer[] buffers = new MappedByteBuffer[regionCount];
+			for ( int i = 0; i < regionCount; i++ )
+			{
+				long start = ( (long) i ) << REGION_SIZE_BITS;
+				buffers[i] = channel.map( MapMode.READ_ONLY, start, Math.min(
+						REGION_SIZE, length - start ) );
+			}
+			regions = buffers;
+		}
+		finally
+		{
+			rf.close( );
+		}
+	}
+
+	@Override
+	public int read( long position, byte[] b, int off, int len )
+			throws IOException
+	{
+		MappedByteBuffer[] buffers = regions;
+		if ( buffers == null )
+		{
+			throw new IOException( CoreMessages
+					.getString( ResourceConstants.FILE_HAS_BEEN_CLOSED ) );
+		}
+		if ( position >= length )
+		{
+			return 0;
+		}
+		if ( len > length - position )
+		{
+			len = (int) ( length - position );
+		}
+		int read = 0;
+		while ( read < len )
+		{
+			// the regions are shared, read through a private view
+			ByteBuffer view = buffers[(int) ( position >> REGION_SIZE_BITS )]
+					.duplicate( );
+			int posInRegion = (int) ( position & REGION_OFFSET_MASK );
+			int size = Math.min( len - read, view.limit( ) - posInRegion );
+			view.position( posInRegion );
+			view.get( b, off + read, size );
+			read += size;
+			position += size;
+		}
+		return read;
+	}
+
+	/**
+	 * add the read only buffers of the mapped range into the list. The range
+	 * is split at the region boundaries, the part after the end of the file
+	 * is read as 0.
+	 * 
+	 * @param position
+	 *            the start of the range.
+	 * @param size
+	 *            the size of the range.
+	 * @param buffers
+	 *            the list to add the buffers.
+	 * @throws IOException
+	 *             the reader has been closed.
+	 */
+	public void map( long position, long size, List<ByteBuffer> buffers )
+			throws IOException
+	{
+		MappedByteBuffer[] mapped = regions;
+		if ( mapped == null )
+		{
+			throw new IOException( CoreMessages
+					.getString( ResourceConstants.FILE_HAS_BEEN_CLOSED ) );
+		}
+		while ( size > 0 )
+		{
+			if ( position >= length )
+			{
+				// only the last block may be partly written
+				buffers.add( ByteBuffer.allocate( (int) size ).asReadOnlyBuffer( ) );
+				return;
+			}
+			ByteBuffer region = mapped[(int) ( position >> REGION_SIZE_BITS )]
+					.duplicate( );
+			int posInRegion = (int) ( position & REGION_OFFSET_MASK );
+			int count = (int) Math.min( size, region.limit( ) - posInRegion );
+			region.position( posInRegion );
+			region.limit( posInRegion + count );
+			buffers.add( region.slice( ) );
+			position += count;
+			size -= count;
+		}
+	}
+
+	@Override
+	public synchronized void close( ) throws IOException
+	{
+		regions = null;
+		super.close( );
+	}
+}
@@ -12,6 +12,9 @@
 package org.eclipse.birt.core.archive.compound.v3;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
 
 import org.eclipse.birt.core.i18n.CoreMessages;
 import org.eclipse.birt.core.i18n.ResourceConstants;
@@ -191,6 +194,53 @@ public class Ext2File
 		return read_without_cache( buffer, off, size );
 	}
 
+	/**
+	 * map the file into memory. The continuous blocks are mapped by one
+	 * buffer, the blocks not allocated are read as 0.
+	 * 
+	 * @return the read only buffers holding the data of the file in order, or
+	 *         null if the file system is not memory mapped.
+	 * @throws IOException
+	 */
+	public ByteBuffer[] map( ) throws IOException
+	{
+		if ( fs == null )
+		{
+			throw new IOException(
+					CoreMessages.getString( ResourceConstants.FILE_HAS_BEEN_CLOSED ) );
+		}
+		if ( !fs.isMemoryMapped( ) )
+		{
+			return null;
+		}
+		long length = node.getLength( );
+		int blockCount = (int) ( ( length + BLOCK_SIZE - 1 ) >> BLOCK_SIZE_BITS );
+		ArrayList<ByteBuffer> buffers = new ArrayList<ByteBuffer>( );
+		int blockId = 0;
+		while ( blockId < blockCount )
+		{
+			long position = ( (long) blockId ) << BLOCK_SIZE_BITS;
+			int fileBlockId = getDataBlock( blockId );
+			if ( fileBlockId == -1 )
+			{
+				int size = (int) Math.min( BLOCK_SIZE, length - position );
+				buffers.add( ByteBuffer.allocate( size ).asReadOnlyBuffer( ) );
+				blockId++;
+				continue;
+			}
+			int count = 1;
+			while ( blockId + count < blockCount
+					&& getDataBlock( blockId + count ) == fileBlockId + count )
+			{
+				count++;
+			}
+			fs.mapBlocks( fileBlockId, Math.min( ( (long) count ) << BLOCK_SIZE_BITS,
+					length - position ), buffers );
+			blockId += count;
+		}
+		return buffers.toArray( new ByteBuffer[buffers.size( )] );
+	}
+
 	private int read_without_cache( byte[] buffer, int off, int size )
 			throws IOException
 	{
@@ -211,11 +261,11 @@ public class Ext2File
 		int fileBlockId = getDataBlock( blockId );
 		if ( size <= blockSize )
 		{
-			fs.readBlock( fileBlockId, blockOff, buffer, off, size );
+			readBlock( fileBlockId, blockOff, buffer, off, size );
 		}
 		else
 		{
-			fs.readBlock( fileBlockId, blockOff, buffer, off, blockSize );
+			readBlock( fileBlockId, blockOff, buffer, off, blockSize );
 			off += blockSize;
 			int remainSize = size - blockSize;
 			int wholeBlocks = remainSize >> BLOCK_SIZE_BITS;
@@ -223,10 +273,7 @@ public class Ext2File
 			{
 				blockId++;
 				fileBlockId = getDataBlock( blockId );
-				if ( fileBlockId != -1 )
-				{
-					fs.readBlock( fileBlockId, 0, buffer, off, BLOCK_SIZE );
-				}
+				readBlock( fileBlockId, 0, buffer, off, BLOCK_SIZE );
 				off += BLOCK_SIZE;
 			}
 			remainSize = remainSize & BLOCK_OFFSET_MASK;
@@ -234,17 +281,28 @@ public class Ext2File
 			{
 				blockId++;
 				fileBlockId = getDataBlock( blockId );
-				if ( fileBlockId != -1 )
-				{
-					fs.readBlock( fileBlockId, 0, buffer, off, remainSize );
-				}
+				readBlock( fileBlockId, 0, buffer, off, remainSize );
 			}
 		}
 		position += size;
 		return size;
 	}
 
-	private int read_with_cache( byte[] buffer, int off, int size )
+		/**
+	 * read the data of a file block, a block not allocated (-1) is read as 0.
+	 */
+	private void readBlock( int fileBlockId, int blockOff, byte[] buffer,
+			int off, int size ) throws IOException
+	{
+		if ( fileBlockId == -1 )
+		{
+			Arrays.fill( buffer, off, off + size, (byte) 0 );
+			return;
+		}
+		fs.readBlock( fileBlockId, blockOff, buffer, off, size );
+	}
+
+private int read_with_cache( byte[] buffer, int off, int size )
 			throws IOException
 	{
 		long length = node.getLength( );
@@ -15,18 +15,24 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map.Entry;
 
 import org.eclipse.birt.core.archive.cache.CacheListener;
 import org.eclipse.birt.core.archive.cache.Cacheable;
 import org.eclipse.birt.core.archive.cache.FileCacheManager;
+import org.eclipse.birt.core.archive.cache.SystemCacheManager;
+import org.eclipse.birt.core.archive.compound.ConcurrentFileReader;
+import org.eclipse.birt.core.archive.compound.MappedFileReader;
 import org.eclipse.birt.core.i18n.CoreMessages;
 import org.eclipse.birt.core.i18n.ResourceConstants;
 
@@ -41,6 +47,15 @@ public class Ext2FileSystem
 {
 
 	private volatile RandomAccessFile rf;
+	/**
+	 * reads the blocks in parallel if the file system is opened for read only.
+	 */
+	private volatile ConcurrentFileReader concurrentReader;
+	/**
+	 * the file is memory mapped, the data blocks are read from the mapping
+	 * directly instead of the cache.
+	 */
+	private boolean memoryMapped;
 	private long length;
 	private int maxBlockId;
 
@@ -80,7 +95,8 @@ public class Ext2FileSystem
 	 *            mode, if the file exist, create a empty one. "rw+": read write
 	 *            mode, if the file exist, open the exits file. "rwt": read
 	 *            write cache mode, if the file exist, create a empty one. the
-	 *            file is removed after the file is closed.
+	 *            file is removed after the file is closed. "rm": read mode, the
+	 *            file is memory mapped.
 	 * @throws IOException
 	 */
 	public Ext2FileSystem( String filePath, String mode ) throws IOException
@@ -126,6 +142,15 @@ public class Ext2FileSystem
 			return;
 		}
 
+		if ( "rm".equals( mode ) )
+		{
+			readOnly = true;
+			removeOnExit = false;
+			memoryMapped = true;
+			openFileSystem( );
+			return;
+		}
+
 		if ( "rwt".equals( mode ) )
 		{
 			readOnly = false;
@@ -158,6 +183,14 @@ public class Ext2FileSystem
 		entryTable.read( );
 		freeTable.read( );
 		readProperties( );
+		if ( memoryMapped )
+		{
+			concurrentReader = new MappedFileReader( fileName );
+		}
+		else if ( readOnly )
+		{
+			concurrentReader = new ConcurrentFileReader( fileName );
+		}
 	}
 
 	private void ensureParentFolderCreated( String fileName )
@@ -224,6 +257,11 @@ public class Ext2FileSystem
 				rf.close( );
 				rf = null;
 			}
+			if ( concurrentReader != null )
+			{
+				concurrentReader.close( );
+				concurrentReader = null;
+			}
 			if ( removeOnExit )
 			{
 				new File( fileName ).delete( );
@@ -278,6 +316,11 @@ public class Ext2FileSystem
 		return readOnly;
 	}
 
+	public boolean isMemoryMapped( )
+	{
+		return memoryMapped;
+	}
+
 	public boolean isRemoveOnExit( )
 	{
 		return removeOnExit;
@@ -298,6 +341,16 @@ public class Ext2FileSystem
 		cacheManager.setMaxCacheSize( cacheSize );
 	}
 
+	/**
+	 * share the cache memory budget with other read only file systems.
+	 * 
+	 * @param systemCacheManager
+	 */
+	public void setSystemCacheManager( SystemCacheManager systemCacheManager )
+	{
+		cacheManager.setSystemCacheManager( systemCacheManager );
+	}
+
 	public int getUsedCacheSize( )
 	{
 		return cacheManager.getUsedCacheSize( );
@@ -329,7 +382,8 @@ public class Ext2FileSystem
 		if ( entry != null )
 		{
 			Ext2Node node = nodeTable.getNode( entry.inode );
-			return new Ext2File( this, entry, node );
+			// the mapping is the cache of the mapped file
+			return new Ext2File( this, entry, node, !memoryMapped );
 		}
 
 		if ( !readOnly )
@@ -554,40 +608,87 @@ public class Ext2FileSystem
 		cacheManager.releaseCache( block );
 	}
 
-	synchronized protected FatBlock loadFatBlock( int blockId )
-			throws IOException
+	protected FatBlock loadFatBlock( int blockId ) throws IOException
 	{
-		FatBlock block = (FatBlock) cacheManager.getCache( blockId );
+		Object cacheKey = Integer.valueOf( blockId );
+		if ( concurrentReader == null )
+		{
+			synchronized ( this )
+			{
+				FatBlock block = (FatBlock) cacheManager.getCache( cacheKey );
+				if ( block == null )
+				{
+					block = new FatBlock( this, blockId );
+					block.refresh( );
+					cacheManager.addCache( block );
+				}
+				return block;
+			}
+		}
+		FatBlock block = (FatBlock) cacheManager.getCache( cacheKey );
 		if ( block == null )
 		{
-			block = new FatBlock( this, blockId );
-			block.refresh( );
-			cacheManager.addCache( block );
+			block = (FatBlock) addLoadedBlock( cacheKey, new FatBlock( this,
+					blockId ) );
 		}
 		return block;
 	}
 
-	synchronized DataBlock loadDataBlock( int blockId ) throws IOException
+	DataBlock loadDataBlock( int blockId ) throws IOException
 	{
 		Object cacheKey = Integer.valueOf( blockId );
+		if ( concurrentReader == null )
+		{
+			synchronized ( this )
+			{
+				DataBlock block = (DataBlock) cacheManager.getCache( cacheKey );
+				if ( block == null )
+				{
+					block = new DataBlock( this, blockId );
+					block.refresh( );
+					cacheManager.addCache( block );
+				}
+				return block;
+			}
+		}
 		DataBlock block = (DataBlock) cacheManager.getCache( cacheKey );
 		if ( block == null )
 		{
-			block = new DataBlock( this, blockId );
-			block.refresh( );
-			cacheManager.addCache( block );
+			block = (DataBlock) addLoadedBlock( cacheKey, new DataBlock( this,
+					blockId ) );
 		}
 		return block;
 	}
 
+	/**
+	 * load the block without holding the lock, then add it into the cache.
+	 * The threads loading the same block at the same time share the first
+	 * cached one.
+	 */
+	private Block addLoadedBlock( Object cacheKey, Block newBlock )
+			throws IOException
+	{
+		newBlock.refresh( );
+		synchronized ( this )
+		{
+			Block block = (Block) cacheManager.getCache( cacheKey );
+			if ( block == null )
+			{
+				block = newBlock;
+				cacheManager.addCache( block );
+			}
+			return block;
+		}
+	}
+
 	void readBlock( int blockId, byte[] buffer, int offset, int size )
 			throws IOException
 	{
 		readBlock( blockId, offset, buffer, offset, size );
 	}
 
-	synchronized void readBlock( int blockId, int blockOff, byte[] buffer,
-			int offset, int size ) throws IOException
+	void readBlock( int blockId, int blockOff, byte[] buffer, int offset,
+			int size ) throws IOException
 	{
 		assert buffer != null;
 		assert blockId >= 0;
@@ -596,6 +697,52 @@ public class Ext2FileSystem
 		assert offset + size <= buffer.length;
 		assert blockOff + size <= BLOCK_SIZE;
 
+		ConcurrentFileReader reader = concurrentReader;
+		if ( reader == null )
+		{
+			synchronized ( this )
+			{
+				readFile( blockId, blockOff, buffer, offset, size );
+			}
+			return;
+		}
+
+		// positional reads don't share the file pointer, no lock needed
+		long position = ( ( (long) blockId ) << BLOCK_SIZE_BITS ) + blockOff;
+		if ( position < length )
+		{
+			long remainSize = length - position;
+			if ( remainSize < size )
+			{
+				size = (int) remainSize;
+			}
+			if ( reader.read( position, buffer, offset, size ) < size )
+			{
+				throw new EOFException( );
+			}
+		}
+	}
+
+	/**
+	 * add the buffers mapping the continuous blocks into the list. The file
+	 * system must be memory mapped.
+	 */
+	void mapBlocks( int blockId, long size, List<ByteBuffer> buffers )
+			throws IOException
+	{
+		ConcurrentFileReader reader = concurrentReader;
+		if ( !( reader instanceof MappedFileReader ) )
+		{
+			throw new IOException(
+					CoreMessages.getString( ResourceConstants.FILE_HAS_BEEN_CLOSED ) );
+		}
+		( (MappedFileReader) reader ).map(
+				( (long) blockId ) << BLOCK_SIZE_BITS, size, buffers );
+	}
+
+	private void readFile( int blockId, int blockOff, byte[] buffer,
+			int offset, int size ) throws IOException
+	{
 		long position = ( ( (long) blockId ) << BLOCK_SIZE_BITS ) + blockOff;
 		if ( position < length )
 		{
@@ -463,6 +463,160 @@ public class BTree<K, V> implements BTreeConstants
 		insertEntry( k, vs );
 	}
 
+	/**
+	 * insert the entries sorted by the key.
+	 * 
+	 * The entries which are not less than the last key of the tree are
+	 * appended to the right most leaf directly. A full node is split at its
+	 * last entry instead of the middle, so the nodes are filled up, and the
+	 * index nodes are built from bottom up without searching the tree. The
+	 * other entries are inserted one by one.
+	 * 
+	 * @param entries
+	 *            the entries sorted by the key.
+	 * @throws IOException
+	 */
+	public void bulkLoad( Iterator<? extends Map.Entry<K, V>> entries )
+			throws IOException
+	{
+		if ( readOnly )
+		{
+			throw new IOException(
+					CoreMessages.getString( ResourceConstants.READ_ONLY_TREE ) );
+		}
+		// the right most nodes from the leaf to the root
+		ArrayList<BTreeNode<K, V>> rightNodes = null;
+		BTreeValue<K> lastKey = null;
+		try
+		{
+			while ( entries.hasNext( ) )
+			{
+				Map.Entry<K, V> entry = entries.next( );
+				K k = entry.getKey( );
+				if ( !allowNullKey && k == null )
+				{
+					throw new NullPointerException( "key can not be null" );
+				}
+				BTreeValue<K> key = createKey( k );
+				@SuppressWarnings("unchecked")
+				BTreeValue<V>[] values = (BTreeValue<V>[]) new BTreeValue[1];
+				if ( hasValue( ) )
+				{
+					values[0] = createValue( entry.getValue( ) );
+				}
+
+				if ( rightNodes == null )
+				{
+					rightNodes = loadRightNodes( );
+					LeafEntry<K, V> lastEntry = ( (LeafNode<K, V>) rightNodes
+							.get( 0 ) ).getLastEntry( );
+					lastKey = lastEntry == null ? null : lastEntry.getKey( );
+				}
+				if ( lastKey != null && compare( key, lastKey ) < 0 )
+				{
+					// the insertion may split the right most nodes
+					unlockNodes( rightNodes );
+					rightNodes = null;
+					insertEntry( key, values );
+					continue;
+				}
+
+				LeafNode<K, V> leafNode = (LeafNode<K, V>) rightNodes.get( 0 );
+				leafNode.insert( key, values );
+				lastKey = key;
+				if ( leafNode.needSplit( ) )
+				{
+					IndexEntry<K, V> splitEntry = leafNode.split( leafNode
+							.getEntryCount( ) - 1 );
+					rightNodes.set( 0, loadLeafNode( splitEntry
+							.getChildNodeId( ) ) );
+					leafNode.unlock( );
+					appendIndex( rightNodes, 1, splitEntry.getKey( ),
+							splitEntry.getChildNodeId( ) );
+				}
+			}
+		}
+		finally
+		{
+			if ( rightNodes != null )
+			{
+				unlockNodes( rightNodes );
+			}
+		}
+	}
+
+	private ArrayList<BTreeNode<K, V>> loadRightNodes( ) throws IOException
+	{
+		ArrayList<BTreeNode<K, V>> nodes = new ArrayList<BTreeNode<K, V>>( );
+		if ( rootNodeId == -1 )
+		{
+			LeafNode<K, V> root = createLeafNode( );
+			root.setPrevNodeId( -1 );
+			root.setNextNodeId( -1 );
+			rootNodeId = root.getNodeId( );
+			totalLevels++;
+			nodes.add( root );
+			return nodes;
+		}
+		int nodeId = rootNodeId;
+		try
+		{
+			while ( true )
+			{
+				BTreeNode<K, V> node = loadBTreeNode( nodeId );
+				nodes.add( 0, node );
+				int nodeType = node.getNodeType( );
+				if ( nodeType == NODE_LEAF )
+				{
+					return nodes;
+				}
+				if ( nodeType != NODE_INDEX )
+				{
+					throw new IOException( CoreMessages.getFormattedString(
+							ResourceConstants.UNEXPECTED_NODE_TYPE,
+							new Object[]{nodeType, nodeId} ) );
+				}
+				nodeId = ( (IndexNode<K, V>) node ).getLastChild( );
+			}
+		}
+		catch ( IOException ex )
+		{
+			unlockNodes( nodes );
+			throw ex;
+		}
+	}
+
+	private void appendIndex( ArrayList<BTreeNode<K, V>> rightNodes,
+			int level, BTreeValue<K> key, int childNodeId ) throws IOException
+	{
+		if ( level == rightNodes.size( ) )
+		{
+			// the root is split, create a new root
+			insertIndex( key, childNodeId );
+			rightNodes.add( loadIndexNode( rootNodeId ) );
+			return;
+		}
+		IndexNode<K, V> indexNode = (IndexNode<K, V>) rightNodes.get( level );
+		indexNode.insertIndex( key, childNodeId );
+		if ( indexNode.needSplit( ) )
+		{
+			IndexEntry<K, V> splitEntry = indexNode.split( indexNode
+					.getEntryCount( ) - 1 );
+			rightNodes.set( level, loadIndexNode( splitEntry.getChildNodeId( ) ) );
+			indexNode.unlock( );
+			appendIndex( rightNodes, level + 1, splitEntry.getKey( ),
+					splitEntry.getChildNodeId( ) );
+		}
+	}
+
+	private void unlockNodes( ArrayList<BTreeNode<K, V>> nodes )
+	{
+		for ( BTreeNode<K, V> node : nodes )
+		{
+			node.unlock( );
+		}
+	}
+
 	public void remove( K key ) throws IOException
 	{
 		LeafEntry<K, V> entry = findEntry( key );
@@ -587,26 +741,69 @@ public class BTree<K, V> implements BTreeConstants
 		}
 	}
 
-	synchronized BTreeNode<K, V> loadBTreeNode( int nodeId ) throws IOException
+	/**
+	 * load the node and lock it in the cache. The read only tree reads the
+	 * node out of the tree's lock, so the concurrent readers only wait for
+	 * each other if the node is not in the cache.
+	 */
+	BTreeNode<K, V> loadBTreeNode( int nodeId ) throws IOException
 	{
-		BTreeNode<K, V> node = nodeCaches.get( nodeId );
-		if ( node != null )
+		NodeFile nodeFile;
+		synchronized ( this )
 		{
-			node.lock( );
-			return node;
+			BTreeNode<K, V> node = nodeCaches.get( nodeId );
+			if ( node != null )
+			{
+				node.lock( );
+				return node;
+			}
+
+			if ( file == null )
+			{
+				throw new IOException( CoreMessages.getFormattedString(
+						ResourceConstants.CANNOT_LOAD_NODE,
+						new Object[]{nodeId} ) );
+			}
+
+			if ( !readOnly )
+			{
+				node = readNode( file, nodeId );
+				node.lock( );
+				nodeCaches.put( Integer.valueOf( nodeId ), node );
+				return node;
+			}
+			nodeFile = file;
 		}
 
-		if ( file == null )
+		BTreeNode<K, V> node;
+		synchronized ( nodeFile )
 		{
-			throw new IOException( CoreMessages.getFormattedString(
-					ResourceConstants.CANNOT_LOAD_NODE, new Object[]{nodeId} ) );
+			node = readNode( nodeFile, nodeId );
 		}
+		synchronized ( this )
+		{
+			// another reader may load the same node at the same time
+			BTreeNode<K, V> cachedNode = nodeCaches.get( nodeId );
+			if ( cachedNode != null )
+			{
+				cachedNode.lock( );
+				return cachedNode;
+			}
+			node.lock( );
+			nodeCaches.put( Integer.valueOf( nodeId ), node );
+			return node;
+		}
+	}
 
-		NodeInputStream in = new NodeInputStream( file, nodeId );
+	private BTreeNode<K, V> readNode( NodeFile nodeFile, int nodeId )
+			throws IOException
+	{
+		NodeInputStream in = new NodeInputStream( nodeFile, nodeId );
 		try
 		{
 			DataInput input = new DataInputStream( in );
 			int nodeType = input.readInt( );
+			BTreeNode<K, V> node;
 			switch ( nodeType )
 			{
 				case NODE_INDEX :
@@ -626,8 +823,6 @@ public class BTree<K, V> implements BTreeConstants
 			node.read( input );
 			node.setUsedBlocks( in.getUsedBlocks( ) );
 			node.setDirty( false );
-			node.lock( );
-			nodeCaches.put( Integer.valueOf( nodeId ), node );
 			return node;
 		}
 		finally
@@ -75,17 +75,22 @@ abstract public class BTreeNode<K, V> implements BTreeConstants
 
 	abstract void write( DataOutput out ) throws IOException;
 
-	public void lock( )
+	/**
+	 * the node is locked by the cursors and the readers of the tree which may
+	 * run in different threads, so the lock count is updated in the node's
+	 * monitor.
+	 */
+	public synchronized void lock( )
 	{
 		lockCount++;
 	}
 
-	public void unlock( )
+	public synchronized void unlock( )
 	{
 		lockCount--;
 	}
 
-	public boolean isLocked( )
+	public synchronized boolean isLocked( )
 	{
 		return lockCount != 0;
 	}
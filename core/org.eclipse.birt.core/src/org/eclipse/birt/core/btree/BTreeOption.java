@@ -126,8 +126,20 @@ public class BTreeOption<K, V>
 		this.headNodeId = headNodeId;
 	}
 
+	/**
+	 * set the count of the nodes cached by the tree. The locked nodes are
+	 * always cached, so the cache may exceed it temporarily.
+	 * 
+	 * @param cacheSize
+	 *            the count of the cached nodes.
+	 */
 	public void setCacheSize( int cacheSize )
 	{
 		this.cacheSize = cacheSize;
 	}
+
+	public int getCacheSize( )
+	{
+		return cacheSize;
+	}
 }
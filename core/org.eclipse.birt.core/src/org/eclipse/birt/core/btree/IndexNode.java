@@ -123,6 +123,10 @@ public class IndexNode<K, V> extends BTreeNode<K, V>
 
 	public int getLastChild( )
 	{
+		if ( entries.isEmpty( ) )
+		{
+			return firstChild;
+		}
 		return entries.get( entries.size( ) - 1 ).getChildNodeId( );
 	}
 
@@ -287,8 +291,20 @@ public class IndexNode<K, V> extends BTreeNode<K, V>
 	public IndexEntry<K, V> split( ) throws IOException
 	{
 		// break at the node into two nodes: current and new node.
-		int splitIndex = entries.size( ) / 2;
+		return split( entries.size( ) / 2 );
+	}
 
+	/**
+	 * split the node at the entry. The entry is moved to the upper level and
+	 * the following entries are moved to the new node.
+	 * 
+	 * @param splitIndex
+	 *            the index of the entry moved to the upper level.
+	 * @return the index entry of the new node.
+	 * @throws IOException
+	 */
+	IndexEntry<K, V> split( int splitIndex ) throws IOException
+	{
 		// create a new node for splitEntry
 		IndexNode<K, V> newNode = btree.createIndexNode( );
 		try
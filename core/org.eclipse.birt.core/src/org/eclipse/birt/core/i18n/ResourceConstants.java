@@ -70,4 +70,5 @@ public class ResourceConstants
 	public static final String NOT_SUPPORTED_SERIALIZABLE = "error.NotSupportedSerializable";
 	public static final String MALFORMED_INPUT_ERROR = "error.MalformedInputError";
 	public static final String MALFORMED_INPUT_AROUND_BYTE = "error.MalformedInputAroundByte";
+	public static final String COMPRESSED_ENTRIES_CHANGED = "error.CompressedEntriesChanged";
 }
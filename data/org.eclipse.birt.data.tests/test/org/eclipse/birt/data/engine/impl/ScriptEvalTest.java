@@ -21,6 +21,7 @@ import java.util.Random;
 
 import org.eclipse.birt.core.script.ScriptContext;
 import org.eclipse.birt.data.engine.api.IConditionalExpression;
+import org.eclipse.birt.data.engine.api.IDataScriptEngine;
 import org.eclipse.birt.data.engine.core.DataException;
 import org.eclipse.birt.data.engine.expression.CompiledExpression;
 import org.eclipse.birt.data.engine.expression.ExpressionCompiler;
@@ -811,6 +812,72 @@ public class ScriptEvalTest {
 		assertResult( result, true );
 	}
 
+	/**
+	 * a thread which has entered the context of another engine evaluates the
+	 * scripts of the engine in its own context, other threads use the context
+	 * of the engine.
+	 */
+	@Test
+	public void testJSContextOfOtherThread( ) throws Exception
+	{
+		final IDataScriptEngine engine = (IDataScriptEngine) scontext
+				.getScriptEngine( IDataScriptEngine.ENGINE_NAME );
+		final Context engineContext = engine.getJSContext( scontext );
+		final Object[] results = new Object[5];
+		Thread thread = new Thread( new Runnable( ) {
+
+			public void run( )
+			{
+				results[0] = engine.getJSContext( scontext );
+				ScriptContext otherContext = new ScriptContext( );
+				try
+				{
+					IDataScriptEngine otherEngine = (IDataScriptEngine) otherContext
+							.getScriptEngine( IDataScriptEngine.ENGINE_NAME );
+					results[1] = otherEngine.getJSContext( otherContext );
+					results[2] = engine.getJSContext( scontext );
+					results[3] = scontext.evaluate( scontext.compile(
+							"javascript", "<inline>", 1, "1 + 2" ) );
+				}
+				catch ( Exception ex )
+				{
+					results[3] = ex;
+				}
+				finally
+				{
+					otherContext.close( );
+				}
+			}
+		} );
+		thread.start( );
+		thread.join( );
+		assertSame( engineContext, results[0] );
+		assertNotSame( engineContext, results[1] );
+		assertSame( results[1], results[2] );
+		assertTrue( String.valueOf( results[3] ), results[3] instanceof Number );
+		assertEquals( 3, ( (Number) results[3] ).intValue( ) );
+
+		// a plain context wraps the java objects in another way
+		thread = new Thread( new Runnable( ) {
+
+			public void run( )
+			{
+				Context.enter( );
+				try
+				{
+					results[4] = engine.getJSContext( scontext );
+				}
+				finally
+				{
+					Context.exit( );
+				}
+			}
+		} );
+		thread.start( );
+		thread.join( );
+		assertSame( engineContext, results[4] );
+	}
+
 	private void assertResult(Object result,boolean expectedResult){
 		assertTrue( result instanceof Boolean );
 		assertEquals( result, new Boolean( expectedResult ) );
@@ -18,6 +18,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 import javax.olap.OLAPException;
@@ -71,6 +72,7 @@ import org.eclipse.birt.data.engine.olap.data.api.cube.CubeMaterializer;
 import org.eclipse.birt.data.engine.olap.data.api.cube.IHierarchy;
 import org.eclipse.birt.data.engine.olap.data.api.cube.ILevelDefn;
 import org.eclipse.birt.data.engine.olap.data.document.IDocumentManager;
+import org.eclipse.birt.data.engine.olap.data.impl.AggregationResultSetCache;
 import org.eclipse.birt.data.engine.olap.data.impl.Cube;
 import org.eclipse.birt.data.engine.olap.data.impl.dimension.Dimension;
 import org.eclipse.birt.data.engine.olap.data.impl.dimension.DimensionFactory;
@@ -268,6 +270,104 @@ public class CubeIVTest extends BaseTestCase
 		engine.shutdown( );
 	}
 	
+	/**
+	 * Test the aggregation result set cache shared by the presentation tasks.
+	 * 
+	 * @throws Exception
+	 */
+	@Test
+    public void testAggregationResultSetCache( ) throws Exception
+	{
+		FileArchiveWriter writter = new FileArchiveWriter( documentPath + "testTemp" );
+		DataEngineContext context = DataEngineContext.newInstance( DataEngineContext.MODE_GENERATION,
+				null,
+				null,
+				writter );
+		context.setTmpdir( this.getTempDir( ) );
+		DataEngineImpl engine = (DataEngineImpl)DataEngine.newDataEngine( context );
+		this.createCube( writter, engine );
+		writter.finish( );
+		engine.shutdown( );
+		
+		AggregationResultSetCache cache = AggregationResultSetCache.getInstance( );
+		cache.setCapacity( 10 );
+		try
+		{
+			long hits = cache.getHitCount( );
+			long misses = cache.getMissCount( );
+			
+			assertEquals( "2146.0", executeGrandTotal( Locale.US, null ) );
+			assertEquals( hits, cache.getHitCount( ) );
+			assertEquals( misses + 1, cache.getMissCount( ) );
+			
+			//another task gets the result of the first one
+			assertEquals( "2146.0", executeGrandTotal( Locale.US, null ) );
+			assertEquals( hits + 1, cache.getHitCount( ) );
+			assertEquals( misses + 1, cache.getMissCount( ) );
+			
+			//the task opts out of the cache
+			Map appContext = new HashMap( );
+			appContext.put( DataEngine.CUBE_AGGREGATION_RESULT_CACHE_SIZE, "0" );
+			assertEquals( "2146.0", executeGrandTotal( Locale.US, appContext ) );
+			assertEquals( hits + 1, cache.getHitCount( ) );
+			assertEquals( misses + 1, cache.getMissCount( ) );
+			assertEquals( 10, cache.getCapacity( ) );
+			
+			//a number setting opts out too, an invalid one is ignored
+			appContext.put( DataEngine.CUBE_AGGREGATION_RESULT_CACHE_SIZE, Integer.valueOf( 0 ) );
+			assertEquals( "2146.0", executeGrandTotal( Locale.US, appContext ) );
+			assertEquals( hits + 1, cache.getHitCount( ) );
+			appContext.put( DataEngine.CUBE_AGGREGATION_RESULT_CACHE_SIZE, "unlimited" );
+			assertEquals( "2146.0", executeGrandTotal( Locale.US, appContext ) );
+			assertEquals( hits + 2, cache.getHitCount( ) );
+			assertEquals( misses + 1, cache.getMissCount( ) );
+			
+			//the locale is a part of the key
+			assertEquals( "2146.0", executeGrandTotal( Locale.GERMANY, null ) );
+			assertEquals( hits + 2, cache.getHitCount( ) );
+			assertEquals( misses + 2, cache.getMissCount( ) );
+		}
+		finally
+		{
+			cache.setCapacity( 0 );
+		}
+	}
+	
+	private String executeGrandTotal( Locale locale, Map appContext ) throws Exception
+	{
+		ICubeQueryDefinition cqd = new CubeQueryDefinition( cubeName);
+		IMeasureDefinition measure =cqd.createMeasure( "measure1" );
+		measure.setAggrFunction( "SUM" );
+		IBinding binding = new Binding( "grandTotal" );
+		binding.setExpression( new ScriptExpression( "measure[\"measure1\"]" ) );
+		binding.setAggrFunction( IBuildInAggregation.TOTAL_SUM_FUNC );
+		cqd.addBinding( binding );
+		
+		//the cube is loaded from the document and the query is executed on it
+		FileArchiveReader reader = new FileArchiveReader( documentPath + "testTemp" );
+		DataEngineContext context = DataEngineContext.newInstance( DataEngineContext.DIRECT_PRESENTATION,
+				null,
+				reader,
+				null );
+		context.setTmpdir( this.getTempDir( ) );
+		context.setLocale( locale );
+		DataEngineImpl engine = (DataEngineImpl) DataEngine.newDataEngine( context );
+		try
+		{
+			IPreparedCubeQuery pcq = engine.prepare( cqd, appContext );
+			ICubeQueryResults queryResults = pcq.execute( null );
+			CubeCursor cursor = queryResults.getCubeCursor( );
+			String result = cursor.getObject( "grandTotal" ).toString( );
+			cursor.close( );
+			return result;
+		}
+		finally
+		{
+			engine.shutdown( );
+			reader.close( );
+		}
+	}
+	
 	/**
 	 * Test adding nest aggregations cube operation	
 	 * @throws Exception
@@ -351,6 +351,130 @@ public class CursorNavigatorTest extends BaseTestCase
 		checkOutputFile( );
 		close( dataCursor );
 	}
+	/**
+	 * the dimension cursors move within the members sharing the same parent.
+	 * The column edge has 4 countries, 11 cities, 15 streets and 24 rows.
+	 *
+	 * @throws OLAPException
+	 * @throws BirtException
+	 */
+	@Test
+    public void testDimensionCursorNavigation( ) throws OLAPException, BirtException
+	{
+		ICubeQueryDefinition cqd = creator.createQueryDefinition( );
+
+		IBinding rowGrandTotal = new Binding( "rowGrandTotal" );
+		rowGrandTotal.setAggrFunction( IBuildInAggregation.TOTAL_SUM_FUNC );
+		rowGrandTotal.setExpression( new ScriptExpression("measure[\"measure1\"]") );
+		rowGrandTotal.addAggregateOn( "dimension[\"dimension5\"][\"level21\"]" );
+		rowGrandTotal.addAggregateOn( "dimension[\"dimension6\"][\"level22\"]" );
+
+		IBinding columnGrandTotal = new Binding( "columnGrandTotal" );
+		columnGrandTotal.setAggrFunction( IBuildInAggregation.TOTAL_SUM_FUNC );
+		columnGrandTotal.setExpression( new ScriptExpression("measure[\"measure1\"]") );
+		columnGrandTotal.addAggregateOn( "dimension[\"dimension1\"][\"level11\"]" );
+		columnGrandTotal.addAggregateOn( "dimension[\"dimension2\"][\"level12\"]" );
+		columnGrandTotal.addAggregateOn( "dimension[\"dimension3\"][\"level13\"]" );
+		columnGrandTotal.addAggregateOn( "dimension[\"dimension4\"][\"level14\"]" );
+
+		cqd.addBinding( rowGrandTotal );
+		cqd.addBinding( columnGrandTotal );
+
+		// Create cube view.
+		BirtCubeView cubeView = new BirtCubeView( new CubeQueryExecutor( null, cqd,de.getSession( ),this.scope,de.getContext( )) );
+
+		CubeCursor dataCursor = cubeView.getCubeCursor( new StopSign( ), cube  );
+
+		EdgeCursor columnCursor = cubeView.getColumnEdgeView( ).getEdgeCursor( );
+
+		DimensionCursor countryCursor = (DimensionCursor) columnCursor.getDimensionCursor( )
+				.get( 0 );
+		DimensionCursor cityCursor = (DimensionCursor) columnCursor.getDimensionCursor( )
+				.get( 1 );
+		DimensionCursor streetCursor = (DimensionCursor) columnCursor.getDimensionCursor( )
+				.get( 2 );
+		DimensionCursor timeCursor = (DimensionCursor) columnCursor.getDimensionCursor( )
+				.get( 3 );
+
+		//------------------------------the last member of a middle parent--------------
+		columnCursor.beforeFirst( );
+		columnCursor.setPosition( 9 );
+		assertFalse( countryCursor.isLast( ) );
+		assertFalse( cityCursor.isLast( ) );
+		assertTrue( streetCursor.isLast( ) );
+		assertFalse( timeCursor.isLast( ) );
+		assertEquals( 11, countryCursor.getEdgeEnd( ) );
+		assertEquals( 10, cityCursor.getEdgeEnd( ) );
+		assertEquals( 10, streetCursor.getEdgeEnd( ) );
+
+		assertTrue( timeCursor.last( ) );
+		assertTrue( timeCursor.isLast( ) );
+		assertEquals( 10, timeCursor.getEdgeStart( ) );
+		assertEquals( 10, timeCursor.getEdgeEnd( ) );
+
+		assertTrue( cityCursor.last( ) );
+		assertTrue( cityCursor.isLast( ) );
+		assertEquals( 11, cityCursor.getEdgeStart( ) );
+		assertEquals( 11, cityCursor.getEdgeEnd( ) );
+
+		assertTrue( countryCursor.last( ) );
+		assertTrue( countryCursor.isLast( ) );
+		assertEquals( 15, countryCursor.getEdgeStart( ) );
+		assertEquals( 23, countryCursor.getEdgeEnd( ) );
+
+		countryCursor.afterLast( );
+		assertTrue( countryCursor.isAfterLast( ) );
+		assertEquals( -1, countryCursor.getEdgeEnd( ) );
+
+		//------------------------------the first member of the last parent--------------
+		columnCursor.beforeFirst( );
+		columnCursor.setPosition( 17 );
+		assertTrue( countryCursor.isLast( ) );
+		assertTrue( cityCursor.isFirst( ) );
+		assertFalse( cityCursor.isLast( ) );
+		assertTrue( streetCursor.isLast( ) );
+		assertTrue( timeCursor.isFirst( ) );
+		assertFalse( timeCursor.isLast( ) );
+		assertEquals( 23, countryCursor.getEdgeEnd( ) );
+		assertEquals( 19, cityCursor.getEdgeEnd( ) );
+		assertEquals( 19, streetCursor.getEdgeEnd( ) );
+		assertEquals( 17, timeCursor.getEdgeEnd( ) );
+
+		assertTrue( timeCursor.last( ) );
+		assertTrue( timeCursor.isLast( ) );
+		assertEquals( 19, timeCursor.getEdgeStart( ) );
+		assertEquals( 19, timeCursor.getEdgeEnd( ) );
+
+		assertTrue( cityCursor.last( ) );
+		assertTrue( cityCursor.isLast( ) );
+		assertEquals( 23, cityCursor.getEdgeStart( ) );
+		assertEquals( 23, cityCursor.getEdgeEnd( ) );
+
+		cityCursor.afterLast( );
+		assertTrue( cityCursor.isAfterLast( ) );
+		assertFalse( cityCursor.isLast( ) );
+		assertEquals( -1, cityCursor.getEdgeEnd( ) );
+
+		//------------------------------a parent with several children--------------
+		columnCursor.beforeFirst( );
+		columnCursor.setPosition( 12 );
+		assertFalse( streetCursor.isLast( ) );
+		assertTrue( timeCursor.isLast( ) );
+		assertTrue( streetCursor.last( ) );
+		assertTrue( streetCursor.isLast( ) );
+		assertEquals( 13, streetCursor.getEdgeStart( ) );
+		assertEquals( 13, streetCursor.getEdgeEnd( ) );
+
+		//------------------------------the last row of the edge--------------
+		columnCursor.beforeFirst( );
+		columnCursor.setPosition( 23 );
+		assertTrue( countryCursor.isLast( ) );
+		assertTrue( cityCursor.isLast( ) );
+		assertTrue( streetCursor.isLast( ) );
+		assertTrue( timeCursor.isLast( ) );
+		assertFalse( timeCursor.next( ) );
+		close( dataCursor );
+	}
 	@Test
     public void testNavigatorOnSubCursor( ) throws DataException, OLAPException, IOException
 	{
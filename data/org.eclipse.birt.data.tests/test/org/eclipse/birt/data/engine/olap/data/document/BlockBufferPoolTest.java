@@ -0,0 +1,231 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.birt.data.engine.olap.data.document;
+
+import java.io.File;
+import java.io.IOException;
+
+import org.eclipse.birt.core.archive.RAOutputStream;
+import org.eclipse.birt.core.archive.compound.ArchiveFile;
+import org.eclipse.birt.core.archive.compound.ArchiveReader;
+import org.eclipse.birt.core.archive.compound.ArchiveWriter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+
+public class BlockBufferPoolTest
+{
+	private static final String tmpPath = System.getProperty( "java.io.tmpdir" );
+	private File file;
+
+	@Before
+	public void blockBufferPoolSetUp( ) throws Exception
+	{
+		file = new File( tmpPath + File.separatorChar + "testBlockBufferPool" );
+		BufferedRandomDataAccessObject documentObject = new BufferedRandomDataAccessObject( new SimpleRandomAccessObject( file,
+				"rw" ),
+				1024 );
+		documentObject.setLength( 0 );
+		for ( int i = 0; i < 100000; i++ )
+		{
+			documentObject.writeInt( i );
+		}
+		documentObject.close( );
+	}
+
+	@After
+	public void blockBufferPoolTearDown( ) throws Exception
+	{
+		file.delete( );
+	}
+
+	@Test
+	public void testSequentialRead( ) throws IOException
+	{
+		BlockBufferPool pool = new BlockBufferPool( 1024 );
+		BufferedRandomDataAccessObject documentObject = openPooledObject( pool );
+		for ( int i = 0; i < 100000; i++ )
+		{
+			assertEquals( documentObject.readInt( ), i );
+		}
+		documentObject.close( );
+		assertEquals( pool.size( ), ( 100000 * 4 + BlockBufferPool.PAGE_SIZE - 1 )
+				/ BlockBufferPool.PAGE_SIZE );
+	}
+
+	@Test
+	public void testRandomRead( ) throws IOException
+	{
+		BlockBufferPool pool = new BlockBufferPool( 1024 );
+		BufferedRandomDataAccessObject documentObject = openPooledObject( pool );
+		for ( int i = 99999; i >= 0; i -= 97 )
+		{
+			documentObject.seek( i * 4L );
+			assertEquals( documentObject.readInt( ), i );
+		}
+		documentObject.close( );
+	}
+
+	@Test
+	public void testSharedPages( ) throws IOException
+	{
+		BlockBufferPool pool = new BlockBufferPool( 1024 );
+		BufferedRandomDataAccessObject documentObject1 = openPooledObject( pool );
+		BufferedRandomDataAccessObject documentObject2 = openPooledObject( pool );
+		documentObject1.seek( 40000 );
+		assertEquals( documentObject1.readInt( ), 10000 );
+		int size = pool.size( );
+		documentObject2.seek( 40000 );
+		assertEquals( documentObject2.readInt( ), 10000 );
+		assertEquals( pool.size( ), size );
+		documentObject1.close( );
+		documentObject2.close( );
+	}
+
+	@Test
+	public void testEviction( ) throws IOException
+	{
+		BlockBufferPool pool = new BlockBufferPool( 16 );
+		BufferedRandomDataAccessObject documentObject = openPooledObject( pool );
+		for ( int i = 0; i < 100000; i++ )
+		{
+			assertEquals( documentObject.readInt( ), i );
+		}
+		assertTrue( pool.size( ) <= 16 );
+		documentObject.seek( 0 );
+		assertEquals( documentObject.readInt( ), 0 );
+		documentObject.close( );
+		pool.clear( );
+		assertEquals( pool.size( ), 0 );
+	}
+
+	@Test
+	public void testRewrittenArchive( ) throws Exception
+	{
+		String poolSize = System.getProperty( BlockBufferPool.POOL_SIZE_PROPERTY );
+		System.setProperty( BlockBufferPool.POOL_SIZE_PROPERTY, "1" );
+		File archive = new File( tmpPath + File.separatorChar
+				+ "testBlockBufferPoolArchive" );
+		try
+		{
+			writeArchive( archive, 0 );
+			long lastModified = archive.lastModified( );
+			assertEquals( readArchive( archive ), 0 );
+
+			// same name, length and time stamp, but different content
+			writeArchive( archive, 1 );
+			archive.setLastModified( lastModified );
+			assertEquals( readArchive( archive ), 1 );
+		}
+		finally
+		{
+			if ( poolSize == null )
+			{
+				System.getProperties( ).remove( BlockBufferPool.POOL_SIZE_PROPERTY );
+			}
+			else
+			{
+				System.setProperty( BlockBufferPool.POOL_SIZE_PROPERTY, poolSize );
+			}
+			archive.delete( );
+		}
+	}
+
+	@Test
+	public void testModifiedArchive( ) throws Exception
+	{
+		String poolSize = System.getProperty( BlockBufferPool.POOL_SIZE_PROPERTY );
+		System.setProperty( BlockBufferPool.POOL_SIZE_PROPERTY, "1" );
+		File archive = new File( tmpPath + File.separatorChar
+				+ "testBlockBufferPoolArchive" );
+		try
+		{
+			writeArchive( archive, 0 );
+			long lastModified = archive.lastModified( );
+			assertEquals( readArchive( archive, 5000 ), 5000 );
+
+			// only a page in the middle of the object is changed in place
+			ArchiveWriter writer = new ArchiveWriter( new ArchiveFile( archive.getAbsolutePath( ),
+					"rw+" ) );
+			RAOutputStream out = writer.openRandomAccessStream( "object" );
+			out.seek( 5000 * 4 );
+			out.writeInt( 1 );
+			out.close( );
+			writer.finish( );
+			archive.setLastModified( lastModified );
+			assertEquals( readArchive( archive, 5000 ), 1 );
+		}
+		finally
+		{
+			if ( poolSize == null )
+			{
+				System.getProperties( ).remove( BlockBufferPool.POOL_SIZE_PROPERTY );
+			}
+			else
+			{
+				System.setProperty( BlockBufferPool.POOL_SIZE_PROPERTY, poolSize );
+			}
+			archive.delete( );
+		}
+	}
+
+	private void writeArchive( File archive, int base ) throws IOException
+	{
+		archive.delete( );
+		ArchiveWriter writer = new ArchiveWriter( new ArchiveFile( archive.getAbsolutePath( ),
+				"rw+" ) );
+		RAOutputStream out = writer.createRandomAccessStream( "object" );
+		for ( int i = 0; i < 10000; i++ )
+		{
+			out.writeInt( base + i );
+		}
+		out.close( );
+		writer.finish( );
+	}
+
+	private int readArchive( File archive ) throws Exception
+	{
+		return readArchive( archive, 0 );
+	}
+
+	private int readArchive( File archive, int index ) throws Exception
+	{
+		ArchiveReader reader = new ArchiveReader( new ArchiveFile( archive.getAbsolutePath( ),
+				"r" ) );
+		try
+		{
+			IDocumentObject documentObject = DocumentManagerFactory.createRADocumentManager( reader )
+					.openDocumentObject( "object" );
+			documentObject.seek( index * 4 );
+			int value = documentObject.readInt( );
+			documentObject.close( );
+			return value;
+		}
+		finally
+		{
+			reader.close( );
+		}
+	}
+
+	private BufferedRandomDataAccessObject openPooledObject( BlockBufferPool pool )
+			throws IOException
+	{
+		return new BufferedRandomDataAccessObject( new PooledRandomAccessObject( pool,
+				file.getAbsolutePath( ),
+				new SimpleRandomAccessObject( file, "r" ) ),
+				1024 );
+	}
+}
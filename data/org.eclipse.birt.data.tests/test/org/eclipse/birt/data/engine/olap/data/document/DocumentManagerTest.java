@@ -11,10 +11,15 @@
 
 package org.eclipse.birt.data.engine.olap.data.document;
 
+import java.io.File;
 import java.io.IOException;
 import java.math.BigDecimal;
+import java.nio.ByteBuffer;
 import java.util.Date;
 
+import org.eclipse.birt.core.archive.RAOutputStream;
+import org.eclipse.birt.core.archive.compound.ArchiveFile;
+import org.eclipse.birt.core.archive.compound.ArchiveWriter;
 import org.eclipse.birt.data.engine.core.DataException;
 import org.eclipse.birt.data.engine.olap.data.document.DocumentManagerFactory;
 import org.eclipse.birt.data.engine.olap.data.document.IDocumentManager;
@@ -103,6 +108,86 @@ public class DocumentManagerTest {
 		documentManager.close( );
 		
 	}
+
+	@Test
+    public void testMappedRADocumentManager( ) throws IOException, DataException
+	{
+		File file = new File( System.getProperty( "java.io.tmpdir" ),
+				"MappedRADocumentManagerTest" );
+		file.delete( );
+		ArchiveWriter writer = new ArchiveWriter( new ArchiveFile( file.getAbsolutePath( ),
+				"rw" ) );
+		// the streams are written in turn, so their blocks are not continuous
+		RAOutputStream out1 = writer.createRandomAccessStream( "object1" );
+		RAOutputStream out2 = writer.createRandomAccessStream( "object2" );
+		for ( int i = 0; i < 100000; i++ )
+		{
+			out1.writeInt( i );
+			out2.writeInt( -i );
+			if ( i % 1000 == 0 )
+			{
+				out1.flush( );
+				out2.flush( );
+			}
+		}
+		out1.close( );
+		out2.close( );
+		writer.finish( );
+
+		IDocumentManager documentManager = DocumentManagerFactory.createMappedRADocumentManager( file.getAbsolutePath( ) );
+		try
+		{
+			assertTrue( documentManager.exist( "object1" ) );
+			assertTrue( documentManager.openDocumentObject( "object3" ) == null );
+			IDocumentObject object1 = documentManager.openDocumentObject( "object1" );
+			IDocumentObject object2 = documentManager.openDocumentObject( "object2" );
+			assertEquals( object1.length( ), 400000 );
+			for ( int i = 99999; i >= 0; i -= 97 )
+			{
+				object1.seek( i * 4L );
+				assertEquals( object1.readInt( ), i );
+				object2.seek( i * 4L );
+				assertEquals( object2.readInt( ), -i );
+			}
+			object1.seek( 0 );
+			for ( int i = 0; i < 100000; i++ )
+			{
+				assertEquals( object1.readInt( ), i );
+			}
+			object1.close( );
+			object2.close( );
+		}
+		finally
+		{
+			documentManager.close( );
+			file.delete( );
+		}
+	}
+
+	@Test
+    public void testMappedRandomAccessObject( ) throws IOException
+	{
+		ByteBuffer[] buffers = new ByteBuffer[]{
+				ByteBuffer.wrap( new byte[]{0, 1, 2} ),
+				ByteBuffer.allocate( 0 ),
+				ByteBuffer.wrap( new byte[]{3, 4, 5, 6, 7} )
+		};
+		MappedRandomAccessObject object = new MappedRandomAccessObject( null,
+				buffers );
+		assertEquals( object.length( ), 8 );
+		byte[] b = new byte[10];
+		object.seek( 2 );
+		assertEquals( object.read( b, 0, 10 ), 6 );
+		for ( int i = 0; i < 6; i++ )
+		{
+			assertEquals( b[i], i + 2 );
+		}
+		assertEquals( object.getFilePointer( ), 8 );
+		assertEquals( object.read( b, 0, 1 ), -1 );
+		object.seek( 3 );
+		assertEquals( object.read( ), 3 );
+		object.close( );
+	}
 	
 	private void testDocumentObject1( IDocumentObject documentObject )
 			throws IOException
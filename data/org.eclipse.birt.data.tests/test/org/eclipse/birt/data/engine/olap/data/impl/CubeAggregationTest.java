@@ -33,6 +33,7 @@ import org.eclipse.birt.data.engine.api.querydefn.Binding;
 import org.eclipse.birt.data.engine.api.querydefn.ConditionalExpression;
 import org.eclipse.birt.data.engine.api.querydefn.FilterDefinition;
 import org.eclipse.birt.data.engine.api.querydefn.ScriptExpression;
+import org.eclipse.birt.data.engine.api.querydefn.ScriptExpressionUtil;
 import org.eclipse.birt.data.engine.core.DataException;
 import org.eclipse.birt.data.engine.impl.DataEngineImpl;
 import org.eclipse.birt.data.engine.impl.StopSign;
@@ -74,6 +75,9 @@ import org.mozilla.javascript.ImporterTopLevel;
 
 import testutil.BaseTestCase;
 
+import com.ibm.icu.util.TimeZone;
+import com.ibm.icu.util.ULocale;
+
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -452,6 +456,145 @@ public class CubeAggregationTest extends BaseTestCase
 			resultSet[i].close( );
 		}
 	}
+	@Test
+    public void testCube1AggregationResultSetCache( ) throws IOException, DataException, BirtException
+	{
+		//query
+		CubeQueryExecutorHelper cubeQueryExcutorHelper = new CubeQueryExecutorHelper( 
+				CubeQueryExecutorHelper.loadCube( "cube1", documentManager, new StopSign( ) ) );
+		ISelection[][] filter = new ISelection[1][1];
+		filter[0][0] = SelectionFactory.createRangeSelection(  new Object[]{"1"},
+				 new Object[]{"3"},
+				true,
+				false );
+		cubeQueryExcutorHelper.addFilter( new LevelFilter(dimLevel21, filter[0]) );
+		
+		AggregationDefinition[] aggregations = new AggregationDefinition[1];
+		int[] sortType = new int[1];
+		sortType[0] = IDimensionSortDefn.SORT_ASC;
+		DimLevel[] levelsForFilter = new DimLevel[]{dimLevel21};
+		AggregationFunctionDefinition[] funcitons = new AggregationFunctionDefinition[1];
+		funcitons[0] = new AggregationFunctionDefinition( "measure1", IBuildInAggregation.TOTAL_SUM_FUNC );
+		aggregations[0] = new AggregationDefinition( levelsForFilter, sortType, funcitons );
+		
+		IAggregationResultSet[] resultSet = cubeQueryExcutorHelper.execute( aggregations,
+				new StopSign( ) );
+		
+		AggregationResultSetCache cache = AggregationResultSetCache.getInstance( );
+		cache.setCapacity( 1 );
+		cache.put( "key1", resultSet );
+		assertEquals( cache.size( ), 1 );
+		
+		//every hit returns a new copy of the result sets
+		for ( int n = 0; n < 2; n++ )
+		{
+			IAggregationResultSet[] cached = cache.get( "key1", 0 );
+			assertEquals( cached.length, 1 );
+			assertEquals( cached[0].length( ), 2 );
+			cached[0].seek( 0 );
+			assertEquals( cached[0].getLevelKeyValue( 0 )[0], "1" );
+			assertEquals( cached[0].getAggregationValue( 0 ), new Double(6) );
+			cached[0].seek( 1 );
+			assertEquals( cached[0].getLevelKeyValue( 0 )[0], "2" );
+			assertEquals( cached[0].getAggregationValue( 0 ), new Double(22) );
+			cached[0].close( );
+		}
+		
+		//the least recently used entry is evicted
+		cache.put( "key2", resultSet );
+		assertEquals( cache.size( ), 1 );
+		assertNull( cache.get( "key1", 0 ) );
+		assertNotNull( cache.get( "key2", 0 ) );
+		
+		//the entries are bounded by their total size as well
+		assertTrue( cache.getTotalSize( ) > 0 );
+		long maxSize = cache.getMaxSize( );
+		cache.setMaxSize( cache.getTotalSize( ) - 1 );
+		assertEquals( cache.size( ), 0 );
+		assertEquals( cache.getTotalSize( ), 0 );
+		cache.put( "key3", resultSet );
+		assertNull( cache.get( "key3", 0 ) );
+		cache.setMaxSize( maxSize );
+		cache.put( "key2", resultSet );
+		
+		cache.setCapacity( 0 );
+		assertEquals( cache.size( ), 0 );
+		assertNull( cache.get( "key2", 0 ) );
+		resultSet[0].close( );
+	}
+	
+	@Test
+    public void testCube1AggregationResultSetCacheKey( ) throws IOException, DataException, BirtException
+	{
+		IDocArchiveWriter writer = createRAWriter( );
+		materializer.saveCubeToReportDocument( "cube1", writer , new StopSign( ) );
+		writer.flush( );
+		writer.finish( );
+		IDocumentManager raManager = createRADocumentManager( );
+		try
+		{
+			Cube cube = (Cube) CubeQueryExecutorHelper.loadCube( "cube1", raManager, new StopSign( ) );
+			assertNotNull( cube.getVersion( ) );
+			
+			String key = AggregationResultSetCache.createKey( cubeQuery, cube, ULocale.US, TimeZone.getTimeZone( "GMT" ) );
+			assertNotNull( key );
+			assertEquals( key, AggregationResultSetCache.createKey( cubeQuery, cube, ULocale.US, TimeZone.getTimeZone( "GMT" ) ) );
+			//the expressions may be evaluated differently in other locales or time zones
+			assertFalse( key.equals( AggregationResultSetCache.createKey( cubeQuery, cube, ULocale.GERMANY, TimeZone.getTimeZone( "GMT" ) ) ) );
+			assertFalse( key.equals( AggregationResultSetCache.createKey( cubeQuery, cube, ULocale.US, TimeZone.getTimeZone( "PST" ) ) ) );
+			
+			//the query refers to the script state of the task
+			cubeQuery.addFilter( new CubeFilterDefinition( new ConditionalExpression( "dimension[\"dimension1\"][\"level11\"]",
+					IConditionalExpression.OP_EQ,
+					"params[\"p1\"]" ) ) );
+			assertNull( AggregationResultSetCache.createKey( cubeQuery, cube, ULocale.US, TimeZone.getTimeZone( "GMT" ) ) );
+			
+			//cubes which are not loaded from a document are not shared
+			assertNull( AggregationResultSetCache.createKey( createCube1QueryDefnForKey( ),
+					CubeQueryExecutorHelper.loadCube( "cube1", documentManager, new StopSign( ) ),
+					ULocale.US,
+					TimeZone.getTimeZone( "GMT" ) ) );
+		}
+		finally
+		{
+			raManager.close( );
+		}
+	}
+	
+	@Test
+    public void testScriptFreeExpressions( )
+	{
+		assertTrue( isScriptFree( "dimension[\"dimension1\"][\"level11\"]" ) );
+		assertTrue( isScriptFree( "measure[\"measure1\"] * 2.5 + 1" ) );
+		assertTrue( isScriptFree( "data[\"measure1\"] > 0 // params" ) );
+		assertTrue( isScriptFree( "row[\"params\"] != null" ) );
+		assertTrue( isScriptFree( "dimension[\"d\"][\"l\"] == 'vars'" ) );
+		
+		assertFalse( isScriptFree( "params[\"p1\"]" ) );
+		assertFalse( isScriptFree( "params.p1.value" ) );
+		assertFalse( isScriptFree( "vars[\"v1\"]" ) );
+		assertFalse( isScriptFree( "measure[\"measure1\"] * rate" ) );
+		assertFalse( isScriptFree( "new Date( )" ) );
+		assertFalse( isScriptFree( "Math.random( )" ) );
+		assertFalse( isScriptFree( "row._outer[\"x\"]" ) );
+		assertFalse( isScriptFree( "row[\"_outer\"][\"x\"]" ) );
+	}
+	
+	private boolean isScriptFree( String script )
+	{
+		return ScriptExpressionUtil.isScriptFree( script,
+				AggregationResultSetCache.CUBE_ACCESSORS );
+	}
+	
+	private ICubeQueryDefinition createCube1QueryDefnForKey( ) throws DataException
+	{
+		ICubeQueryDefinition query = new CubeElementFactory( ).createCubeQuery( "cube1" );
+		IBinding measure1 = new Binding( "measure1" );
+		measure1.setExpression( new ScriptExpression( "measure[\"measure1\"]" ) );
+		query.addBinding( measure1 );
+		return query;
+	}
+	
 	@Test
     public void testCube1AggregationWithFunctionFilter( ) throws IOException, DataException, BirtException
 	{
@@ -0,0 +1,130 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.birt.data.engine.olap.data.util;
+
+import java.io.IOException;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ */
+
+public class IntDiskSortedStackTest
+{
+	@Test
+	public void testDistinctAsc( ) throws IOException
+	{
+		int objectNumber = 10001;
+		IntDiskSortedStack stack = new IntDiskSortedStack( 10, true, true );
+		stack.push( 200 );
+		stack.push( 250 );
+		stack.push( 208 );
+		stack.push( 211 );
+		stack.push( 211 );
+		stack.push( 213 );
+		for ( int i = objectNumber - 1; i >= 0; i-- )
+		{
+			stack.push( i );
+		}
+		for ( int i = 0; i < objectNumber; i++ )
+		{
+			assertTrue( stack.hasNext( ) );
+			assertEquals( stack.pop( ), i );
+		}
+		assertFalse( stack.hasNext( ) );
+		stack.close( );
+	}
+
+	@Test
+	public void testDesc( ) throws IOException
+	{
+		int objectNumber = 3001;
+		IntDiskSortedStack stack = new IntDiskSortedStack( 100, false, false );
+		for ( int i = 0; i < objectNumber; i++ )
+		{
+			stack.push( ( i * 7919 ) % objectNumber );
+			stack.push( ( i * 7919 ) % objectNumber );
+		}
+		assertEquals( stack.size( ), objectNumber * 2 );
+		for ( int i = objectNumber - 1; i >= 0; i-- )
+		{
+			assertEquals( stack.pop( ), i );
+			assertEquals( stack.pop( ), i );
+		}
+		assertFalse( stack.hasNext( ) );
+		stack.close( );
+	}
+
+	@Test
+	public void testMergeSegments( ) throws IOException
+	{
+		// more than 100 spilled segments are merged into one
+		int objectNumber = 5000;
+		IntDiskSortedStack stack = new IntDiskSortedStack( 20, true, true );
+		for ( int i = 0; i < objectNumber; i++ )
+		{
+			stack.push( objectNumber - i );
+			stack.push( i % 50 );
+		}
+		for ( int i = 0; i <= objectNumber; i++ )
+		{
+			assertEquals( stack.pop( ), i );
+		}
+		assertFalse( stack.hasNext( ) );
+		stack.close( );
+	}
+
+	@Test
+	public void testMemoryOnly( ) throws IOException
+	{
+		IntDiskSortedStack stack = new IntDiskSortedStack( 4, true, false );
+		stack.setUseMemoryOnly( true );
+		for ( int i = 1000; i > 0; i-- )
+		{
+			stack.push( i );
+		}
+		for ( int i = 1; i <= 1000; i++ )
+		{
+			assertEquals( stack.pop( ), i );
+		}
+		assertFalse( stack.hasNext( ) );
+		stack.close( );
+	}
+
+	@Test
+	public void testIntersection( ) throws IOException
+	{
+		IntDiskSortedStack[] stacks = new IntDiskSortedStack[3];
+		for ( int i = 0; i < stacks.length; i++ )
+		{
+			stacks[i] = new IntDiskSortedStack( 10, true, true );
+		}
+		for ( int i = 0; i < 1000; i++ )
+		{
+			stacks[0].push( i * 2 );
+			stacks[1].push( i * 3 );
+			stacks[2].push( i );
+		}
+		IDiskArray result = SetUtil.getIntersection( stacks, 1000 );
+		assertEquals( result.size( ), 167 );
+		for ( int i = 0; i < result.size( ); i++ )
+		{
+			assertEquals( result.get( i ), Integer.valueOf( i * 6 ) );
+		}
+		result.close( );
+		for ( IntDiskSortedStack s : stacks )
+		{
+			s.close( );
+		}
+	}
+}
@@ -12,7 +12,7 @@
 package org.eclipse.birt.data.engine.olap.data.util;
 
 import java.io.IOException;
-
+import java.util.Comparator;
 
 import org.eclipse.birt.data.engine.core.DataException;
 import org.eclipse.birt.data.engine.olap.data.impl.aggregation.Row4Aggregation;
@@ -68,4 +68,67 @@ public class Row4AggregationTest {
 		keyList.clear( );
 		keyList.close( );
 	}
+
+	@Test
+    public void testSortedStackBinaryRecords( ) throws IOException
+	{
+		int rowCount = 5000;
+		DiskSortedStack stack = new DiskSortedStack( 100,
+				false,
+				new Comparator( ) {
+
+					public int compare( Object o1, Object o2 )
+					{
+						return ( (Integer) ( (Row4Aggregation) o1 ).getMeasures( )[0] ).compareTo( (Integer) ( (Row4Aggregation) o2 ).getMeasures( )[0] );
+					}
+				},
+				Row4Aggregation.getCreator( ) );
+		for ( int i = rowCount - 1; i >= 0; i-- )
+		{
+			Row4Aggregation row = new Row4Aggregation( );
+			Member member = new Member( );
+			member.setKeyValues( new Object[]{ "str" + i, null } );
+			member.setAttributes( i % 2 == 0 ? null : new Object[]{ new Double( i ) } );
+			row.setLevelMembers( new Member[]{ member } );
+			row.setMeasures( new Object[]{ new Integer( i ), null } );
+			if ( i % 3 == 0 )
+			{
+				row.setParameterValues( new Object[]{ "p" + i } );
+				row.setDimPos( new int[]{ i, i + 1 } );
+			}
+			row.addMeasure( new Object[]{ new Integer( -i ) } );
+			stack.push( row );
+		}
+		for ( int i = 0; i < rowCount; i++ )
+		{
+			Row4Aggregation row = (Row4Aggregation) stack.pop( );
+			Member member = row.getLevelMembers( )[0];
+			assertEquals( "str" + i, member.getKeyValues( )[0] );
+			assertNull( member.getKeyValues( )[1] );
+			if ( i % 2 == 0 )
+			{
+				assertNull( member.getAttributes( ) );
+			}
+			else
+			{
+				assertEquals( new Double( i ), member.getAttributes( )[0] );
+			}
+			assertEquals( new Integer( i ), row.getMeasures( )[0] );
+			assertNull( row.getMeasures( )[1] );
+			if ( i % 3 == 0 )
+			{
+				assertEquals( "p" + i, row.getParameterValues( )[0] );
+				assertEquals( i + 1, row.getDimPos( )[1] );
+			}
+			else
+			{
+				assertNull( row.getParameterValues( ) );
+				assertNull( row.getDimPos( ) );
+			}
+			assertEquals( 1, row.getMeasureList( ).size( ) );
+			assertEquals( new Integer( -i ), row.getMeasureList( ).get( 0 )[0] );
+		}
+		assertNull( stack.pop( ) );
+		stack.close( );
+	}
 }
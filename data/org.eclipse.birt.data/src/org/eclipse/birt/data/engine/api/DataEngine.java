@@ -156,6 +156,27 @@ abstract public class DataEngine
 	 */
 	public static String IN_MEMORY_CUBE_SIZE = "org.eclipse.birt.data.engine.cube.inmemory.size";
 	
+	/**
+	 * The max number of cube query results kept in the aggregation result set
+	 * cache shared by all tasks. The cache only holds results of cubes loaded
+	 * from report documents or data marts.
+	 * 
+	 * As a system property, it sets the capacity of the cache:
+	 * Positive integer: Enable the cache with this capacity.
+	 * Zero: Disable the cache.
+	 * 
+	 * In the application context of a task, zero makes the task bypass the
+	 * cache. Other values are ignored.
+	 */
+	public static String CUBE_AGGREGATION_RESULT_CACHE_SIZE = "org.eclipse.birt.data.engine.cube.aggregation.cache.size";
+	
+	/**
+	 * The max total size of the cube query results kept in the aggregation
+	 * result set cache, as a system property. The unit is MB, and the default
+	 * is 256. The least recently used results are evicted beyond it.
+	 */
+	public static String CUBE_AGGREGATION_RESULT_CACHE_MAX_SIZE = "org.eclipse.birt.data.engine.cube.aggregation.cache.maxsize";
+	
 	/**
 	 * Creates a new instance of DataEngine, using the specified
 	 * DataEngineContext as its running environment
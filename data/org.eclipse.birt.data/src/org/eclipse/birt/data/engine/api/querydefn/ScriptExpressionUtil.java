@@ -14,15 +14,25 @@
 
 package org.eclipse.birt.data.engine.api.querydefn;
 
+import java.util.Collection;
+import java.util.Set;
+
+import org.eclipse.birt.data.engine.api.IBaseExpression;
+import org.eclipse.birt.data.engine.api.ICollectionConditionalExpression;
+import org.eclipse.birt.data.engine.api.IConditionalExpression;
+import org.eclipse.birt.data.engine.api.IExpressionCollection;
 import org.eclipse.birt.data.engine.api.IScriptExpression;
 
 /**
- * Utility class to create the constant expression and java script expression.
+ * Utility class to create the constant expression and java script expression,
+ * and to test what the java script expressions refer to.
  * 
  */
 public class ScriptExpressionUtil
 {
 
+	private static final String OUTER_ROW = "_outer"; //$NON-NLS-1$
+
 	private ScriptExpressionUtil( )
 	{
 	}
@@ -55,4 +65,174 @@ public class ScriptExpressionUtil
 		scriptExpression.setScriptId( BaseExpression.javaScriptId );
 		return scriptExpression;
 	}
+
+	/**
+	 * Tests if the expression only refers to the given names and literals.
+	 * Such an expression gets the same value in any script scope, as it doesn't
+	 * read the parameters, the variables, the globals of the report or the
+	 * rows of the outer query. The expressions of other script languages are
+	 * never script free.
+	 * 
+	 * @param expr
+	 *            the expression, may be null.
+	 * @param names
+	 *            the names the expression may refer to, such as "row".
+	 * @return
+	 */
+	public static boolean isScriptFree( IBaseExpression expr, Set<String> names )
+	{
+		if ( expr == null )
+		{
+			return true;
+		}
+		if ( expr.getScriptId( ) != null
+				&& !BaseExpression.javaScriptId.equals( expr.getScriptId( ) ) )
+		{
+			return false;
+		}
+		if ( expr instanceof IScriptExpression )
+		{
+			return isScriptFree( ( (IScriptExpression) expr ).getText( ), names );
+		}
+		if ( expr instanceof IConditionalExpression )
+		{
+			IConditionalExpression condition = (IConditionalExpression) expr;
+			return isScriptFree( condition.getExpression( ), names )
+					&& isScriptFree( condition.getOperand1( ), names )
+					&& isScriptFree( condition.getOperand2( ), names );
+		}
+		if ( expr instanceof IExpressionCollection )
+		{
+			return isScriptFree( ( (IExpressionCollection) expr ).getExpressions( ),
+					names );
+		}
+		if ( expr instanceof ICollectionConditionalExpression )
+		{
+			ICollectionConditionalExpression condition = (ICollectionConditionalExpression) expr;
+			if ( !isScriptFree( condition.getExpr( ), names ) )
+			{
+				return false;
+			}
+			for ( Collection<IScriptExpression> operand : condition.getOperand( ) )
+			{
+				if ( !isScriptFree( operand, names ) )
+				{
+					return false;
+				}
+			}
+			return true;
+		}
+		return false;
+	}
+
+	private static boolean isScriptFree( Collection<?> expressions,
+			Set<String> names )
+	{
+		if ( expressions != null )
+		{
+			for ( Object expr : expressions )
+			{
+				if ( expr instanceof IBaseExpression
+						&& !isScriptFree( (IBaseExpression) expr, names ) )
+				{
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Tests if the java script only refers to the given names and literals.
+	 * Any other name, such as params, vars, a global of the report or a
+	 * function like Math.random or new Date, makes the script depend on the
+	 * scope it is evaluated in. The members of the given names may be read,
+	 * except _outer which reads the rows of the outer query.
+	 * 
+	 * @param script
+	 *            the script, may be null.
+	 * @param names
+	 *            the names the script may refer to, such as "row".
+	 * @return
+	 */
+	public static boolean isScriptFree( String script, Set<String> names )
+	{
+		if ( script == null )
+		{
+			return true;
+		}
+		int length = script.length( );
+		boolean member = false;
+		int i = 0;
+		while ( i < length )
+		{
+			char c = script.charAt( i );
+			if ( c == '"' || c == '\'' )
+			{
+				StringBuffer literal = new StringBuffer( );
+				i++;
+				while ( i < length && script.charAt( i ) != c )
+				{
+					if ( script.charAt( i ) == '\\' )
+					{
+						i++;
+					}
+					if ( i < length )
+					{
+						literal.append( script.charAt( i ) );
+					}
+					i++;
+				}
+				i++;
+				// row["_outer"] reads the rows of the outer query
+				if ( OUTER_ROW.equals( literal.toString( ) ) )
+				{
+					return false;
+				}
+				member = false;
+			}
+			else if ( c == '/'
+					&& i + 1 < length
+					&& ( script.charAt( i + 1 ) == '/' || script.charAt( i + 1 ) == '*' ) )
+			{
+				int end = script.charAt( i + 1 ) == '/'
+						? script.indexOf( '\n', i )
+						: script.indexOf( "*/", i + 2 ); //$NON-NLS-1$
+				i = end < 0 ? length : end + 1;
+			}
+			else if ( Character.isJavaIdentifierStart( c ) )
+			{
+				int start = i;
+				while ( i < length
+						&& Character.isJavaIdentifierPart( script.charAt( i ) ) )
+				{
+					i++;
+				}
+				String name = script.substring( start, i );
+				if ( member ? OUTER_ROW.equals( name ) : !names.contains( name ) )
+				{
+					return false;
+				}
+				member = false;
+			}
+			else if ( Character.isDigit( c ) )
+			{
+				while ( i < length
+						&& ( Character.isLetterOrDigit( script.charAt( i ) ) || script.charAt( i ) == '.' ) )
+				{
+					i++;
+				}
+				member = false;
+			}
+			else
+			{
+				if ( !Character.isWhitespace( c ) )
+				{
+					member = c == '.';
+				}
+				i++;
+			}
+		}
+		return true;
+	}
 }
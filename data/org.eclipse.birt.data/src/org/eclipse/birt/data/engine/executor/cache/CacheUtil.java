@@ -114,6 +114,37 @@ public class CacheUtil
 		}
 	}
 
+	/**
+	 * Returns the cube aggregation result set cache setting of a task, or -1
+	 * if it is not set or not a valid number in the application context. Zero
+	 * means the task does not use the cache.
+	 * 
+	 * @param appContext
+	 * @return
+	 */
+	public static int getCubeAggregationCacheSize( Map appContext )
+	{
+		if ( appContext == null )
+			return -1;
+		Object size = appContext.get( DataEngine.CUBE_AGGREGATION_RESULT_CACHE_SIZE );
+		if ( size instanceof Number )
+		{
+			return ( (Number) size ).intValue( );
+		}
+		if ( size != null )
+		{
+			try
+			{
+				return Integer.parseInt( size.toString( ).trim( ) );
+			}
+			catch ( NumberFormatException e )
+			{
+				// an invalid setting is ignored like an absent one
+			}
+		}
+		return -1;
+	}
+
 	/**
 	 * 
 	 * @param propValue
@@ -73,10 +73,8 @@ class DimensionTraverse
 	{
 		int position = currentPosition;
 		int[] pos = new int[this.dimAxis.length];
-		int count = 0;
 		for ( int i = pos.length - 1; i >= 0; i-- )
 		{
-			count = 0;
 			if ( position < 0 )
 			{
 				pos[i] = -1;
@@ -93,21 +91,8 @@ class DimensionTraverse
 				pos[i] = -1;
 				continue;
 			}
-			for ( int j = position - 1; j >= 0; j-- )
-			{
-				EdgeInfo lastInfo = (EdgeInfo) this.relationMap.currentRelation[i].get( j );
-				if ( info.parent == lastInfo.parent )
-				{
-					count++;
-				}
-				else
-				{
-
-					break;
-				}
-			}
 			position = info.parent;
-			pos[i] = count;
+			pos[i] = info.index - this.relationMap.getFirstSiblingIndex( i, info );
 
 		}
 		return pos;
@@ -379,7 +364,7 @@ class DimensionTraverse
 		
 		int endPosition = edgeInfo.firstChild;
 
-		int index = this.relationMap.currentRelation[dimAxisIndex].indexOf( edgeInfo );
+		int index = edgeInfo.index;
 		if ( index < this.relationMap.currentRelation[dimAxisIndex].size( ) - 1 )
 		{
 			EdgeInfo nextEdgeInfo = (EdgeInfo) this.relationMap.currentRelation[dimAxisIndex].get( index + 1 );
@@ -498,7 +483,7 @@ class DimensionTraverse
 				return false;
 		}
 
-		int index = this.relationMap.currentRelation[dimAxisIndex].indexOf( currentEdgeInfo );
+		int index = currentEdgeInfo.index;
 		EdgeInfo nextEdgeInfo = null;
 		if ( this.relationMap.currentRelation[dimAxisIndex].size( ) > index + 1 )
 			nextEdgeInfo = (EdgeInfo) this.relationMap.currentRelation[dimAxisIndex].get( index + 1 );
@@ -598,26 +583,10 @@ class DimensionTraverse
 			return range;
 		else
 		{
-			range = 0;
-			while ( true )
-			{
-				int index = this.relationMap.currentRelation[dimensionAxis].indexOf( currentInfo );
-				EdgeInfo nextEdgeInfo = null;
-				if ( this.relationMap.currentRelation[dimensionAxis].size( ) > index + 1 )
-					nextEdgeInfo = (EdgeInfo) this.relationMap.currentRelation[dimensionAxis].get( index + 1 );
-				else
-					break;
-				if ( nextEdgeInfo != null &&
-						currentInfo.parent == nextEdgeInfo.parent )
-				{
-					range++;
-					currentInfo = nextEdgeInfo;
-				}
-				else
-				{
-					break;
-				}
-			}
+			// the following siblings are contiguous in the relation
+			range = this.relationMap.getLastSiblingIndex( dimensionAxis,
+					currentInfo )
+					- currentInfo.index;
 		}
 		return range;
 	}
@@ -122,10 +122,7 @@ class EdgeDimensionRelation
 				}
 				else
 				{
-					breakLevel = getBreakLevel( currValue,
-							preValue,
-							section,
-							rowId );
+					breakLevel = getBreakLevel( currValue, preValue );
 
 					if ( breakLevel <= service.getPagePosition( ) && !isPage )
 					{
@@ -142,6 +139,7 @@ class EdgeDimensionRelation
 					for ( int level = breakLevel; level < customDimSize; level++ )
 					{
 						EdgeInfo edge = new EdgeInfo( );
+						edge.index = section.getRelation( )[level].size( );
 						if ( currValue[level] == null )
 							edge.isNull = 0;
 
@@ -179,40 +177,59 @@ class EdgeDimensionRelation
 	 * 
 	 * @param currValue
 	 * @param preValue
-	 * @param rowId
 	 * @return
 	 */
-	private int getBreakLevel( Object[] currValue, Object[] preValue, Section section, int rowId )
+	private int getBreakLevel( Object[] currValue, Object[] preValue )
 	{
 		assert preValue != null && currValue != null;
 		int breakLevel = 0;
 		for ( ; breakLevel < currValue.length; breakLevel++ )
 		{
-			// get the first child of current group in level of breakLevel
-			List list = section.getRelation( )[breakLevel];
-			EdgeInfo edgeInfo = (EdgeInfo) list.get( list.size( ) - 1 );
-			int child = edgeInfo.firstChild;
-
-			Object currObjectValue = currValue[breakLevel];
-			Object prevObjectValue = preValue[breakLevel];
-
-			for ( int level = breakLevel + 1; level < section.getRelation( ).length; level++ )
-			{
-				list = section.getRelation( )[level];
-				edgeInfo = (EdgeInfo) list.get( child );
-				child = edgeInfo.firstChild;
-			}
-
 			// determines whether next row is in current group
-			if ( isEqualObject( currObjectValue, prevObjectValue ) == false )
+			if ( isEqualObject( currValue[breakLevel], preValue[breakLevel] ) == false )
 			{
 				break;
 			}
-
 		}
 		return breakLevel;
 	}
 	
+	/**
+	 * Get the index of the first edge info sharing the same parent with the
+	 * given one. The children of a parent are contiguous in the relation.
+	 * 
+	 * @param level
+	 * @param edgeInfo
+	 * @return
+	 */
+	int getFirstSiblingIndex( int level, EdgeInfo edgeInfo )
+	{
+		if ( level == 0 || edgeInfo.parent < 0 )
+		{
+			return 0;
+		}
+		return ( (EdgeInfo) currentRelation[level - 1].get( edgeInfo.parent ) ).firstChild;
+	}
+	
+	/**
+	 * Get the index of the last edge info sharing the same parent with the
+	 * given one.
+	 * 
+	 * @param level
+	 * @param edgeInfo
+	 * @return
+	 */
+	int getLastSiblingIndex( int level, EdgeInfo edgeInfo )
+	{
+		if ( level > 0
+				&& edgeInfo.parent >= 0
+				&& edgeInfo.parent + 1 < currentRelation[level - 1].size( ) )
+		{
+			return ( (EdgeInfo) currentRelation[level - 1].get( edgeInfo.parent + 1 ) ).firstChild - 1;
+		}
+		return currentRelation[level].size( ) - 1;
+	}
+	
 	/**
 	 * 
 	 * @param position
@@ -252,6 +269,8 @@ class EdgeDimensionRelation
 
 class EdgeInfo
 {
+	// the position of this edge info in its level
+	int index = -1;
 	int parent = -1;
 	int firstChild = -1;
 	int isNull = -1;
@@ -490,18 +490,8 @@ public class RowDataAccessor implements IRowDataAccessor
 		{
 			List edgeInfoList = this.edgeDimensRelation.currentRelation[i];
 			EdgeInfo edgeInfo = (EdgeInfo) edgeInfoList.get( index );
-			int currentPosition = index;
-			int dimPosition = 0;
-			while ( --currentPosition >= 0 )
-			{
-				EdgeInfo previousInfo = (EdgeInfo) edgeInfoList.get( currentPosition );
-				if ( previousInfo.parent == edgeInfo.parent )
-				{
-					dimPosition++;
-				}
-				else
-					break;
-			}
+			int dimPosition = index
+					- this.edgeDimensRelation.getFirstSiblingIndex( i, edgeInfo );
 			this.dimTraverse.setPosition( i, dimPosition );
 			index = edgeInfo.parent;
 		}
@@ -0,0 +1,407 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.birt.data.engine.olap.data.document;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.birt.data.engine.core.security.PropertySecurity;
+
+/**
+ * A process wide pool of fixed size pages read from read only document
+ * objects. The pages are keyed by the identity of the document object and the
+ * page index, so all the queries reading the same cube share the cached pages.
+ * <p>
+ * The pool is split into stripes, each stripe guarded by its own lock and
+ * evicting its pages with the clock algorithm. Pinned pages are never evicted.
+ */
+
+public class BlockBufferPool
+{
+	/**
+	 * The system property defining the size of the pool in MB. Zero disables
+	 * the pool.
+	 */
+	public static final String POOL_SIZE_PROPERTY = "org.eclipse.birt.data.engine.olap.bufferpool.size"; //$NON-NLS-1$
+
+	public static final int PAGE_SIZE = 8192;
+
+	private static final int STRIPE_COUNT = 16;
+
+	private static BlockBufferPool instance = null;
+
+	private Stripe[] stripes;
+	private int capacity;
+
+	/**
+	 *
+	 * @param capacity
+	 *            the max number of pages kept in the pool.
+	 */
+	public BlockBufferPool( int capacity )
+	{
+		this.capacity = capacity;
+		int stripeCapacity = Math.max( 1, ( capacity + STRIPE_COUNT - 1 )
+				/ STRIPE_COUNT );
+		stripes = new Stripe[STRIPE_COUNT];
+		for ( int i = 0; i < stripes.length; i++ )
+		{
+			stripes[i] = new Stripe( stripeCapacity );
+		}
+	}
+
+	/**
+	 * Returns the process wide pool, or null if the pool is disabled.
+	 *
+	 * @return
+	 */
+	public static synchronized BlockBufferPool getInstance( )
+	{
+		if ( instance == null )
+		{
+			int size = 0;
+			String value = PropertySecurity.getSystemProperty( POOL_SIZE_PROPERTY );
+			if ( value != null )
+			{
+				try
+				{
+					size = Integer.parseInt( value.trim( ) );
+				}
+				catch ( NumberFormatException e )
+				{
+					size = 0;
+				}
+			}
+			if ( size <= 0 )
+			{
+				return null;
+			}
+			instance = new BlockBufferPool( (int) ( size * 1024L * 1024L / PAGE_SIZE ) );
+		}
+		return instance;
+	}
+
+	/**
+	 *
+	 * @return the max number of pages kept in the pool.
+	 */
+	public int getCapacity( )
+	{
+		return capacity;
+	}
+
+	/**
+	 *
+	 * @return the number of pages in the pool.
+	 */
+	public int size( )
+	{
+		int size = 0;
+		for ( int i = 0; i < stripes.length; i++ )
+		{
+			synchronized ( stripes[i] )
+			{
+				size += stripes[i].pages.size( );
+			}
+		}
+		return size;
+	}
+
+	/**
+	 * Returns the pinned page of the source. The page is loaded with the given
+	 * loader if it is not in the pool. A page loaded with read ahead pages also
+	 * puts the following pages into the pool. The caller must unpin the page
+	 * after use.
+	 *
+	 * @param source
+	 *            the identity of the document object.
+	 * @param pageIndex
+	 * @param readAhead
+	 *            the number of the following pages to load together.
+	 * @param loader
+	 * @return
+	 * @throws IOException
+	 */
+	public Page pin( String source, long pageIndex, int readAhead,
+			IPageLoader loader ) throws IOException
+	{
+		PageKey key = new PageKey( source, pageIndex );
+		Stripe stripe = getStripe( key );
+		synchronized ( stripe )
+		{
+			Page page = stripe.pages.get( key );
+			if ( page != null )
+			{
+				page.pinCount++;
+				page.referenced = true;
+				return page;
+			}
+		}
+
+		// load outside of the lock, the loader reads through its own file handle
+		byte[] buffer = new byte[PAGE_SIZE * ( readAhead + 1 )];
+		int length = loader.load( pageIndex * PAGE_SIZE, buffer );
+		Page result = null;
+		for ( int i = 0; i <= readAhead; i++ )
+		{
+			int pageLength = Math.min( PAGE_SIZE, length - i * PAGE_SIZE );
+			if ( pageLength <= 0 && i > 0 )
+			{
+				break;
+			}
+			byte[] data = new byte[PAGE_SIZE];
+			if ( pageLength > 0 )
+			{
+				System.arraycopy( buffer, i * PAGE_SIZE, data, 0, pageLength );
+			}
+			Page page = put( new PageKey( source, pageIndex + i ),
+					data,
+					Math.max( pageLength, 0 ),
+					i == 0 );
+			if ( i == 0 )
+			{
+				result = page;
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Releases a page returned by <code>pin</code>.
+	 *
+	 * @param page
+	 */
+	public void unpin( Page page )
+	{
+		Stripe stripe = getStripe( page.key );
+		synchronized ( stripe )
+		{
+			page.pinCount--;
+		}
+	}
+
+	/**
+	 *
+	 * @param source
+	 * @param pageIndex
+	 * @return whether the page is in the pool.
+	 */
+	public boolean contains( String source, long pageIndex )
+	{
+		PageKey key = new PageKey( source, pageIndex );
+		Stripe stripe = getStripe( key );
+		synchronized ( stripe )
+		{
+			return stripe.pages.containsKey( key );
+		}
+	}
+
+	/**
+	 * Removes all unpinned pages from the pool.
+	 */
+	public void clear( )
+	{
+		for ( int i = 0; i < stripes.length; i++ )
+		{
+			synchronized ( stripes[i] )
+			{
+				stripes[i].clear( );
+			}
+		}
+	}
+
+	private Page put( PageKey key, byte[] data, int length, boolean pin )
+	{
+		Stripe stripe = getStripe( key );
+		synchronized ( stripe )
+		{
+			Page page = stripe.pages.get( key );
+			if ( page == null )
+			{
+				page = new Page( key, data, length );
+				stripe.add( page );
+			}
+			if ( pin )
+			{
+				page.pinCount++;
+				page.referenced = true;
+			}
+			return page;
+		}
+	}
+
+	private Stripe getStripe( PageKey key )
+	{
+		return stripes[( key.hashCode( ) & 0x7FFFFFFF ) % STRIPE_COUNT];
+	}
+
+	/**
+	 * Loads the bytes of a document object into the pool.
+	 */
+	public static interface IPageLoader
+	{
+
+		/**
+		 * Reads the bytes starting from the offset into the buffer.
+		 *
+		 * @param offset
+		 * @param buffer
+		 * @return the number of bytes read.
+		 * @throws IOException
+		 */
+		public int load( long offset, byte[] buffer ) throws IOException;
+	}
+
+	/**
+	 * A page in the pool.
+	 */
+	public static class Page
+	{
+
+		private PageKey key;
+		private byte[] data;
+		private int length;
+		private int pinCount;
+		private boolean referenced;
+
+		Page( PageKey key, byte[] data, int length )
+		{
+			this.key = key;
+			this.data = data;
+			this.length = length;
+		}
+
+		/**
+		 *
+		 * @return the bytes of the page.
+		 */
+		public byte[] getData( )
+		{
+			return data;
+		}
+
+		/**
+		 *
+		 * @return the number of valid bytes in the page.
+		 */
+		public int getLength( )
+		{
+			return length;
+		}
+	}
+
+	private static class PageKey
+	{
+
+		private String source;
+		private long index;
+
+		PageKey( String source, long index )
+		{
+			this.source = source;
+			this.index = index;
+		}
+
+		public int hashCode( )
+		{
+			return source.hashCode( ) * 31 + (int) ( index ^ ( index >>> 32 ) );
+		}
+
+		public boolean equals( Object obj )
+		{
+			if ( !( obj instanceof PageKey ) )
+			{
+				return false;
+			}
+			PageKey key = (PageKey) obj;
+			return index == key.index && source.equals( key.source );
+		}
+	}
+
+	private static class Stripe
+	{
+
+		private int capacity;
+		private Map<PageKey, Page> pages = new HashMap<PageKey, Page>( );
+		private List<Page> clock = new ArrayList<Page>( );
+		private int hand = 0;
+
+		Stripe( int capacity )
+		{
+			this.capacity = capacity;
+		}
+
+		void add( Page page )
+		{
+			if ( clock.size( ) >= capacity )
+			{
+				int victim = findVictim( );
+				if ( victim >= 0 )
+				{
+					pages.remove( clock.get( victim ).key );
+					clock.set( victim, page );
+					pages.put( page.key, page );
+					return;
+				}
+			}
+			// all the pages are pinned, let the stripe grow
+			clock.add( page );
+			pages.put( page.key, page );
+		}
+
+		private int findVictim( )
+		{
+			// two rounds at most: the first round clears the reference bits
+			for ( int i = 0; i < clock.size( ) * 2; i++ )
+			{
+				if ( hand >= clock.size( ) )
+				{
+					hand = 0;
+				}
+				Page page = clock.get( hand );
+				int current = hand++;
+				if ( page.pinCount > 0 )
+				{
+					continue;
+				}
+				if ( page.referenced )
+				{
+					page.referenced = false;
+					continue;
+				}
+				return current;
+			}
+			return -1;
+		}
+
+		void clear( )
+		{
+			List<Page> pinned = new ArrayList<Page>( );
+			for ( Page page : clock )
+			{
+				if ( page.pinCount > 0 )
+				{
+					pinned.add( page );
+				}
+			}
+			clock = pinned;
+			pages.clear( );
+			for ( Page page : pinned )
+			{
+				pages.put( page.key, page );
+			}
+			hand = 0;
+		}
+	}
+}
@@ -15,6 +15,9 @@ import java.io.File;
 import java.io.IOException;
 
 import org.eclipse.birt.core.archive.IDocArchiveReader;
+import org.eclipse.birt.core.archive.compound.ArchiveFile;
+import org.eclipse.birt.core.archive.compound.ArchiveReader;
+import org.eclipse.birt.core.archive.compound.IArchiveFile;
 import org.eclipse.birt.data.engine.core.DataException;
 import org.eclipse.birt.data.engine.core.security.FileSecurity;
 import org.eclipse.birt.data.engine.core.security.PropertySecurity;
@@ -90,6 +93,33 @@ public class DocumentManagerFactory
 		return new RADocumentManager( reader );
 	}
 	
+	/**
+	 * Opens the report document archive in the memory mapped "rm" mode. The
+	 * document objects are read from the mapping directly through
+	 * <tt>MappedRandomAccessObject</tt>. The archive is closed with the
+	 * manager.
+	 * 
+	 * @param archiveName
+	 *            the file name of the archive.
+	 * @return
+	 * @throws DataException
+	 * @throws IOException
+	 */
+	static public IDocumentManager createMappedRADocumentManager(
+			String archiveName ) throws DataException, IOException
+	{
+		IArchiveFile archive = new ArchiveFile( archiveName, "rm" );
+		try
+		{
+			return new RADocumentManager( new ArchiveReader( archive ), archive );
+		}
+		catch ( IOException ex )
+		{
+			archive.close( );
+			throw ex;
+		}
+	}
+	
 	/**
 	 * 
 	 * @return
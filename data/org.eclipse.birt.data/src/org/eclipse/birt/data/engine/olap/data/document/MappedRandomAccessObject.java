@@ -0,0 +1,184 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.birt.data.engine.olap.data.document;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.eclipse.birt.core.archive.RAInputStream;
+
+/**
+ * A read only <tt>IRandomAccessObject</tt> on the memory mapped buffers of a
+ * document object, such as a stream of a report document opened in "rm" mode.
+ * The bytes are copied from the mapping to the caller directly, so the reads
+ * need neither a system call nor a lock, and the pages are shared with the
+ * other readers through the OS page cache.
+ */
+
+public class MappedRandomAccessObject implements IRandomAccessObject
+{
+	private RAInputStream inputStream;
+	private ByteBuffer[] buffers;
+	/**
+	 * the position of each buffer in the object.
+	 */
+	private long[] offsets;
+	private long length;
+	private long position;
+
+	/**
+	 *
+	 * @param inputStream
+	 *            the stream the buffers are mapped from, it is closed with
+	 *            this object.
+	 * @param buffers
+	 *            the buffers holding the data of the stream in order.
+	 */
+	MappedRandomAccessObject( RAInputStream inputStream, ByteBuffer[] buffers )
+	{
+		this.inputStream = inputStream;
+		this.buffers = buffers;
+		this.offsets = new long[buffers.length];
+		for ( int i = 0; i < buffers.length; i++ )
+		{
+			offsets[i] = length;
+			length += buffers[i].limit( );
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.document.IRandomAccessObject#close()
+	 */
+	public void close( ) throws IOException
+	{
+		buffers = null;
+		if ( inputStream != null )
+		{
+			inputStream.close( );
+			inputStream = null;
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.document.IRandomAccessObject#getFilePointer()
+	 */
+	public long getFilePointer( ) throws IOException
+	{
+		return position;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.document.IRandomAccessObject#length()
+	 */
+	public long length( ) throws IOException
+	{
+		return length;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.document.IRandomAccessObject#read(byte[], int, int)
+	 */
+	public int read( byte[] b, int off, int len ) throws IOException
+	{
+		if ( len == 0 )
+		{
+			return 0;
+		}
+		if ( position >= length )
+		{
+			return -1;
+		}
+		if ( len > length - position )
+		{
+			len = (int) ( length - position );
+		}
+		int index = Arrays.binarySearch( offsets, position );
+		if ( index < 0 )
+		{
+			index = -index - 2;
+		}
+		int read = 0;
+		while ( read < len )
+		{
+			ByteBuffer buffer = buffers[index];
+			int posInBuffer = (int) ( position - offsets[index] );
+			int size = Math.min( len - read, buffer.limit( ) - posInBuffer );
+			buffer.position( posInBuffer );
+			buffer.get( b, off + read, size );
+			read += size;
+			position += size;
+			index++;
+		}
+		return read;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.document.IRandomAccessObject#read(byte[])
+	 */
+	public int read( byte[] b ) throws IOException
+	{
+		return read( b, 0, b.length );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.document.IRandomAccessObject#read()
+	 */
+	public int read( ) throws IOException
+	{
+		byte[] b = new byte[1];
+		if ( read( b, 0, 1 ) != 1 )
+		{
+			return -1;
+		}
+		return b[0] & 0xff;
+	}
+
+	/**
+	 *
+	 */
+	public void seek( long pos ) throws IOException
+	{
+		this.position = pos;
+	}
+
+	/**
+	 *
+	 */
+	public void setLength( long newLength ) throws IOException
+	{
+		throw new UnsupportedOperationException( );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.document.IRandomAccessObject#write(byte[], int, int)
+	 */
+	public void write( byte[] b, int off, int len ) throws IOException
+	{
+		throw new UnsupportedOperationException( "This is a read only object!" );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 *
+	 * @see org.eclipse.birt.data.engine.olap.data.document.IRandomAccessObject#flush()
+	 */
+	public void flush( ) throws IOException
+	{
+	}
+}
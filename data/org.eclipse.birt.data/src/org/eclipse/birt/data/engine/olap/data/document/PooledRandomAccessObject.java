@@ -0,0 +1,233 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.birt.data.engine.olap.data.document;
+
+import java.io.IOException;
+
+/**
+ * A read only <tt>IRandomAccessObject</tt> which reads the bytes of another
+ * random access object through the pages of a <tt>BlockBufferPool</tt>.
+ * Sequential reads load several pages at once.
+ */
+
+public class PooledRandomAccessObject implements IRandomAccessObject
+{
+	private static final int MAX_READ_AHEAD = 8;
+
+	private BlockBufferPool pool;
+	private String source;
+	private IRandomAccessObject delegate;
+	private long length;
+	private long position;
+	private long lastPageIndex = -2;
+	private int readAhead = 0;
+	private BlockBufferPool.IPageLoader loader;
+
+	/**
+	 *
+	 * @param pool
+	 * @param source
+	 *            the identity of the document object shared by all the readers.
+	 * @param delegate
+	 * @throws IOException
+	 */
+	public PooledRandomAccessObject( BlockBufferPool pool, String source,
+			IRandomAccessObject delegate ) throws IOException
+	{
+		this.pool = pool;
+		this.source = source;
+		this.delegate = delegate;
+		this.length = delegate.length( );
+		this.position = 0;
+		this.loader = new BlockBufferPool.IPageLoader( ) {
+
+			public int load( long offset, byte[] buffer ) throws IOException
+			{
+				return loadPages( offset, buffer );
+			}
+		};
+	}
+
+	private int loadPages( long offset, byte[] buffer ) throws IOException
+	{
+		if ( offset >= length )
+		{
+			return 0;
+		}
+		int size = (int) Math.min( buffer.length, length - offset );
+		delegate.seek( offset );
+		int read = 0;
+		while ( read < size )
+		{
+			int n = delegate.read( buffer, read, size - read );
+			if ( n < 0 )
+			{
+				break;
+			}
+			read += n;
+		}
+		return read;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.document.IRandomAccessObject#read(byte[], int, int)
+	 */
+	public int read( byte[] b, int off, int len ) throws IOException
+	{
+		if ( len == 0 )
+		{
+			return 0;
+		}
+		if ( position >= length )
+		{
+			return -1;
+		}
+		len = (int) Math.min( len, length - position );
+		int read = 0;
+		while ( read < len )
+		{
+			long pageIndex = position / BlockBufferPool.PAGE_SIZE;
+			int posInPage = (int) ( position % BlockBufferPool.PAGE_SIZE );
+			BlockBufferPool.Page page = pool.pin( source,
+					pageIndex,
+					getReadAhead( pageIndex ),
+					loader );
+			try
+			{
+				int size = Math.min( len - read, page.getLength( ) - posInPage );
+				if ( size <= 0 )
+				{
+					break;
+				}
+				System.arraycopy( page.getData( ), posInPage, b, off + read, size );
+				read += size;
+				position += size;
+			}
+			finally
+			{
+				pool.unpin( page );
+			}
+		}
+		return read == 0 ? -1 : read;
+	}
+
+	/**
+	 * Grows the read ahead window while the pages are read in sequence.
+	 *
+	 * @param pageIndex
+	 * @return
+	 */
+	private int getReadAhead( long pageIndex )
+	{
+		if ( pageIndex == lastPageIndex + 1 )
+		{
+			readAhead = Math.min( MAX_READ_AHEAD, readAhead == 0 ? 1
+					: readAhead * 2 );
+		}
+		else if ( pageIndex != lastPageIndex )
+		{
+			readAhead = 0;
+		}
+		lastPageIndex = pageIndex;
+		if ( pool.contains( source, pageIndex ) )
+		{
+			return 0;
+		}
+		return readAhead;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.document.IRandomAccessObject#read(byte[])
+	 */
+	public int read( byte[] b ) throws IOException
+	{
+		return read( b, 0, b.length );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.document.IRandomAccessObject#read()
+	 */
+	public int read( ) throws IOException
+	{
+		byte[] b = new byte[1];
+		int len = read( b );
+		if ( len < 0 )
+		{
+			return -1;
+		}
+		return b[0] & 0xff;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.document.IRandomAccessObject#seek(long)
+	 */
+	public void seek( long pos ) throws IOException
+	{
+		this.position = pos;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.document.IRandomAccessObject#getFilePointer()
+	 */
+	public long getFilePointer( ) throws IOException
+	{
+		return position;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.document.IRandomAccessObject#length()
+	 */
+	public long length( ) throws IOException
+	{
+		return length;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.document.IRandomAccessObject#setLength(long)
+	 */
+	public void setLength( long newLength ) throws IOException
+	{
+		throw new UnsupportedOperationException( );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.document.IRandomAccessObject#write(byte[], int, int)
+	 */
+	public void write( byte[] b, int off, int len ) throws IOException
+	{
+		throw new UnsupportedOperationException( "This is a read only object!" );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.document.IRandomAccessObject#flush()
+	 */
+	public void flush( ) throws IOException
+	{
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.document.IRandomAccessObject#close()
+	 */
+	public void close( ) throws IOException
+	{
+		delegate.close( );
+	}
+}
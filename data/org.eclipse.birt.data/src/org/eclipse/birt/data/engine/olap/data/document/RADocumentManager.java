@@ -12,9 +12,14 @@
 package org.eclipse.birt.data.engine.olap.data.document;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import org.eclipse.birt.core.archive.IDocArchiveReader;
 import org.eclipse.birt.core.archive.RAInputStream;
+import org.eclipse.birt.core.archive.compound.ArchiveEntryInputStream;
+import org.eclipse.birt.core.archive.compound.ArchiveFile;
+import org.eclipse.birt.core.archive.compound.ArchiveReader;
+import org.eclipse.birt.core.archive.compound.IArchiveFile;
 
 /**
  * 
@@ -23,6 +28,10 @@ import org.eclipse.birt.core.archive.RAInputStream;
 public class RADocumentManager implements IDocumentManager
 {
 	private IDocArchiveReader archiveReader;
+	/**
+	 * the archive opened by this manager, it is closed with the manager.
+	 */
+	private IArchiveFile archive;
 	
 	/**
 	 * 
@@ -34,6 +43,20 @@ public class RADocumentManager implements IDocumentManager
 		this.archiveReader = reader;
 	}
 	
+	/**
+	 * 
+	 * @param reader
+	 * @param archive
+	 *            the archive of the reader, it is closed with the manager.
+	 * @throws IOException
+	 */
+	RADocumentManager( IDocArchiveReader reader, IArchiveFile archive )
+			throws IOException
+	{
+		this.archiveReader = reader;
+		this.archive = archive;
+	}
+	
 	/*
 	 * (non-Javadoc)
 	 * @see org.eclipse.birt.data.engine.olap.data.document.IDocumentManager#close()
@@ -41,6 +64,11 @@ public class RADocumentManager implements IDocumentManager
 	public void close( ) throws IOException
 	{
 		//archiveReader.close( );
+		if ( archive != null )
+		{
+			archive.close( );
+			archive = null;
+		}
 	}
 
 	/*
@@ -74,7 +102,51 @@ public class RADocumentManager implements IDocumentManager
 		RAInputStream inputStream = archiveReader.getStream( documentObjectName );
 		if ( inputStream == null )
 			return null;
-		return new DocumentObject( new BufferedRandomDataAccessObject( new RAReader( inputStream ), 8192 ) );
+		ByteBuffer[] buffers = null;
+		if ( inputStream instanceof ArchiveEntryInputStream )
+		{
+			buffers = ( (ArchiveEntryInputStream) inputStream ).map( );
+		}
+		if ( buffers != null )
+		{
+			// the mapped pages are cached by the OS, needn't pool them
+			return new DocumentObject( new BufferedRandomDataAccessObject( new MappedRandomAccessObject( inputStream,
+					buffers ),
+					8192 ) );
+		}
+		IRandomAccessObject reader = new RAReader( inputStream );
+		BlockBufferPool pool = BlockBufferPool.getInstance( );
+		if ( pool != null )
+		{
+			String source = getPoolSource( documentObjectName );
+			if ( source != null )
+			{
+				reader = new PooledRandomAccessObject( pool, source, reader );
+			}
+		}
+		return new DocumentObject( new BufferedRandomDataAccessObject( reader, 8192 ) );
+	}
+	
+	/**
+	 * Returns the identity of the document object shared by all the readers of
+	 * the same archive, or null if the archive has no modification id. The id
+	 * is changed each time the archive is opened for writing, so a rewritten
+	 * archive never gets the pages of the old one.
+	 * 
+	 * @param documentObjectName
+	 * @return
+	 */
+	private String getPoolSource( String documentObjectName )
+	{
+		if ( !( archiveReader instanceof ArchiveReader ) )
+			return null;
+		IArchiveFile archiveFile = ( (ArchiveReader) archiveReader ).getArchive( );
+		if ( !( archiveFile instanceof ArchiveFile ) )
+			return null;
+		String modificationId = ( (ArchiveFile) archiveFile ).getModificationId( );
+		if ( modificationId == null )
+			return null;
+		return modificationId + "/" + documentObjectName; //$NON-NLS-1$
 	}
 
 	/*
@@ -85,5 +157,14 @@ public class RADocumentManager implements IDocumentManager
 	{
 		
 	}
+	
+	/**
+	 * 
+	 * @return the archive reader the document objects are read from
+	 */
+	public IDocArchiveReader getArchiveReader( )
+	{
+		return archiveReader;
+	}
 
 }
@@ -0,0 +1,733 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.birt.data.engine.olap.data.impl;
+
+import java.io.File;
+import java.io.IOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.eclipse.birt.core.archive.IDocArchiveReader;
+import org.eclipse.birt.core.archive.compound.ArchiveFile;
+import org.eclipse.birt.core.archive.compound.ArchiveReader;
+import org.eclipse.birt.core.archive.compound.ArchiveWriter;
+import org.eclipse.birt.data.engine.api.DataEngine;
+import org.eclipse.birt.data.engine.api.IBaseExpression;
+import org.eclipse.birt.data.engine.api.IBinding;
+import org.eclipse.birt.data.engine.api.IFilterDefinition;
+import org.eclipse.birt.data.engine.api.ISortDefinition;
+import org.eclipse.birt.data.engine.api.querydefn.ScriptExpressionUtil;
+import org.eclipse.birt.data.engine.core.DataException;
+import org.eclipse.birt.data.engine.core.security.PropertySecurity;
+import org.eclipse.birt.data.engine.impl.document.stream.VersionManager;
+import org.eclipse.birt.data.engine.olap.api.query.IComputedMeasureDefinition;
+import org.eclipse.birt.data.engine.olap.api.query.ICubeFilterDefinition;
+import org.eclipse.birt.data.engine.olap.api.query.ICubeOperation;
+import org.eclipse.birt.data.engine.olap.api.query.ICubeQueryDefinition;
+import org.eclipse.birt.data.engine.olap.api.query.ICubeSortDefinition;
+import org.eclipse.birt.data.engine.olap.api.query.IDerivedMeasureDefinition;
+import org.eclipse.birt.data.engine.olap.api.query.IEdgeDefinition;
+import org.eclipse.birt.data.engine.olap.api.query.IEdgeDrillFilter;
+import org.eclipse.birt.data.engine.olap.data.api.IAggregationResultSet;
+import org.eclipse.birt.data.engine.olap.data.api.cube.ICube;
+import org.eclipse.birt.data.engine.olap.data.document.RADocumentManager;
+import org.eclipse.birt.data.engine.olap.impl.query.CubeQueryDefinitionIOUtil;
+
+import com.ibm.icu.util.TimeZone;
+import com.ibm.icu.util.ULocale;
+
+/**
+ * A bounded, process wide cache of aggregation result sets. The entries are
+ * keyed by the canonical form of the cube query definition together with the
+ * version stamp of the cube, so that the result sets can be shared by tasks
+ * running against the same cube. The capacity is set by the system property
+ * {@link DataEngine#CUBE_AGGREGATION_RESULT_CACHE_SIZE} or by
+ * {@link #setCapacity(int)}, and the total size of the saved result sets is
+ * bounded by {@link DataEngine#CUBE_AGGREGATION_RESULT_CACHE_MAX_SIZE} or by
+ * {@link #setMaxSize(long)}.
+ * <p>
+ * The result sets are kept in the format of {@link AggregationResultSetSaveUtil}
+ * inside a transient archive: they are held in memory up to the memory budget
+ * and spilled to a temporary file beyond it. Every hit returns a new copy of the
+ * result sets, so callers may consume and close them freely. The result sets
+ * are loaded and saved outside the lock of the cache, so a task reading or
+ * writing a large entry doesn't block the lookups of the other tasks.
+ */
+
+public class AggregationResultSetCache
+{
+	private static final String CACHE_FILE_PREFIX = "BIRT_AggregationResultSetCache_"; //$NON-NLS-1$
+	private static final String ENTRY_PREFIX = "_aggrcache_"; //$NON-NLS-1$
+	private static final long DEFAULT_MEMORY_SIZE = 32 * 1024 * 1024;
+	private static final long DEFAULT_MAX_SIZE = 256 * 1024 * 1024;
+
+	/**
+	 * The names a script may refer to without depending on the task.
+	 */
+	static final Set<String> CUBE_ACCESSORS = new HashSet<String>( Arrays.asList( new String[]{
+			"dimension", //$NON-NLS-1$
+			"measure", //$NON-NLS-1$
+			"data", //$NON-NLS-1$
+			"row", //$NON-NLS-1$
+			"true", //$NON-NLS-1$
+			"false", //$NON-NLS-1$
+			"null" //$NON-NLS-1$
+	} ) );
+
+	private static AggregationResultSetCache instance = null;
+	private static Logger logger = Logger.getLogger( AggregationResultSetCache.class.getName( ) );
+
+	private int capacity = 0;
+	private long maxSize = DEFAULT_MAX_SIZE;
+	private long totalSize = 0;
+	private int nextEntryId = 0;
+	private long hitCount = 0;
+	private long missCount = 0;
+	private Map<String, CacheEntry> entries = new LinkedHashMap<String, CacheEntry>( 16, 0.75f, true );
+	/**
+	 * the keys whose result sets are being saved by a task.
+	 */
+	private Set<String> savingKeys = new HashSet<String>( );
+	private CacheArchive archive;
+
+	private AggregationResultSetCache( )
+	{
+	}
+
+	/**
+	 *
+	 * @return the process wide aggregation result set cache
+	 */
+	public static synchronized AggregationResultSetCache getInstance( )
+	{
+		if ( instance == null )
+		{
+			instance = new AggregationResultSetCache( );
+			String value = PropertySecurity.getSystemProperty( DataEngine.CUBE_AGGREGATION_RESULT_CACHE_SIZE );
+			if ( value != null )
+			{
+				try
+				{
+					instance.setCapacity( Integer.parseInt( value.trim( ) ) );
+				}
+				catch ( NumberFormatException e )
+				{
+					logger.log( Level.WARNING, e.getMessage( ), e );
+				}
+			}
+			value = PropertySecurity.getSystemProperty( DataEngine.CUBE_AGGREGATION_RESULT_CACHE_MAX_SIZE );
+			if ( value != null )
+			{
+				try
+				{
+					instance.setMaxSize( Long.parseLong( value.trim( ) ) * 1024 * 1024 );
+				}
+				catch ( NumberFormatException e )
+				{
+					logger.log( Level.WARNING, e.getMessage( ), e );
+				}
+			}
+		}
+		return instance;
+	}
+
+	/**
+	 * Creates the cache key of a cube query. Returns null if the result of the
+	 * query can not be shared: the cube is not loaded from a finished document
+	 * or is created by an older version without a version stamp, the cube is
+	 * secured, or an expression of the query depends on the script state of
+	 * the task.
+	 * <p>
+	 * The key is made of the cube name and version stamp, the locale and time
+	 * zone the expressions are evaluated in, and the canonical form of the
+	 * query definition, which contains all the bindings and expressions.
+	 *
+	 * @param queryDefn
+	 * @param cube
+	 * @param locale
+	 * @param timeZone
+	 * @return
+	 * @throws DataException
+	 * @throws IOException
+	 */
+	public static String createKey( ICubeQueryDefinition queryDefn, ICube cube,
+			ULocale locale, TimeZone timeZone ) throws DataException,
+			IOException
+	{
+		if ( queryDefn == null
+				|| !( cube instanceof Cube ) || cube instanceof SecuredCube )
+			return null;
+		if ( !( ( (Cube) cube ).getDocumentManager( ) instanceof RADocumentManager ) )
+			return null;
+		String version = ( (Cube) cube ).getVersion( );
+		if ( version == null )
+			return null;
+		if ( !isScriptFree( queryDefn ) )
+			return null;
+
+		StringBuffer key = new StringBuffer( );
+		key.append( queryDefn.getName( ) );
+		key.append( ':' );
+		key.append( version );
+		key.append( ':' );
+		key.append( locale == null ? null : locale.getName( ) );
+		key.append( ':' );
+		key.append( timeZone == null ? null : timeZone.getID( ) );
+		key.append( ':' );
+		key.append( digest( CubeQueryDefinitionIOUtil.toCanonicalBytes( queryDefn ) ) );
+		return key.toString( );
+	}
+
+	/**
+	 * Returns true if all the expressions of the query only refer to the
+	 * dimensions, measures and bindings of the cube, so that they evaluate to
+	 * the same values in every task.
+	 *
+	 * @param queryDefn
+	 * @return
+	 * @throws DataException
+	 */
+	private static boolean isScriptFree( ICubeQueryDefinition queryDefn )
+			throws DataException
+	{
+		if ( queryDefn.getLinks( ) != null && !queryDefn.getLinks( ).isEmpty( ) )
+			return false;
+		if ( !isBindingsScriptFree( queryDefn.getBindings( ) )
+				|| !isFiltersScriptFree( queryDefn.getFilters( ) )
+				|| !isSortsScriptFree( queryDefn.getSorts( ) ) )
+			return false;
+		if ( queryDefn.getComputedMeasures( ) != null )
+		{
+			for ( Object measure : queryDefn.getComputedMeasures( ) )
+			{
+				if ( !isScriptFree( ( (IComputedMeasureDefinition) measure ).getExpression( ) ) )
+					return false;
+			}
+		}
+		if ( queryDefn.getDerivedMeasures( ) != null )
+		{
+			for ( Object measure : queryDefn.getDerivedMeasures( ) )
+			{
+				if ( !isScriptFree( ( (IDerivedMeasureDefinition) measure ).getExpression( ) ) )
+					return false;
+			}
+		}
+		if ( queryDefn.getCubeOperations( ) != null )
+		{
+			for ( ICubeOperation operation : queryDefn.getCubeOperations( ) )
+			{
+				if ( operation.getNewBindings( ) != null
+						&& !isBindingsScriptFree( Arrays.asList( operation.getNewBindings( ) ) ) )
+					return false;
+			}
+		}
+		int[] edgeTypes = new int[]{
+				ICubeQueryDefinition.ROW_EDGE,
+				ICubeQueryDefinition.COLUMN_EDGE,
+				ICubeQueryDefinition.PAGE_EDGE
+		};
+		for ( int i = 0; i < edgeTypes.length; i++ )
+		{
+			IEdgeDefinition edge = queryDefn.getEdge( edgeTypes[i] );
+			if ( edge == null || edge.getDrillFilter( ) == null )
+				continue;
+			for ( IEdgeDrillFilter drillFilter : edge.getDrillFilter( ) )
+			{
+				if ( !isFiltersScriptFree( drillFilter.getLevelFilter( ) )
+						|| !isSortsScriptFree( drillFilter.getLevelSort( ) ) )
+					return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isBindingsScriptFree( List bindings )
+			throws DataException
+	{
+		if ( bindings == null )
+			return true;
+		for ( Object o : bindings )
+		{
+			IBinding binding = (IBinding) o;
+			// time functions may be relative to the current date
+			if ( binding.getTimeFunction( ) != null
+					|| !isScriptFree( binding.getExpression( ) )
+					|| !isScriptFree( binding.getFilter( ) ) )
+				return false;
+			if ( binding.getArguments( ) != null )
+			{
+				for ( Object argument : binding.getArguments( ) )
+				{
+					if ( !isScriptFree( (IBaseExpression) argument ) )
+						return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private static boolean isFiltersScriptFree( List filters )
+	{
+		if ( filters == null )
+			return true;
+		for ( Object o : filters )
+		{
+			IFilterDefinition filter = (IFilterDefinition) o;
+			if ( !isScriptFree( filter.getExpression( ) ) )
+				return false;
+			if ( filter instanceof ICubeFilterDefinition
+					&& !isScriptFree( ( (ICubeFilterDefinition) filter ).getAxisQualifierValues( ) ) )
+				return false;
+		}
+		return true;
+	}
+
+	private static boolean isSortsScriptFree( List sorts )
+	{
+		if ( sorts == null )
+			return true;
+		for ( Object o : sorts )
+		{
+			ISortDefinition sort = (ISortDefinition) o;
+			if ( !isScriptFree( sort.getExpression( ) ) )
+				return false;
+			if ( sort instanceof ICubeSortDefinition
+					&& !isScriptFree( ( (ICubeSortDefinition) sort ).getAxisQualifierValues( ) ) )
+				return false;
+		}
+		return true;
+	}
+
+	private static boolean isScriptFree( Object[] values )
+	{
+		if ( values == null )
+			return true;
+		for ( int i = 0; i < values.length; i++ )
+		{
+			if ( values[i] instanceof IBaseExpression
+					&& !isScriptFree( (IBaseExpression) values[i] ) )
+				return false;
+		}
+		return true;
+	}
+
+	private static boolean isScriptFree( IBaseExpression expr )
+	{
+		return ScriptExpressionUtil.isScriptFree( expr, CUBE_ACCESSORS );
+	}
+
+	private static String digest( byte[] bytes ) throws DataException
+	{
+		try
+		{
+			byte[] digest = MessageDigest.getInstance( "SHA-256" ).digest( bytes ); //$NON-NLS-1$
+			StringBuffer result = new StringBuffer( );
+			for ( int i = 0; i < digest.length; i++ )
+			{
+				result.append( Integer.toHexString( ( digest[i] & 0xFF ) | 0x100 )
+						.substring( 1 ) );
+			}
+			return result.toString( );
+		}
+		catch ( NoSuchAlgorithmException e )
+		{
+			throw new DataException( e.getLocalizedMessage( ), e );
+		}
+	}
+
+	/**
+	 * Set the max number of the cached query results. Zero disables the cache.
+	 *
+	 * @param capacity
+	 */
+	public synchronized void setCapacity( int capacity )
+	{
+		this.capacity = Math.max( 0, capacity );
+		evict( );
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	public synchronized int getCapacity( )
+	{
+		return capacity;
+	}
+
+	/**
+	 *
+	 * @return the number of the lookups which found the cached result sets
+	 */
+	public synchronized long getHitCount( )
+	{
+		return hitCount;
+	}
+
+	/**
+	 *
+	 * @return the number of the lookups which didn't find the cached result
+	 *         sets
+	 */
+	public synchronized long getMissCount( )
+	{
+		return missCount;
+	}
+
+	/**
+	 *
+	 * @return the number of the cached query results
+	 */
+	public synchronized int size( )
+	{
+		return entries.size( );
+	}
+
+	/**
+	 * Set the max total size in bytes of the cached result sets. The least
+	 * recently used entries are evicted beyond it, and result sets larger
+	 * than it are not cached.
+	 *
+	 * @param maxSize
+	 */
+	public synchronized void setMaxSize( long maxSize )
+	{
+		this.maxSize = Math.max( 0, maxSize );
+		evict( );
+	}
+
+	/**
+	 *
+	 * @return
+	 */
+	public synchronized long getMaxSize( )
+	{
+		return maxSize;
+	}
+
+	/**
+	 *
+	 * @return the total size in bytes of the cached result sets
+	 */
+	public synchronized long getTotalSize( )
+	{
+		return totalSize;
+	}
+
+	/**
+	 * Returns a copy of the cached aggregation result sets, or null if the key
+	 * is not cached.
+	 *
+	 * @param key
+	 * @param memoryCacheSize
+	 * @return
+	 * @throws IOException
+	 */
+	public IAggregationResultSet[] get( String key, long memoryCacheSize )
+			throws IOException
+	{
+		if ( key == null )
+			return null;
+		CacheEntry entry;
+		synchronized ( this )
+		{
+			entry = entries.get( key );
+			if ( entry == null )
+			{
+				missCount++;
+				return null;
+			}
+			// keep the streams of the entry until it is loaded
+			entry.readers++;
+			entry.archive.users++;
+		}
+		IAggregationResultSet[] resultSets = null;
+		try
+		{
+			resultSets = AggregationResultSetSaveUtil.load( entry.name,
+					entry.archive.reader,
+					VersionManager.getLatestVersion( ),
+					memoryCacheSize );
+		}
+		catch ( IOException e )
+		{
+			logger.log( Level.WARNING, e.getMessage( ), e );
+		}
+		synchronized ( this )
+		{
+			entry.readers--;
+			if ( resultSets == null )
+			{
+				missCount++;
+				if ( entries.get( key ) == entry )
+				{
+					entries.remove( key );
+					dropEntry( entry );
+				}
+			}
+			else
+			{
+				hitCount++;
+			}
+			if ( entry.removed && entry.readers == 0 )
+			{
+				removeStreams( entry.name, entry.archive );
+			}
+			release( entry.archive );
+		}
+		return resultSets;
+	}
+
+	/**
+	 * Caches the aggregation result sets of a query. The result sets are
+	 * written out and can be used by the caller afterwards.
+	 *
+	 * @param key
+	 * @param resultSets
+	 * @throws IOException
+	 */
+	public void put( String key, IAggregationResultSet[] resultSets )
+			throws IOException
+	{
+		if ( key == null || resultSets == null )
+			return;
+		CacheArchive target;
+		String entryName;
+		synchronized ( this )
+		{
+			// another task is saving the same query
+			if ( capacity <= 0 || maxSize <= 0 || !savingKeys.add( key ) )
+				return;
+			try
+			{
+				ensureArchive( );
+			}
+			catch ( IOException e )
+			{
+				savingKeys.remove( key );
+				throw e;
+			}
+			target = archive;
+			target.users++;
+			entryName = ENTRY_PREFIX + ( nextEntryId++ );
+		}
+		long size = -1;
+		try
+		{
+			AggregationResultSetSaveUtil.save( entryName,
+					resultSets,
+					target.writer );
+			size = AggregationResultSetSaveUtil.getSize( entryName,
+					target.reader );
+		}
+		finally
+		{
+			synchronized ( this )
+			{
+				savingKeys.remove( key );
+				if ( size < 0
+						|| target.retired || capacity <= 0 || size > maxSize )
+				{
+					removeStreams( entryName, target );
+				}
+				else
+				{
+					CacheEntry old = entries.remove( key );
+					if ( old != null )
+					{
+						dropEntry( old );
+					}
+					entries.put( key, new CacheEntry( entryName, target, size ) );
+					totalSize += size;
+				}
+				release( target );
+				evict( );
+			}
+		}
+	}
+
+	/**
+	 * Removes the cached result sets of the key.
+	 *
+	 * @param key
+	 * @throws IOException
+	 */
+	public synchronized void remove( String key ) throws IOException
+	{
+		CacheEntry entry = entries.remove( key );
+		if ( entry != null )
+		{
+			dropEntry( entry );
+			evict( );
+		}
+	}
+
+	/**
+	 * Removes all cached result sets and releases the backing archive. An
+	 * archive still read or written by a task is closed once the task is
+	 * done with it.
+	 */
+	public synchronized void clear( )
+	{
+		entries.clear( );
+		totalSize = 0;
+		if ( archive != null )
+		{
+			archive.retired = true;
+			if ( archive.users == 0 )
+			{
+				archive.close( );
+			}
+			archive = null;
+		}
+	}
+
+	private void evict( )
+	{
+		Iterator<CacheEntry> itr = entries.values( ).iterator( );
+		while ( ( entries.size( ) > capacity || totalSize > maxSize )
+				&& itr.hasNext( ) )
+		{
+			CacheEntry entry = itr.next( );
+			itr.remove( );
+			dropEntry( entry );
+		}
+		if ( entries.isEmpty( ) && archive != null && archive.users == 0 )
+		{
+			clear( );
+		}
+	}
+
+	/**
+	 * Drops the streams of a removed entry, or marks them to be dropped by
+	 * the last task loading them.
+	 *
+	 * @param entry
+	 */
+	private void dropEntry( CacheEntry entry )
+	{
+		totalSize -= entry.size;
+		if ( entry.readers > 0 )
+		{
+			entry.removed = true;
+		}
+		else
+		{
+			removeStreams( entry.name, entry.archive );
+		}
+	}
+
+	private void removeStreams( String entryName, CacheArchive target )
+	{
+		if ( target.retired )
+			return;
+		try
+		{
+			AggregationResultSetSaveUtil.remove( entryName, target.writer );
+		}
+		catch ( IOException e )
+		{
+			logger.log( Level.WARNING, e.getMessage( ), e );
+		}
+	}
+
+	private void release( CacheArchive target )
+	{
+		target.users--;
+		if ( target.users == 0 )
+		{
+			if ( target.retired )
+			{
+				target.close( );
+			}
+			else if ( entries.isEmpty( ) )
+			{
+				clear( );
+			}
+		}
+	}
+
+	private void ensureArchive( ) throws IOException
+	{
+		if ( archive != null )
+			return;
+		String tmpPath = PropertySecurity.getSystemProperty( "java.io.tmpdir" ); //$NON-NLS-1$
+		ArchiveFile file = new ArchiveFile( tmpPath
+				+ File.separator + CACHE_FILE_PREFIX
+				+ System.identityHashCode( this ), "rwt" ); //$NON-NLS-1$
+		file.setCacheSize( DEFAULT_MEMORY_SIZE );
+		archive = new CacheArchive( file );
+	}
+
+	/**
+	 * The transient archive holding the cached result sets. It is counted
+	 * by the tasks loading or saving result sets in it, so it is not closed
+	 * under them when the cache is cleared.
+	 */
+	private static class CacheArchive
+	{
+		ArchiveFile file;
+		ArchiveWriter writer;
+		IDocArchiveReader reader;
+		int users = 0;
+		boolean retired = false;
+
+		CacheArchive( ArchiveFile file ) throws IOException
+		{
+			this.file = file;
+			this.writer = new ArchiveWriter( file );
+			this.reader = new ArchiveReader( file );
+		}
+
+		void close( )
+		{
+			try
+			{
+				file.close( );
+			}
+			catch ( IOException e )
+			{
+				logger.log( Level.WARNING, e.getMessage( ), e );
+			}
+		}
+	}
+
+	private static class CacheEntry
+	{
+		String name;
+		CacheArchive archive;
+		long size;
+		/**
+		 * the number of the tasks loading the entry.
+		 */
+		int readers = 0;
+		/**
+		 * the entry has been evicted while it was being loaded.
+		 */
+		boolean removed = false;
+
+		CacheEntry( String name, CacheArchive archive, long size )
+		{
+			this.name = name;
+			this.archive = archive;
+			this.size = size;
+		}
+	}
+}
@@ -68,6 +68,72 @@ public class AggregationResultSetSaveUtil
 		}
 	}
 	
+	/**
+	 * Drops the streams of aggregation result sets saved with the given name.
+	 * 
+	 * @param name
+	 * @param writer
+	 * @throws IOException
+	 */
+	public static void remove( String name, IDocArchiveWriter writer ) throws IOException
+	{
+		if ( writer == null || name == null || !writer.exists( name ) )
+			return;
+		RAInputStream inputStream = writer.getInputStream( name );
+		int size;
+		try
+		{
+			size = inputStream.readInt( );
+		}
+		finally
+		{
+			inputStream.close( );
+		}
+		for ( int i = 0; i < size; i++ )
+		{
+			writer.dropStream( name + PREFIX_RESULTSET + i );
+		}
+		writer.dropStream( name );
+	}
+	
+	/**
+	 * Returns the total length of the streams of aggregation result sets
+	 * saved with the given name.
+	 * 
+	 * @param name
+	 * @param reader
+	 * @return
+	 * @throws IOException
+	 */
+	public static long getSize( String name, IDocArchiveReader reader ) throws IOException
+	{
+		RAInputStream inputStream = reader.getStream( name );
+		long length;
+		int size;
+		try
+		{
+			length = inputStream.length( );
+			size = inputStream.readInt( );
+		}
+		finally
+		{
+			inputStream.close( );
+		}
+		for ( int i = 0; i < size; i++ )
+		{
+			inputStream = reader.getStream( name + PREFIX_RESULTSET + i );
+			try
+			{
+				length += inputStream.length( );
+			}
+			finally
+			{
+				inputStream.close( );
+			}
+		}
+		return length;
+	}
+	
 	private static IAggregationResultSet[] sortRsBeforeSaving( IAggregationResultSet[] rs )
 	{
 		List<IAggregationResultSet> sortedAggregateRs = new ArrayList<IAggregationResultSet>( );
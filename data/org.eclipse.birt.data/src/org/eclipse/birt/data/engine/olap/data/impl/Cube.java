@@ -13,6 +13,7 @@ package org.eclipse.birt.data.engine.olap.data.impl;
 
 import java.io.IOException;
 import java.util.Map;
+import java.util.UUID;
 import java.util.logging.Logger;
 
 import org.eclipse.birt.core.exception.BirtException;
@@ -39,6 +40,7 @@ public class Cube implements ICube
 	protected IDocumentManager documentManager;
 	protected IDimension[] dimension;
 	private FactTable factTable;
+	private String version;
 
 	private static Logger logger = Logger.getLogger( Cube.class.getName( ) );
 
@@ -116,6 +118,9 @@ public class Cube implements ICube
 		{
 			documentObject.writeString( dimension[i].getName( ) );
 		}
+		// appended to the end so that the older versions can still load it
+		version = UUID.randomUUID( ).toString( );
+		documentObject.writeString( version );
 		this.dimension = dimension;
 		Dimension[] tDimensions = new Dimension[dimension.length];
 		for ( int i = 0; i < tDimensions.length; i++ )
@@ -189,6 +194,10 @@ public class Cube implements ICube
 			String name = documentObject.readString( );
 			dimension[i] = loadDimension( name );
 		}
+		if ( documentObject.getFilePointer( ) < documentObject.length( ) )
+		{
+			version = documentObject.readString( );
+		}
 		FactTableAccessor factTableConstructor = new FactTableAccessor( documentManager );
 		factTable = factTableConstructor.load( name,
 				stopSign );
@@ -220,6 +229,25 @@ public class Cube implements ICube
 		return factTable;
 	}
 
+	/**
+	 * 
+	 * @return the document manager this cube is loaded from
+	 */
+	public IDocumentManager getDocumentManager( )
+	{
+		return documentManager;
+	}
+
+	/**
+	 * 
+	 * @return the stamp unique to each build of this cube, or null if the cube
+	 *         is created by an older version
+	 */
+	public String getVersion( )
+	{
+		return version;
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see org.eclipse.birt.data.engine.olap.data.api.ICube#close()
@@ -11,10 +11,14 @@
  *******************************************************************************/
 package org.eclipse.birt.data.engine.olap.data.impl.aggregation;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
 import org.eclipse.birt.data.engine.olap.data.impl.dimension.Member;
+import org.eclipse.birt.data.engine.olap.data.util.BufferedRandomAccessFile;
+import org.eclipse.birt.data.engine.olap.data.util.IBinaryStructureCreator;
+import org.eclipse.birt.data.engine.olap.data.util.IOUtil;
 import org.eclipse.birt.data.engine.olap.data.util.IStructure;
 import org.eclipse.birt.data.engine.olap.data.util.IStructureCreator;
 import org.eclipse.birt.data.engine.olap.data.util.ObjectArrayUtil;
@@ -186,7 +190,7 @@ public class Row4Aggregation implements IStructure
  * @author Administrator
  *
  */
-class Row4AggregationCreator implements IStructureCreator
+class Row4AggregationCreator implements IBinaryStructureCreator
 {
 	private static IStructureCreator levelMemberCreator = Member.getCreator( );
 	
@@ -224,4 +228,76 @@ class Row4AggregationCreator implements IStructureCreator
 		
 		return result;
 	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.util.IBinaryStructureCreator#writeStructure(org.eclipse.birt.data.engine.olap.data.util.BufferedRandomAccessFile, org.eclipse.birt.data.engine.olap.data.util.IStructure)
+	 */
+	public void writeStructure( BufferedRandomAccessFile file,
+			IStructure structure ) throws IOException
+	{
+		Row4Aggregation row = (Row4Aggregation) structure;
+		file.writeInt( row.getLevelMembers( ).length );
+		for ( int i = 0; i < row.getLevelMembers( ).length; i++ )
+		{
+			IOUtil.writeValues( file, row.getLevelMembers( )[i].getKeyValues( ) );
+			IOUtil.writeValues( file, row.getLevelMembers( )[i].getAttributes( ) );
+		}
+		IOUtil.writeValues( file, row.getParameterValues( ) );
+		int[] dimPos = row.getDimPos( );
+		if ( dimPos == null )
+		{
+			file.writeInt( -1 );
+		}
+		else
+		{
+			file.writeInt( dimPos.length );
+			for ( int i = 0; i < dimPos.length; i++ )
+			{
+				file.writeInt( dimPos[i] );
+			}
+		}
+		IOUtil.writeValues( file, row.getMeasures( ) );
+		file.writeInt( row.getMeasureList( ).size( ) );
+		for ( int i = 0; i < row.getMeasureList( ).size( ); i++ )
+		{
+			IOUtil.writeValues( file, row.getMeasureList( ).get( i ) );
+		}
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.util.IBinaryStructureCreator#readStructure(org.eclipse.birt.data.engine.olap.data.util.BufferedRandomAccessFile)
+	 */
+	public IStructure readStructure( BufferedRandomAccessFile file )
+			throws IOException
+	{
+		Row4Aggregation result = new Row4Aggregation( );
+		result.setLevelMembers( new Member[file.readInt( )] );
+		for ( int i = 0; i < result.getLevelMembers( ).length; i++ )
+		{
+			Member member = new Member( );
+			member.setKeyValues( IOUtil.readValues( file ) );
+			member.setAttributes( IOUtil.readValues( file ) );
+			result.getLevelMembers( )[i] = member;
+		}
+		result.setParameterValues( IOUtil.readValues( file ) );
+		int dimPosCount = file.readInt( );
+		if ( dimPosCount >= 0 )
+		{
+			int[] dimPos = new int[dimPosCount];
+			for ( int i = 0; i < dimPos.length; i++ )
+			{
+				dimPos[i] = file.readInt( );
+			}
+			result.setDimPos( dimPos );
+		}
+		result.setMeasures( IOUtil.readValues( file ) );
+		int measureCount = file.readInt( );
+		for ( int i = 0; i < measureCount; i++ )
+		{
+			result.addMeasure( IOUtil.readValues( file ) );
+		}
+		return result;
+	}
 }
@@ -12,14 +12,12 @@
 package org.eclipse.birt.data.engine.olap.data.impl.dimension;
 
 import java.io.IOException;
-import java.util.ArrayList;
 
 import org.eclipse.birt.data.engine.core.DataException;
 import org.eclipse.birt.data.engine.olap.data.api.ISelection;
-import org.eclipse.birt.data.engine.olap.data.util.BaseDiskSortedStack;
 import org.eclipse.birt.data.engine.olap.data.util.IDiskArray;
 import org.eclipse.birt.data.engine.olap.data.util.IndexKey;
-import org.eclipse.birt.data.engine.olap.data.util.PrimitiveDiskSortedStack;
+import org.eclipse.birt.data.engine.olap.data.util.IntDiskSortedStack;
 import org.eclipse.birt.data.engine.olap.data.util.SetUtil;
 
 /**
@@ -38,25 +36,33 @@ public class DimensionFilterHelper
 	 */
 	public static IDiskArray find( Level[] levels, ISelection[][] filters ) throws IOException, DataException
 	{
-		ArrayList filterResults = new ArrayList( );
-		for ( int i = 0; i < levels.length; i++ )
+		IntDiskSortedStack[] stackResults = new IntDiskSortedStack[levels.length];
+		try
 		{
-			filterResults.add( find(levels[i], filters[i]) );
+			for ( int i = 0; i < levels.length; i++ )
+			{
+				stackResults[i] = find( levels[i], filters[i] );
+			}
+			int maxLen = 0;
+			for( int i = 0; i < stackResults.length; i++ )
+			{
+				if( maxLen < stackResults[i].size( ) )
+					maxLen = stackResults[i].size( );
+			}
+			return SetUtil.getIntersection( stackResults, maxLen );
 		}
-		PrimitiveDiskSortedStack[] stackResults = new PrimitiveDiskSortedStack[filterResults.size( )];
-		System.arraycopy( filterResults.toArray( ),
-				0,
-				stackResults,
-				0,
-				stackResults.length );
-		int maxLen = 0;
-		for( int i = 0; i < stackResults.length; i++ )
+		finally
 		{
-			if( maxLen < stackResults[i].size( ) )
-				maxLen = stackResults[i].size( );
+			// the stacks hold temporary files, close them even if the
+			// intersection fails
+			for( int i = 0; i < stackResults.length; i++ )
+			{
+				if ( stackResults[i] != null )
+				{
+					stackResults[i].close( );
+				}
+			}
 		}
-		IDiskArray AndFilterResults = SetUtil.getIntersection( stackResults, maxLen );
-		return AndFilterResults;
 	}
 	
 	/**
@@ -67,7 +73,7 @@ public class DimensionFilterHelper
 	 * @throws IOException
 	 * @throws DataException
 	 */
-	private static BaseDiskSortedStack find(Level level, ISelection[] filter) throws IOException, DataException
+	private static IntDiskSortedStack find(Level level, ISelection[] filter) throws IOException, DataException
 	{
 		IDiskArray indexKeyArray = null;
 		if( level.getDiskIndex() != null )
@@ -80,23 +86,31 @@ public class DimensionFilterHelper
 				IndexKey key = (IndexKey) indexKeyArray.get( i );
 				len += key.getDimensionPos().length;
 			}
-			PrimitiveDiskSortedStack resultStack = new PrimitiveDiskSortedStack( len,
+			IntDiskSortedStack resultStack = new IntDiskSortedStack( len,
 					true,
 					true );
-			for ( int i = 0; i < indexKeyArray.size( ); i++ )
+			try
 			{
-				IndexKey key = (IndexKey) indexKeyArray.get( i );
-				int[] pos = key.getDimensionPos( );
-				for( int j = 0; j < pos.length; j++ )
+				for ( int i = 0; i < indexKeyArray.size( ); i++ )
 				{
-					resultStack.push( Integer.valueOf( pos[j] ) );
+					IndexKey key = (IndexKey) indexKeyArray.get( i );
+					int[] pos = key.getDimensionPos( );
+					for( int j = 0; j < pos.length; j++ )
+					{
+						resultStack.push( pos[j] );
+					}
 				}
 			}
+			catch ( IOException e )
+			{
+				resultStack.close( );
+				throw e;
+			}
 			return resultStack;
 		}
 		else
 		{
-			return new PrimitiveDiskSortedStack( 1, true, true );
+			return new IntDiskSortedStack( 1, true, true );
 		}
 	}
 }
@@ -11,12 +11,16 @@
 
 package org.eclipse.birt.data.engine.olap.data.impl.dimension;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.logging.Logger;
 
+import org.eclipse.birt.data.engine.olap.data.util.BufferedRandomAccessFile;
 import org.eclipse.birt.data.engine.olap.data.util.CompareUtil;
+import org.eclipse.birt.data.engine.olap.data.util.IBinaryStructureCreator;
 import org.eclipse.birt.data.engine.olap.data.util.IComparableStructure;
+import org.eclipse.birt.data.engine.olap.data.util.IOUtil;
 import org.eclipse.birt.data.engine.olap.data.util.IStructure;
 import org.eclipse.birt.data.engine.olap.data.util.IStructureCreator;
 
@@ -187,7 +191,7 @@ public class DimensionKey implements IComparableStructure
  * @author Administrator
  *
  */
-class DimensionKeyCreator implements IStructureCreator
+class DimensionKeyCreator implements IBinaryStructureCreator
 {
 
 	/*
@@ -212,4 +216,38 @@ class DimensionKeyCreator implements IStructureCreator
 		}
 		return obj;
 	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.util.IBinaryStructureCreator#writeStructure(org.eclipse.birt.data.engine.olap.data.util.BufferedRandomAccessFile, org.eclipse.birt.data.engine.olap.data.util.IStructure)
+	 */
+	public void writeStructure( BufferedRandomAccessFile file,
+			IStructure structure ) throws IOException
+	{
+		DimensionKey key = (DimensionKey) structure;
+		Object[] keyValues = key.getKeyValues( );
+		file.writeInt( keyValues.length );
+		for ( int i = 0; i < keyValues.length; i++ )
+		{
+			IOUtil.writeValue( file, keyValues[i] );
+		}
+		file.writeInt( key.getDimensionPos( ) );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.util.IBinaryStructureCreator#readStructure(org.eclipse.birt.data.engine.olap.data.util.BufferedRandomAccessFile)
+	 */
+	public IStructure readStructure( BufferedRandomAccessFile file )
+			throws IOException
+	{
+		DimensionKey obj = new DimensionKey( file.readInt( ) );
+		Object[] keyValues = obj.getKeyValues( );
+		for ( int i = 0; i < keyValues.length; i++ )
+		{
+			keyValues[i] = IOUtil.readValue( file );
+		}
+		obj.setDimensionPos( file.readInt( ) );
+		return obj;
+	}
 }
\ No newline at end of file
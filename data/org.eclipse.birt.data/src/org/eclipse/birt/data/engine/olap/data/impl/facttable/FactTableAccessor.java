@@ -47,11 +47,12 @@ import org.eclipse.birt.data.engine.olap.data.impl.facttable.DimensionDivider.Co
 import org.eclipse.birt.data.engine.olap.data.impl.facttable.DimensionDivider.DimensionPositionSeeker;
 import org.eclipse.birt.data.engine.olap.data.impl.facttable.DimensionDivider.DimensionPositionSeeker.DimensionInfo;
 import org.eclipse.birt.data.engine.olap.data.impl.facttable.DimensionDivision.IntRange;
+import org.eclipse.birt.data.engine.olap.data.util.BinaryStructureDiskArray;
 import org.eclipse.birt.data.engine.olap.data.util.BufferedStructureArray;
 import org.eclipse.birt.data.engine.olap.data.util.Bytes;
 import org.eclipse.birt.data.engine.olap.data.util.DiskSortedStack;
+import org.eclipse.birt.data.engine.olap.data.util.IBinaryStructureCreator;
 import org.eclipse.birt.data.engine.olap.data.util.IDiskArray;
-import org.eclipse.birt.data.engine.olap.data.util.StructureDiskArray;
 
 /**
  * This a accessor class for fact table which can be used to save or load a FactTable.
@@ -211,7 +212,7 @@ public class FactTableAccessor
 				false,
 				stopSign );
 		
-		final StructureDiskArray aggregatedRows = new StructureDiskArray( FactTableRow.getCreator( ) );
+		final BinaryStructureDiskArray aggregatedRows = new BinaryStructureDiskArray( (IBinaryStructureCreator) FactTableRow.getCreator( ) );
 		IAggrFunction[] functions = new IAggrFunction[measureColumnAggregations.length];
 		for ( int i = 0; i < measureColumnAggregations.length; i++ )
 		{
@@ -11,11 +11,15 @@
  *******************************************************************************/
 package org.eclipse.birt.data.engine.olap.data.impl.facttable;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
 import org.eclipse.birt.data.engine.olap.data.impl.dimension.DimensionKey;
+import org.eclipse.birt.data.engine.olap.data.util.BufferedRandomAccessFile;
+import org.eclipse.birt.data.engine.olap.data.util.IBinaryStructureCreator;
 import org.eclipse.birt.data.engine.olap.data.util.IComparableStructure;
+import org.eclipse.birt.data.engine.olap.data.util.IOUtil;
 import org.eclipse.birt.data.engine.olap.data.util.IStructure;
 import org.eclipse.birt.data.engine.olap.data.util.IStructureCreator;
 
@@ -175,7 +179,7 @@ public class FactTableRow implements IComparableStructure
  * @author Administrator
  *
  */
-class FactTableRowCreator implements IStructureCreator
+class FactTableRowCreator implements IBinaryStructureCreator
 {
 
 	/*
@@ -207,4 +211,39 @@ class FactTableRowCreator implements IStructureCreator
 		System.arraycopy( fields, pointer, result.getMeasures(), 0, result.getMeasures().length );
 		return result;
 	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.util.IBinaryStructureCreator#writeStructure(org.eclipse.birt.data.engine.olap.data.util.BufferedRandomAccessFile, org.eclipse.birt.data.engine.olap.data.util.IStructure)
+	 */
+	public void writeStructure( BufferedRandomAccessFile file,
+			IStructure structure ) throws IOException
+	{
+		IBinaryStructureCreator dimensionCreator = (IBinaryStructureCreator) DimensionKey.getCreator( );
+		FactTableRow row = (FactTableRow) structure;
+		file.writeInt( row.getDimensionKeys( ).length );
+		for ( int i = 0; i < row.getDimensionKeys( ).length; i++ )
+		{
+			dimensionCreator.writeStructure( file, row.getDimensionKeys( )[i] );
+		}
+		IOUtil.writeValues( file, row.getMeasures( ) );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.util.IBinaryStructureCreator#readStructure(org.eclipse.birt.data.engine.olap.data.util.BufferedRandomAccessFile)
+	 */
+	public IStructure readStructure( BufferedRandomAccessFile file )
+			throws IOException
+	{
+		IBinaryStructureCreator dimensionCreator = (IBinaryStructureCreator) DimensionKey.getCreator( );
+		FactTableRow result = new FactTableRow( );
+		result.setDimensionKeys( new DimensionKey[file.readInt( )] );
+		for ( int i = 0; i < result.getDimensionKeys( ).length; i++ )
+		{
+			result.getDimensionKeys( )[i] = (DimensionKey) dimensionCreator.readStructure( file );
+		}
+		result.setMeasures( IOUtil.readValues( file ) );
+		return result;
+	}
 }
\ No newline at end of file
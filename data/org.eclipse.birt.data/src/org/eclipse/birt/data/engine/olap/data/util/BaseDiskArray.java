@@ -13,8 +13,6 @@ package org.eclipse.birt.data.engine.olap.data.util;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.logging.Logger;
 
 import org.eclipse.birt.data.engine.api.DataEngineThreadLocal;
@@ -44,7 +42,8 @@ abstract class BaseDiskArray implements IDiskArray
 
 	private Object[] buffer = null;
 
-	private List<Long> segmentOffsets = null;
+	private long[] segmentOffsets = null;
+	private int segmentCount = 0;
 
 	/**
 	 * @throws IOException
@@ -57,8 +56,8 @@ abstract class BaseDiskArray implements IDiskArray
 		this.size = 0;
 
 		this.buffer = new Object[bufferSize];
-		this.segmentOffsets = new ArrayList<Long>( );
-		this.segmentOffsets.add( Long.valueOf( 0L ) );
+		this.segmentOffsets = new long[16];
+		this.segmentCount = 1;
 //		createRandomAccessFile( );
 		DataEngineThreadLocal.getInstance( ).getCloseListener( ).add( this );
 	}
@@ -78,7 +77,7 @@ abstract class BaseDiskArray implements IDiskArray
 		size++;
 		if ( size % bufferSize == 0 )
 		{
-			segmentOffsets.add( getOffset( ) );
+			addSegmentOffset( getOffset( ) );
 		}
 		return true;
 	}
@@ -125,7 +124,7 @@ abstract class BaseDiskArray implements IDiskArray
 				|| index > ( currentCacheStartIndex + bufferSize - 1 ) )
 		{
 			int readSize = bufferSize;
-			if ( ( index / bufferSize ) == segmentOffsets.size( ) - 1 )
+			if ( ( index / bufferSize ) == segmentCount - 1 )
 			{
 				readSize = size % bufferSize;
 			}
@@ -143,7 +142,24 @@ abstract class BaseDiskArray implements IDiskArray
 	 */
 	private long getSegmentOffset( int index )
 	{
-		return this.segmentOffsets.get( index / bufferSize ).longValue( );
+		return this.segmentOffsets[index / bufferSize];
+	}
+
+	/**
+	 * The offsets are kept in a primitive array, so no object is created for
+	 * each added element.
+	 * 
+	 * @param offset
+	 */
+	private void addSegmentOffset( long offset )
+	{
+		if ( segmentCount == segmentOffsets.length )
+		{
+			long[] temp = new long[segmentOffsets.length * 2];
+			System.arraycopy( segmentOffsets, 0, temp, 0, segmentCount );
+			segmentOffsets = temp;
+		}
+		segmentOffsets[segmentCount++] = offset;
 	}
 
 	/**
@@ -265,8 +281,8 @@ abstract class BaseDiskArray implements IDiskArray
 		this.currentCacheStartIndex = -1;
 		this.size = 0;
 		clearDiskFile( );
-		this.segmentOffsets.clear( );
-		this.segmentOffsets.add( Long.valueOf( 0L ) );
+		this.segmentOffsets = new long[16];
+		this.segmentCount = 1;
 		createRandomAccessFile( );
 	}
 
@@ -170,7 +170,7 @@ public class BaseDiskSortedStack
 			else
 			{
 				BaseDiskSortedStack temp = new BaseDiskSortedStack( this.forceDistinct, segments, this.comparator, this.buffer, this.bufferPos );
-				BaseDiskArray diskArray = this.creator == null ? new PrimitiveDiskArray():new StructureDiskArray( this.creator );
+				BaseDiskArray diskArray = createDiskArray( );
 				Object next = null;
 				while( ( next = temp.pop() )!= null )
 				{
@@ -197,6 +197,26 @@ public class BaseDiskSortedStack
 		return size;
 	}
 
+	/**
+	 * Create a disk array to hold a sorted segment. The structures are
+	 * written as binary records if the creator supports it.
+	 * 
+	 * @return
+	 * @throws IOException
+	 */
+	protected BaseDiskArray createDiskArray( ) throws IOException
+	{
+		if ( this.creator == null )
+		{
+			return new PrimitiveDiskArray( );
+		}
+		if ( this.creator instanceof IBinaryStructureCreator )
+		{
+			return new BinaryStructureDiskArray( (IBinaryStructureCreator) this.creator );
+		}
+		return new StructureDiskArray( this.creator );
+	}
+
 	/**
 	 * @throws IOException
 	 * 
@@ -0,0 +1,65 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.olap.data.util;
+
+import java.io.IOException;
+
+/**
+ * A disk array of structures which are written as binary records by an
+ * <code>IBinaryStructureCreator</code>.
+ */
+
+public class BinaryStructureDiskArray extends BaseDiskArray
+{
+
+	private IBinaryStructureCreator creator;
+
+	/**
+	 * 
+	 * @param creator
+	 * @throws IOException
+	 */
+	public BinaryStructureDiskArray( IBinaryStructureCreator creator )
+			throws IOException
+	{
+		super( );
+		this.creator = creator;
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.util.BaseDiskArray#writeObject(java.lang.Object)
+	 */
+	protected void writeObject( Object object ) throws IOException
+	{
+		if ( object == null )
+		{
+			getRandomAccessFile( ).writeShort( NULL_VALUE );
+			return;
+		}
+		getRandomAccessFile( ).writeShort( NORMAL_VALUE );
+		creator.writeStructure( getRandomAccessFile( ), (IStructure) object );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.olap.data.util.BaseDiskArray#readObject()
+	 */
+	protected Object readObject( ) throws IOException
+	{
+		if ( getRandomAccessFile( ).readShort( ) == NULL_VALUE )
+		{
+			return null;
+		}
+		return creator.readStructure( getRandomAccessFile( ) );
+	}
+}
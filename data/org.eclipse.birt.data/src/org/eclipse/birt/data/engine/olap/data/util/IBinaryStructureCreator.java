@@ -0,0 +1,44 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.data.engine.olap.data.util;
+
+import java.io.IOException;
+
+/**
+ * A structure creator which writes and reads the structures in a binary
+ * record directly, instead of going through the field value array of
+ * <code>IStructure.getFieldValues</code>. The disk arrays and sorted stacks
+ * use it when it is available, so no temporary field arrays or boxed values
+ * are created for each record.
+ */
+
+public interface IBinaryStructureCreator extends IStructureCreator
+{
+
+	/**
+	 * 
+	 * @param file
+	 * @param structure
+	 * @throws IOException
+	 */
+	public void writeStructure( BufferedRandomAccessFile file,
+			IStructure structure ) throws IOException;
+
+	/**
+	 * 
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	public IStructure readStructure( BufferedRandomAccessFile file )
+			throws IOException;
+}
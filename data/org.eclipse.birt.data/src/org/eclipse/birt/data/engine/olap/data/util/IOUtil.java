@@ -14,6 +14,8 @@ package org.eclipse.birt.data.engine.olap.data.util;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -23,6 +25,34 @@ import java.util.logging.Logger;
 
 public class IOUtil
 {
+	private static final int NULL_VALUE_TYPE = -2;
+	private static final int[] valueTypes = {
+			DataType.UNKNOWN_TYPE,
+			DataType.BOOLEAN_TYPE,
+			DataType.INTEGER_TYPE,
+			DataType.BYTES_TYPE,
+			DataType.DOUBLE_TYPE,
+			DataType.STRING_TYPE,
+			DataType.DATE_TYPE,
+			DataType.BLOB_TYPE,
+			DataType.BIGDECIMAL_TYPE,
+			DataType.SQL_DATE_TYPE,
+			DataType.SQL_TIME_TYPE,
+			DataType.JAVA_OBJECT_TYPE
+	};
+	private static final Map<Integer, IObjectWriter> valueWriters = new HashMap<Integer, IObjectWriter>( );
+	private static final Map<Integer, IObjectReader> valueReaders = new HashMap<Integer, IObjectReader>( );
+
+	static
+	{
+		for ( int i = 0; i < valueTypes.length; i++ )
+		{
+			valueWriters.put( Integer.valueOf( valueTypes[i] ),
+					getRandomWriter( valueTypes[i] ) );
+			valueReaders.put( Integer.valueOf( valueTypes[i] ),
+					getRandomReader( valueTypes[i] ) );
+		}
+	}
 
 	public static IObjectWriter getRandomWriter( int dataType )
 	{
@@ -85,6 +115,90 @@ public class IOUtil
 				return new ObjectRandomReader( );
 		}
 	}
+
+	/**
+	 * Write a value with its type code, so the values of a field needn't
+	 * share one data type.
+	 * 
+	 * @param file
+	 * @param value
+	 * @throws IOException
+	 */
+	public static void writeValue( BufferedRandomAccessFile file, Object value )
+			throws IOException
+	{
+		if ( value == null )
+		{
+			file.writeByte( NULL_VALUE_TYPE );
+			return;
+		}
+		int dataType = DataType.getDataType( value.getClass( ) );
+		file.writeByte( dataType );
+		valueWriters.get( Integer.valueOf( dataType ) ).write( file, value );
+	}
+
+	/**
+	 * Read a value written by <code>writeValue</code>.
+	 * 
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	public static Object readValue( BufferedRandomAccessFile file )
+			throws IOException
+	{
+		int dataType = file.readByte( );
+		if ( dataType == NULL_VALUE_TYPE )
+		{
+			return null;
+		}
+		return valueReaders.get( Integer.valueOf( dataType ) ).read( file );
+	}
+
+	/**
+	 * Write an array of values, a null array is kept as null.
+	 * 
+	 * @param file
+	 * @param values
+	 * @throws IOException
+	 */
+	public static void writeValues( BufferedRandomAccessFile file,
+			Object[] values ) throws IOException
+	{
+		if ( values == null )
+		{
+			file.writeInt( -1 );
+			return;
+		}
+		file.writeInt( values.length );
+		for ( int i = 0; i < values.length; i++ )
+		{
+			writeValue( file, values[i] );
+		}
+	}
+
+	/**
+	 * Read an array of values written by <code>writeValues</code>.
+	 * 
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	public static Object[] readValues( BufferedRandomAccessFile file )
+			throws IOException
+	{
+		int length = file.readInt( );
+		if ( length < 0 )
+		{
+			return null;
+		}
+		Object[] values = new Object[length];
+		for ( int i = 0; i < length; i++ )
+		{
+			values[i] = readValue( file );
+		}
+		return values;
+	}
 }
 
 class IntegerRandomWriter implements IObjectWriter
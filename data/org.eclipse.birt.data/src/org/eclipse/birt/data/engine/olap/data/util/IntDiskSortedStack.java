@@ -0,0 +1,478 @@
+/*******************************************************************************
+ * Copyright (c) 2004, 2005 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+package org.eclipse.birt.data.engine.olap.data.util;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import org.eclipse.birt.data.engine.api.DataEngineThreadLocal;
+import org.eclipse.birt.data.engine.api.ICloseListener;
+import org.eclipse.birt.data.engine.core.security.FileSecurity;
+
+/**
+ * An int specialization of <tt>PrimitiveDiskSortedStack</tt>. The values are
+ * kept in an <tt>int</tt> array instead of boxed objects. When the buffer is
+ * full, it is sorted and written to a temporary file as a run of fixed width
+ * records; the runs are read back through small direct buffers and merged
+ * when the values are popped.
+ * <p>
+ * It is meant for sorting dimension positions, such as the positions selected
+ * by dimension filters. The rows sorted while building a cube or aggregating
+ * it are ordered by their member key values, which are of any data type, so
+ * they are sorted by <tt>DiskSortedStack</tt>; their creators implement
+ * <tt>IBinaryStructureCreator</tt> to keep the spilled runs as binary records.
+ */
+
+public class IntDiskSortedStack implements ICloseListener
+{
+	private static final String fileNamePrefix = "IntDiskSortedStack"; //$NON-NLS-1$
+	private static final int DEFAULT_BUFFER_SIZE = 1000;
+	private static final int MAX_NUMBER_OF_SEGMENT = 100;
+	private static final int IO_BUFFER_SIZE = 4096;
+
+	private int[] buffer = null;
+	private int bufferPos = 0;
+	private boolean isAscending;
+	private boolean forceDistinct;
+	private boolean useMemoryOnly = false;
+	private int size = 0;
+
+	private List<FileRun> runs = new ArrayList<FileRun>( );
+	private File diskFile = null;
+	private RandomAccessFile randomAccessFile = null;
+	private FileChannel channel = null;
+	private long fileLength = 0;
+	private ByteBuffer writeBuffer = null;
+
+	private Merger merger = null;
+
+	/**
+	 *
+	 * @param bufferSize
+	 * @param isAscending
+	 * @param forceDistinct
+	 */
+	public IntDiskSortedStack( int bufferSize, boolean isAscending,
+			boolean forceDistinct )
+	{
+		buffer = new int[bufferSize <= 0 ? DEFAULT_BUFFER_SIZE : bufferSize];
+		this.isAscending = isAscending;
+		this.forceDistinct = forceDistinct;
+	}
+
+	/**
+	 *
+	 * @param useMemoryOnly
+	 */
+	public void setUseMemoryOnly( boolean useMemoryOnly )
+	{
+		this.useMemoryOnly = useMemoryOnly;
+	}
+
+	/**
+	 * Push a value into the stack. All the values must be pushed before the
+	 * first pop.
+	 *
+	 * @param value
+	 * @throws IOException
+	 */
+	public void push( int value ) throws IOException
+	{
+		if ( bufferPos == buffer.length )
+		{
+			if ( useMemoryOnly )
+			{
+				int[] tempBuffer = new int[buffer.length * 2];
+				System.arraycopy( buffer, 0, tempBuffer, 0, buffer.length );
+				buffer = tempBuffer;
+			}
+			else
+			{
+				spill( );
+			}
+		}
+		buffer[bufferPos++] = value;
+		size++;
+	}
+
+	/**
+	 *
+	 * @return the number of the pushed values.
+	 */
+	public int size( )
+	{
+		return size;
+	}
+
+	/**
+	 *
+	 * @return whether there are more values to pop.
+	 * @throws IOException
+	 */
+	public boolean hasNext( ) throws IOException
+	{
+		if ( merger == null )
+		{
+			initPop( );
+		}
+		return merger.hasNext( );
+	}
+
+	/**
+	 * Pop the next value in the sort order.
+	 *
+	 * @return
+	 * @throws IOException
+	 */
+	public int pop( ) throws IOException
+	{
+		if ( !hasNext( ) )
+		{
+			throw new NoSuchElementException( );
+		}
+		return merger.next( );
+	}
+
+	/**
+	 *
+	 * @throws IOException
+	 */
+	private void initPop( ) throws IOException
+	{
+		List<RunCursor> cursors = new ArrayList<RunCursor>( runs );
+		cursors.add( new MemoryRun( buffer, sortBuffer( ) ) );
+		merger = new Merger( cursors );
+	}
+
+	/**
+	 * Sort the buffer in the stack order and remove the duplicated values if
+	 * needed.
+	 *
+	 * @return the number of the values in the buffer.
+	 */
+	private int sortBuffer( )
+	{
+		Arrays.sort( buffer, 0, bufferPos );
+		int count = bufferPos;
+		if ( forceDistinct && count > 0 )
+		{
+			int pos = 0;
+			for ( int i = 1; i < count; i++ )
+			{
+				if ( buffer[i] != buffer[pos] )
+				{
+					buffer[++pos] = buffer[i];
+				}
+			}
+			count = pos + 1;
+		}
+		if ( !isAscending )
+		{
+			for ( int i = 0, j = count - 1; i < j; i++, j-- )
+			{
+				int temp = buffer[i];
+				buffer[i] = buffer[j];
+				buffer[j] = temp;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Write the sorted buffer to disk. Once the max number of runs is reached,
+	 * all the runs are merged into a single one.
+	 *
+	 * @throws IOException
+	 */
+	private void spill( ) throws IOException
+	{
+		int count = sortBuffer( );
+		if ( runs.size( ) < MAX_NUMBER_OF_SEGMENT )
+		{
+			FileRun run = startRun( );
+			for ( int i = 0; i < count; i++ )
+			{
+				writeInt( run, buffer[i] );
+			}
+			flushWriteBuffer( );
+			runs.add( run );
+		}
+		else
+		{
+			List<RunCursor> cursors = new ArrayList<RunCursor>( runs );
+			cursors.add( new MemoryRun( buffer, count ) );
+			Merger runMerger = new Merger( cursors );
+			FileRun run = startRun( );
+			while ( runMerger.hasNext( ) )
+			{
+				writeInt( run, runMerger.next( ) );
+			}
+			flushWriteBuffer( );
+			runs.clear( );
+			runs.add( run );
+		}
+		bufferPos = 0;
+	}
+
+	private FileRun startRun( ) throws IOException
+	{
+		if ( channel == null )
+		{
+			createDiskFile( );
+		}
+		return new FileRun( fileLength );
+	}
+
+	private void writeInt( FileRun run, int value ) throws IOException
+	{
+		if ( !writeBuffer.hasRemaining( ) )
+		{
+			flushWriteBuffer( );
+		}
+		writeBuffer.putInt( value );
+		run.count++;
+	}
+
+	private void flushWriteBuffer( ) throws IOException
+	{
+		writeBuffer.flip( );
+		while ( writeBuffer.hasRemaining( ) )
+		{
+			fileLength += channel.write( writeBuffer, fileLength );
+		}
+		writeBuffer.clear( );
+	}
+
+	/**
+	 *
+	 * @throws IOException
+	 */
+	private void createDiskFile( ) throws IOException
+	{
+		String tempFileStr = DataEngineThreadLocal.getInstance( )
+				.getPathManager( )
+				.getTempFileName( fileNamePrefix, this.hashCode( ), "" ); //$NON-NLS-1$
+		diskFile = new File( tempFileStr );
+		FileSecurity.createNewFile( diskFile );
+		randomAccessFile = FileSecurity.createRandomAccessFile( diskFile, "rw" ); //$NON-NLS-1$
+		channel = randomAccessFile.getChannel( );
+		writeBuffer = ByteBuffer.allocateDirect( IO_BUFFER_SIZE );
+		DataEngineThreadLocal.getInstance( ).getCloseListener( ).add( this );
+	}
+
+	/*
+	 * (non-Javadoc)
+	 * @see org.eclipse.birt.data.engine.api.ICloseListener#close()
+	 */
+	public void close( ) throws IOException
+	{
+		runs.clear( );
+		merger = null;
+		writeBuffer = null;
+		if ( randomAccessFile != null )
+		{
+			randomAccessFile.close( );
+			randomAccessFile = null;
+			channel = null;
+		}
+		if ( diskFile != null )
+		{
+			FileSecurity.fileDelete( diskFile );
+			diskFile = null;
+		}
+	}
+
+	/**
+	 * A sorted sequence of values.
+	 */
+	private static abstract class RunCursor
+	{
+		int current;
+
+		/**
+		 * Move to the next value.
+		 *
+		 * @return false if there is no more value.
+		 * @throws IOException
+		 */
+		abstract boolean advance( ) throws IOException;
+	}
+
+	private static class MemoryRun extends RunCursor
+	{
+		private int[] values;
+		private int count;
+		private int pos = 0;
+
+		MemoryRun( int[] values, int count )
+		{
+			this.values = values;
+			this.count = count;
+		}
+
+		boolean advance( )
+		{
+			if ( pos >= count )
+			{
+				return false;
+			}
+			current = values[pos++];
+			return true;
+		}
+	}
+
+	private class FileRun extends RunCursor
+	{
+		private long offset;
+		private int count = 0;
+		private int read = 0;
+		private long readPosition;
+		private ByteBuffer readBuffer = null;
+
+		FileRun( long offset )
+		{
+			this.offset = offset;
+		}
+
+		boolean advance( ) throws IOException
+		{
+			if ( readBuffer == null )
+			{
+				readBuffer = ByteBuffer.allocateDirect( IO_BUFFER_SIZE );
+				readBuffer.limit( 0 );
+				readPosition = offset;
+			}
+			if ( read >= count )
+			{
+				readBuffer = null;
+				return false;
+			}
+			if ( !readBuffer.hasRemaining( ) )
+			{
+				readBuffer.clear( );
+				readBuffer.limit( (int) Math.min( readBuffer.capacity( ),
+						( count - read ) * 4L ) );
+				while ( readBuffer.hasRemaining( ) )
+				{
+					int n = channel.read( readBuffer, readPosition );
+					if ( n < 0 )
+					{
+						throw new IOException( "Unexpected end of file" ); //$NON-NLS-1$
+					}
+					readPosition += n;
+				}
+				readBuffer.flip( );
+			}
+			current = readBuffer.getInt( );
+			read++;
+			return true;
+		}
+	}
+
+	/**
+	 * Merge the sorted runs with a binary heap.
+	 */
+	private class Merger
+	{
+		private RunCursor[] heap;
+		private int heapSize = 0;
+		private boolean hasLast = false;
+		private int last;
+
+		Merger( List<RunCursor> cursors ) throws IOException
+		{
+			heap = new RunCursor[cursors.size( )];
+			for ( int i = 0; i < cursors.size( ); i++ )
+			{
+				RunCursor cursor = cursors.get( i );
+				if ( cursor.advance( ) )
+				{
+					heap[heapSize++] = cursor;
+				}
+			}
+			for ( int i = heapSize / 2 - 1; i >= 0; i-- )
+			{
+				siftDown( i );
+			}
+		}
+
+		boolean hasNext( ) throws IOException
+		{
+			if ( forceDistinct && hasLast )
+			{
+				while ( heapSize > 0 && heap[0].current == last )
+				{
+					advanceTop( );
+				}
+			}
+			return heapSize > 0;
+		}
+
+		int next( ) throws IOException
+		{
+			int value = heap[0].current;
+			advanceTop( );
+			last = value;
+			hasLast = true;
+			return value;
+		}
+
+		private void advanceTop( ) throws IOException
+		{
+			if ( !heap[0].advance( ) )
+			{
+				heap[0] = heap[--heapSize];
+				heap[heapSize] = null;
+			}
+			if ( heapSize > 0 )
+			{
+				siftDown( 0 );
+			}
+		}
+
+		private void siftDown( int index )
+		{
+			RunCursor cursor = heap[index];
+			while ( true )
+			{
+				int child = index * 2 + 1;
+				if ( child >= heapSize )
+				{
+					break;
+				}
+				if ( child + 1 < heapSize
+						&& before( heap[child + 1].current, heap[child].current ) )
+				{
+					child++;
+				}
+				if ( !before( heap[child].current, cursor.current ) )
+				{
+					break;
+				}
+				heap[index] = heap[child];
+				index = child;
+			}
+			heap[index] = cursor;
+		}
+
+		private boolean before( int value1, int value2 )
+		{
+			return isAscending ? value1 < value2 : value1 > value2;
+		}
+	}
+}
@@ -102,6 +102,71 @@ public class SetUtil
 		}
 	}
 	
+	/**
+	 * Get intersection from ascending and distinct int stacks. Only the values
+	 * in the result are boxed.
+	 * @param stacks
+	 * @param bufferSize
+	 * @return
+	 * @throws IOException
+	 */
+	public static IDiskArray getIntersection( IntDiskSortedStack[] stacks, int bufferSize ) throws IOException
+	{
+		for ( int i = 0; i < stacks.length; i++ )
+		{
+			if( stacks[i].size( ) < bufferSize )
+			{
+				bufferSize = stacks[i].size( );
+			}
+		}
+		IDiskArray result = new BufferedPrimitiveDiskArray( bufferSize + 1 );
+		if ( stacks.length == 0 )
+		{
+			return result;
+		}
+		int[] values = new int[stacks.length];
+		for ( int i = 0; i < stacks.length; i++ )
+		{
+			if ( !stacks[i].hasNext( ) )
+			{
+				return result;
+			}
+			values[i] = stacks[i].pop( );
+		}
+		int currentValue = values[0];
+		while ( true )
+		{
+			boolean matched = true;
+			for ( int i = 0; i < stacks.length; i++ )
+			{
+				while ( values[i] < currentValue )
+				{
+					if ( !stacks[i].hasNext( ) )
+					{
+						return result;
+					}
+					values[i] = stacks[i].pop( );
+				}
+				if ( values[i] > currentValue )
+				{
+					currentValue = values[i];
+					matched = false;
+					break;
+				}
+			}
+			if ( matched )
+			{
+				result.add( Integer.valueOf( currentValue ) );
+				if ( !stacks[0].hasNext( ) )
+				{
+					return result;
+				}
+				values[0] = stacks[0].pop( );
+				currentValue = values[0];
+			}
+		}
+	}
+	
 	/**
 	 * Get intersection from disk arrays.
 	 * @param stacks
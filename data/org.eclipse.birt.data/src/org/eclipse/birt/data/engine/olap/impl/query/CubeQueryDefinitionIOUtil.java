@@ -5,6 +5,7 @@
  *******************************************************************************/
 package org.eclipse.birt.data.engine.olap.impl.query;
 
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
@@ -110,36 +111,7 @@ public class CubeQueryDefinitionIOUtil
 			RAOutputStream outputStream = writer.createRandomAccessStream( queryResultID + STREAM_FLAG );
 			dos = new DataOutputStream( outputStream );
 			
-			//save name
-			IOUtil.writeString( dos, qd.getName( ) );
-			
-			IOUtil.writeBool( dos, qd.cacheQueryResults( ) );
-			
-			IOUtil.writeInt( dos, qd.getFilterOption( ) );
-			
-			//save bindings	
-			saveBindings( dos, qd.getBindings( ), version );
-			
-			//save filters
-			saveFilters( dos, qd.getFilters( ), version );
-			
-			//save sorts
-			saveSortDefns( dos, qd.getSorts( ));
-			
-			//save measures
-			saveMeasures( dos, qd.getMeasures( ) );
-			
-			//save computed measures
-			saveComputedMeasures( dos, qd.getComputedMeasures( ) );
-			
-			//save calculated measures
-			saveCalculatedMeasures( dos, qd.getDerivedMeasures( ), version );
-			
-			//save edges
-			saveEdges( dos, qd, version );
-			
-			//save cube operations
-			saveCubeOperations( dos, qd.getCubeOperations( ), version );
+			saveQueryDefinition( dos, qd, version );
 			
 			dos.flush( );
 		}
@@ -152,6 +124,61 @@ public class CubeQueryDefinitionIOUtil
 		}
 	}
 	
+	/**
+	 * Returns the canonical binary form of a {@code CubeQueryDefinition}. Two
+	 * query definitions with the same canonical form produce the same
+	 * aggregation result sets against the same cube.
+	 * 
+	 * @param qd
+	 * @return
+	 * @throws DataException
+	 * @throws IOException
+	 */
+	public static byte[] toCanonicalBytes( ICubeQueryDefinition qd )
+			throws DataException, IOException
+	{
+		ByteArrayOutputStream buffer = new ByteArrayOutputStream( );
+		DataOutputStream dos = new DataOutputStream( buffer );
+		saveQueryDefinition( dos, qd, VersionManager.getLatestVersion( ) );
+		dos.flush( );
+		return buffer.toByteArray( );
+	}
+	
+	private static void saveQueryDefinition( DataOutputStream dos, ICubeQueryDefinition qd, int version )
+			throws DataException, IOException
+	{
+		//save name
+		IOUtil.writeString( dos, qd.getName( ) );
+		
+		IOUtil.writeBool( dos, qd.cacheQueryResults( ) );
+		
+		IOUtil.writeInt( dos, qd.getFilterOption( ) );
+		
+		//save bindings	
+		saveBindings( dos, qd.getBindings( ), version );
+		
+		//save filters
+		saveFilters( dos, qd.getFilters( ), version );
+		
+		//save sorts
+		saveSortDefns( dos, qd.getSorts( ));
+		
+		//save measures
+		saveMeasures( dos, qd.getMeasures( ) );
+		
+		//save computed measures
+		saveComputedMeasures( dos, qd.getComputedMeasures( ) );
+		
+		//save calculated measures
+		saveCalculatedMeasures( dos, qd.getDerivedMeasures( ), version );
+		
+		//save edges
+		saveEdges( dos, qd, version );
+		
+		//save cube operations
+		saveCubeOperations( dos, qd.getCubeOperations( ), version );
+	}
+	
 	private static void saveCalculatedMeasures( DataOutputStream dos, List<IDerivedMeasureDefinition> derivedMeasures, int version ) throws IOException, DataException
 	{
 		// no calculated measure support
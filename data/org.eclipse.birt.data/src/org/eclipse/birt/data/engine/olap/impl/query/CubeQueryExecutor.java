@@ -82,6 +82,7 @@ public class CubeQueryExecutor
 	private List<IAggrMeasureFilterEvalHelper> aggrFilterEvalHelpersOnCubeOperator;
 	private List<IJSFacttableFilterEvalHelper> advancedFacttableBasedFilterEvalHelper;
 	private boolean populateFilter = false;
+	private boolean hasInternalFilters = false;
 	
 	public static final int DIMENSION_FILTER = 0;
 	public static final int AGGR_MEASURE_FILTER = 1;
@@ -573,6 +574,30 @@ public class CubeQueryExecutor
 	{
 		return this.dimensionSimpleFilter;
 	} 
+
+	/**
+	 * Adds the level filters which are not defined in the query definition.
+	 * 
+	 * @param filters
+	 */
+	public void addInternalFilters( List<SimpleLevelFilter> filters )
+	{
+		if ( filters != null && !filters.isEmpty( ) )
+		{
+			this.dimensionSimpleFilter.addAll( filters );
+			this.hasInternalFilters = true;
+		}
+	}
+
+	/**
+	 * 
+	 * @return true if level filters not defined in the query definition are
+	 *         applied
+	 */
+	public boolean hasInternalFilters( )
+	{
+		return this.hasInternalFilters;
+	}
 	
 	/**
 	 * 
@@ -303,7 +303,7 @@ public class CubeQueryResults implements ICubeQueryResults
 		executor = new CubeQueryExecutor( this.outResults, cubeQueryDefinition, this.session,
 				this.scope,
 				this.context );
-		executor.getdimensionSimpleFilter( ).addAll( this.preparedQuery.getInternalFilters( ) );
+		executor.addInternalFilters( this.preparedQuery.getInternalFilters( ) );
 		
 		IDocumentManager documentManager = getDocumentManager( executor );
 		ICube cube = null;
@@ -35,6 +35,7 @@ import org.eclipse.birt.data.engine.olap.data.api.IAggregationResultSet;
 import org.eclipse.birt.data.engine.olap.data.api.IBindingValueFetcher;
 import org.eclipse.birt.data.engine.olap.data.api.cube.ICube;
 import org.eclipse.birt.data.engine.olap.data.impl.AggregationDefinition;
+import org.eclipse.birt.data.engine.olap.data.impl.AggregationResultSetCache;
 import org.eclipse.birt.data.engine.olap.data.impl.AggregationResultSetSaveUtil;
 import org.eclipse.birt.data.engine.olap.data.impl.aggregation.MergedAggregationResultSet;
 import org.eclipse.birt.data.engine.olap.driver.CubeResultSet;
@@ -598,31 +599,52 @@ public class QueryExecutorV1 implements IQueryExecutor
 			AggregationDefinition[] aggrDefns, boolean saveToRD,
 			String queryResutID, IBindingValueFetcher fetcher ) throws IOException, BirtException
 	{
-		IAggregationResultSet[] rs;
+		IAggregationResultSet[] rs = null;
 		CubeQueryExecutor executor = view.getCubeQueryExecutor( );
 		
-		rs = cubeQueryExecutorHelper.execute( aggrDefns, executor.getSession( ).getStopSign( ) );
-		rs = QueryExecutorUtil.applyFilterOnOperation( view,
-				cubeQueryExecutorHelper,
-				executor,
-				aggrDefns,
-				rs,
-				fetcher,
-				executor.getSession( ).getStopSign( ) );
-		rs = noUpdateFilterHelper.applyNoAggrUpdateFilters( executor.getCubeQueryDefinition( )
-				.getFilters( ),
-				executor,
-				rs,
-				view.getCube( ),
-				fetcher,
-				false );
-		//process mirror operation
-		MirrorOperationExecutor moe = new MirrorOperationExecutor( );
-		rs = moe.execute( rs, view, cubeQueryExecutorHelper );
-
-		QueryExecutorUtil.validateLimitSetting( view, rs );
-		
-		rs = this.processNestedAggrOperation( executor, view,  executor.getSession( ).getStopSign( ), rs, fetcher );
+		String cacheKey = getAggregationCacheKey( view );
+		if ( cacheKey != null )
+		{
+			rs = AggregationResultSetCache.getInstance( ).get( cacheKey,
+					cubeQueryExecutorHelper.getMemoryCacheSize( ) );
+		}
+		if ( rs != null )
+		{
+			//Restore{@code AggregationDefinition} info first which are lost during caching aggregation result sets
+			QueryExecutorUtil.initLoadedAggregationResultSets( rs, getSavedAggregations( ) );
+			//the fetch limits are task settings, they are not part of the cache key
+			QueryExecutorUtil.validateLimitSetting( view, rs );
+		}
+		else
+		{
+			rs = cubeQueryExecutorHelper.execute( aggrDefns, executor.getSession( ).getStopSign( ) );
+			rs = QueryExecutorUtil.applyFilterOnOperation( view,
+					cubeQueryExecutorHelper,
+					executor,
+					aggrDefns,
+					rs,
+					fetcher,
+					executor.getSession( ).getStopSign( ) );
+			rs = noUpdateFilterHelper.applyNoAggrUpdateFilters( executor.getCubeQueryDefinition( )
+					.getFilters( ),
+					executor,
+					rs,
+					view.getCube( ),
+					fetcher,
+					false );
+			//process mirror operation
+			MirrorOperationExecutor moe = new MirrorOperationExecutor( );
+			rs = moe.execute( rs, view, cubeQueryExecutorHelper );
+
+			QueryExecutorUtil.validateLimitSetting( view, rs );
+			
+			rs = this.processNestedAggrOperation( executor, view,  executor.getSession( ).getStopSign( ), rs, fetcher );
+			
+			if ( cacheKey != null )
+			{
+				AggregationResultSetCache.getInstance( ).put( cacheKey, rs );
+			}
+		}
 		//If need save to local dir
 		if ( executor.getCubeQueryDefinition( ).cacheQueryResults( ) )
 		{
@@ -654,6 +676,36 @@ public class QueryExecutorV1 implements IQueryExecutor
 		return rs;
 	}
 
+	/**
+	 * Returns the key of the query in the shared aggregation result set cache,
+	 * or null if the result of the query should not be cached.
+	 * 
+	 * @param view
+	 * @return
+	 * @throws IOException
+	 * @throws BirtException
+	 */
+	private String getAggregationCacheKey( BirtCubeView view ) throws IOException, BirtException
+	{
+		// the capacity is process wide, a task may only opt out of the cache
+		if ( AggregationResultSetCache.getInstance( ).getCapacity( ) <= 0
+				|| CacheUtil.getCubeAggregationCacheSize( view.getAppContext( ) ) == 0 )
+		{
+			return null;
+		}
+		CubeQueryExecutor executor = view.getCubeQueryExecutor( );
+		if ( executor.getOuterResults( ) != null
+				|| executor.hasInternalFilters( ) )
+		{
+			return null;
+		}
+		DataEngineContext context = executor.getContext( );
+		return AggregationResultSetCache.createKey( view.getCubeQueryDefinition( ),
+				view.getCube( ),
+				context.getLocale( ),
+				context.getTimeZone( ) );
+	}
+
 	/**
 	 * 
 	 * @param parentResultSet
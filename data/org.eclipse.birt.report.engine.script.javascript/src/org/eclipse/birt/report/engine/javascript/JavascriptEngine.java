@@ -218,7 +218,7 @@ public class JavascriptEngine implements IScriptEngine, IDataScriptEngine
 		}
 		else
 		{
-			jsScope = context.newObject( parent );
+			jsScope = getCurrentContext( ).newObject( parent );
 		}
 		jsScope.setParentScope( parent );
 		return jsScope;
@@ -232,12 +232,13 @@ public class JavascriptEngine implements IScriptEngine, IDataScriptEngine
 	public CompiledJavascript compile( ScriptContext scriptContext,
 			final String id, final int lineNumber, final String script ) throws BirtException
 	{
+		final Context cx = getCurrentContext( );
 		Script scriptObject = AccessController
 				.doPrivileged( new PrivilegedAction<Script>( ) {
 
 					public Script run( )
 					{
-						return context.compileString( script, id, lineNumber,
+						return cx.compileString( script, id, lineNumber,
 								ScriptUtil.getSecurityDomain( id ) );
 					}
 				} );
@@ -266,7 +267,7 @@ public class JavascriptEngine implements IScriptEngine, IDataScriptEngine
 		//Register writeStatus method in root context.
 		if ( parent == null )
 		{
-			cachedScript.exec( this.context, jsScope );
+			cachedScript.exec( getCurrentContext( ), jsScope );
 		}
 		Map<String, Object> attrs = context.getAttributes( );
 		for ( Entry<String, Object> entry : attrs.entrySet( ) )
@@ -288,7 +289,8 @@ public class JavascriptEngine implements IScriptEngine, IDataScriptEngine
 		{
 			Script script = ( (CompiledJavascript) compiledScript )
 					.getCompiledScript( );
-			Object value = script.exec( context, getJSScope( scriptContext ) );
+			Object value = script.exec( getCurrentContext( ),
+					getJSScope( scriptContext ) );
 			return jsToJava( value );
 		}
 		catch ( Throwable e )
@@ -374,6 +376,26 @@ public class JavascriptEngine implements IScriptEngine, IDataScriptEngine
 
 	public Context getJSContext( ScriptContext scriptContext )
 	{
+		return getCurrentContext( );
+	}
+
+	/**
+	 * return the context used by the current thread. The context of the
+	 * engine is bound to the thread creating the engine, other threads may
+	 * evaluate the scripts of this engine in their own context if it is
+	 * created by an engine too, that is, it wraps the java objects in the
+	 * same way. Each engine has its own wrap factory, so the classes of the
+	 * wrap factories are compared.
+	 */
+	private Context getCurrentContext( )
+	{
+		Context current = Context.getCurrentContext( );
+		if ( current != null && current != context
+				&& current.getWrapFactory( ).getClass( ) == context
+						.getWrapFactory( ).getClass( ) )
+		{
+			return current;
+		}
 		return context;
 	}
 
@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.engine.emitter.pdf;
+
+import java.awt.Color;
+import java.io.ByteArrayOutputStream;
+
+import junit.framework.TestCase;
+
+import org.eclipse.birt.report.engine.layout.pdf.font.FontInfo;
+import org.eclipse.birt.report.engine.nLayout.area.style.TextStyle;
+
+import com.lowagie.text.Font;
+import com.lowagie.text.pdf.BaseFont;
+import com.lowagie.text.pdf.PRStream;
+import com.lowagie.text.pdf.PdfDictionary;
+import com.lowagie.text.pdf.PdfName;
+import com.lowagie.text.pdf.PdfReader;
+
+public class PDFPageTest extends TestCase
+{
+
+	private ByteArrayOutputStream output;
+	private PDFPageDevice device;
+	private PDFPage page;
+	private FontInfo fontInfo;
+
+	protected void setUp( ) throws Exception
+	{
+		output = new ByteArrayOutputStream( );
+		device = new PDFPageDevice( output );
+		page = (PDFPage) device.newPage( 595000, 842000, null );
+		BaseFont bf = BaseFont.createFont( BaseFont.HELVETICA,
+				BaseFont.WINANSI, false );
+		fontInfo = new FontInfo( bf, 12f, Font.NORMAL, 400, false );
+	}
+
+	public void testRedundantOperators( ) throws Exception
+	{
+		page.drawText( "a", 10000, 10000, 10000, 10000,
+				createTextStyle( Color.RED ) );
+		page.drawText( "b", 10000, 20000, 10000, 10000,
+				createTextStyle( Color.RED ) );
+		page.drawText( "c", 10000, 30000, 10000, 10000,
+				createTextStyle( Color.BLACK ) );
+		device.close( );
+
+		PdfReader reader = new PdfReader( output.toByteArray( ) );
+		String content = new String( reader.getPageContent( 1 ), "ISO-8859-1" );
+		assertEquals( 3, count( content, "Tj" ) );
+		// the font is output once, the color is output when it is changed
+		assertEquals( 1, count( content, " Tf" ) );
+		assertEquals( 2, count( content, " rg" ) );
+		// the default values are not output
+		assertEquals( 0, count( content, " Tc" ) );
+		assertEquals( 0, count( content, " Tw" ) );
+		assertEquals( 0, count( content, " Tr" ) );
+	}
+
+	public void testTotalPageTemplate( ) throws Exception
+	{
+		// changes the state of the page before the template is painted
+		page.drawText( "a", 10000, 10000, 10000, 10000,
+				createTextStyle( Color.RED ) );
+		page.createTotalPageTemplate( 10000, 20000, 10000, 10000, 1f );
+		page.drawTotalPage( "1", 0, 0, 10000, 10000,
+				createTextStyle( Color.BLACK ), 1f );
+		// the state of the page is not changed by the template
+		page.drawText( "b", 10000, 30000, 10000, 10000,
+				createTextStyle( Color.RED ) );
+		device.close( );
+
+		PdfReader reader = new PdfReader( output.toByteArray( ) );
+		String content = new String( reader.getPageContent( 1 ), "ISO-8859-1" );
+		assertEquals( 2, count( content, "Tj" ) );
+		assertEquals( 1, count( content, " Tf" ) );
+		assertEquals( 1, count( content, " rg" ) );
+		assertEquals( 1, count( content, " Do" ) );
+
+		// the template inherits the state of the page where it is painted,
+		// so it sets all the values even if they are the default ones.
+		PdfDictionary resources = reader.getPageN( 1 ).getAsDict(
+				PdfName.RESOURCES );
+		PdfDictionary xobjects = resources.getAsDict( PdfName.XOBJECT );
+		assertEquals( 1, xobjects.size( ) );
+		PdfName name = (PdfName) xobjects.getKeys( ).iterator( ).next( );
+		PRStream stream = (PRStream) PdfReader.getPdfObject( xobjects
+				.get( name ) );
+		String template = new String( PdfReader.getStreamBytes( stream ),
+				"ISO-8859-1" );
+		assertEquals( 1, count( template, "Tj" ) );
+		assertEquals( 1, count( template, " Tf" ) );
+		assertEquals( 1, count( template, " rg" ) );
+		assertEquals( 1, count( template, " Tc" ) );
+		assertEquals( 1, count( template, " Tw" ) );
+		assertEquals( 1, count( template, " Tr" ) );
+	}
+
+	private TextStyle createTextStyle( Color color )
+	{
+		TextStyle style = new TextStyle( fontInfo );
+		style.setColor( color );
+		return style;
+	}
+
+	private int count( String content, String operator )
+	{
+		int count = 0;
+		int index = content.indexOf( operator );
+		while ( index != -1 )
+		{
+			count++;
+			index = content.indexOf( operator, index + operator.length( ) );
+		}
+		return count;
+	}
+}
@@ -11,12 +11,17 @@
 
 package org.eclipse.birt.report.engine.emitter.pdf;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
 import org.eclipse.birt.report.engine.api.EngineException;
 import org.eclipse.birt.report.engine.emitter.IEmitterServices;
+import org.eclipse.birt.report.engine.emitter.IMergeableEmitter;
 import org.eclipse.birt.report.engine.layout.emitter.PageDeviceRender;
 import org.eclipse.birt.report.engine.layout.emitter.PageEmitter;
 
-public class PDFEmitter extends PageEmitter
+public class PDFEmitter extends PageEmitter implements IMergeableEmitter
 {
 
 	public PageDeviceRender createRender( IEmitterServices services )
@@ -24,4 +29,10 @@ public class PDFEmitter extends PageEmitter
 	{
 		return new PDFRender( services );
 	}
+
+	public void mergeOutputs( InputStream[] outputs, OutputStream out )
+			throws IOException
+	{
+		new PDFMerger( ).merge( outputs, out );
+	}
 }
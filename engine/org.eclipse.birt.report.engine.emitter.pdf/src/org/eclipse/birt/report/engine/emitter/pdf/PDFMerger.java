@@ -0,0 +1,189 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.engine.emitter.pdf;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.lowagie.text.Document;
+import com.lowagie.text.DocumentException;
+import com.lowagie.text.pdf.PdfCopy;
+import com.lowagie.text.pdf.PdfReader;
+import com.lowagie.text.pdf.PdfSmartCopy;
+import com.lowagie.text.pdf.PdfWriter;
+import com.lowagie.text.pdf.SimpleBookmark;
+import com.lowagie.text.pdf.SimpleNamedDestination;
+
+/**
+ * Merges the PDF files of continuous page ranges into one PDF file.
+ *
+ * The pages are copied in order, the document information is copied from the
+ * first file. The bookmarks use the named destinations, so the named
+ * destinations of all the files are kept, and the outlines are merged: an
+ * outline which is split by the range boundary appears as the last outline of
+ * a file and the first outline of the next file, its children are merged.
+ *
+ * The files are rendered separately, so each of them contains its own copy of
+ * the images and the other resources used by its pages. The identical streams
+ * are written only once into the merged file.
+ */
+public class PDFMerger
+{
+
+	private static final String BOOKMARK_TITLE = "Title"; //$NON-NLS-1$
+	private static final String BOOKMARK_NAMED = "Named"; //$NON-NLS-1$
+	private static final String BOOKMARK_KIDS = "Kids"; //$NON-NLS-1$
+
+	public void merge( InputStream[] inputs, OutputStream out )
+			throws IOException
+	{
+		Document doc = new Document( );
+		try
+		{
+			PdfCopy copy = new PdfSmartCopy( doc, out );
+			copy.setCloseStream( false );
+			copy.setFullCompression( );
+			ArrayList bookmarks = new ArrayList( );
+			int pageOffset = 0;
+			for ( int i = 0; i < inputs.length; i++ )
+			{
+				PdfReader reader = new PdfReader( inputs[i] );
+				if ( i == 0 )
+				{
+					addInfo( doc, reader.getInfo( ) );
+					doc.open( );
+				}
+				int pageCount = reader.getNumberOfPages( );
+				for ( int page = 1; page <= pageCount; page++ )
+				{
+					copy.addPage( copy.getImportedPage( reader, page ) );
+				}
+				HashMap destinations = SimpleNamedDestination
+						.getNamedDestination( reader, false );
+				destinations.putAll( SimpleNamedDestination.getNamedDestination(
+						reader, true ) );
+				copy.addNamedDestinations( destinations, pageOffset );
+				List readerBookmarks = SimpleBookmark.getBookmark( reader );
+				if ( readerBookmarks != null )
+				{
+					SimpleBookmark.shiftPageNumbers( readerBookmarks,
+							pageOffset, null );
+					mergeBookmarks( bookmarks, readerBookmarks );
+				}
+				copy.freeReader( reader );
+				reader.close( );
+				pageOffset += pageCount;
+			}
+			if ( bookmarks.isEmpty( ) )
+			{
+				copy.setViewerPreferences( PdfWriter.PageModeUseNone );
+			}
+			else
+			{
+				copy.setOutlines( bookmarks );
+				copy.setViewerPreferences( PdfWriter.PageModeUseOutlines );
+			}
+			doc.close( );
+		}
+		catch ( DocumentException ex )
+		{
+			throw new IOException( ex.getMessage( ), ex );
+		}
+	}
+
+	private void addInfo( Document doc, Map info )
+	{
+		Iterator iter = info.entrySet( ).iterator( );
+		while ( iter.hasNext( ) )
+		{
+			Map.Entry entry = (Map.Entry) iter.next( );
+			String key = (String) entry.getKey( );
+			String value = (String) entry.getValue( );
+			if ( "Title".equals( key ) ) //$NON-NLS-1$
+			{
+				doc.addTitle( value );
+			}
+			else if ( "Author".equals( key ) ) //$NON-NLS-1$
+			{
+				doc.addAuthor( value );
+			}
+			else if ( "Subject".equals( key ) ) //$NON-NLS-1$
+			{
+				doc.addSubject( value );
+			}
+			else if ( "Keywords".equals( key ) ) //$NON-NLS-1$
+			{
+				doc.addKeywords( value );
+			}
+			else if ( "Creator".equals( key ) ) //$NON-NLS-1$
+			{
+				doc.addCreator( value );
+			}
+			else if ( !"Producer".equals( key ) //$NON-NLS-1$
+					&& !"CreationDate".equals( key ) //$NON-NLS-1$
+					&& !"ModDate".equals( key ) ) //$NON-NLS-1$
+			{
+				doc.addHeader( key, value );
+			}
+		}
+	}
+
+	/**
+	 * append the bookmarks to the target, the first bookmark is merged into
+	 * the last target bookmark if they refer to the same destination.
+	 */
+	private void mergeBookmarks( List target, List bookmarks )
+	{
+		int index = 0;
+		if ( !target.isEmpty( ) && !bookmarks.isEmpty( ) )
+		{
+			Map last = (Map) target.get( target.size( ) - 1 );
+			Map first = (Map) bookmarks.get( 0 );
+			if ( isSameBookmark( last, first ) )
+			{
+				List kids = (List) first.get( BOOKMARK_KIDS );
+				if ( kids != null )
+				{
+					List lastKids = (List) last.get( BOOKMARK_KIDS );
+					if ( lastKids == null )
+					{
+						last.put( BOOKMARK_KIDS, kids );
+					}
+					else
+					{
+						mergeBookmarks( lastKids, kids );
+					}
+				}
+				index = 1;
+			}
+		}
+		target.addAll( bookmarks.subList( index, bookmarks.size( ) ) );
+	}
+
+	private boolean isSameBookmark( Map a, Map b )
+	{
+		Object named = a.get( BOOKMARK_NAMED );
+		return named != null && named.equals( b.get( BOOKMARK_NAMED ) )
+				&& equals( a.get( BOOKMARK_TITLE ), b.get( BOOKMARK_TITLE ) );
+	}
+
+	private boolean equals( Object a, Object b )
+	{
+		return a == null ? b == null : a.equals( b );
+	}
+}
@@ -18,6 +18,7 @@ import java.awt.print.Paper;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.util.HashMap;
+import java.util.LinkedList;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -35,6 +36,7 @@ import org.eclipse.birt.report.engine.nLayout.area.style.BackgroundImageInfo;
 import org.eclipse.birt.report.engine.nLayout.area.style.BorderInfo;
 import org.eclipse.birt.report.engine.nLayout.area.style.TextStyle;
 import org.eclipse.birt.report.engine.util.FlashFile;
+import org.eclipse.birt.report.engine.util.ImageCache;
 import org.eclipse.birt.report.engine.util.SvgFile;
 import org.w3c.dom.css.CSSValue;
 
@@ -83,6 +85,18 @@ public class PDFPage extends AbstractPage
 	private static Pattern PAGE_LINK_PATTERN = Pattern
 			.compile( "^((([a-zA-Z]:))(/(\\w[\\w ]*.*))+\\.(pdf|PDF))+#page=(\\d+)$" );
 
+	/**
+	 * the graphic state of the content byte, it is changed only by the text,
+	 * the solid lines and the background colors which are drawn without
+	 * saving the state.
+	 */
+	private GraphicState state = new GraphicState( );
+
+	/**
+	 * the graphic states saved by saveState().
+	 */
+	private LinkedList<GraphicState> states = new LinkedList<GraphicState>( );
+
 	public PDFPage( int pageWidth, int pageHeight, Document document,
 			PdfWriter writer, PDFPageDevice pageDevice )
 	{
@@ -110,11 +124,14 @@ public class PDFPage extends AbstractPage
 	protected void restoreState( )
 	{
 		contentByte.restoreState( );
+		state = states.removeLast( );
 	}
 
 	protected void saveState( )
 	{
 		contentByte.saveState( );
+		states.add( state );
+		state = new GraphicState( state );
 	}
 
 	public void dispose( )
@@ -129,12 +146,9 @@ public class PDFPage extends AbstractPage
 			return;
 		}
 		y = transformY( y, height );
-		contentByte.saveState( );
-		contentByte.setColorFill( color );
-		contentByte.concatCTM( 1, 0, 0, 1, x, y );
-		contentByte.rectangle( 0, 0, width, height );
+		setColorFill( color );
+		contentByte.rectangle( x, y, width, height );
 		contentByte.fill( );
-		contentByte.restoreState( );
 	}
 
 	protected void drawBackgroundImage( float x, float y, float width,
@@ -155,7 +169,7 @@ public class PDFPage extends AbstractPage
 		}
 		if ( image == null )
 		{
-			Image img = Image.getInstance( imageData );
+			Image img = ImageCache.getImage( imageData );
 			if ( imageHeight == 0 || imageWidth == 0 )
 			{
 				int resolutionX = img.getDpiX( );
@@ -247,7 +261,7 @@ public class PDFPage extends AbstractPage
 		else
 		{
 			// PNG/JPG/BMP... images:
-			Image image = Image.getInstance( imageData );
+			Image image = ImageCache.getImage( imageData );
 			if ( imageId == null )
 			{
 				// image without imageId, not able to cache.
@@ -309,20 +323,19 @@ public class PDFPage extends AbstractPage
 		{
 			return;
 		}
-		contentByte.saveState( );
-		if ( BorderInfo.BORDER_STYLE_SOLID == lineStyle ) //$NON-NLS-1$
-		{
-			drawRawLine( startX, startY, endX, endY, width, color, contentByte );
-		}
-		else if ( BorderInfo.BORDER_STYLE_DASHED == lineStyle ) //$NON-NLS-1$
+		if ( BorderInfo.BORDER_STYLE_DASHED == lineStyle ) //$NON-NLS-1$
 		{
+			contentByte.saveState( );
 			contentByte.setLineDash( 3 * width, 2 * width, 0f );
 			drawRawLine( startX, startY, endX, endY, width, color, contentByte );
+			contentByte.restoreState( );
 		}
 		else if ( BorderInfo.BORDER_STYLE_DOTTED == lineStyle ) //$NON-NLS-1$
 		{
+			contentByte.saveState( );
 			contentByte.setLineDash( width, width, 0f );
 			drawRawLine( startX, startY, endX, endY, width, color, contentByte );
+			contentByte.restoreState( );
 		}
 		else if ( BorderInfo.BORDER_STYLE_DOUBLE == lineStyle ) //$NON-NLS-1$
 		{
@@ -333,9 +346,14 @@ public class PDFPage extends AbstractPage
 		// We look it as the default line style -- 'solid'
 		else
 		{
-			drawRawLine( startX, startY, endX, endY, width, color, contentByte );
+			// the solid line is drawn in the current state, only the changed
+			// line width and color are output.
+			setLineWidth( width );
+			setColorStroke( color );
+			contentByte.moveTo( startX, transformY( startY ) );
+			contentByte.lineTo( endX, transformY( endY ) );
+			contentByte.stroke( );
 		}
-		contentByte.restoreState( );
 	}
 
 	protected void drawText( String text, float textX, float textY,
@@ -374,10 +392,17 @@ public class PDFPage extends AbstractPage
 		if ( template != null )
 		{
 			PdfContentByte tempCB = this.contentByte;
+			GraphicState tempState = this.state;
 			this.containerHeight = template.getHeight( );
 			this.contentByte = template;
+			// the template inherits the graphic state of the page where it is
+			// painted, which isn't known here, so output all the operators.
+			this.state = GraphicState.createUnknownState( );
+			template.saveState( );
 			drawText( text, textX, textY, width, height, textInfo );
+			template.restoreState( );
 			this.contentByte = tempCB;
+			this.state = tempState;
 			this.containerHeight = pageHeight;
 		}
 	}
@@ -480,35 +505,28 @@ public class PDFPage extends AbstractPage
 			FontInfo fontInfo, float characterSpacing, float wordSpacing,
 			Color color, CSSValue align )
 	{
-		contentByte.saveState( );
-		// start drawing the text content
+		// the text is drawn in the current state, only the changed text
+		// state is output.
 		contentByte.beginText( );
-		if ( null != color && !Color.BLACK.equals( color ) )
+		if ( null == color )
 		{
-			contentByte.setColorFill( color );
-			contentByte.setColorStroke( color );
+			color = Color.BLACK;
 		}
+		setColorFill( color );
 		BaseFont font = getBaseFont( fontInfo );
 		float fontSize = fontInfo.getFontSize( );
-		try
-		{
-			contentByte.setFontAndSize( font, fontSize );
-		}
-		catch ( IllegalArgumentException e )
-		{
-			logger.log( Level.WARNING, e.getMessage( ) );
-			// close to zero , increase by one MIN_FONT_SIZE step
-			contentByte.setFontAndSize( font, MIN_FONT_SIZE * 2 );
-		}
-		if ( characterSpacing != 0 )
+		setFontAndSize( font, fontSize );
+		if ( characterSpacing != state.characterSpacing )
 		{
 			contentByte.setCharacterSpacing( characterSpacing );
+			state.characterSpacing = characterSpacing;
 		}
-		if ( wordSpacing != 0 )
+		if ( wordSpacing != state.wordSpacing )
 		{
 			contentByte.setWordSpacing( wordSpacing );
+			state.wordSpacing = wordSpacing;
 		}
-		setTextMatrix( contentByte, fontInfo, textX,
+		setTextMatrix( contentByte, fontInfo, color, textX,
 				transformY( textY, 0, containerHeight ) );
 		if ( ( font.getFontType( ) == BaseFont.FONT_TYPE_TTUNI )
 				&& IStyle.JUSTIFY_VALUE.equals( align ) && wordSpacing > 0 )
@@ -540,7 +558,62 @@ public class PDFPage extends AbstractPage
 			contentByte.showText( text );
 		}
 		contentByte.endText( );
-		contentByte.restoreState( );
+	}
+
+	private void setFontAndSize( BaseFont font, float fontSize )
+	{
+		if ( font == state.font && fontSize == state.fontSize )
+		{
+			return;
+		}
+		try
+		{
+			contentByte.setFontAndSize( font, fontSize );
+		}
+		catch ( IllegalArgumentException e )
+		{
+			logger.log( Level.WARNING, e.getMessage( ) );
+			// close to zero , increase by one MIN_FONT_SIZE step
+			contentByte.setFontAndSize( font, MIN_FONT_SIZE * 2 );
+		}
+		state.font = font;
+		state.fontSize = fontSize;
+	}
+
+	private void setColorFill( Color color )
+	{
+		if ( !color.equals( state.fillColor ) )
+		{
+			contentByte.setColorFill( color );
+			state.fillColor = color;
+		}
+	}
+
+	private void setColorStroke( Color color )
+	{
+		if ( !color.equals( state.strokeColor ) )
+		{
+			contentByte.setColorStroke( color );
+			state.strokeColor = color;
+		}
+	}
+
+	private void setLineWidth( float lineWidth )
+	{
+		if ( lineWidth != state.lineWidth )
+		{
+			contentByte.setLineWidth( lineWidth );
+			state.lineWidth = lineWidth;
+		}
+	}
+
+	private void setTextRenderingMode( int textRenderingMode )
+	{
+		if ( textRenderingMode != state.textRenderingMode )
+		{
+			contentByte.setTextRenderingMode( textRenderingMode );
+			state.textRenderingMode = textRenderingMode;
+		}
 	}
 
 	protected BaseFont getBaseFont( FontInfo fontInfo )
@@ -602,32 +675,40 @@ public class PDFPage extends AbstractPage
 		}
 	}
 
-	private void setTextMatrix( PdfContentByte cb, FontInfo fi, float x, float y )
+	private void setTextMatrix( PdfContentByte cb, FontInfo fi, Color color,
+			float x, float y )
 	{
-		cb.concatCTM( 1, 0, 0, 1, x, y );
 		if ( !fi.getSimulation( ) )
 		{
-			cb.setTextMatrix( 0, 0 );
+			setTextRenderingMode( PdfContentByte.TEXT_RENDER_MODE_FILL );
+			cb.setTextMatrix( x, y );
 			return;
 		}
 		switch ( fi.getFontStyle( ) )
 		{
 			case Font.ITALIC :
 			{
-				simulateItalic( cb );
+				setTextRenderingMode( PdfContentByte.TEXT_RENDER_MODE_FILL );
+				simulateItalic( cb, x, y );
 				break;
 			}
 			case Font.BOLD :
 			{
-				simulateBold( cb, fi.getFontWeight( ) );
+				simulateBold( cb, fi.getFontWeight( ), color );
+				cb.setTextMatrix( x, y );
 				break;
 			}
 			case Font.BOLDITALIC :
 			{
-				simulateBold( cb, fi.getFontWeight( ) );
-				simulateItalic( cb );
+				simulateBold( cb, fi.getFontWeight( ), color );
+				simulateItalic( cb, x, y );
 				break;
 			}
+			default :
+			{
+				setTextRenderingMode( PdfContentByte.TEXT_RENDER_MODE_FILL );
+				cb.setTextMatrix( x, y );
+			}
 		}
 	}
 
@@ -641,24 +722,24 @@ public class PDFPage extends AbstractPage
 		fontWeightLineWidthMap.put( 900, 0.5f );
 	};
 
-	private void simulateBold( PdfContentByte cb, int fontWeight )
+	private void simulateBold( PdfContentByte cb, int fontWeight, Color color )
 	{
-		cb.setTextRenderingMode( PdfContentByte.TEXT_RENDER_MODE_FILL_STROKE );
+		setTextRenderingMode( PdfContentByte.TEXT_RENDER_MODE_FILL_STROKE );
+		setColorStroke( color );
 		if ( fontWeightLineWidthMap.containsKey( fontWeight ) )
 		{
-			cb.setLineWidth( fontWeightLineWidthMap.get( fontWeight ) );
+			setLineWidth( fontWeightLineWidthMap.get( fontWeight ) );
 		}
 		else
 		{
-			cb.setLineWidth( 0.225f );
+			setLineWidth( 0.225f );
 		}
-		cb.setTextMatrix( 0, 0 );
 	}
 
-	private void simulateItalic( PdfContentByte cb )
+	private void simulateItalic( PdfContentByte cb, float x, float y )
 	{
 		float beta = EmitterUtil.ITALIC_HORIZONTAL_COEFFICIENT;
-		cb.setTextMatrix( 1, 0, beta, 1, 0, 0 );
+		cb.setTextMatrix( 1, 0, beta, 1, x, y );
 	}
 
 	public void showHelpText( String helpText, float x, float y, float width,
@@ -772,4 +853,54 @@ public class PDFPage extends AbstractPage
 		g2D.dispose( );
 		return template;
 	}
+
+	/**
+	 * The graphic state which is tracked to avoid outputting the operators
+	 * which don't change the state.
+	 */
+	private static class GraphicState
+	{
+
+		Color fillColor = Color.BLACK;
+		Color strokeColor = Color.BLACK;
+		float lineWidth = 1f;
+		BaseFont font;
+		float fontSize;
+		float characterSpacing;
+		float wordSpacing;
+		int textRenderingMode = PdfContentByte.TEXT_RENDER_MODE_FILL;
+
+		GraphicState( )
+		{
+		}
+
+		/**
+		 * Creates a state of which no value is known, so the operators
+		 * setting the values are always output.
+		 */
+		static GraphicState createUnknownState( )
+		{
+			GraphicState state = new GraphicState( );
+			state.fillColor = null;
+			state.strokeColor = null;
+			state.lineWidth = Float.NaN;
+			state.fontSize = Float.NaN;
+			state.characterSpacing = Float.NaN;
+			state.wordSpacing = Float.NaN;
+			state.textRenderingMode = -1;
+			return state;
+		}
+
+		GraphicState( GraphicState state )
+		{
+			fillColor = state.fillColor;
+			strokeColor = state.strokeColor;
+			lineWidth = state.lineWidth;
+			font = state.font;
+			fontSize = state.fontSize;
+			characterSpacing = state.characterSpacing;
+			wordSpacing = state.wordSpacing;
+			textRenderingMode = state.textRenderingMode;
+		}
+	}
 }
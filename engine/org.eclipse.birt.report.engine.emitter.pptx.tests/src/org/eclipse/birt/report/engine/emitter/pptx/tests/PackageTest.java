@@ -0,0 +1,209 @@
+/*******************************************************************************
+ * Copyright (c) 2013 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.engine.emitter.pptx.tests;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import org.eclipse.birt.report.engine.ooxml.Package;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class PackageTest
+{
+
+	private static final String CONTENT_TYPE = "application/xml";
+
+	private static final String RELATIONSHIP_TYPE = "http://www.eclipse.org/birt/test";
+
+	private File tempDir;
+
+	private ByteArrayOutputStream output;
+
+	private Package pkg;
+
+	@Before
+	public void setUp( )
+	{
+		tempDir = new File( System.getProperty( "java.io.tmpdir" ),
+				"BIRT_OOXML_PackageTest" );
+		tempDir.mkdirs( );
+		output = new ByteArrayOutputStream( );
+		pkg = Package.createInstance( output, tempDir.getPath( ),
+				Deflater.DEFAULT_COMPRESSION );
+	}
+
+	@After
+	public void tearDown( )
+	{
+		File[] files = tempDir.listFiles( );
+		if ( files != null )
+		{
+			for ( File file : files )
+			{
+				file.delete( );
+			}
+		}
+		tempDir.delete( );
+	}
+
+	@Test
+	public void testConcurrentWriters( ) throws IOException
+	{
+		byte[][] data = new byte[][]{createData( 10000, 1 ),
+				createData( 20000, 2 ), createData( 30000, 3 )};
+		OutputStream[] streams = new OutputStream[data.length];
+		for ( int i = 0; i < streams.length; i++ )
+		{
+			streams[i] = createStream( "part" + i + ".xml" );
+		}
+		// the parts are written by turns
+		for ( int offset = 0; offset < 30000; offset += 1000 )
+		{
+			for ( int i = 0; i < streams.length; i++ )
+			{
+				if ( offset < data[i].length )
+				{
+					streams[i].write( data[i], offset, 1000 );
+				}
+			}
+		}
+		streams[1].close( );
+		streams[0].close( );
+		streams[2].close( );
+		pkg.close( );
+
+		Map<String, byte[]> entries = readEntries( );
+		for ( int i = 0; i < data.length; i++ )
+		{
+			assertArrayEquals( data[i], entries.get( "part" + i + ".xml" ) );
+		}
+	}
+
+	@Test
+	public void testSpill( ) throws IOException
+	{
+		// larger than the max size of the buffer in memory
+		byte[] data = createData( 1024 * 1024, 5 );
+		OutputStream direct = createStream( "direct.xml" );
+		OutputStream buffered = createStream( "buffered.xml" );
+		direct.write( data, 0, 100 );
+		for ( int offset = 0; offset < data.length; offset += 4096 )
+		{
+			buffered.write( data, offset, 4096 );
+		}
+		assertEquals( 1, tempDir.listFiles( ).length );
+		buffered.close( );
+		direct.close( );
+		// the temp file is removed once it is copied into the package
+		assertEquals( 0, tempDir.listFiles( ).length );
+		pkg.close( );
+
+		Map<String, byte[]> entries = readEntries( );
+		assertArrayEquals( data, entries.get( "buffered.xml" ) );
+		assertEquals( 100, entries.get( "direct.xml" ).length );
+	}
+
+	@Test
+	public void testUnclosedParts( ) throws IOException
+	{
+		byte[] data1 = createData( 1000, 7 );
+		byte[] data2 = createData( 2000, 11 );
+		OutputStream stream1 = createStream( "unclosed1.xml" );
+		OutputStream stream2 = createStream( "unclosed2.xml" );
+		stream1.write( data1 );
+		stream2.write( data2 );
+		pkg.close( );
+
+		Map<String, byte[]> entries = readEntries( );
+		assertArrayEquals( data1, entries.get( "unclosed1.xml" ) );
+		assertArrayEquals( data2, entries.get( "unclosed2.xml" ) );
+		assertTrue( entries.containsKey( "[Content_Types].xml" ) );
+		assertTrue( entries.containsKey( "_rels/.rels" ) );
+		assertEquals( 0, tempDir.listFiles( ).length );
+	}
+
+	@Test
+	public void testWriteClosedPart( ) throws IOException
+	{
+		OutputStream stream = createStream( "closed.xml" );
+		stream.close( );
+		try
+		{
+			stream.write( 0 );
+			fail( );
+		}
+		catch ( IOException e )
+		{
+		}
+		pkg.close( );
+	}
+
+	private OutputStream createStream( String uri ) throws IOException
+	{
+		return pkg.getPart( uri, CONTENT_TYPE, RELATIONSHIP_TYPE )
+				.getCacheOutputStream( );
+	}
+
+	private byte[] createData( int length, int seed )
+	{
+		byte[] data = new byte[length];
+		for ( int i = 0; i < length; i++ )
+		{
+			data[i] = (byte) ( i * seed + i / 256 );
+		}
+		return data;
+	}
+
+	private Map<String, byte[]> readEntries( ) throws IOException
+	{
+		Map<String, byte[]> entries = new HashMap<String, byte[]>( );
+		ZipInputStream in = new ZipInputStream( new ByteArrayInputStream(
+				output.toByteArray( ) ) );
+		try
+		{
+			ZipEntry entry = in.getNextEntry( );
+			while ( entry != null )
+			{
+				ByteArrayOutputStream data = new ByteArrayOutputStream( );
+				byte[] buffer = new byte[4096];
+				int length = in.read( buffer );
+				while ( length != -1 )
+				{
+					data.write( buffer, 0, length );
+					length = in.read( buffer );
+				}
+				entries.put( entry.getName( ), data.toByteArray( ) );
+				entry = in.getNextEntry( );
+			}
+		}
+		finally
+		{
+			in.close( );
+		}
+		return entries;
+	}
+}
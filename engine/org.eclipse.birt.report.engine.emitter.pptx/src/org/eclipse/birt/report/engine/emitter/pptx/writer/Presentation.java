@@ -15,6 +15,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 
@@ -82,15 +83,6 @@ public class Presentation extends Component
 		bmkmanager = new PPTXBookmarkManager( );
 		this.part = pkg.getPart( uri, type, relationshipType );
 		pkg.setExtensionData( new ImageManager() );
-		try
-		{
-			writer = part.getCacheWriter( );
-			initialize( );
-		}
-		catch ( IOException e )
-		{
-			e.printStackTrace( );
-		}
 	}
 
 	public SlideMaster getSlideMaster( String name ) throws IOException
@@ -107,23 +99,35 @@ public class Presentation extends Component
 		return slideMaster;
 	}
 
-	private void outputSlideMasters() throws IOException
+	private List<Long> closeSlideMasters( ) throws IOException
 	{
-		writer.openTag( TAG_SLIDE_MASTER_ID_LIST );
-		for (Map.Entry<String, SlideMaster> entry : slideMasters.entrySet())
+		List<Long> ids = new ArrayList<Long>( );
+		for ( Map.Entry<String, SlideMaster> entry : slideMasters.entrySet( ) )
 		{
-			SlideMaster slideMaster = entry.getValue();
-			writer.openTag( TAG_SLIDE_MASTER_ID );
-			writer.attribute( TAG_ID, String.valueOf( getNextGlobalId() ) );
-			writer.attribute( TAG_RELATIONSHIP_ID, slideMaster.getPart( )
-					.getRelationshipId( ) );
-			writer.closeTag( TAG_SLIDE_MASTER_ID );
+			SlideMaster slideMaster = entry.getValue( );
+			ids.add( getNextGlobalId( ) );
 			if ( render.isEditMode( ) )
 			{
 				new SlideWriter( render ).writeSlideMaster( slideMaster );
 			}
 			slideMaster.close( );
 		}
+		return ids;
+	}
+
+	private void outputSlideMasters( List<Long> ids ) throws IOException
+	{
+		writer.openTag( TAG_SLIDE_MASTER_ID_LIST );
+		Iterator<Long> idIter = ids.iterator( );
+		for ( Map.Entry<String, SlideMaster> entry : slideMasters.entrySet( ) )
+		{
+			SlideMaster slideMaster = entry.getValue( );
+			writer.openTag( TAG_SLIDE_MASTER_ID );
+			writer.attribute( TAG_ID, String.valueOf( idIter.next( ) ) );
+			writer.attribute( TAG_RELATIONSHIP_ID, slideMaster.getPart( )
+					.getRelationshipId( ) );
+			writer.closeTag( TAG_SLIDE_MASTER_ID );
+		}
 		writer.closeTag( TAG_SLIDE_MASTER_ID_LIST );
 	}
 
@@ -178,7 +182,13 @@ public class Presentation extends Component
 	public void close( ) throws IOException
 	{
 		new Core( this, author, title, description, subject );
-		outputSlideMasters();
+		List<Long> slideMasterIds = closeSlideMasters( );
+		// the presentation is written after the slides and the slide masters
+		// are closed, so they are written into the package directly instead
+		// of being buffered while the presentation is open.
+		writer = part.getCacheWriter( );
+		initialize( );
+		outputSlideMasters( slideMasterIds );
 		outputSlides( );
 		writer.openTag( TAG_SLIDE_SZ );
 		// Set default page size to A4.
@@ -202,12 +212,12 @@ public class Presentation extends Component
 		writer.attribute( TAG_CY, convertedWidth );
 		writer.closeTag( TAG_NOTES_SZ );
 		writer.closeTag( "p:presentation" );
+		writer.close( );
 		
 		copyPropertyFile( "viewProps" );
 		copyPropertyFile( "tableStyles" );
 		copyPropertyFile( "presProps" );
 	    
-		writer.close( );
 		pkg.close( );
 	}
 
@@ -11,65 +11,75 @@
 
 package org.eclipse.birt.report.engine.ooxml;
 
+import java.io.BufferedOutputStream;
 import java.io.File;
-import java.io.FilterOutputStream;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.List;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
-import org.eclipse.birt.core.archive.compound.ArchiveFile;
-import org.eclipse.birt.core.archive.compound.ArchiveWriter;
+import org.eclipse.birt.report.engine.i18n.EngineResourceHandle;
+import org.eclipse.birt.report.engine.i18n.MessageConstants;
 import org.eclipse.birt.report.engine.ooxml.constants.NameSpaces;
 import org.eclipse.birt.report.engine.ooxml.writer.OOXmlWriter;
 
-
+/**
+ * The package writes the parts into the zip stream directly.
+ * 
+ * Only one part can be written into the zip stream at a time. The parts
+ * written while the zip stream is used by another part are buffered, in
+ * memory first and in a temp file once they grow larger than
+ * MAX_BUFFER_SIZE. The buffered parts are copied into the zip stream as soon
+ * as they are closed and the zip stream is free. The relationships and the
+ * content types are kept in memory and written when the package is closed.
+ */
 public class Package extends PartContainer
 {
 	private static Logger logger = Logger.getLogger( Package.class.getName( ) );
 
+	/**
+	 * the max size of the part data buffered in memory.
+	 */
+	static final int MAX_BUFFER_SIZE = 256 * 1024;
+
 	private List<ContentType> contents = new ArrayList<ContentType>( );
 
-	private String tempFileName;
-	private ArchiveWriter archiveWriter;
-	private ArchiveFile archive;
+	private String tempFileDir;
 
 	private Object data;
 
 	private ZipOutputStream zipStream;
-	
-	private boolean hasEntryWriter = false;
-	
+
+	/**
+	 * the part stream which is writing into the zip stream.
+	 */
+	private PartOutputStream entryStream;
+
+	/**
+	 * the buffered part streams which are not written into the zip stream.
+	 */
+	private List<PartOutputStream> bufferedStreams = new ArrayList<PartOutputStream>( );
+
 	public static Package createInstance( OutputStream out, String tempFileDir,
 			int compressionMode )
 	{
-		try
-		{
-			File tempFile = File.createTempFile("BIRT_OOXML_Temp_", "", new File(tempFileDir));
-			return new Package( tempFile.getAbsolutePath(), out, compressionMode);
-		}
-		catch ( IOException e )
-		{
-			logger.log( Level.SEVERE, e.getLocalizedMessage( ), e );
-		}
-		return null;
+		return new Package( tempFileDir, out, compressionMode );
 	}
 
-	private Package( String tempFileName, OutputStream out, int compressionMode )
-			throws IOException
+	private Package( String tempFileDir, OutputStream out, int compressionMode )
 	{
 		super( "/" );
-		
-		this.tempFileName = tempFileName;
-		this.archive = new ArchiveFile( tempFileName, "rw" );
-		this.archive.setCacheSize( 4084 );
-		this.archiveWriter = new ArchiveWriter(archive);
+
+		this.tempFileDir = tempFileDir;
 		zipStream = new ZipOutputStream( out );
 		zipStream.setLevel( compressionMode );
 		addContentType( MimeType.RELS );
@@ -89,15 +99,12 @@ public class Package extends PartContainer
 
 	OutputStream getOutputStream( String uri ) throws IOException
 	{
-		return archiveWriter.getOutputStream( uri );
+		return getFinalOutputStream( uri );
 	}
 
 	OOXmlWriter getTempWriter( String uri ) throws IOException
 	{
-		OutputStream out = getOutputStream( uri );
-		OOXmlWriter writer = new OOXmlWriter( );
-		writer.open( out, "UTF-8" );
-		return writer;
+		return getEntryWriter( uri );
 	}
 
 	void addContentType( ContentType contentType )
@@ -108,16 +115,20 @@ public class Package extends PartContainer
 		}
 	}
 
-	private InputStream getInputStream( String uri )
-			throws IOException
-	{
-		return archiveWriter.getInputStream( uri );
-	}
-
 	private void save( ) throws IOException
 	{
 		try
 		{
+			// write the parts whose writers are not closed
+			if ( entryStream == null )
+			{
+				writeBufferedStreams( );
+			}
+			while ( entryStream != null )
+			{
+				entryStream.close( );
+			}
+
 			outputRelationships( );
 			outputContentTypes( );
 
@@ -130,6 +141,11 @@ public class Package extends PartContainer
 		}
 		finally
 		{
+			for ( PartOutputStream stream : bufferedStreams )
+			{
+				stream.release( );
+			}
+			bufferedStreams.clear( );
 			if ( zipStream != null )
 			{
 				zipStream.close( );
@@ -151,7 +167,6 @@ public class Package extends PartContainer
 	private void writePart( Part part ) throws IOException
 	{
 		part.outputRelationships( );
-		writePartData( part );
 		Collection<IPart> children = part.getParts( );
 		for ( IPart child : children )
 		{
@@ -162,34 +177,27 @@ public class Package extends PartContainer
 		}
 	}
 
-	private void writePartData( Part part )
-			throws IOException
+	/**
+	 * writes the closed buffered streams into the zip stream, then the first
+	 * opened buffered stream continues to write into the zip stream directly.
+	 */
+	private void writeBufferedStreams( ) throws IOException
 	{
-		if ( !part.isCached( ) )
-		{
-			return;
-		}
-		InputStream inStream = null;
-		try
+		Iterator<PartOutputStream> iter = bufferedStreams.iterator( );
+		while ( iter.hasNext( ) )
 		{
-			String uri = part.getAbsoluteUri( ).toString( );
-			inStream = getInputStream( uri );
-			zipStream.putNextEntry( new ZipEntry( uri.substring( 1 ) ) );
-
-			int length = -1;
-			byte[] buff = new byte[4096];
-			while ( ( length = inStream.read( buff ) ) != -1 )
+			PartOutputStream stream = iter.next( );
+			if ( stream.closed )
 			{
-				zipStream.write( buff, 0, length );
+				iter.remove( );
+				stream.writeBuffer( );
+				zipStream.closeEntry( );
+				entryStream = null;
 			}
-			zipStream.closeEntry( );
 		}
-		finally
+		if ( !bufferedStreams.isEmpty( ) )
 		{
-			if (inStream != null )
-			{
-				inStream.close( );
-			}
+			bufferedStreams.remove( 0 ).writeBuffer( );
 		}
 	}
 
@@ -220,13 +228,6 @@ public class Package extends PartContainer
 	public void close( ) throws IOException
 	{
 		save( );
-		archiveWriter.finish( );
-		archive.close( );
-		File file = new File( tempFileName );
-		if ( file.exists( ) && file.isFile( ) )
-		{
-			file.delete( );
-		}
 	}
 	
 	public Object getExtensionData( )
@@ -253,46 +254,181 @@ public class Package extends PartContainer
 	OutputStream getFinalOutputStream( String entry ) throws IOException
 	{
 		assert( entry != null && entry.length( ) > 0 );
-		return new FinalOutputStream( entry.substring( 1 ) );
+		return new PartOutputStream( entry.substring( 1 ) );
 	}
 
-	private class FinalOutputStream extends FilterOutputStream
+	/**
+	 * The output stream of a part. It writes into the zip stream directly if
+	 * the zip stream is free, otherwise the data is buffered until the zip
+	 * stream is free.
+	 */
+	private class PartOutputStream extends OutputStream
 	{
 
-		public FinalOutputStream( String entry ) throws IOException
+		private String entry;
+
+		private boolean direct;
+
+		private boolean closed;
+
+		private byte[] buffer;
+
+		private int count;
+
+		private File tempFile;
+
+		private OutputStream tempStream;
+
+		public PartOutputStream( String entry ) throws IOException
 		{
-			super( zipStream );
-			if ( hasEntryWriter )
+			this.entry = entry;
+			if ( entryStream == null )
 			{
-				throw new RuntimeException(
-				"It is not allowed to open more than 1 entry writers concurrently." );
+				zipStream.putNextEntry( new ZipEntry( entry ) );
+				entryStream = this;
+				direct = true;
 			}
-			hasEntryWriter = true;
-			
-			zipStream.putNextEntry( new ZipEntry( entry ) );
+			else
+			{
+				buffer = new byte[4096];
+				bufferedStreams.add( this );
+			}
+		}
+
+		public void write( int b ) throws IOException
+		{
+			write( new byte[]{(byte) b}, 0, 1 );
 		}
 
 		/**
-		 * @see java.io.FilterOutputStream#write(byte[], int, int)
+		 * @see java.io.OutputStream#write(byte[], int, int)
 		 */
 		public void write( byte[] b, int off, int len ) throws IOException
 		{
-			// call zipstream directly.
-			// if we don't, then FilterOutputStream will call write(int) byte by byte
-			zipStream.write( b, off, len );
+			if ( closed )
+			{
+				throw new IOException( EngineResourceHandle.getInstance( )
+						.getMessage( MessageConstants.STREAM_CLOSED,
+								new Object[]{entry} ) );
+			}
+			if ( direct )
+			{
+				// call zipstream directly.
+				zipStream.write( b, off, len );
+			}
+			else if ( tempStream != null )
+			{
+				tempStream.write( b, off, len );
+			}
+			else if ( count + len > MAX_BUFFER_SIZE )
+			{
+				tempFile = File.createTempFile( "BIRT_OOXML_Temp_", "",
+						new File( tempFileDir ) );
+				tempStream = new BufferedOutputStream( new FileOutputStream(
+						tempFile ) );
+				tempStream.write( buffer, 0, count );
+				tempStream.write( b, off, len );
+				buffer = null;
+				count = 0;
+			}
+			else
+			{
+				if ( count + len > buffer.length )
+				{
+					byte[] newBuffer = new byte[Math.min( MAX_BUFFER_SIZE,
+							Math.max( buffer.length * 2, count + len ) )];
+					System.arraycopy( buffer, 0, newBuffer, 0, count );
+					buffer = newBuffer;
+				}
+				System.arraycopy( b, off, buffer, count, len );
+				count += len;
+			}
+		}
+
+		/**
+		 * writes the buffered data into the zip stream, the stream writes into
+		 * the zip stream directly from now on.
+		 */
+		void writeBuffer( ) throws IOException
+		{
+			zipStream.putNextEntry( new ZipEntry( entry ) );
+			entryStream = this;
+			direct = true;
+			if ( tempStream != null )
+			{
+				tempStream.close( );
+				tempStream = null;
+				InputStream in = new FileInputStream( tempFile );
+				try
+				{
+					byte[] buff = new byte[4096];
+					int length = -1;
+					while ( ( length = in.read( buff ) ) != -1 )
+					{
+						zipStream.write( buff, 0, length );
+					}
+				}
+				finally
+				{
+					in.close( );
+				}
+			}
+			else
+			{
+				zipStream.write( buffer, 0, count );
+			}
+			release( );
 		}
 
-		public void close( )
+		public void close( ) throws IOException
 		{
-			hasEntryWriter = false;
-			try
+			if ( closed )
+			{
+				return;
+			}
+			closed = true;
+			if ( direct )
 			{
-				zipStream.flush( );
 				zipStream.closeEntry( );
+				entryStream = null;
+				writeBufferedStreams( );
+			}
+			else
+			{
+				if ( tempStream != null )
+				{
+					tempStream.flush( );
+				}
+				if ( entryStream == null )
+				{
+					writeBufferedStreams( );
+				}
+			}
+		}
+
+		void release( )
+		{
+			buffer = null;
+			count = 0;
+			if ( tempStream != null )
+			{
+				try
+				{
+					tempStream.close( );
+				}
+				catch ( IOException e )
+				{
+					logger.log( Level.WARNING, e.getLocalizedMessage( ), e );
+				}
+				tempStream = null;
 			}
-			catch ( IOException e )
+			if ( tempFile != null )
 			{
-				logger.log( Level.SEVERE, e.getLocalizedMessage( ), e );
+				if ( tempFile.exists( ) && tempFile.isFile( ) )
+				{
+					tempFile.delete( );
+				}
+				tempFile = null;
 			}
 		}
 	}
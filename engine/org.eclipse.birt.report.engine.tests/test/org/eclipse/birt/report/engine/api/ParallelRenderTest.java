@@ -0,0 +1,196 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.engine.api;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.birt.report.engine.EngineCase;
+
+import com.lowagie.text.pdf.PdfReader;
+import com.lowagie.text.pdf.SimpleBookmark;
+import com.lowagie.text.pdf.SimpleNamedDestination;
+
+/**
+ * renders the page ranges of a document in several threads and compares the
+ * merged PDF with the one rendered in one thread.
+ */
+public class ParallelRenderTest extends EngineCase
+{
+
+	static final String REPORT_DESIGN_RESOURCE = "org/eclipse/birt/report/engine/api/parallel_render_design.xml";
+
+	static final int PAGE_COUNT = 7;
+
+	public void setUp( ) throws Exception
+	{
+		super.setUp( );
+		removeFile( REPORT_DOCUMENT );
+		removeFile( REPORT_DESIGN );
+		copyResource( REPORT_DESIGN_RESOURCE, REPORT_DESIGN );
+		createReportDocument( );
+	}
+
+	public void tearDown( ) throws Exception
+	{
+		removeFile( REPORT_DESIGN );
+		removeFile( REPORT_DOCUMENT );
+		super.tearDown( );
+	}
+
+	public void testAllPages( ) throws Exception
+	{
+		PdfReader sequential = new PdfReader( render( null, 0 ) );
+		PdfReader parallel = new PdfReader( render( null, 3 ) );
+		assertEquals( PAGE_COUNT, sequential.getNumberOfPages( ) );
+		assertSamePdf( sequential, parallel );
+
+		// each page holds the destination and the bookmark of its label
+		Map<String, Integer> destinations = getDestinations( parallel );
+		for ( int i = 1; i <= PAGE_COUNT; i++ )
+		{
+			assertEquals( Integer.valueOf( i ), destinations.get( "page" + i ) );
+		}
+		List<String> bookmarks = getBookmarks( parallel, destinations );
+		for ( int i = 1; i <= PAGE_COUNT; i++ )
+		{
+			assertTrue( bookmarks.contains( "Page " + i + ":" + i ) );
+		}
+	}
+
+	public void testPageRanges( ) throws Exception
+	{
+		String pageRange = "2-3,5-7";
+		PdfReader sequential = new PdfReader( render( pageRange, 0 ) );
+		PdfReader parallel = new PdfReader( render( pageRange, 2 ) );
+		assertEquals( 5, sequential.getNumberOfPages( ) );
+		assertSamePdf( sequential, parallel );
+	}
+
+	private void assertSamePdf( PdfReader expected, PdfReader actual )
+			throws Exception
+	{
+		assertEquals( expected.getNumberOfPages( ), actual
+				.getNumberOfPages( ) );
+		// the pages must be merged in the order of the page ranges
+		for ( int i = 1; i <= expected.getNumberOfPages( ); i++ )
+		{
+			assertEquals( new String( expected.getPageContent( i ),
+					"ISO-8859-1" ), new String( actual.getPageContent( i ),
+					"ISO-8859-1" ) );
+		}
+		Map<String, Integer> destinations = getDestinations( expected );
+		assertEquals( destinations, getDestinations( actual ) );
+		assertEquals( getBookmarks( expected, destinations ), getBookmarks(
+				actual, getDestinations( actual ) ) );
+	}
+
+	private byte[] render( String pageRange, int threads ) throws Exception
+	{
+		IReportDocument document = engine.openReportDocument( REPORT_DOCUMENT );
+		try
+		{
+			IRenderTask task = engine.createRenderTask( document );
+			try
+			{
+				ByteArrayOutputStream out = new ByteArrayOutputStream( );
+				IRenderOption options = new PDFRenderOption( );
+				options.setOutputFormat( "pdf" );
+				options.setOutputStream( out );
+				if ( threads > 0 )
+				{
+					options.setOption( IRenderOption.RENDER_THREADS, Integer
+							.valueOf( threads ) );
+				}
+				task.setRenderOption( options );
+				if ( pageRange != null )
+				{
+					task.setPageRange( pageRange );
+				}
+				task.render( );
+				assertTrue( task.getErrors( ).isEmpty( ) );
+				return out.toByteArray( );
+			}
+			finally
+			{
+				task.close( );
+			}
+		}
+		finally
+		{
+			document.close( );
+		}
+	}
+
+	/**
+	 * @return the page number of each named destination.
+	 */
+	private Map<String, Integer> getDestinations( PdfReader reader )
+	{
+		Map<String, Integer> pages = new HashMap<String, Integer>( );
+		Map<?, ?> destinations = SimpleNamedDestination.getNamedDestination(
+				reader, false );
+		for ( Map.Entry<?, ?> entry : destinations.entrySet( ) )
+		{
+			pages.put( (String) entry.getKey( ), getPageNumber( (String) entry
+					.getValue( ) ) );
+		}
+		return pages;
+	}
+
+	/**
+	 * @return the bookmarks in the outline order as "title:page".
+	 */
+	private List<String> getBookmarks( PdfReader reader,
+			Map<String, Integer> destinations )
+	{
+		List<String> bookmarks = new ArrayList<String>( );
+		List<?> outline = SimpleBookmark.getBookmark( reader );
+		if ( outline != null )
+		{
+			collectBookmarks( outline, destinations, bookmarks );
+		}
+		return bookmarks;
+	}
+
+	private void collectBookmarks( List<?> outline,
+			Map<String, Integer> destinations, List<String> bookmarks )
+	{
+		for ( Object item : outline )
+		{
+			Map<?, ?> bookmark = (Map<?, ?>) item;
+			Integer page = null;
+			if ( bookmark.get( "Page" ) != null )
+			{
+				page = getPageNumber( (String) bookmark.get( "Page" ) );
+			}
+			else if ( bookmark.get( "Named" ) != null )
+			{
+				page = destinations.get( bookmark.get( "Named" ) );
+			}
+			bookmarks.add( bookmark.get( "Title" ) + ":" + page );
+			List<?> kids = (List<?>) bookmark.get( "Kids" );
+			if ( kids != null )
+			{
+				collectBookmarks( kids, destinations, bookmarks );
+			}
+		}
+	}
+
+	private Integer getPageNumber( String destination )
+	{
+		return Integer.valueOf( destination.trim( ).split( " " )[0] );
+	}
+}
@@ -0,0 +1,256 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.engine.api.impl;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Locale;
+
+import junit.framework.TestCase;
+
+import org.eclipse.birt.report.engine.api.IEngineTask;
+import org.eclipse.birt.report.engine.i18n.EngineResourceHandle;
+import org.eclipse.birt.report.engine.i18n.MessageConstants;
+
+import com.ibm.icu.util.ULocale;
+
+/**
+ * Tests the outputs of the page ranges read by the merger while the ranges
+ * are still being rendered.
+ */
+public class ParallelPageRangeRenderTest extends TestCase
+{
+
+	private volatile boolean cancelled;
+
+	private IEngineTask task;
+
+	private File[] outputs;
+
+	protected void setUp( ) throws Exception
+	{
+		cancelled = false;
+		task = (IEngineTask) Proxy.newProxyInstance( IEngineTask.class
+				.getClassLoader( ), new Class[]{IEngineTask.class},
+				new InvocationHandler( ) {
+
+					public Object invoke( Object proxy, Method method,
+							Object[] args )
+					{
+						String name = method.getName( );
+						if ( "getCancelFlag".equals( name ) )
+						{
+							return Boolean.valueOf( cancelled );
+						}
+						if ( "cancel".equals( name ) )
+						{
+							cancelled = true;
+							return null;
+						}
+						if ( "getULocale".equals( name ) )
+						{
+							return ULocale.ENGLISH;
+						}
+						if ( "getLocale".equals( name ) )
+						{
+							return Locale.ENGLISH;
+						}
+						throw new UnsupportedOperationException( name );
+					}
+				} );
+		outputs = new File[2];
+		for ( int i = 0; i < outputs.length; i++ )
+		{
+			outputs[i] = File.createTempFile( "range", ".tmp" );
+		}
+	}
+
+	protected void tearDown( ) throws Exception
+	{
+		for ( int i = 0; i < outputs.length; i++ )
+		{
+			outputs[i].delete( );
+		}
+	}
+
+	public void testWorkerFailure( ) throws Exception
+	{
+		final Throwable[] errors = new Throwable[2];
+		final RuntimeException failure = new RuntimeException( "failure" );
+		Thread[] threads = new Thread[]{new Thread( ) {
+
+			public void run( )
+			{
+				writeOutput( 0, "range0" );
+			}
+		}, new Thread( ) {
+
+			public void run( )
+			{
+				// fails after the first range is merged
+				pause( 200 );
+				errors[1] = failure;
+			}
+		}};
+		threads[0].start( );
+		threads[1].start( );
+
+		InputStream in0 = new ParallelPageRangeRender.RangeInputStream( task,
+				threads[0], outputs[0], errors, 0 );
+		InputStream in1 = new ParallelPageRangeRender.RangeInputStream( task,
+				threads[1], outputs[1], errors, 1 );
+		assertEquals( "range0", readOutput( in0 ) );
+		try
+		{
+			in1.read( );
+			fail( );
+		}
+		catch ( IOException ex )
+		{
+			assertSame( failure, ex.getCause( ) );
+		}
+		in0.close( );
+		in1.close( );
+	}
+
+	public void testCancelWhileWaiting( ) throws Exception
+	{
+		Thread worker = createCancellableWorker( );
+		worker.start( );
+		new Thread( ) {
+
+			public void run( )
+			{
+				pause( 200 );
+				task.cancel( );
+			}
+		}.start( );
+
+		InputStream in = new ParallelPageRangeRender.RangeInputStream( task,
+				worker, outputs[0], new Throwable[1], 0 );
+		try
+		{
+			in.read( );
+			fail( );
+		}
+		catch ( InterruptedIOException ex )
+		{
+			fail( );
+		}
+		catch ( IOException ex )
+		{
+			assertEquals( new EngineResourceHandle( ULocale.ENGLISH )
+					.getMessage( MessageConstants.TASK_CANCEL ), ex
+					.getMessage( ) );
+		}
+		assertFalse( worker.isAlive( ) );
+		in.close( );
+	}
+
+	public void testInterruptWhileWaiting( ) throws Exception
+	{
+		Thread worker = createCancellableWorker( );
+		worker.start( );
+		final Thread merger = Thread.currentThread( );
+		new Thread( ) {
+
+			public void run( )
+			{
+				pause( 200 );
+				merger.interrupt( );
+			}
+		}.start( );
+
+		InputStream in = new ParallelPageRangeRender.RangeInputStream( task,
+				worker, outputs[0], new Throwable[1], 0 );
+		try
+		{
+			in.read( );
+			fail( );
+		}
+		catch ( InterruptedIOException ex )
+		{
+			// the task is cancelled and the worker is stopped
+			assertTrue( cancelled );
+			assertFalse( worker.isAlive( ) );
+			assertTrue( Thread.interrupted( ) );
+		}
+		in.close( );
+	}
+
+	/**
+	 * creates a worker which runs until the task is cancelled.
+	 */
+	private Thread createCancellableWorker( )
+	{
+		return new Thread( ) {
+
+			public void run( )
+			{
+				while ( !cancelled )
+				{
+					pause( 10 );
+				}
+			}
+		};
+	}
+
+	private void writeOutput( int index, String content )
+	{
+		try
+		{
+			FileOutputStream out = new FileOutputStream( outputs[index] );
+			try
+			{
+				out.write( content.getBytes( "UTF-8" ) );
+			}
+			finally
+			{
+				out.close( );
+			}
+		}
+		catch ( IOException ex )
+		{
+			throw new RuntimeException( ex );
+		}
+	}
+
+	private String readOutput( InputStream in ) throws IOException
+	{
+		StringBuffer buffer = new StringBuffer( );
+		int ch = in.read( );
+		while ( ch != -1 )
+		{
+			buffer.append( (char) ch );
+			ch = in.read( );
+		}
+		return buffer.toString( );
+	}
+
+	private static void pause( long millis )
+	{
+		try
+		{
+			Thread.sleep( millis );
+		}
+		catch ( InterruptedException ex )
+		{
+			Thread.currentThread( ).interrupt( );
+		}
+	}
+}
@@ -0,0 +1,93 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.engine.api.impl;
+
+import java.io.File;
+
+import org.eclipse.birt.report.engine.EngineCase;
+import org.eclipse.birt.report.engine.api.EngineConfig;
+import org.eclipse.birt.report.engine.api.IReportRunnable;
+
+public class ReportDesignCacheTest extends EngineCase
+{
+
+	static final String REPORT_DESIGN_RESOURCE = "org/eclipse/birt/report/engine/api/impl/test.xml"; //$NON-NLS-1$
+	static final String REPORT_DESIGN = "ReportDesignCacheTest.rptdesign"; //$NON-NLS-1$
+
+	protected ReportEngine cachedEngine;
+
+	public void setUp( ) throws Exception
+	{
+		super.setUp( );
+		copyResource( REPORT_DESIGN_RESOURCE, REPORT_DESIGN );
+		EngineConfig config = new EngineConfig( );
+		config.setDesignCacheSize( 4 );
+		cachedEngine = new ReportEngine( config );
+	}
+
+	public void tearDown( ) throws Exception
+	{
+		cachedEngine.destroy( );
+		removeFile( REPORT_DESIGN );
+		super.tearDown( );
+	}
+
+	public void testCachedDesign( ) throws Exception
+	{
+		ReportRunnable runnable1 = (ReportRunnable) cachedEngine
+				.openReportDesign( REPORT_DESIGN );
+		ReportRunnable runnable2 = (ReportRunnable) cachedEngine
+				.openReportDesign( REPORT_DESIGN );
+		// each open gets its own design
+		assertTrue( runnable1 != runnable2 );
+		assertTrue( runnable1.getDesignHandle( ) != runnable2
+				.getDesignHandle( ) );
+		assertEquals( runnable1.getReportName( ), runnable2.getReportName( ) );
+		// but the compiled scripts are shared
+		assertTrue( runnable1.getScriptCache( ) == runnable2.getScriptCache( ) );
+	}
+
+	public void testChangedDesign( ) throws Exception
+	{
+		ReportRunnable runnable1 = (ReportRunnable) cachedEngine
+				.openReportDesign( REPORT_DESIGN );
+		File file = new File( REPORT_DESIGN );
+		file.setLastModified( file.lastModified( ) - 10000 );
+		ReportRunnable runnable2 = (ReportRunnable) cachedEngine
+				.openReportDesign( REPORT_DESIGN );
+		assertTrue( runnable1.getScriptCache( ) != runnable2.getScriptCache( ) );
+	}
+
+	public void testInvalidateDesign( ) throws Exception
+	{
+		ReportRunnable runnable1 = (ReportRunnable) cachedEngine
+				.openReportDesign( REPORT_DESIGN );
+		cachedEngine.invalidateDesign( REPORT_DESIGN );
+		ReportRunnable runnable2 = (ReportRunnable) cachedEngine
+				.openReportDesign( REPORT_DESIGN );
+		assertTrue( runnable1.getScriptCache( ) != runnable2.getScriptCache( ) );
+		cachedEngine.clearDesignCache( );
+		IReportRunnable runnable3 = cachedEngine
+				.openReportDesign( REPORT_DESIGN );
+		assertTrue( runnable2.getScriptCache( ) != ( (ReportRunnable) runnable3 )
+				.getScriptCache( ) );
+	}
+
+	public void testDisabledCache( ) throws Exception
+	{
+		ReportRunnable runnable1 = (ReportRunnable) engine
+				.openReportDesign( REPORT_DESIGN );
+		ReportRunnable runnable2 = (ReportRunnable) engine
+				.openReportDesign( REPORT_DESIGN );
+		assertTrue( runnable1.getScriptCache( ) != runnable2.getScriptCache( ) );
+	}
+}
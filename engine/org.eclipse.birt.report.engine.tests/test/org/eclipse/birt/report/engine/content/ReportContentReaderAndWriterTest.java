@@ -15,15 +15,22 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
 
 import org.eclipse.birt.core.util.IOUtil;
 import org.eclipse.birt.report.engine.EngineCase;
+import org.eclipse.birt.report.engine.api.DataID;
+import org.eclipse.birt.report.engine.api.DataSetID;
+import org.eclipse.birt.report.engine.api.InstanceID;
 import org.eclipse.birt.report.engine.content.impl.ActionContent;
 import org.eclipse.birt.report.engine.content.impl.CellContent;
 import org.eclipse.birt.report.engine.content.impl.Column;
 import org.eclipse.birt.report.engine.content.impl.ContainerContent;
+import org.eclipse.birt.report.engine.content.impl.ContentInputStream;
+import org.eclipse.birt.report.engine.content.impl.ContentOutputStream;
 import org.eclipse.birt.report.engine.content.impl.DataContent;
 import org.eclipse.birt.report.engine.content.impl.ForeignContent;
 import org.eclipse.birt.report.engine.content.impl.ImageContent;
@@ -44,6 +51,7 @@ public class ReportContentReaderAndWriterTest extends EngineCase
 {
 
 	protected final int VERSION_1 = 1;
+	protected final int VERSION_2 = 2;
 
 	protected ReportContent reportContent = new ReportContent( );
 
@@ -372,6 +380,62 @@ public class ReportContentReaderAndWriterTest extends EngineCase
 		}
 	}
 
+	public void testCompactReadWriter( ) throws Exception
+	{
+		final ArrayList<Object> sharedKeys = new ArrayList<Object>( );
+		final ArrayList<byte[]> sharedValues = new ArrayList<byte[]>( );
+		DataSetID dataSetId = new DataSetID( "dataSet" );
+		InstanceID[] ids = new InstanceID[]{
+				new InstanceID( null, 10, 20, new DataID( dataSetId, 30 ) ),
+				new InstanceID( null, 11, 20, new DataID( dataSetId, "cell" ) ),
+				new InstanceID( null, 12, 20, null ),
+				new InstanceID( null, -2, 20, null )};
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream( );
+		ContentOutputStream oo = new ContentOutputStream( out ) {
+
+			protected long getReference( Object key, byte[] bytes )
+					throws IOException
+			{
+				int index = sharedKeys.indexOf( key );
+				if ( index == -1 )
+				{
+					index = sharedKeys.size( );
+					sharedKeys.add( key );
+					sharedValues.add( bytes );
+				}
+				return index;
+			}
+		};
+		for ( int i = 0; i < ids.length; i++ )
+		{
+			out.reset( );
+			TextContent src = createTextContent( );
+			src.setInstanceID( ids[i] );
+			src.setBookmark( "bookmark" + i );
+			src.writeContent( oo );
+			oo.flush( );
+
+			ContentInputStream oi = new ContentInputStream(
+					new ByteArrayInputStream( out.toByteArray( ) ) ) {
+
+				protected byte[] getSharedBytes( long reference )
+						throws IOException
+				{
+					return sharedValues.get( (int) reference );
+				}
+			};
+			TextContent tgt = (TextContent) reportContent.createTextContent( );
+			tgt.setVersion( VERSION_2 );
+			tgt.readContent( oi, null );
+			checkTextContent( tgt, src );
+			assertEquals( "bookmark" + i, tgt.getBookmark( ) );
+			assertEquals( ids[i].toString( ), tgt.getInstanceID( ).toString( ) );
+		}
+		// the name and the data set id are saved only once
+		assertEquals( 3, sharedKeys.size( ) );
+	}
+
 	protected byte[] doWrite( IContent content ) throws Exception
 	{
 		ByteArrayOutputStream out = new ByteArrayOutputStream( );
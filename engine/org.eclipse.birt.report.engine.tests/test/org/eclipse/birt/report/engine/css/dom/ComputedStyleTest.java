@@ -0,0 +1,55 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.engine.css.dom;
+
+import junit.framework.TestCase;
+
+import org.eclipse.birt.report.engine.content.IContainerContent;
+import org.eclipse.birt.report.engine.content.ILabelContent;
+import org.eclipse.birt.report.engine.content.IStyle;
+import org.eclipse.birt.report.engine.content.impl.ReportContent;
+
+public class ComputedStyleTest extends TestCase
+{
+
+	public void testInlineStyleCache( )
+	{
+		ReportContent report = new ReportContent( );
+		IContainerContent container = report.createContainerContent( );
+		ILabelContent label1 = createLabel( report, container, "bold" );
+		ILabelContent label2 = createLabel( report, container, "bold" );
+		ILabelContent label3 = createLabel( report, container, "normal" );
+
+		IStyle style1 = label1.getComputedStyle( );
+		assertEquals( "bold", style1.getFontWeight( ) );
+		// the same inline style shares the computed style
+		assertSame( style1, label2.getComputedStyle( ) );
+		assertNotSame( style1, label3.getComputedStyle( ) );
+		assertEquals( "normal", label3.getComputedStyle( ).getFontWeight( ) );
+
+		// changing the inline style doesn't change the shared style
+		label1.getStyle( ).setFontWeight( "normal" );
+		assertEquals( "normal", label1.getComputedStyle( ).getFontWeight( ) );
+		assertEquals( "bold", label2.getComputedStyle( ).getFontWeight( ) );
+		ILabelContent label4 = createLabel( report, container, "bold" );
+		assertSame( label2.getComputedStyle( ), label4.getComputedStyle( ) );
+	}
+
+	private ILabelContent createLabel( ReportContent report,
+			IContainerContent container, String fontWeight )
+	{
+		ILabelContent label = report.createLabelContent( );
+		label.setParent( container );
+		label.getStyle( ).setFontWeight( fontWeight );
+		return label;
+	}
+}
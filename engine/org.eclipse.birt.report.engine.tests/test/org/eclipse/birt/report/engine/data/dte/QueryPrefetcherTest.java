@@ -0,0 +1,193 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.engine.data.dte;
+
+import java.io.ByteArrayOutputStream;
+import java.util.HashMap;
+
+import org.eclipse.birt.data.engine.api.IConditionalExpression;
+import org.eclipse.birt.data.engine.api.querydefn.Binding;
+import org.eclipse.birt.data.engine.api.querydefn.ComputedColumn;
+import org.eclipse.birt.data.engine.api.querydefn.ConditionalExpression;
+import org.eclipse.birt.data.engine.api.querydefn.FilterDefinition;
+import org.eclipse.birt.data.engine.api.querydefn.GroupDefinition;
+import org.eclipse.birt.data.engine.api.querydefn.InputParameterBinding;
+import org.eclipse.birt.data.engine.api.querydefn.OdaDataSetDesign;
+import org.eclipse.birt.data.engine.api.querydefn.ParameterDefinition;
+import org.eclipse.birt.data.engine.api.querydefn.QueryDefinition;
+import org.eclipse.birt.data.engine.api.querydefn.ScriptExpression;
+import org.eclipse.birt.data.engine.api.querydefn.ScriptExpressionUtil;
+import org.eclipse.birt.data.engine.api.querydefn.SubqueryDefinition;
+import org.eclipse.birt.report.engine.EngineCase;
+import org.eclipse.birt.report.engine.api.EngineConstants;
+import org.eclipse.birt.report.engine.api.HTMLRenderOption;
+import org.eclipse.birt.report.engine.api.IRunAndRenderTask;
+
+public class QueryPrefetcherTest extends EngineCase
+{
+
+	static final String REPORT_DESIGN_RESOURCE = "org/eclipse/birt/report/engine/data/dte/QueryPrefetch.xml";
+
+	public void tearDown( ) throws Exception
+	{
+		removeFile( REPORT_DESIGN );
+		super.tearDown( );
+	}
+
+	public void testScriptFreeScript( )
+	{
+		assertTrue( isScriptFree( null ) );
+		assertTrue( isScriptFree( "dataSetRow[\"NAME\"]" ) );
+		assertTrue( isScriptFree( "row.PRICE * 1.5 + row[\"TAX\"] // vars" ) );
+		assertTrue( isScriptFree( "dataSetRow[\"STATUS\"] == 'params' ? true : null" ) );
+		assertFalse( isScriptFree( "params[\"p\"]" ) );
+		assertFalse( isScriptFree( "vars.total" ) );
+		assertFalse( isScriptFree( "reportContext" ) );
+		assertFalse( isScriptFree( "Math.random( )" ) );
+		assertFalse( isScriptFree( "new Date( )" ) );
+		assertFalse( isScriptFree( "myGlobal + row.a" ) );
+		assertFalse( isScriptFree( "row[\"_outer\"][\"a\"]" ) );
+		assertFalse( isScriptFree( "row._outer.a" ) );
+	}
+
+	private boolean isScriptFree( String script )
+	{
+		return ScriptExpressionUtil.isScriptFree( script,
+				QueryPrefetcher.ROW_ACCESSORS );
+	}
+
+	public void testScriptFreeQuery( ) throws Exception
+	{
+		QueryDefinition query = new QueryDefinition( );
+		query.addBinding( new Binding( "NAME", new ScriptExpression(
+				"dataSetRow[\"NAME\"]" ) ) );
+		query.addFilter( new FilterDefinition( new ConditionalExpression(
+				"row[\"NAME\"]", IConditionalExpression.OP_NOT_NULL ) ) );
+		GroupDefinition group = new GroupDefinition( "group" );
+		group.setKeyExpression( "row[\"NAME\"]" );
+		query.addGroup( group );
+		assertTrue( QueryPrefetcher.isScriptFree( query ) );
+
+		// the binding reads a report parameter
+		query = new QueryDefinition( );
+		query.addBinding( new Binding( "NAME", new ScriptExpression(
+				"dataSetRow[\"NAME\"] + params[\"suffix\"]" ) ) );
+		assertFalse( QueryPrefetcher.isScriptFree( query ) );
+
+		// the filter compares with a variable
+		query = new QueryDefinition( );
+		query.addFilter( new FilterDefinition( new ConditionalExpression(
+				"row[\"NAME\"]", IConditionalExpression.OP_EQ, "vars.name" ) ) );
+		assertFalse( QueryPrefetcher.isScriptFree( query ) );
+
+		// the group key calls a global
+		query = new QueryDefinition( );
+		group = new GroupDefinition( "group" );
+		group.setKeyExpression( "getKey( row[\"NAME\"] )" );
+		query.addGroup( group );
+		assertFalse( QueryPrefetcher.isScriptFree( query ) );
+
+		// the input parameter is bound to a report parameter
+		query = new QueryDefinition( );
+		query.addInputParamBinding( new InputParameterBinding( "p",
+				new ScriptExpression( "params[\"p\"]" ) ) );
+		assertFalse( QueryPrefetcher.isScriptFree( query ) );
+
+		// the binding of the sub query reads a variable
+		query = new QueryDefinition( );
+		SubqueryDefinition subquery = new SubqueryDefinition( "sub", query );
+		subquery.addBinding( new Binding( "TOTAL", new ScriptExpression(
+				"vars.total" ) ) );
+		query.addSubquery( subquery );
+		assertFalse( QueryPrefetcher.isScriptFree( query ) );
+	}
+
+	public void testScriptFreeDataSet( ) throws Exception
+	{
+		OdaDataSetDesign dataSet = new OdaDataSetDesign( "dataSet" );
+		dataSet.addComputedColumn( new ComputedColumn( "DOUBLE",
+				"dataSetRow[\"PRICE\"] * 2" ) );
+		dataSet.addFilter( new FilterDefinition( new ScriptExpression(
+				"row[\"PRICE\"] > 10" ) ) );
+		ParameterDefinition parameter = new ParameterDefinition( "p", 0 );
+		parameter.setDefaultInputValue( "10" );
+		dataSet.addParameter( parameter );
+		assertTrue( QueryPrefetcher.isScriptFree( dataSet ) );
+
+		// the computed column calls a function of the report
+		dataSet = new OdaDataSetDesign( "dataSet" );
+		dataSet.addComputedColumn( new ComputedColumn( "RANDOM",
+				"Math.random( )" ) );
+		assertFalse( QueryPrefetcher.isScriptFree( dataSet ) );
+
+		// the filter reads a variable
+		dataSet = new OdaDataSetDesign( "dataSet" );
+		dataSet.addFilter( new FilterDefinition( new ScriptExpression(
+				"row[\"PRICE\"] > vars.price" ) ) );
+		assertFalse( QueryPrefetcher.isScriptFree( dataSet ) );
+
+		// the parameter is linked to a report parameter
+		dataSet = new OdaDataSetDesign( "dataSet" );
+		parameter = new ParameterDefinition( "p", 0 );
+		parameter.setDefaultInputValue( "params[\"p\"]" );
+		dataSet.addParameter( parameter );
+		assertFalse( QueryPrefetcher.isScriptFree( dataSet ) );
+
+		// the data set has scripts
+		dataSet = new OdaDataSetDesign( "dataSet" );
+		dataSet.setOnFetchScript( "vars.count++" );
+		assertFalse( QueryPrefetcher.isScriptFree( dataSet ) );
+	}
+
+	/**
+	 * the first, second and fourth tables are prefetched, the third one reads
+	 * a report parameter so it is executed by the task thread. With two
+	 * threads one worker executes two queries. The output must be the same as
+	 * the one executed in the task thread only.
+	 */
+	public void testPrefetch( ) throws Exception
+	{
+		String sequential = runAndRender( 0 );
+		String parallel = runAndRender( 2 );
+		assertEquals( sequential, parallel );
+		assertTrue( getCount( parallel, "~suffix" ) > 0 );
+	}
+
+	private String runAndRender( int threads ) throws Exception
+	{
+		IRunAndRenderTask task = createRunAndRenderTask( REPORT_DESIGN_RESOURCE );
+		try
+		{
+			HashMap<String, Object> appContext = new HashMap<String, Object>( );
+			if ( threads > 0 )
+			{
+				appContext.put(
+						EngineConstants.APPCONTEXT_QUERY_PREFETCH_THREADS,
+						Integer.valueOf( threads ) );
+			}
+			task.setAppContext( appContext );
+			task.setParameterValue( "suffix", "~suffix" );
+			HTMLRenderOption options = new HTMLRenderOption( );
+			ByteArrayOutputStream out = new ByteArrayOutputStream( );
+			options.setOutputStream( out );
+			options.setOutputFormat( "html" );
+			task.setRenderOption( options );
+			task.run( );
+			assertTrue( task.getErrors( ).isEmpty( ) );
+			return new String( out.toByteArray( ), "UTF-8" );
+		}
+		finally
+		{
+			task.close( );
+		}
+	}
+}
@@ -32,4 +32,17 @@ public class XMLEncodeUtilTest extends TestCase
 		result = XMLEncodeUtil.encodeText( "\u0000A\"&<\uD840\uDc00\r\n\t" );
 		assertEquals( "A\"&amp;&lt;\uD840\uDc00\r\n\t", result );
 	}
+
+	public void testEncodeWithoutEscape( )
+	{
+		String text = "ABCD\u3400 \uD840\uDC00 CDEF";
+		assertSame( text, XMLEncodeUtil.encodeText( text ) );
+		assertSame( text, XMLEncodeUtil.encodeAttr( text ) );
+		assertSame( text, XMLEncodeUtil.encodeCdata( text ) );
+
+		// invalid characters and unmatched surrogates are removed
+		assertEquals( "AB", XMLEncodeUtil.encodeText( "A\uFFFEB" ) );
+		assertEquals( "A", XMLEncodeUtil.encodeText( "A\uD840" ) );
+		assertEquals( "AB", XMLEncodeUtil.encodeAttr( "A\u001FB" ) );
+	}
 }
@@ -104,4 +104,35 @@ public class XMLWriterTest extends TestCase
 				out.toString( "UTF-8" ).replaceAll( "[\\r|\\n |\\t]", "" ) );
 	}
 
+	public void testLargeContent( ) throws Exception
+	{
+		StringBuilder text = new StringBuilder( );
+		for ( int i = 0; i < 3000; i++ )
+		{
+			text.append( "text\u3400&" );
+		}
+		StringBuilder expected = new StringBuilder( "<root>" );
+		ByteArrayOutputStream out = new ByteArrayOutputStream( );
+		XMLWriter writer = new XMLWriter( );
+		writer.open( out );
+		writer.setIndent( false );
+		writer.openTag( "root" );
+		for ( int i = 0; i < 2000; i++ )
+		{
+			writer.openTag( "p" );
+			writer.attribute( "id", i );
+			writer.text( "cell" );
+			writer.closeTag( "p" );
+			expected.append( "<p id=\"" + i + "\">cell</p>" );
+		}
+		// the content larger than the buffer
+		writer.text( text.toString( ) );
+		writer.closeTag( "root" );
+		writer.close( );
+		expected.append( text.toString( ).replaceAll( "&", "&amp;" ) );
+		expected.append( "</root>" );
+
+		assertEquals( expected.toString( ), out.toString( "UTF-8" ) );
+	}
+
 }
@@ -0,0 +1,357 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.engine.layout.emitter;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.eclipse.birt.report.engine.api.IAction;
+import org.eclipse.birt.report.engine.api.IHTMLActionHandler;
+import org.eclipse.birt.report.engine.api.IRenderOption;
+import org.eclipse.birt.report.engine.api.impl.Action;
+import org.eclipse.birt.report.engine.api.script.IReportContext;
+import org.eclipse.birt.report.engine.content.IContent;
+import org.eclipse.birt.report.engine.content.IHyperlinkAction;
+import org.eclipse.birt.report.engine.content.IPageContent;
+import org.eclipse.birt.report.engine.content.IReportContent;
+import org.eclipse.birt.report.engine.content.impl.ActionContent;
+import org.eclipse.birt.report.engine.emitter.IEmitterServices;
+import org.eclipse.birt.report.engine.layout.ILayoutPageHandler;
+import org.eclipse.birt.report.engine.nLayout.area.IArea;
+import org.eclipse.birt.report.engine.nLayout.area.IContainerArea;
+
+public class PipelinedPageEmitterTest extends TestCase
+{
+
+	/**
+	 * the events of the emitter and the page handler in order.
+	 */
+	private List<String> events = Collections
+			.synchronizedList( new ArrayList<String>( ) );
+
+	private Thread taskThread;
+
+	protected void setUp( ) throws Exception
+	{
+		taskThread = Thread.currentThread( );
+	}
+
+	public void testPageOrder( ) throws Exception
+	{
+		TestPageEmitter pageEmitter = new TestPageEmitter( );
+		pageEmitter.delay = 20;
+		PipelinedPageEmitter emitter = new PipelinedPageEmitter( pageEmitter,
+				2 );
+		ILayoutPageHandler handler = emitter
+				.createPageHandler( new TestPageHandler( ) );
+		emitter.initialize( createServices( null ) );
+		emitter.start( null );
+		for ( int i = 1; i <= 5; i++ )
+		{
+			emitter.startPage( createPage( i, null ) );
+			emitter.endPage( null );
+			handler.onPage( i, null );
+		}
+		emitter.end( null );
+
+		// each page is notified in order after it is written
+		assertEquals( "start", events.get( 0 ) );
+		assertEquals( "end", events.get( events.size( ) - 1 ) );
+		List<String> notifications = getEvents( "notify" );
+		for ( int i = 1; i <= 5; i++ )
+		{
+			assertEquals( "notify " + i, notifications.get( i - 1 ) );
+			assertTrue( events.indexOf( "write " + i ) < events
+					.indexOf( "notify " + i ) );
+		}
+		assertFalse( pageEmitter.writtenInTaskThread );
+	}
+
+	public void testPageState( ) throws Exception
+	{
+		TestPageEmitter pageEmitter = new TestPageEmitter( );
+		pageEmitter.delay = 20;
+		PipelinedPageEmitter emitter = new PipelinedPageEmitter( pageEmitter,
+				5 );
+		TestPageStateHandler stateHandler = new TestPageStateHandler( );
+		ILayoutPageHandler handler = emitter.createPageHandler( stateHandler );
+		emitter.initialize( createServices( null ) );
+		emitter.start( null );
+		// the layout context is changed before the pages are notified
+		boolean[] layoutContext = new boolean[1];
+		for ( int i = 1; i <= 3; i++ )
+		{
+			layoutContext[0] = i == 3;
+			emitter.startPage( createPage( i, null ) );
+			handler.onPage( i, layoutContext );
+		}
+		layoutContext[0] = false;
+		emitter.end( null );
+
+		assertEquals( "notify 1 false", stateHandler.notifications.get( 0 ) );
+		assertEquals( "notify 2 false", stateHandler.notifications.get( 1 ) );
+		assertEquals( "notify 3 true", stateHandler.notifications.get( 2 ) );
+	}
+
+	public void testError( ) throws Exception
+	{
+		TestPageEmitter pageEmitter = new TestPageEmitter( );
+		pageEmitter.failedPage = 2;
+		PipelinedPageEmitter emitter = new PipelinedPageEmitter( pageEmitter,
+				1 );
+		ILayoutPageHandler handler = emitter
+				.createPageHandler( new TestPageHandler( ) );
+		emitter.initialize( createServices( null ) );
+		emitter.start( null );
+		try
+		{
+			for ( int i = 1; i <= 5; i++ )
+			{
+				emitter.startPage( createPage( i, null ) );
+				handler.onPage( i, null );
+			}
+			emitter.end( null );
+			fail( );
+		}
+		catch ( IllegalStateException ex )
+		{
+			assertEquals( "page 2", ex.getMessage( ) );
+		}
+		// the failed page and the following pages are not notified
+		assertEquals( Collections.singletonList( "notify 1" ),
+				getEvents( "notify" ) );
+		assertFalse( events.contains( "write 3" ) );
+		assertFalse( events.contains( "end" ) );
+	}
+
+	public void testActions( ) throws Exception
+	{
+		TestActionHandler actionHandler = new TestActionHandler( );
+		TestPageEmitter pageEmitter = new TestPageEmitter( );
+		PipelinedPageEmitter emitter = new PipelinedPageEmitter( pageEmitter,
+				2 );
+		emitter.initialize( createServices( actionHandler ) );
+		emitter.start( null );
+		for ( int i = 1; i <= 3; i++ )
+		{
+			ActionContent action = new ActionContent( );
+			action.setHyperlink( "link" + i, null );
+			emitter.startPage( createPage( i, action ) );
+		}
+		emitter.end( null );
+
+		assertEquals( 3, actionHandler.count );
+		assertFalse( actionHandler.calledInEmitterThread );
+		assertEquals( "url:link1", pageEmitter.urls.get( 0 ) );
+		assertEquals( "url:link2", pageEmitter.urls.get( 1 ) );
+		assertEquals( "url:link3", pageEmitter.urls.get( 2 ) );
+	}
+
+	private List<String> getEvents( String... types )
+	{
+		List<String> result = new ArrayList<String>( );
+		for ( String event : events )
+		{
+			for ( String type : types )
+			{
+				if ( event.startsWith( type ) )
+				{
+					result.add( event );
+				}
+			}
+		}
+		return result;
+	}
+
+	private IPageContent createPage( final long pageNumber,
+			final IHyperlinkAction action )
+	{
+		final IArea area = (IArea) Proxy.newProxyInstance( getClass( )
+				.getClassLoader( ), new Class[]{IContainerArea.class},
+				new InvocationHandler( ) {
+
+					public Object invoke( Object proxy, Method method,
+							Object[] args )
+					{
+						if ( "getAction".equals( method.getName( ) ) )
+						{
+							return action;
+						}
+						if ( "getChildren".equals( method.getName( ) ) )
+						{
+							return new ArrayList<IArea>( ).iterator( );
+						}
+						return null;
+					}
+				} );
+		return (IPageContent) Proxy.newProxyInstance( getClass( )
+				.getClassLoader( ), new Class[]{IPageContent.class},
+				new InvocationHandler( ) {
+
+					public Object invoke( Object proxy, Method method,
+							Object[] args )
+					{
+						if ( "getPageNumber".equals( method.getName( ) ) )
+						{
+							return pageNumber;
+						}
+						if ( "getExtension".equals( method.getName( ) )
+								&& Integer.valueOf( IContent.LAYOUT_EXTENSION )
+										.equals( args[0] ) )
+						{
+							return area;
+						}
+						return null;
+					}
+				} );
+	}
+
+	private IEmitterServices createServices(
+			final IHTMLActionHandler actionHandler )
+	{
+		return (IEmitterServices) Proxy.newProxyInstance( getClass( )
+				.getClassLoader( ), new Class[]{IEmitterServices.class},
+				new InvocationHandler( ) {
+
+					public Object invoke( Object proxy, Method method,
+							Object[] args )
+					{
+						if ( "getOption".equals( method.getName( ) )
+								&& IRenderOption.ACTION_HANDLER
+										.equals( args[0] ) )
+						{
+							return actionHandler;
+						}
+						return null;
+					}
+				} );
+	}
+
+	private class TestPageEmitter extends PageEmitter
+	{
+
+		IEmitterServices services;
+		int failedPage = -1;
+		long delay;
+		boolean writtenInTaskThread;
+		List<String> urls = new ArrayList<String>( );
+
+		public PageDeviceRender createRender( IEmitterServices service )
+		{
+			return null;
+		}
+
+		public void initialize( IEmitterServices service )
+		{
+			this.services = service;
+		}
+
+		public void start( IReportContent report )
+		{
+			events.add( "start" );
+		}
+
+		public void end( IReportContent report )
+		{
+			events.add( "end" );
+		}
+
+		public void startPage( IPageContent page )
+		{
+			if ( Thread.currentThread( ) == taskThread )
+			{
+				writtenInTaskThread = true;
+			}
+			long pageNumber = page.getPageNumber( );
+			if ( pageNumber == failedPage )
+			{
+				throw new IllegalStateException( "page " + pageNumber );
+			}
+			try
+			{
+				Thread.sleep( delay );
+			}
+			catch ( InterruptedException ex )
+			{
+			}
+			IArea area = (IArea) page
+					.getExtension( IContent.LAYOUT_EXTENSION );
+			Object handler = services
+					.getOption( IRenderOption.ACTION_HANDLER );
+			if ( area.getAction( ) != null
+					&& handler instanceof IHTMLActionHandler )
+			{
+				urls.add( ( (IHTMLActionHandler) handler ).getURL(
+						new Action( null, area.getAction( ) ),
+						(IReportContext) null ) );
+			}
+			events.add( "write " + pageNumber );
+		}
+	}
+
+	private class TestPageHandler implements ILayoutPageHandler
+	{
+
+		public void onPage( long page, Object context )
+		{
+			assertSame( taskThread, Thread.currentThread( ) );
+			events.add( "notify " + page );
+		}
+	}
+
+	private class TestPageStateHandler
+			implements
+			PipelinedPageEmitter.IPageStateHandler
+	{
+
+		List<String> notifications = new ArrayList<String>( );
+
+		public Object getPageState( long page, Object context )
+		{
+			return Boolean.valueOf( ( (boolean[]) context )[0] );
+		}
+
+		public void onPage( long page, Object context )
+		{
+			assertSame( taskThread, Thread.currentThread( ) );
+			notifications.add( "notify " + page + " " + context );
+		}
+	}
+
+	private class TestActionHandler implements IHTMLActionHandler
+	{
+
+		int count;
+		boolean calledInEmitterThread;
+
+		public String getURL( IAction action, Object context )
+		{
+			return getURL( action, (IReportContext) null );
+		}
+
+		public String getURL( IAction action, IReportContext context )
+		{
+			if ( Thread.currentThread( ) != taskThread )
+			{
+				calledInEmitterThread = true;
+			}
+			count++;
+			return "url:" + action.getActionString( );
+		}
+	}
+}
@@ -0,0 +1,39 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.engine.layout.pdf.font;
+
+import junit.framework.TestCase;
+
+import com.lowagie.text.pdf.BaseFont;
+
+public class GlyphWidthsTest extends TestCase
+{
+
+	public void testWidth( ) throws Exception
+	{
+		BaseFont bf = BaseFont.createFont( BaseFont.TIMES_ROMAN,
+				BaseFont.WINANSI, false );
+		GlyphWidths widths = GlyphWidths.getGlyphWidths( bf );
+		assertSame( widths, GlyphWidths.getGlyphWidths( bf ) );
+
+		String[] texts = new String[]{"", "0123456789", "Total: 1,234.56",
+				"été €", "abc"};
+		for ( int i = 0; i < texts.length; i++ )
+		{
+			assertEquals( bf.getWidth( texts[i] ), widths.getWidth( texts[i] ) );
+			// measure again with the cached widths
+			assertEquals( bf.getWidth( texts[i] ), widths.getWidth( texts[i] ) );
+			assertEquals( bf.getWidthPoint( texts[i], 10.5f ), widths
+					.getWidthPoint( texts[i], 10.5f ), 0f );
+		}
+	}
+}
@@ -0,0 +1,128 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.engine.nLayout.area.impl;
+
+import junit.framework.TestCase;
+
+import org.eclipse.birt.report.engine.content.IStyle;
+import org.eclipse.birt.report.engine.css.dom.StyleDeclaration;
+import org.eclipse.birt.report.engine.css.engine.BIRTCSSEngine;
+import org.eclipse.birt.report.engine.css.engine.CSSEngine;
+import org.eclipse.birt.report.engine.nLayout.area.style.BorderInfo;
+
+public class BorderConflictResolverTest extends TestCase
+{
+
+	private IStyle[] styles;
+
+	protected void setUp( ) throws Exception
+	{
+		CSSEngine engine = new BIRTCSSEngine( );
+		String[] borders = new String[]{"solid 1pt red", "solid 1pt red",
+				"dotted 2pt blue", "solid 2pt green", "double 2pt black",
+				"hidden 3pt red", "none 1pt red"};
+		// the first two styles are identical but not the same object
+		styles = new IStyle[borders.length + 1];
+		for ( int i = 0; i < borders.length; i++ )
+		{
+			String[] values = borders[i].split( " " );
+			StringBuffer cssText = new StringBuffer( );
+			String[] sides = new String[]{"left", "top", "right", "bottom"};
+			for ( int j = 0; j < sides.length; j++ )
+			{
+				cssText.append( "border-" + sides[j] + "-style:" + values[0]
+						+ ";" );
+				cssText.append( "border-" + sides[j] + "-width:" + values[1]
+						+ ";" );
+				cssText.append( "border-" + sides[j] + "-color:" + values[2]
+						+ ";" );
+			}
+			StyleDeclaration style = new StyleDeclaration( engine );
+			style.setCssText( cssText.toString( ) );
+			styles[i] = style;
+		}
+		styles[borders.length] = null;
+	}
+
+	public void testTableLeftBorder( )
+	{
+		BorderConflictResolver cached = new BorderConflictResolver( );
+		// the second round resolves the borders from the cache
+		for ( int round = 0; round < 2; round++ )
+		{
+			for ( int i = 0; i < styles.length * styles.length * styles.length
+					* styles.length; i++ )
+			{
+				IStyle[] s = getStyles( i );
+				assertBorderEquals( new BorderConflictResolver( )
+						.resolveTableLeftBorder( s[0], s[1], s[2], s[3] ),
+						cached.resolveTableLeftBorder( s[0], s[1], s[2], s[3] ) );
+			}
+		}
+	}
+
+	public void testCellTopBorder( )
+	{
+		BorderConflictResolver cached = new BorderConflictResolver( );
+		for ( int round = 0; round < 2; round++ )
+		{
+			for ( int i = 0; i < styles.length * styles.length * styles.length
+					* styles.length; i++ )
+			{
+				IStyle[] s = getStyles( i );
+				assertBorderEquals( new BorderConflictResolver( )
+						.resolveCellTopBorder( s[0], s[1], s[2], s[3] ),
+						cached.resolveCellTopBorder( s[0], s[1], s[2], s[3] ) );
+			}
+		}
+	}
+
+	public void testIdenticalStyles( )
+	{
+		BorderConflictResolver resolver = new BorderConflictResolver( );
+		BorderInfo border = resolver.resolveCellLeftBorder( styles[0],
+				styles[2], styles[6], styles[7] );
+		assertBorderEquals( border, resolver.resolveCellLeftBorder( styles[1],
+				styles[2], styles[6], styles[7] ) );
+		// the same styles in another order don't hit the cached border
+		assertBorderEquals( new BorderConflictResolver( ).resolveCellLeftBorder(
+				styles[2], styles[0], styles[7], styles[6] ),
+				resolver.resolveCellLeftBorder( styles[2], styles[0],
+						styles[7], styles[6] ) );
+		assertBorderEquals( border, resolver.resolveCellLeftBorder( styles[0],
+				styles[2], styles[6], styles[7] ) );
+	}
+
+	private IStyle[] getStyles( int index )
+	{
+		IStyle[] result = new IStyle[4];
+		for ( int i = 0; i < result.length; i++ )
+		{
+			result[i] = styles[index % styles.length];
+			index = index / styles.length;
+		}
+		return result;
+	}
+
+	private void assertBorderEquals( BorderInfo expected, BorderInfo actual )
+	{
+		if ( expected == null )
+		{
+			assertNull( actual );
+			return;
+		}
+		assertNotNull( actual );
+		assertEquals( expected.getStyle( ), actual.getStyle( ) );
+		assertEquals( expected.getWidth( ), actual.getWidth( ) );
+		assertEquals( expected.getColor( ), actual.getColor( ) );
+	}
+}
@@ -0,0 +1,90 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.engine.util;
+
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+import com.lowagie.text.Image;
+
+public class ImageCacheTest extends TestCase
+{
+
+	static final String IMAGE_RESOURCE = "/org/eclipse/birt/report/engine/api/impl/1.jpg"; //$NON-NLS-1$
+
+	public void tearDown( )
+	{
+		ImageCache.setMaxSize( ImageCache.DEFAULT_MAX_SIZE );
+		ImageCache.clear( );
+	}
+
+	public void testGetImage( ) throws Exception
+	{
+		byte[] data = loadImage( );
+		Image image1 = ImageCache.getImage( data );
+		// the same content loaded from another resource
+		Image image2 = ImageCache.getImage( (byte[]) data.clone( ) );
+		assertNotSame( image1, image2 );
+		assertEquals( image1.getMySerialId( ), image2.getMySerialId( ) );
+		assertEquals( image1.getPlainWidth( ), image2.getPlainWidth( ), 0f );
+
+		// the copies are independent
+		image1.scaleAbsolute( 1, 1 );
+		Image image3 = ImageCache.getImage( data );
+		assertEquals( image2.getPlainWidth( ), image3.getPlainWidth( ), 0f );
+	}
+
+	public void testReusedBuffer( ) throws Exception
+	{
+		byte[] data = loadImage( );
+		byte[] buffer = (byte[]) data.clone( );
+		Image image1 = ImageCache.getImage( buffer );
+		// the caller reuses its buffer
+		Arrays.fill( buffer, (byte) 0 );
+		Image image2 = ImageCache.getImage( data );
+		assertEquals( image1.getMySerialId( ), image2.getMySerialId( ) );
+		assertEquals( image1.getPlainWidth( ), image2.getPlainWidth( ), 0f );
+	}
+
+	public void testDisabledCache( ) throws Exception
+	{
+		ImageCache.setMaxSize( 0 );
+		byte[] data = loadImage( );
+		Image image1 = ImageCache.getImage( data );
+		Image image2 = ImageCache.getImage( data );
+		assertFalse( image1.getMySerialId( ).equals( image2.getMySerialId( ) ) );
+	}
+
+	private byte[] loadImage( ) throws Exception
+	{
+		InputStream in = getClass( ).getResourceAsStream( IMAGE_RESOURCE );
+		try
+		{
+			ByteArrayOutputStream out = new ByteArrayOutputStream( );
+			byte[] buffer = new byte[1024];
+			int size = in.read( buffer );
+			while ( size != -1 )
+			{
+				out.write( buffer, 0, size );
+				size = in.read( buffer );
+			}
+			return out.toByteArray( );
+		}
+		finally
+		{
+			in.close( );
+		}
+	}
+}
@@ -490,6 +490,35 @@ public class EngineConfig extends PlatformConfig implements IEngineConfig
 		return 0;
 	}
 
+	/**
+	 * Set the max count of the report designs cached by the engine. The
+	 * designs opened from files are parsed once and shared by the tasks until
+	 * the files are changed.
+	 * 
+	 * @param size
+	 *            the max count of the cached designs, 0 disables the cache.
+	 */
+	public void setDesignCacheSize( int size )
+	{
+		setProperty( DESIGN_CACHE_SIZE, Integer.valueOf( size ) );
+	}
+
+	/**
+	 * Get the max count of the report designs cached by the engine.
+	 * 
+	 * @return the max count of the cached designs, 0 if the designs are not
+	 *         cached.
+	 */
+	public int getDesignCacheSize( )
+	{
+		Object size = getProperty( DESIGN_CACHE_SIZE );
+		if ( size instanceof Number )
+		{
+			return ( (Number) size ).intValue( );
+		}
+		return 0;
+	}
+
 	/**
 	 * Sets default emitter for an output format.
 	 * 
@@ -75,7 +75,17 @@ public class EngineConstants {
 	 * OOM
 	 */
 	public final static String APPCONTEXT_MAX_PAGE_BREAK_INTERVAL = "MAX_PAGE_BREAK_INTERVAL"; //$NON-NLS-1$
-	
+
+	/**
+	 * the max count of the threads used to execute the independent top level
+	 * queries in parallel when the report is run and rendered. The value is a
+	 * Number, the queries are executed one by one if it is not set. Only the
+	 * queries of ODA data sets whose expressions read nothing but the data
+	 * rows are executed in parallel. The setting is ignored by the run task,
+	 * which saves the results in the report document.
+	 */
+	public final static String APPCONTEXT_QUERY_PREFETCH_THREADS = "QUERY_PREFETCH_THREADS"; //$NON-NLS-1$
+
 	/**
 	 * The Engine task owning the application context
 	 */
@@ -64,4 +64,10 @@ public interface IEngineConfig extends IPlatformConfig
 	 * The max rows per query
 	 */
 	static final String MAX_ROWS_PER_QUERY = "maxRowsPerQuery";
+
+	/**
+	 * The max count of the report designs cached by the engine. The value is
+	 * a Number object, the designs are not cached if it is not set.
+	 */
+	static final String DESIGN_CACHE_SIZE = "designCacheSize"; //$NON-NLS-1$
 }
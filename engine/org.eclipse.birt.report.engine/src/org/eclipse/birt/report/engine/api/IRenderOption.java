@@ -73,6 +73,23 @@ public interface IRenderOption extends ITaskOption
 	
 	public static final String REPORTLET_SIZE = "reportletSize";
 
+	/**
+	 * The max count of the threads used to render the pages of a report
+	 * document in parallel. It is used only if the emitter can merge the
+	 * outputs of the page ranges. The value is a Number object, the pages are
+	 * rendered in one thread if it is not set.
+	 */
+	public static final String RENDER_THREADS = "renderThreads"; //$NON-NLS-1$
+
+	/**
+	 * The max count of the laid out pages waiting to be written by the page
+	 * emitter. If it is set, the pages of the paper size paginated output are
+	 * written in a separate thread while the next pages are generated and laid
+	 * out. The value is a Number object, the pages are written in the task
+	 * thread if it is not set.
+	 */
+	public static final String PIPELINED_PAGES = "pipelinedPages"; //$NON-NLS-1$
+
 	/**
 	 * @return
 	 * @deprecated use getOptions instead
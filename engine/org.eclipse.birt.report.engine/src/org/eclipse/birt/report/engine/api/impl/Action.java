@@ -134,6 +134,14 @@ public class Action implements IAction
 	{
 		return content.getTooltip();
 	}
-	
+
+	/**
+	 * @return the hyperlink action of the content.
+	 */
+	public IHyperlinkAction getHyperlinkAction( )
+	{
+		return content;
+	}
+
 
 }
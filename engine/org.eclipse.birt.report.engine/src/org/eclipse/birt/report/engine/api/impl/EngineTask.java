@@ -76,8 +76,11 @@ import org.eclipse.birt.report.engine.internal.document.DocumentExtension;
 import org.eclipse.birt.report.engine.internal.document.v3.ReportContentReaderV3;
 import org.eclipse.birt.report.engine.ir.Expression.Script;
 import org.eclipse.birt.report.engine.ir.Report;
+import org.eclipse.birt.report.engine.layout.ILayoutPageHandler;
 import org.eclipse.birt.report.engine.layout.IReportLayoutEngine;
 import org.eclipse.birt.report.engine.layout.LayoutEngineFactory;
+import org.eclipse.birt.report.engine.layout.emitter.PageEmitter;
+import org.eclipse.birt.report.engine.layout.emitter.PipelinedPageEmitter;
 import org.eclipse.birt.report.engine.script.internal.ReportContextImpl;
 import org.eclipse.birt.report.engine.script.internal.ReportScriptExecutor;
 import org.eclipse.birt.report.engine.util.ResourceLocatorWrapper;
@@ -1787,6 +1790,47 @@ public abstract class EngineTask implements IEngineTask
 		return emitter;
 	}
 
+	/**
+	 * wrap the page emitter so that the pages are written in a separate thread
+	 * if the pipelined pages option is set.
+	 * 
+	 * @param emitter
+	 *            the emitter used by the paper size layout engine.
+	 * @return the emitter to be used by the layout engine.
+	 */
+	protected IContentEmitter createPipelinedEmitter( IContentEmitter emitter )
+	{
+		Object pages = renderOptions.getOption( IRenderOption.PIPELINED_PAGES );
+		if ( pages instanceof Number && ( (Number) pages ).intValue( ) > 0
+				&& emitter instanceof PageEmitter )
+		{
+			return new PipelinedPageEmitter( (PageEmitter) emitter,
+					( (Number) pages ).intValue( ) );
+		}
+		return emitter;
+	}
+
+	/**
+	 * creates the page handler of the layout engine. If the pages are written
+	 * in a separate thread, the handler is notified after the page is written.
+	 * 
+	 * @param emitter
+	 *            the emitter used by the paper size layout engine.
+	 * @param handler
+	 *            the page handler.
+	 * @return the page handler to be used by the layout engine.
+	 */
+	protected ILayoutPageHandler createPipelinedPageHandler(
+			IContentEmitter emitter, ILayoutPageHandler handler )
+	{
+		if ( emitter instanceof PipelinedPageEmitter )
+		{
+			return ( (PipelinedPageEmitter) emitter )
+					.createPageHandler( handler );
+		}
+		return handler;
+	}
+
 	protected IReportLayoutEngine createReportLayoutEngine( String pagination,
 			IRenderOption options )
 	{
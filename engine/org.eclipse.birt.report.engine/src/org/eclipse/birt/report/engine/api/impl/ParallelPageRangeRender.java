@@ -0,0 +1,527 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.engine.api.impl;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.eclipse.birt.core.exception.BirtException;
+import org.eclipse.birt.report.engine.api.EngineException;
+import org.eclipse.birt.report.engine.api.IEngineTask;
+import org.eclipse.birt.report.engine.api.IPDFRenderOption;
+import org.eclipse.birt.report.engine.api.IRenderOption;
+import org.eclipse.birt.report.engine.api.RenderOption;
+import org.eclipse.birt.report.engine.emitter.EmitterUtil;
+import org.eclipse.birt.report.engine.emitter.EngineEmitterServices;
+import org.eclipse.birt.report.engine.emitter.IContentEmitter;
+import org.eclipse.birt.report.engine.emitter.IMergeableEmitter;
+import org.eclipse.birt.report.engine.extension.internal.ExtensionManager;
+import org.eclipse.birt.report.engine.i18n.EngineResourceHandle;
+import org.eclipse.birt.report.engine.i18n.MessageConstants;
+import org.eclipse.birt.report.model.api.ReportDesignHandle;
+
+/**
+ * Renders the pages of a report document in parallel.
+ *
+ * The pages are split into continuous page ranges. Each range is rendered by a
+ * worker render task in its own thread, with its own document reader, layout
+ * engine and emitter, into a temporary file. The outputs are merged in the
+ * page order by the emitter. The merge starts with the first range, each range
+ * is merged as soon as it is rendered, while the following ranges are still
+ * being rendered.
+ *
+ * It is used only if the emitter supports merging, the pages are rendered page
+ * by page, and the report has no render scripts, as the scripts would run once
+ * for each range.
+ */
+class ParallelPageRangeRender
+{
+
+	protected static Logger logger = Logger
+			.getLogger( ParallelPageRangeRender.class.getName( ) );
+
+	private RenderTask task;
+
+	/**
+	 * the logical page sequences to be rendered.
+	 */
+	private List<long[]> pageSequences;
+
+	private IMergeableEmitter merger;
+
+	private int threadCount;
+
+	private RenderTask[] workers;
+
+	ParallelPageRangeRender( RenderTask task, List<long[]> pageSequences )
+	{
+		this.task = task;
+		this.pageSequences = pageSequences;
+	}
+
+	/**
+	 * test if the pages can be rendered in parallel. It must be called after
+	 * the render option is setup.
+	 */
+	boolean isSupported( )
+	{
+		Object threads = task.renderOptions
+				.getOption( IRenderOption.RENDER_THREADS );
+		if ( !( threads instanceof Number ) )
+		{
+			return false;
+		}
+		long pageCount = getPageCount( );
+		int maxThreads = (int) Math.min( ( (Number) threads ).intValue( ),
+				pageCount );
+		if ( maxThreads < 2 )
+		{
+			return false;
+		}
+		// the workers must load their own design from the document
+		if ( task.reportRunnable != null
+				|| !( task.reportDocument instanceof ReportDocumentReader ) )
+		{
+			return false;
+		}
+		ReportDesignHandle design = task.executionContext.getReportDesign( );
+		if ( design.getBeforeRender( ) != null
+				|| design.getAfterRender( ) != null
+				|| design.getEventHandlerClass( ) != null )
+		{
+			return false;
+		}
+		if ( !isRenderedPageByPage( ) )
+		{
+			return false;
+		}
+		IContentEmitter emitter = ExtensionManager.getInstance( )
+				.createEmitter( task.emitterID );
+		if ( !( emitter instanceof IMergeableEmitter ) )
+		{
+			return false;
+		}
+		merger = (IMergeableEmitter) emitter;
+		threadCount = maxThreads;
+		return true;
+	}
+
+	/**
+	 * the output of a page range is the same as the pages in the whole output
+	 * only if the pages are rendered page by page. Only the paper size
+	 * paginated outputs are merged, the page break paginated outputs, e.g.
+	 * HTML, have no emitter merging them.
+	 */
+	private boolean isRenderedPageByPage( )
+	{
+		String pagination = ExtensionManager.getInstance( ).getPagination(
+				task.emitterID );
+		if ( !ExtensionManager.PAPER_SIZE_PAGINATION.equals( pagination ) )
+		{
+			return false;
+		}
+		Object repaginate = task.renderOptions
+				.getOption( IPDFRenderOption.REPAGINATE_FOR_PDF );
+		if ( Boolean.TRUE.equals( repaginate ) )
+		{
+			return false;
+		}
+		return task.PDFRenderPageByPage
+				&& task.executionContext.isFixedLayout( );
+	}
+
+	private long getPageCount( )
+	{
+		long pageCount = 0;
+		for ( long[] pageSeg : pageSequences )
+		{
+			pageCount += pageSeg[1] - pageSeg[0] + 1;
+		}
+		return pageCount;
+	}
+
+	/**
+	 * split the pages into continuous ranges with the same page count.
+	 */
+	private List<List<long[]>> splitPages( )
+	{
+		ArrayList<List<long[]>> ranges = new ArrayList<List<long[]>>( );
+		long remainPages = getPageCount( );
+		Iterator<long[]> iter = pageSequences.iterator( );
+		long[] pageSeg = null;
+		long nextPage = 0;
+		for ( int i = 0; i < threadCount; i++ )
+		{
+			long rangeSize = remainPages / ( threadCount - i );
+			remainPages -= rangeSize;
+			ArrayList<long[]> range = new ArrayList<long[]>( );
+			while ( rangeSize > 0 )
+			{
+				if ( pageSeg == null || nextPage > pageSeg[1] )
+				{
+					pageSeg = iter.next( );
+					nextPage = pageSeg[0];
+				}
+				long lastPage = Math.min( pageSeg[1], nextPage + rangeSize - 1 );
+				range.add( new long[]{nextPage, lastPage} );
+				rangeSize -= lastPage - nextPage + 1;
+				nextPage = lastPage + 1;
+			}
+			ranges.add( range );
+		}
+		return ranges;
+	}
+
+	/**
+	 * render the pages and write the merged output.
+	 *
+	 * @return the count of the output pages.
+	 */
+	long render( ) throws BirtException
+	{
+		List<List<long[]>> ranges = splitPages( );
+		workers = new RenderTask[ranges.size( )];
+		final File[] outputs = new File[ranges.size( )];
+		final Throwable[] errors = new Throwable[ranges.size( )];
+		Thread[] threads = new Thread[ranges.size( )];
+		try
+		{
+			String tempDir = task.engine.getConfig( ).getTempDir( );
+			for ( int i = 0; i < outputs.length; i++ )
+			{
+				outputs[i] = File.createTempFile( "render", ".tmp", //$NON-NLS-1$ //$NON-NLS-2$
+						tempDir == null ? null : new File( tempDir ) );
+			}
+			for ( int i = 0; i < threads.length; i++ )
+			{
+				final int index = i;
+				final List<long[]> range = ranges.get( i );
+				threads[i] = new Thread( "BIRT Page Render" ) { //$NON-NLS-1$
+
+					public void run( )
+					{
+						try
+						{
+							renderRange( index, range, outputs[index] );
+						}
+						catch ( Throwable ex )
+						{
+							errors[index] = ex;
+						}
+					}
+				};
+				threads[i].setDaemon( true );
+				threads[i].start( );
+			}
+
+			IOException mergeError = null;
+			boolean merged = false;
+			try
+			{
+				if ( !task.getCancelFlag( ) )
+				{
+					mergeOutputs( threads, outputs, errors );
+				}
+				merged = true;
+			}
+			catch ( IOException ex )
+			{
+				// it may be caused by a failed worker, whose error is reported
+				// instead.
+				mergeError = ex;
+			}
+			finally
+			{
+				if ( !merged )
+				{
+					cancel( );
+				}
+				joinThreads( threads );
+			}
+
+			for ( int i = 0; i < errors.length; i++ )
+			{
+				if ( errors[i] instanceof BirtException )
+				{
+					throw (BirtException) errors[i];
+				}
+				if ( errors[i] != null )
+				{
+					throw new EngineException(
+							MessageConstants.REPORT_RUN_ERROR, errors[i] );
+				}
+			}
+			if ( mergeError != null && !task.getCancelFlag( ) )
+			{
+				throw new EngineException( MessageConstants.REPORT_RUN_ERROR,
+						mergeError );
+			}
+			long outputPageCount = 0;
+			for ( int i = 0; i < workers.length; i++ )
+			{
+				outputPageCount += workers[i].outputPageCount;
+				List workerErrors = workers[i].executionContext.getErrors( );
+				for ( Object error : workerErrors )
+				{
+					if ( error instanceof BirtException )
+					{
+						task.executionContext.addException( (BirtException) error );
+					}
+				}
+			}
+			return outputPageCount;
+		}
+		catch ( IOException ex )
+		{
+			throw new EngineException( MessageConstants.REPORT_RUN_ERROR, ex );
+		}
+		finally
+		{
+			for ( int i = 0; i < outputs.length; i++ )
+			{
+				if ( outputs[i] != null )
+				{
+					outputs[i].delete( );
+				}
+			}
+		}
+	}
+
+	private void joinThreads( Thread[] threads )
+	{
+		boolean interrupted = false;
+		for ( int i = 0; i < threads.length; i++ )
+		{
+			if ( joinThread( threads[i], task ) )
+			{
+				interrupted = true;
+			}
+		}
+		if ( interrupted )
+		{
+			Thread.currentThread( ).interrupt( );
+		}
+	}
+
+	/**
+	 * wait until the thread is finished.
+	 *
+	 * @return true if the current thread is interrupted while waiting, the
+	 *         task is cancelled then.
+	 */
+	static boolean joinThread( Thread thread, IEngineTask task )
+	{
+		boolean interrupted = false;
+		while ( thread.isAlive( ) )
+		{
+			try
+			{
+				thread.join( );
+			}
+			catch ( InterruptedException ex )
+			{
+				// the workers use the temporary files, stop them before
+				// returning.
+				interrupted = true;
+				task.cancel( );
+			}
+		}
+		return interrupted;
+	}
+
+	/**
+	 * render a page range in the worker thread. The worker task is created in
+	 * the worker thread as the script context is bound to the creating thread.
+	 */
+	private void renderRange( int index, List<long[]> range, File output )
+			throws BirtException
+	{
+		ReportDocumentReader document = (ReportDocumentReader) task.reportDocument;
+		ReportDocumentReader workerDocument = new ReportDocumentReader(
+				document.getSystemId( ), task.engine, document.getArchive( ),
+				true );
+		try
+		{
+			RenderTask worker = new RenderTask( task.engine, workerDocument );
+			try
+			{
+				worker.setLocale( task.getULocale( ) );
+				worker.setTimeZone( task.getTimeZone( ) );
+				worker.setAppContext( task.getAppContext( ) );
+				RenderOption options = new RenderOption( new HashMap(
+						task.renderOptions.getOptions( ) ) );
+				options.getOptions( ).remove( IRenderOption.RENDER_THREADS );
+				options.getOptions( ).remove( IRenderOption.OUTPUT_STREAM );
+				options.setOutputFileName( output.getAbsolutePath( ) );
+				worker.setRenderOption( options );
+				worker.innerRender = worker.new PageRangeRender( range );
+				synchronized ( this )
+				{
+					workers[index] = worker;
+					if ( task.getCancelFlag( ) )
+					{
+						return;
+					}
+				}
+				worker.render( );
+			}
+			finally
+			{
+				worker.close( );
+			}
+		}
+		finally
+		{
+			workerDocument.close( );
+		}
+	}
+
+	/**
+	 * cancel the running workers.
+	 */
+	synchronized void cancel( )
+	{
+		if ( workers != null )
+		{
+			for ( int i = 0; i < workers.length; i++ )
+			{
+				if ( workers[i] != null )
+				{
+					workers[i].cancel( );
+				}
+			}
+		}
+	}
+
+	private void mergeOutputs( Thread[] threads, File[] outputs,
+			Throwable[] errors ) throws BirtException, IOException
+	{
+		EngineEmitterServices services = new EngineEmitterServices(
+				task.executionContext.getReportContext( ),
+				task.executionContext.getRenderOption( ), task.engine
+						.getConfig( ).getEmitterConfigs( ) );
+		OutputStream out = EmitterUtil.getOuputStream( services, "report." //$NON-NLS-1$
+				+ task.format );
+		InputStream[] ins = new InputStream[outputs.length];
+		try
+		{
+			for ( int i = 0; i < outputs.length; i++ )
+			{
+				ins[i] = new RangeInputStream( task, threads[i], outputs[i],
+						errors, i );
+			}
+			merger.mergeOutputs( ins, out );
+		}
+		finally
+		{
+			for ( int i = 0; i < ins.length; i++ )
+			{
+				if ( ins[i] != null )
+				{
+					try
+					{
+						ins[i].close( );
+					}
+					catch ( IOException ex )
+					{
+						logger.log( Level.FINE, ex.getMessage( ), ex );
+					}
+				}
+			}
+			out.close( );
+		}
+	}
+
+	/**
+	 * The output of a page range. It is opened when the worker of the range
+	 * is finished, so the merger can copy the ranges in the page order while
+	 * the following ranges are still being rendered.
+	 */
+	static class RangeInputStream extends InputStream
+	{
+
+		private IEngineTask task;
+		private Thread thread;
+		private File output;
+		private Throwable[] errors;
+		private int index;
+		private InputStream in;
+
+		RangeInputStream( IEngineTask task, Thread thread, File output,
+				Throwable[] errors, int index )
+		{
+			this.task = task;
+			this.thread = thread;
+			this.output = output;
+			this.errors = errors;
+			this.index = index;
+		}
+
+		private InputStream getInputStream( ) throws IOException
+		{
+			if ( in == null )
+			{
+				if ( joinThread( thread, task ) )
+				{
+					Thread.currentThread( ).interrupt( );
+					throw new InterruptedIOException( );
+				}
+				if ( errors[index] != null )
+				{
+					throw new IOException( errors[index].getMessage( ),
+							errors[index] );
+				}
+				if ( task.getCancelFlag( ) )
+				{
+					throw new IOException( new EngineResourceHandle(
+							task.getULocale( ) )
+							.getMessage( MessageConstants.TASK_CANCEL ) );
+				}
+				in = new FileInputStream( output );
+			}
+			return in;
+		}
+
+		public int read( ) throws IOException
+		{
+			return getInputStream( ).read( );
+		}
+
+		public int read( byte[] b, int off, int len ) throws IOException
+		{
+			return getInputStream( ).read( b, off, len );
+		}
+
+		public int available( ) throws IOException
+		{
+			return getInputStream( ).available( );
+		}
+
+		public void close( ) throws IOException
+		{
+			if ( in != null )
+			{
+				in.close( );
+			}
+		}
+	}
+}
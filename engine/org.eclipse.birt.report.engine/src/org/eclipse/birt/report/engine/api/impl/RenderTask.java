@@ -52,8 +52,8 @@ import org.eclipse.birt.report.engine.internal.executor.l18n.LocalizedReportExec
 import org.eclipse.birt.report.engine.internal.presentation.ReportDocumentInfo;
 import org.eclipse.birt.report.engine.ir.MasterPageDesign;
 import org.eclipse.birt.report.engine.ir.Report;
-import org.eclipse.birt.report.engine.layout.ILayoutPageHandler;
 import org.eclipse.birt.report.engine.layout.IReportLayoutEngine;
+import org.eclipse.birt.report.engine.layout.emitter.PipelinedPageEmitter.IPageStateHandler;
 import org.eclipse.birt.report.engine.layout.html.HTMLLayoutContext;
 import org.eclipse.birt.report.engine.layout.html.HTMLReportLayoutEngine;
 import org.eclipse.birt.report.engine.layout.pdf.emitter.LayoutEngineContext;
@@ -87,6 +87,9 @@ public class RenderTask extends EngineTask implements IRenderTask
 	// the html layout engine
 	private IReportLayoutEngine layoutEngine = null;
 
+	// the render which renders the pages in parallel
+	private ParallelPageRangeRender parallelRender = null;
+
 	/**
 	 * @param engine
 	 *            the report engine
@@ -421,6 +424,10 @@ public class RenderTask extends EngineTask implements IRenderTask
 		{
 			layoutEngine.cancel( );
 		}
+		if ( parallelRender != null )
+		{
+			parallelRender.cancel( );
+		}
 	}
 
 	private interface InnerRender
@@ -568,10 +575,40 @@ public class RenderTask extends EngineTask implements IRenderTask
 			}
 		}
 
+		/**
+		 * render the pages by several worker tasks in parallel if it is
+		 * enabled and supported by the emitter.
+		 * 
+		 * @return true if the pages are rendered in parallel.
+		 */
+		protected boolean renderInParallel( ) throws BirtException
+		{
+			ParallelPageRangeRender render = new ParallelPageRangeRender(
+					RenderTask.this, pageSequences );
+			if ( !render.isSupported( ) )
+			{
+				return false;
+			}
+			parallelRender = render;
+			try
+			{
+				outputPageCount = render.render( );
+			}
+			finally
+			{
+				parallelRender = null;
+			}
+			return true;
+		}
+
 		public void render( ) throws Exception
 		{
 			// start the render
 			setupRenderOption( );
+			if ( renderInParallel( ) )
+			{
+				return;
+			}
 			startRender( );
 			IContentEmitter emitter = createContentEmitter( );
 			supportHtmlPagination( );
@@ -603,12 +640,14 @@ public class RenderTask extends EngineTask implements IRenderTask
 			}
 			if ( ExtensionManager.PAPER_SIZE_PAGINATION.equals( pagination ) )
 			{
+				IContentEmitter pageEmitter = createPipelinedEmitter( emitter );
 				LayoutEngine pdfEmitter = new LayoutEngine(
 						( (HTMLReportLayoutEngine) layoutEngine ).getContext( ),
-						emitter,
+						pageEmitter,
 						renderOptions, executionContext,
 						getDocumentTotalPage( ) );
-				pdfEmitter.setPageHandler( layoutPageHandler );
+				pdfEmitter.setPageHandler( createPipelinedPageHandler(
+						pageEmitter, layoutPageHandler ) );
 				
 				emitter = pdfEmitter;
 			}
@@ -790,7 +829,8 @@ public class RenderTask extends EngineTask implements IRenderTask
 			{
                 emitter = new LayoutEngine(
                         ( (HTMLReportLayoutEngine) layoutEngine ).getContext( ),
-                        emitter, renderOptions, executionContext,
+                        createPipelinedEmitter( emitter ), renderOptions,
+                        executionContext,
                         getDocumentTotalPage( ) );
 			}
 			
@@ -1094,7 +1134,7 @@ public class RenderTask extends EngineTask implements IRenderTask
 		return executor;
 	}
 	
-	private class LayoutPageHandler implements ILayoutPageHandler
+	private class LayoutPageHandler implements IPageStateHandler
 	{
 		private HTMLLayoutContext context;
 		
@@ -1103,22 +1143,40 @@ public class RenderTask extends EngineTask implements IRenderTask
 			this.context = context;
 		}
 		
+		/**
+		 * the pipelined page emitter notifies the page after it is written,
+		 * so the finished state is captured when the page is laid out.
+		 */
+		public Object getPageState( long pageNumber, Object context )
+		{
+			return Boolean.valueOf( isFinished( context ) );
+		}
+		
+		private boolean isFinished( Object context )
+		{
+			if ( context instanceof Boolean )
+			{
+				return ( (Boolean) context ).booleanValue( );
+			}
+			if ( context instanceof HTMLLayoutContext )
+			{
+				HTMLLayoutContext layoutContext = (HTMLLayoutContext) context;
+				return layoutContext.isFinished( );
+			}
+			if ( context instanceof LayoutEngineContext )
+			{
+				LayoutEngineContext layoutEngineContext = (LayoutEngineContext) context;
+				return this.context.isFinished( ) && layoutEngineContext.isFinished( );
+			}
+			return false;
+		}
+		
 		public void onPage( long pageNumber, Object context )
 		{
 			if ( pageHandler != null )
 			{
 				long totalPage = reportDocument.getPageCount( );
-				boolean finished = false;
-				if ( context instanceof HTMLLayoutContext )
-				{
-					HTMLLayoutContext layoutContext = (HTMLLayoutContext) context;
-					finished = layoutContext.isFinished( );
-				}
-				else if ( context instanceof LayoutEngineContext )
-				{
-					LayoutEngineContext layoutEngineContext = (LayoutEngineContext) context;
-					finished = this.context.isFinished( ) && layoutEngineContext.isFinished( );
-				}
+				boolean finished = isFinished( context );
 				IReportDocumentInfo reportDocumentInfo = new ReportDocumentInfo(
 						executionContext, totalPage, finished );
 				pageHandler.onPage( (int) pageNumber, false, reportDocumentInfo );
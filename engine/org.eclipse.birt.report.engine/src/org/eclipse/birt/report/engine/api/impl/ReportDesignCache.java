@@ -0,0 +1,282 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.engine.api.impl;
+
+import java.io.File;
+import java.net.URI;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.eclipse.birt.report.model.api.IResourceLocator;
+import org.eclipse.birt.report.model.api.LibraryHandle;
+import org.eclipse.birt.report.model.api.ReportDesignHandle;
+
+/**
+ * Caches the parsed report designs opened from files.
+ *
+ * The cached runnable is never given to a task: each open returns a copy of
+ * the cached design, so the tasks can change their designs freely. The copies
+ * share the compiled scripts of the cached runnable.
+ *
+ * An entry is keyed by the design file, the resource locator and the resource
+ * folder. It is reloaded if the design file or any library file included by
+ * the design is changed. The libraries which are not local files can't be
+ * checked, the entries using them must be invalidated by the user after the
+ * library is changed.
+ */
+class ReportDesignCache
+{
+
+	private int maxSize;
+
+	private LinkedHashMap<DesignKey, DesignEntry> entries;
+
+	ReportDesignCache( final int maxSize )
+	{
+		this.maxSize = maxSize;
+		this.entries = new LinkedHashMap<DesignKey, DesignEntry>( 16, 0.75f,
+				true ) {
+
+			private static final long serialVersionUID = 1L;
+
+			protected boolean removeEldestEntry(
+					Map.Entry<DesignKey, DesignEntry> eldest )
+			{
+				return size( ) > maxSize;
+			}
+		};
+	}
+
+	boolean isEnabled( )
+	{
+		return maxSize > 0;
+	}
+
+	/**
+	 * returns a copy of the cached design.
+	 *
+	 * @return the copy of the design, null if the design is not cached or is
+	 *         changed.
+	 */
+	ReportRunnable get( File designFile, IResourceLocator locator,
+			String resourcePath )
+	{
+		DesignKey key = new DesignKey( designFile, locator, resourcePath );
+		DesignEntry entry;
+		synchronized ( entries )
+		{
+			entry = entries.get( key );
+		}
+		if ( entry == null )
+		{
+			return null;
+		}
+		if ( entry.isChanged( ) )
+		{
+			synchronized ( entries )
+			{
+				if ( entries.get( key ) == entry )
+				{
+					entries.remove( key );
+				}
+			}
+			return null;
+		}
+		return entry.cloneRunnable( );
+	}
+
+	/**
+	 * caches the loaded design and returns a copy of it.
+	 *
+	 * @param runnable
+	 *            the runnable loaded from the design file. It is kept by the
+	 *            cache, the caller must use the returned copy.
+	 * @param modified
+	 *            the last modified time of the design file before it is
+	 *            loaded.
+	 * @param length
+	 *            the length of the design file before it is loaded.
+	 * @return a copy of the runnable.
+	 */
+	ReportRunnable put( File designFile, IResourceLocator locator,
+			String resourcePath, ReportRunnable runnable, long modified,
+			long length )
+	{
+		DesignEntry entry = new DesignEntry( designFile, runnable, modified,
+				length );
+		synchronized ( entries )
+		{
+			entries.put( new DesignKey( designFile, locator, resourcePath ),
+					entry );
+		}
+		return entry.cloneRunnable( );
+	}
+
+	/**
+	 * removes the cached designs of the design file.
+	 */
+	void invalidate( File designFile )
+	{
+		File file = designFile.getAbsoluteFile( );
+		synchronized ( entries )
+		{
+			Iterator<DesignKey> iter = entries.keySet( ).iterator( );
+			while ( iter.hasNext( ) )
+			{
+				if ( iter.next( ).file.equals( file ) )
+				{
+					iter.remove( );
+				}
+			}
+		}
+	}
+
+	void clear( )
+	{
+		synchronized ( entries )
+		{
+			entries.clear( );
+		}
+	}
+
+	private static class DesignKey
+	{
+
+		File file;
+		IResourceLocator locator;
+		String resourcePath;
+
+		DesignKey( File file, IResourceLocator locator, String resourcePath )
+		{
+			this.file = file.getAbsoluteFile( );
+			this.locator = locator;
+			this.resourcePath = resourcePath;
+		}
+
+		public int hashCode( )
+		{
+			return file.hashCode( );
+		}
+
+		public boolean equals( Object obj )
+		{
+			if ( !( obj instanceof DesignKey ) )
+			{
+				return false;
+			}
+			DesignKey key = (DesignKey) obj;
+			return file.equals( key.file )
+					&& locator == key.locator
+					&& ( resourcePath == null
+							? key.resourcePath == null
+							: resourcePath.equals( key.resourcePath ) );
+		}
+	}
+
+	private static class DesignEntry
+	{
+
+		ReportRunnable runnable;
+
+		/**
+		 * the design file and the included library files.
+		 */
+		File[] files;
+
+		/**
+		 * the last modified time of the files when the design is loaded.
+		 */
+		long[] modified;
+
+		long length;
+
+		DesignEntry( File designFile, ReportRunnable runnable, long modified,
+				long length )
+		{
+			this.runnable = runnable;
+			this.length = length;
+			ArrayList<File> fileList = new ArrayList<File>( );
+			fileList.add( designFile );
+			List libraries = runnable.getReport( ).getAllLibraries( );
+			for ( int i = 0; i < libraries.size( ); i++ )
+			{
+				File file = getLibraryFile( (LibraryHandle) libraries.get( i ) );
+				if ( file != null )
+				{
+					fileList.add( file );
+				}
+			}
+			this.files = fileList.toArray( new File[fileList.size( )] );
+			this.modified = new long[files.length];
+			this.modified[0] = modified;
+			for ( int i = 1; i < files.length; i++ )
+			{
+				this.modified[i] = files[i].lastModified( );
+			}
+		}
+
+		boolean isChanged( )
+		{
+			if ( files[0].length( ) != length )
+			{
+				return true;
+			}
+			for ( int i = 0; i < files.length; i++ )
+			{
+				if ( files[i].lastModified( ) != modified[i] )
+				{
+					return true;
+				}
+			}
+			return false;
+		}
+
+		/**
+		 * the design handle can't be copied by several threads at the same
+		 * time.
+		 */
+		synchronized ReportRunnable cloneRunnable( )
+		{
+			ReportRunnable newRunnable = runnable.cloneRunnable( );
+			newRunnable.cachedScripts = runnable.cachedScripts;
+			return newRunnable;
+		}
+
+		private static File getLibraryFile( LibraryHandle library )
+		{
+			String fileName = library.getFileName( );
+			if ( fileName == null )
+			{
+				return null;
+			}
+			try
+			{
+				URL url = new URL( fileName );
+				if ( !"file".equals( url.getProtocol( ) ) ) //$NON-NLS-1$
+				{
+					return null;
+				}
+				return new File( new URI( url.toString( ) ) );
+			}
+			catch ( Exception ex )
+			{
+				// not an url, it is a file path
+			}
+			File file = new File( fileName );
+			return file.isFile( ) ? file : null;
+		}
+	}
+}
@@ -108,6 +108,8 @@ public class ReportEngine implements IReportEngine
 	
 	private LinkedObjectManager<ReportDocumentReader> openedDocuments;
 
+	private ReportDesignCache designCache;
+
 	private EngineExtensionManager extensionManager = new EngineExtensionManager();
 	
 	private String version;
@@ -139,6 +141,7 @@ public class ReportEngine implements IReportEngine
 				config );
 		this.helper = new ReportEngineHelper( this );
 		openedDocuments = new LinkedObjectManager<ReportDocumentReader>( );
+		designCache = new ReportDesignCache( config.getDesignCacheSize( ) );
 		IStatusHandler handler = config.getStatusHandler( );
 		if ( handler != null )
 		{
@@ -472,6 +475,7 @@ public class ReportEngine implements IReportEngine
 			}
 			openedDocuments.clear( );
 		}
+		designCache.clear( );
 		IStatusHandler handler = config.getStatusHandler( );
 		if ( handler != null )
 		{
@@ -789,6 +793,32 @@ public class ReportEngine implements IReportEngine
 		return null;
 	}
 
+	ReportDesignCache getDesignCache( )
+	{
+		return designCache;
+	}
+
+	/**
+	 * removes the cached designs of the design file. The design is parsed
+	 * again when it is opened next time.
+	 * 
+	 * @param designName
+	 *            the path of the design file
+	 */
+	public void invalidateDesign( String designName )
+	{
+		designCache.invalidate( new File( designName ) );
+	}
+
+	/**
+	 * removes all the cached designs, for example after a library which is
+	 * not a local file is changed.
+	 */
+	public void clearDesignCache( )
+	{
+		designCache.clear( );
+	}
+
 	public Iterator<ReportDocumentReader> getOpenedDocuments( )
 	{
 		return openedDocuments.iterator( );
@@ -115,6 +115,45 @@ public class ReportEngineHelper
 					designName );
 		}
 
+		ReportDesignCache cache = engine.getDesignCache( );
+		if ( cache != null && cache.isEnabled( ) )
+		{
+			return openCachedReportDesign( cache, file, locator );
+		}
+		return loadReportDesign( file, designName, locator );
+	}
+
+	/**
+	 * opens the design file from the design cache of the engine. The design
+	 * is loaded and cached if it is not cached or is changed.
+	 */
+	private IReportRunnable openCachedReportDesign( ReportDesignCache cache,
+			File file, IResourceLocator locator ) throws EngineException
+	{
+		EngineConfig config = engine.getConfig( );
+		if ( locator == null )
+		{
+			locator = config.getResourceLocator( );
+		}
+		String resourcePath = config.getResourcePath( );
+		ReportRunnable runnable = cache.get( file, locator, resourcePath );
+		if ( runnable != null )
+		{
+			return runnable;
+		}
+		// get the file status before loading, so a change during the loading
+		// reloads the design next time.
+		long modified = file.lastModified( );
+		long length = file.length( );
+		runnable = (ReportRunnable) loadReportDesign( file, file.getPath( ),
+				locator );
+		return cache.put( file, locator, resourcePath, runnable, modified,
+				length );
+	}
+
+	private IReportRunnable loadReportDesign( File file, String designName,
+			IResourceLocator locator ) throws EngineException
+	{
 		try
 		{
 			InputStream in = new FileInputStream( file );
@@ -108,8 +108,9 @@ public class RunAndRenderTask extends EngineTask implements IRunAndRenderTask
 			executionContext.setExecutor( executor );
 			if ( ExtensionManager.PAPER_SIZE_PAGINATION.equals( pagination ) )
 			{
-                LayoutEngine pdfLayoutEmitter = new LayoutEngine( emitter,
-                        renderOptions, executionContext, 0l );
+                LayoutEngine pdfLayoutEmitter = new LayoutEngine(
+                        createPipelinedEmitter( emitter ), renderOptions,
+                        executionContext, 0l );
 				emitter = pdfLayoutEmitter;
 			}
 			initializeContentEmitter( emitter );
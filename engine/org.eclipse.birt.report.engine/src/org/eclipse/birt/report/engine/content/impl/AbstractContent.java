@@ -11,6 +11,8 @@
 
 package org.eclipse.birt.report.engine.content.impl;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
@@ -20,6 +22,8 @@ import java.util.Map;
 
 import org.eclipse.birt.core.exception.BirtException;
 import org.eclipse.birt.core.util.IOUtil;
+import org.eclipse.birt.report.engine.api.DataID;
+import org.eclipse.birt.report.engine.api.DataSetID;
 import org.eclipse.birt.report.engine.api.InstanceID;
 import org.eclipse.birt.report.engine.api.impl.QueryUtil;
 import org.eclipse.birt.report.engine.content.IContent;
@@ -352,7 +356,22 @@ abstract public class AbstractContent extends AbstractElement
 				}
 				else
 				{
-					computedStyle = new ComputedStyle( this );
+					// the contents of the same design element often have the
+					// same inline style, share the computed style among them.
+					String styleClass = getStyleClass( );
+					ComputedStyle pcs = (ComputedStyle) ( (IContent) parent )
+							.getComputedStyle( );
+					ComputedStyle cs = pcs.getCachedStyle( styleClass,
+							inlineStyle );
+					if ( cs == null )
+					{
+						// the values are resolved when the style is cached,
+						// which may need the computed style of this content.
+						cs = new ComputedStyle( this );
+						computedStyle = cs;
+						pcs.addCachedStyle( styleClass, inlineStyle, cs );
+					}
+					computedStyle = cs;
 				}
 			}
 		}
@@ -620,6 +639,11 @@ abstract public class AbstractContent extends AbstractElement
 	 */
 	static final protected int VERSION_0 = 0;
 	static final protected int VERSION_1 = 1;
+	/**
+	 * the fields are written by ContentOutputStream, the strings, the styles
+	 * and the instance id are written in the compact format.
+	 */
+	static final protected int VERSION_2 = 2;
 
 	final static short FIELD_NONE = -1;
 	final static short FIELD_NAME = 0;
@@ -647,7 +671,7 @@ abstract public class AbstractContent extends AbstractElement
 		if ( name != null )
 		{
 			IOUtil.writeShort( out, FIELD_NAME );
-			IOUtil.writeString( out, name );
+			writeString( out, name, true );
 		}
 		if ( x != null )
 		{
@@ -677,35 +701,35 @@ abstract public class AbstractContent extends AbstractElement
 		if ( bookmark != null )
 		{
 			IOUtil.writeShort( out, FIELD_BOOKMARK );
-			IOUtil.writeString( out, bookmark );
+			writeString( out, bookmark, false );
 		}
 		if ( altText != null )
 		{
 			IOUtil.writeShort( out, FIELD_ALTTEXT );
-			IOUtil.writeString( out, altText );
+			writeString( out, altText, true );
 		}
 		if ( altTextKey != null )
 		{
 			IOUtil.writeShort( out, FIELD_ALTTEXTKEY );
-			IOUtil.writeString( out, altTextKey );
+			writeString( out, altTextKey, true );
 		}
 		if ( helpText != null )
 		{
 			IOUtil.writeShort( out, FIELD_HELPTEXT );
-			IOUtil.writeString( out, helpText );
+			writeString( out, helpText, true );
 		}
 		if ( inlineStyle != null )
 		{
 			if( !inlineStyle.isEmpty( ) )
 			{
 				IOUtil.writeShort( out, FIELD_INLINESTYLE_VERSION_1 );
-				inlineStyle.write( out );
+				writeStyle( out, inlineStyle );
 			}
 		}
 		if ( instanceId != null )
 		{
 			IOUtil.writeShort( out, FIELD_INSTANCE_ID );
-			IOUtil.writeString( out, instanceId.toString( ) );
+			writeInstanceID( out, instanceId );
 		}
 		if ( toc != null )
 		{
@@ -769,7 +793,7 @@ abstract public class AbstractContent extends AbstractElement
 		switch ( filedId )
 		{
 			case FIELD_NAME :
-				name = IOUtil.readString( in );
+				name = readString( version, in );
 				break;
 			case FIELD_X :
 				x = new DimensionType( );
@@ -791,16 +815,16 @@ abstract public class AbstractContent extends AbstractElement
 				hyperlink = action;
 				break;
 			case FIELD_BOOKMARK :
-				bookmark = IOUtil.readString( in );
+				bookmark = readString( version, in );
 				break;
 			case FIELD_ALTTEXT :
-				altText = IOUtil.readString( in );
+				altText = readString( version, in );
 				break;
 			case FIELD_ALTTEXTKEY :
-				altTextKey = IOUtil.readString( in );
+				altTextKey = readString( version, in );
 				break;
 			case FIELD_HELPTEXT :
-				helpText = IOUtil.readString( in );
+				helpText = readString( version, in );
 				break;
 			case FIELD_INLINESTYLE_VERSION_0 :
 				String styleCssText = IOUtil.readString( in );
@@ -814,7 +838,7 @@ abstract public class AbstractContent extends AbstractElement
 				IStyle style = new StyleDeclaration( cssEngine );
 				if( null != style )
 				{
-					style.read( in );
+					readStyle( version, in, style );
 					if ( !style.isEmpty( ) )
 					{
 						inlineStyle = style;
@@ -822,8 +846,7 @@ abstract public class AbstractContent extends AbstractElement
 				}
 				break;
 			case FIELD_INSTANCE_ID :
-				String value = IOUtil.readString( in );
-				instanceId = InstanceID.parse( value );
+				instanceId = readInstanceID( version, in );
 				break;
 			case FIELD_TOC :
 				toc = IOUtil.readObject( in, loader );
@@ -900,6 +923,10 @@ abstract public class AbstractContent extends AbstractElement
 		{
 			readContentV1( in, loader );
 		}
+		else if ( this.version == VERSION_2 )
+		{
+			readContentV2( in, loader );
+		}
 		else if ( this.version == VERSION_0 )
 		{
 			readContentV0( in, loader );
@@ -935,10 +962,168 @@ abstract public class AbstractContent extends AbstractElement
 		}
 	}
 
+	protected void readContentV2( DataInputStream in, ClassLoader loader )
+			throws IOException
+	{
+		while ( in.available( ) > 0 )
+		{
+			int filedId = IOUtil.readShort( in );
+			readField( VERSION_2, filedId, in, loader );
+		}
+	}
+
 	public void writeContent( DataOutputStream out ) throws IOException
 	{
 		writeFields( out );
 	}
+
+	/**
+	 * write the string, the compact stream saves the shared string only once.
+	 * 
+	 * @param out
+	 *            the output stream.
+	 * @param value
+	 *            the string value.
+	 * @param shared
+	 *            if the value is likely to be used by other contents.
+	 * @throws IOException
+	 */
+	protected void writeString( DataOutputStream out, String value,
+			boolean shared ) throws IOException
+	{
+		if ( out instanceof ContentOutputStream )
+		{
+			if ( shared )
+			{
+				( (ContentOutputStream) out ).writeSharedString( value );
+			}
+			else
+			{
+				( (ContentOutputStream) out ).writeString( value );
+			}
+			return;
+		}
+		IOUtil.writeString( out, value );
+	}
+
+	protected String readString( int version, DataInputStream in )
+			throws IOException
+	{
+		if ( version == VERSION_2 )
+		{
+			return ( (ContentInputStream) in ).readString( );
+		}
+		return IOUtil.readString( in );
+	}
+
+	private void writeStyle( DataOutputStream out, IStyle style )
+			throws IOException
+	{
+		if ( out instanceof ContentOutputStream )
+		{
+			ByteArrayOutputStream buffer = new ByteArrayOutputStream( );
+			DataOutputStream styleOut = new DataOutputStream( buffer );
+			style.write( styleOut );
+			styleOut.flush( );
+			( (ContentOutputStream) out ).writeSharedBytes( buffer
+					.toByteArray( ) );
+			return;
+		}
+		style.write( out );
+	}
+
+	private void readStyle( int version, DataInputStream in, IStyle style )
+			throws IOException
+	{
+		if ( version == VERSION_2 )
+		{
+			byte[] bytes = ( (ContentInputStream) in ).readBytes( );
+			style.read( new DataInputStream( new ByteArrayInputStream( bytes ) ) );
+			return;
+		}
+		style.read( in );
+	}
+
+	/**
+	 * the compact stream writes the instance id as numbers, only the data set
+	 * id is written as a shared string. The ids which can't be written as
+	 * numbers are written as string.
+	 */
+	private void writeInstanceID( DataOutputStream out, InstanceID id )
+			throws IOException
+	{
+		if ( !( out instanceof ContentOutputStream ) )
+		{
+			IOUtil.writeString( out, id.toString( ) );
+			return;
+		}
+		ContentOutputStream cout = (ContentOutputStream) out;
+		DataID dataId = id.getDataID( );
+		if ( id.getUniqueID( ) < -1 || id.getComponentID( ) < -1
+				|| ( dataId != null && dataId.getRowID( ) < -1 ) )
+		{
+			cout.writeVarLong( 0 );
+			cout.writeString( id.toString( ) );
+			return;
+		}
+		cout.writeVarLong( 1 );
+		cout.writeVarLong( id.getUniqueID( ) + 1 );
+		cout.writeVarLong( id.getComponentID( ) + 1 );
+		if ( dataId == null )
+		{
+			cout.writeVarLong( 0 );
+			return;
+		}
+		DataSetID dataSetId = dataId.getDataSetID( );
+		if ( dataId.getRowID( ) != -1 )
+		{
+			cout.writeVarLong( 1 );
+			cout.writeSharedString( dataSetId == null ? null : dataSetId
+					.toString( ) );
+			cout.writeVarLong( dataId.getRowID( ) + 1 );
+		}
+		else
+		{
+			cout.writeVarLong( 2 );
+			cout.writeSharedString( dataSetId == null ? null : dataSetId
+					.toString( ) );
+			cout.writeSharedString( dataId.getCellID( ) );
+		}
+	}
+
+	private InstanceID readInstanceID( int version, DataInputStream in )
+			throws IOException
+	{
+		if ( version != VERSION_2 )
+		{
+			return InstanceID.parse( IOUtil.readString( in ) );
+		}
+		ContentInputStream cin = (ContentInputStream) in;
+		if ( cin.readVarLong( ) == 0 )
+		{
+			return InstanceID.parse( cin.readString( ) );
+		}
+		long uid = cin.readVarLong( ) - 1;
+		long designId = cin.readVarLong( ) - 1;
+		int dataType = (int) cin.readVarLong( );
+		if ( dataType == 0 )
+		{
+			return new InstanceID( null, uid, designId, null );
+		}
+		String dataSet = cin.readString( );
+		DataSetID dataSetId = dataSet == null ? null : DataSetID
+				.parse( dataSet );
+		DataID dataId;
+		if ( dataType == 1 )
+		{
+			dataId = new DataID( dataSetId, cin.readVarLong( ) - 1 );
+		}
+		else
+		{
+			dataId = new DataID( dataSetId, cin.readString( ) );
+		}
+		return new InstanceID( null, uid, designId, dataId );
+	}
 	
 	/**
 	 * @param iVersion
@@ -240,22 +240,7 @@ public class CellContent extends AbstractContent implements ICellContent
 		{
 			if ( inlineStyle == null || inlineStyle.isEmpty( ) )
 			{
-				String cacheKey = getStyleClass();
-				ITableContent table = ( (IRowContent) parent ).getTable( );
-				int column = getColumn( );
-				if ( column >= 0 && column < table.getColumnCount( ) )
-				{
-					IColumn tblColumn = table.getColumn( column );
-					if ( tblColumn != null )
-					{
-						String columnStyleClass = tblColumn.getStyleClass( );
-						if ( columnStyleClass != null )
-						{
-							cacheKey = cacheKey + columnStyleClass;
-						}
-					}
-				}
-
+				String cacheKey = getCacheKey( );
 				ComputedStyle pcs = (ComputedStyle) ( (IContent) parent )
 						.getComputedStyle( );
 				ComputedStyle cs = pcs.getCachedStyle( cacheKey );
@@ -268,12 +253,48 @@ public class CellContent extends AbstractContent implements ICellContent
 			}
 			else
 			{
-				computedStyle = new CellComputedStyle( this );
+				String cacheKey = getCacheKey( );
+				ComputedStyle pcs = (ComputedStyle) ( (IContent) parent )
+						.getComputedStyle( );
+				ComputedStyle cs = pcs.getCachedStyle( cacheKey, inlineStyle );
+				if ( cs == null )
+				{
+					// the values are resolved when the style is cached, which
+					// may need the computed style of this content.
+					cs = new CellComputedStyle( this );
+					computedStyle = cs;
+					pcs.addCachedStyle( cacheKey, inlineStyle, cs );
+				}
+				computedStyle = cs;
 			}
 		}
 		return computedStyle;
 	}
 
+	/**
+	 * the computed style of the cell depends on the style class of the cell
+	 * and the style class of its column.
+	 */
+	private String getCacheKey( )
+	{
+		String cacheKey = getStyleClass();
+		ITableContent table = ( (IRowContent) parent ).getTable( );
+		int column = getColumn( );
+		if ( column >= 0 && column < table.getColumnCount( ) )
+		{
+			IColumn tblColumn = table.getColumn( column );
+			if ( tblColumn != null )
+			{
+				String columnStyleClass = tblColumn.getStyleClass( );
+				if ( columnStyleClass != null )
+				{
+					cacheKey = cacheKey + columnStyleClass;
+				}
+			}
+		}
+		return cacheKey;
+	}
+
 	static final protected short FIELD_ROW_SPAN = 100;
 	static final protected short FIELD_COL_SPAN = 101;
 	static final protected short FIELD_COLUMN = 102;
@@ -0,0 +1,118 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.engine.content.impl;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * The input stream used to read the contents written by ContentOutputStream.
+ * The shared values are loaded by the content reader.
+ *
+ * @see ContentOutputStream
+ */
+public class ContentInputStream extends DataInputStream
+{
+
+	public ContentInputStream( InputStream in )
+	{
+		super( in );
+	}
+
+	public long readVarLong( ) throws IOException
+	{
+		long value = 0;
+		int shift = 0;
+		while ( true )
+		{
+			int b = readUnsignedByte( );
+			value |= (long) ( b & 0x7F ) << shift;
+			if ( ( b & 0x80 ) == 0 )
+			{
+				return value;
+			}
+			shift += 7;
+			if ( shift > 63 )
+			{
+				throw new IOException( "Invalid variable length integer" ); //$NON-NLS-1$
+			}
+		}
+	}
+
+	/**
+	 * read the string written by writeString or writeSharedString.
+	 */
+	public String readString( ) throws IOException
+	{
+		long value = readVarLong( );
+		if ( value == 0 )
+		{
+			return null;
+		}
+		if ( ( value & 1 ) == 0 )
+		{
+			return getSharedString( ( value >>> 1 ) - 1 );
+		}
+		return new String( readInlineBytes( value ),
+				ContentOutputStream.CHARSET );
+	}
+
+	/**
+	 * read the bytes written by writeSharedBytes.
+	 */
+	public byte[] readBytes( ) throws IOException
+	{
+		long value = readVarLong( );
+		if ( value == 0 )
+		{
+			return null;
+		}
+		if ( ( value & 1 ) == 0 )
+		{
+			return getSharedBytes( ( value >>> 1 ) - 1 );
+		}
+		return readInlineBytes( value );
+	}
+
+	private byte[] readInlineBytes( long value ) throws IOException
+	{
+		long length = value >>> 1;
+		if ( length > Integer.MAX_VALUE )
+		{
+			throw new IOException( "Invalid length " + length ); //$NON-NLS-1$
+		}
+		byte[] bytes = new byte[(int) length];
+		readFully( bytes );
+		return bytes;
+	}
+
+	protected String getSharedString( long reference ) throws IOException
+	{
+		return new String( getSharedBytes( reference ),
+				ContentOutputStream.CHARSET );
+	}
+
+	/**
+	 * load the shared value saved by the content writer. The returned bytes
+	 * must not be changed by the caller.
+	 *
+	 * @param reference
+	 *            the reference of the value.
+	 * @return the bytes of the value.
+	 * @throws IOException
+	 */
+	protected byte[] getSharedBytes( long reference ) throws IOException
+	{
+		throw new IOException( "Unsupported shared value " + reference ); //$NON-NLS-1$
+	}
+}
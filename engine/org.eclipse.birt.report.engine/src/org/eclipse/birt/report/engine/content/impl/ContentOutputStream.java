@@ -0,0 +1,117 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.engine.content.impl;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * The output stream used to write the contents in the compact format.
+ *
+ * The lengths and the numbers are written as variable length integers, the
+ * strings are written in UTF-8. A value written by writeSharedString or
+ * writeSharedBytes is saved once by the content writer and referred by its
+ * offset, so the repeated names and styles are not written again.
+ *
+ * <pre>
+ *  value: 0 (null) | (length &lt;&lt; 1) | 1, bytes | (reference + 1) &lt;&lt; 1
+ * </pre>
+ *
+ * @see ContentInputStream
+ */
+public class ContentOutputStream extends DataOutputStream
+{
+
+	static final String CHARSET = "UTF-8"; //$NON-NLS-1$
+
+	public ContentOutputStream( OutputStream out )
+	{
+		super( out );
+	}
+
+	public void writeVarLong( long value ) throws IOException
+	{
+		while ( ( value & ~0x7FL ) != 0 )
+		{
+			write( (int) ( value & 0x7F ) | 0x80 );
+			value >>>= 7;
+		}
+		write( (int) value );
+	}
+
+	public void writeString( String value ) throws IOException
+	{
+		if ( value == null )
+		{
+			writeVarLong( 0 );
+			return;
+		}
+		writeInlineBytes( value.getBytes( CHARSET ) );
+	}
+
+	public void writeSharedString( String value ) throws IOException
+	{
+		if ( value == null )
+		{
+			writeVarLong( 0 );
+			return;
+		}
+		byte[] bytes = value.getBytes( CHARSET );
+		writeShared( value, bytes );
+	}
+
+	public void writeSharedBytes( byte[] value ) throws IOException
+	{
+		if ( value == null )
+		{
+			writeVarLong( 0 );
+			return;
+		}
+		writeShared( ByteBuffer.wrap( value ), value );
+	}
+
+	private void writeShared( Object key, byte[] bytes ) throws IOException
+	{
+		long reference = getReference( key, bytes );
+		if ( reference == -1 )
+		{
+			writeInlineBytes( bytes );
+			return;
+		}
+		writeVarLong( ( reference + 1 ) << 1 );
+	}
+
+	private void writeInlineBytes( byte[] bytes ) throws IOException
+	{
+		writeVarLong( ( (long) bytes.length << 1 ) | 1 );
+		write( bytes );
+	}
+
+	/**
+	 * return the reference of the shared value. The content writer saves the
+	 * value the first time it is used.
+	 *
+	 * @param key
+	 *            the key of the value, it is the string or the wrapped bytes.
+	 * @param bytes
+	 *            the bytes of the value.
+	 * @return the reference of the value, -1 if the value is written inline.
+	 * @throws IOException
+	 */
+	protected long getReference( Object key, byte[] bytes )
+			throws IOException
+	{
+		return -1;
+	}
+}
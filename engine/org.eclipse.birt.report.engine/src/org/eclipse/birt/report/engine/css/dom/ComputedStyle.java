@@ -82,4 +82,98 @@ public class ComputedStyle extends AbstractStyle
 	{
 		return (ComputedStyle) cachedStyles.get( styleClass );
 	}
+
+	/**
+	 * the max count of the computed styles of the children with inline
+	 * styles, so the inline styles which are not reused can't grow the cache.
+	 */
+	static final int MAX_INLINE_STYLE_COUNT = 64;
+
+	Map<InlineStyleKey, ComputedStyle> cachedInlineStyles;
+
+	/**
+	 * add the computed style of a child with the inline style. The values of
+	 * the computed style are all resolved, so it doesn't depend on the child
+	 * any more and can be shared by the children with the same style class
+	 * and inline style.
+	 * 
+	 * @return true if the style is cached.
+	 */
+	public boolean addCachedStyle( String styleClass, IStyle inlineStyle,
+			ComputedStyle style )
+	{
+		if ( !( inlineStyle instanceof StyleDeclaration ) )
+		{
+			return false;
+		}
+		if ( cachedInlineStyles == null )
+		{
+			cachedInlineStyles = new HashMap<InlineStyleKey, ComputedStyle>( );
+		}
+		if ( cachedInlineStyles.size( ) >= MAX_INLINE_STYLE_COUNT )
+		{
+			return false;
+		}
+		StyleDeclaration copy = new StyleDeclaration(
+				(StyleDeclaration) inlineStyle );
+		copy.decouple( );
+		for ( int i = 0; i < NUMBER_OF_STYLE; i++ )
+		{
+			style.getProperty( i );
+		}
+		cachedInlineStyles.put( new InlineStyleKey( styleClass, copy ), style );
+		return true;
+	}
+
+	public ComputedStyle getCachedStyle( String styleClass, IStyle inlineStyle )
+	{
+		if ( cachedInlineStyles == null
+				|| !( inlineStyle instanceof StyleDeclaration ) )
+		{
+			return null;
+		}
+		return cachedInlineStyles.get( new InlineStyleKey( styleClass,
+				(StyleDeclaration) inlineStyle ) );
+	}
+
+	static class InlineStyleKey
+	{
+
+		String styleClass;
+		StyleDeclaration style;
+		int hashCode;
+
+		InlineStyleKey( String styleClass, StyleDeclaration style )
+		{
+			this.styleClass = styleClass;
+			this.style = style;
+			// the values don't implement hashCode, use the set properties
+			hashCode = styleClass == null ? 0 : styleClass.hashCode( );
+			for ( int i = 0; i < NUMBER_OF_STYLE; i++ )
+			{
+				if ( style.values[i] != null )
+				{
+					hashCode = hashCode * 31 + i;
+				}
+			}
+		}
+
+		public int hashCode( )
+		{
+			return hashCode;
+		}
+
+		public boolean equals( Object obj )
+		{
+			if ( !( obj instanceof InlineStyleKey ) )
+			{
+				return false;
+			}
+			InlineStyleKey key = (InlineStyleKey) obj;
+			return ( styleClass == null
+					? key.styleClass == null
+					: styleClass.equals( key.styleClass ) )
+					&& style.equals( key.style );
+		}
+	}
 }
@@ -28,6 +28,7 @@ import org.eclipse.birt.data.engine.api.querydefn.BaseQueryDefinition;
 import org.eclipse.birt.data.engine.olap.api.ICubeQueryResults;
 import org.eclipse.birt.data.engine.olap.api.query.ICubeQueryDefinition;
 import org.eclipse.birt.report.data.adapter.api.DataSessionContext;
+import org.eclipse.birt.report.engine.api.EngineConstants;
 import org.eclipse.birt.report.engine.api.EngineException;
 import org.eclipse.birt.report.engine.data.DataEngineFactory;
 import org.eclipse.birt.report.engine.executor.ExecutionContext;
@@ -45,6 +46,12 @@ public class DteDataEngine extends AbstractDataEngine
 	
 	private boolean needCache;
 
+	/**
+	 * executes the independent queries in parallel, null if the queries are
+	 * executed one by one.
+	 */
+	private QueryPrefetcher prefetcher;
+
 	/**
 	 * cache the query - result set mapping. 
 	 *
@@ -86,27 +93,71 @@ public class DteDataEngine extends AbstractDataEngine
 		try
 		{
 			// create the DteData session.
-			DataSessionContext dteSessionContext = new DataSessionContext(
-					DataSessionContext.MODE_DIRECT_PRESENTATION, context
-							.getDesign( ), context.getScriptContext( ), context
-							.getApplicationClassLoader( ) );
-			dteSessionContext.setAppContext( context.getAppContext( ) );
-			DataEngineContext dteEngineContext = dteSessionContext.getDataEngineContext( );
-			dteEngineContext.setLocale( context.getLocale( ) );
-			dteEngineContext.setTimeZone( context.getTimeZone( ) );
-			String tempDir = getTempDir( context );
-			if ( tempDir != null )
-			{
-				dteEngineContext.setTmpdir( tempDir );
-			}
-
-			dteSession = context.newSession( dteSessionContext );
+			dteSession = context.newSession( createSessionContext( ) );
 		}
 		catch ( Exception ex )
 		{
 			//FIXME: code review. throw engine exception. 
 			logger.log( Level.SEVERE, "can not create the DTE data engine", ex );
 		}
+		// the queries of a run task are not prefetched. Their results are
+		// saved in the document by this session: the result ids come from
+		// the id counter of the session, which is saved as the starting id of
+		// the document on shutdown, and each saved result rewrites the
+		// version map of the document, which is kept per thread. A worker
+		// session would reuse the ids of the task session and drop the
+		// version entries of the other threads.
+		int prefetchThreads = getPrefetchThreads( context.getAppContext( ) );
+		if ( prefetchThreads > 1 && !needCache )
+		{
+			prefetcher = new QueryPrefetcher( this, context, prefetchThreads );
+		}
+	}
+
+	/**
+	 * create the context of the data session used to execute the queries
+	 * directly.
+	 */
+	DataSessionContext createSessionContext( ) throws BirtException
+	{
+		return createSessionContext( context.getScriptContext( ) );
+	}
+
+	/**
+	 * create the context of the data session which evaluates the scripts in
+	 * the given script context.
+	 */
+	DataSessionContext createSessionContext( ScriptContext scriptContext )
+			throws BirtException
+	{
+		DataSessionContext dteSessionContext = new DataSessionContext(
+				DataSessionContext.MODE_DIRECT_PRESENTATION, context
+						.getDesign( ), scriptContext, context
+						.getApplicationClassLoader( ) );
+		dteSessionContext.setAppContext( context.getAppContext( ) );
+		DataEngineContext dteEngineContext = dteSessionContext.getDataEngineContext( );
+		dteEngineContext.setLocale( context.getLocale( ) );
+		dteEngineContext.setTimeZone( context.getTimeZone( ) );
+		String tempDir = getTempDir( context );
+		if ( tempDir != null )
+		{
+			dteEngineContext.setTmpdir( tempDir );
+		}
+		return dteSessionContext;
+	}
+
+	private int getPrefetchThreads( Map appContext )
+	{
+		if ( appContext != null )
+		{
+			Object threads = appContext
+					.get( EngineConstants.APPCONTEXT_QUERY_PREFETCH_THREADS );
+			if ( threads instanceof Number )
+			{
+				return ( (Number) threads ).intValue( );
+			}
+		}
+		return 0;
 	}
 	
 	/**
@@ -145,6 +196,15 @@ public class DteDataEngine extends AbstractDataEngine
 			{
 				( (BaseQueryDefinition) query ).setCacheQueryResults( true );
 			}
+			if ( parentResultSet == null && prefetcher != null )
+			{
+				// the results executed by the prefetcher belong to another
+				// session, they can't be reused by the later items.
+				dteResults = prefetcher.getResults( query );
+			}
+		}
+		if ( dteResults == null )
+		{
 			if ( parentResultSet == null )
 			{
 				// this is the root query
@@ -269,6 +329,20 @@ public class DteDataEngine extends AbstractDataEngine
 		// prepare report queries
 		queryIDMap.putAll( report.getQueryIDs( ) );
 		super.doPrepareQuery( report, appContext );
+		if ( prefetcher != null )
+		{
+			prefetcher.start( report, appContext );
+		}
+	}
+
+	public void shutdown( )
+	{
+		if ( prefetcher != null )
+		{
+			prefetcher.close( );
+			prefetcher = null;
+		}
+		super.shutdown( );
 	}
 
 	protected void cacheResultID( IBaseResultSet parentResultSet,
@@ -0,0 +1,719 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.engine.data.dte;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.eclipse.birt.core.exception.BirtException;
+import org.eclipse.birt.core.script.ScriptContext;
+import org.eclipse.birt.data.engine.api.IBaseDataSetDesign;
+import org.eclipse.birt.data.engine.api.IBaseDataSourceDesign;
+import org.eclipse.birt.data.engine.api.IBaseExpression;
+import org.eclipse.birt.data.engine.api.IBaseQueryDefinition;
+import org.eclipse.birt.data.engine.api.IBaseTransform;
+import org.eclipse.birt.data.engine.api.IBinding;
+import org.eclipse.birt.data.engine.api.IComputedColumn;
+import org.eclipse.birt.data.engine.api.IDataScriptEngine;
+import org.eclipse.birt.data.engine.api.IFilterDefinition;
+import org.eclipse.birt.data.engine.api.IGroupDefinition;
+import org.eclipse.birt.data.engine.api.IInputParameterBinding;
+import org.eclipse.birt.data.engine.api.IParameterDefinition;
+import org.eclipse.birt.data.engine.api.IPreparedQuery;
+import org.eclipse.birt.data.engine.api.IQueryDefinition;
+import org.eclipse.birt.data.engine.api.IQueryResults;
+import org.eclipse.birt.data.engine.api.ISortDefinition;
+import org.eclipse.birt.data.engine.api.querydefn.ScriptExpressionUtil;
+import org.eclipse.birt.report.data.adapter.api.DataRequestSession;
+import org.eclipse.birt.report.data.adapter.api.IModelAdapter;
+import org.eclipse.birt.report.engine.executor.ExecutionContext;
+import org.eclipse.birt.report.engine.ir.Report;
+import org.eclipse.birt.report.model.api.DataSetHandle;
+import org.eclipse.birt.report.model.api.DataSourceHandle;
+import org.eclipse.birt.report.model.api.DesignElementHandle;
+import org.eclipse.birt.report.model.api.OdaDataSetHandle;
+import org.eclipse.birt.report.model.api.OdaDataSourceHandle;
+import org.eclipse.birt.report.model.api.ReportDesignHandle;
+
+import com.ibm.icu.util.TimeZone;
+
+/**
+ * Executes the independent top level queries of the report in parallel.
+ *
+ * The script context, the data session and the JavaScript context of the task
+ * can only be used by the task thread, so the worker threads create a script
+ * context and a data session for each query, and evaluate the scripts in their
+ * own JavaScript contexts. The task thread evaluates the bindings of the
+ * results in the scope of the query while the worker executes the next one, so
+ * the queries share neither a scope nor a session. The script contexts and the
+ * sessions are created, used and closed by the worker thread, the worker keeps
+ * them until the prefetcher is closed as the task thread still reads the
+ * results. The task thread takes
+ * the results when it reaches the report item, it waits if the query is still
+ * running.
+ *
+ * A query is executed in parallel only if it is a top level query of an ODA
+ * data set, neither the data set nor the data source has event handlers or
+ * property bindings, and all the expressions of the query and the data set
+ * only read the data rows and literals. Such a query doesn't depend on the
+ * state of the task, such as the parameters, the variables or the globals
+ * defined by the scripts of the report, so it gets the same results in the
+ * script context of the worker.
+ */
+class QueryPrefetcher
+{
+
+	protected static Logger logger = Logger.getLogger( QueryPrefetcher.class
+			.getName( ) );
+
+	/**
+	 * the names which can be used by the expressions of the prefetched
+	 * queries.
+	 */
+	static final Set<String> ROW_ACCESSORS = new HashSet<String>(
+			Arrays.asList( new String[]{"row", "dataSetRow", "true", //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+					"false", "null"} ) ); //$NON-NLS-1$ //$NON-NLS-2$
+
+	private DteDataEngine dataEngine;
+
+	private ExecutionContext context;
+
+	private int maxThreads;
+
+	private ExecutorService executor;
+
+	/**
+	 * the workers stop executing the queries once the prefetcher is closed.
+	 */
+	private volatile boolean closed;
+
+	/**
+	 * the workers close their sessions once the task thread has closed the
+	 * results.
+	 */
+	private CountDownLatch closeLatch = new CountDownLatch( 1 );
+
+	/**
+	 * the results which are not taken by the task thread yet.
+	 */
+	private HashMap<IQueryDefinition, FutureTask<IQueryResults>> results = new HashMap<IQueryDefinition, FutureTask<IQueryResults>>( );
+
+	QueryPrefetcher( DteDataEngine dataEngine, ExecutionContext context,
+			int maxThreads )
+	{
+		this.dataEngine = dataEngine;
+		this.context = context;
+		this.maxThreads = maxThreads;
+	}
+
+	/**
+	 * start executing the independent queries of the report. It must be called
+	 * in the task thread after the queries are prepared.
+	 *
+	 * @param report
+	 *            the report.
+	 * @param appContext
+	 *            the application context used to prepare the queries.
+	 */
+	void start( Report report, Map appContext )
+	{
+		ReportDesignHandle design = report.getReportDesign( );
+		DataRequestSession taskSession = dataEngine.getDTESession( );
+		if ( taskSession == null )
+		{
+			return;
+		}
+		IModelAdapter modelAdapter = taskSession.getModelAdaptor( );
+		// the designs are adapted in the task thread, the workers only
+		// define them in their sessions.
+		ArrayList<IQueryDefinition> queries = new ArrayList<IQueryDefinition>( );
+		ArrayList<IBaseDataSourceDesign> dataSources = new ArrayList<IBaseDataSourceDesign>( );
+		ArrayList<IBaseDataSetDesign> dataSets = new ArrayList<IBaseDataSetDesign>( );
+		List reportQueries = report.getQueries( );
+		for ( int i = 0; i < reportQueries.size( ); i++ )
+		{
+			Object query = reportQueries.get( i );
+			if ( !( query instanceof IQueryDefinition )
+					|| !isIndependent( (IQueryDefinition) query, design ) )
+			{
+				continue;
+			}
+			DataSetHandle dataSetHandle = design
+					.findDataSet( ( (IQueryDefinition) query ).getDataSetName( ) );
+			try
+			{
+				IBaseDataSetDesign dataSet = modelAdapter
+						.adaptDataSet( dataSetHandle );
+				if ( !isScriptFree( dataSet ) )
+				{
+					continue;
+				}
+				dataSources.add( modelAdapter.adaptDataSource( dataSetHandle
+						.getDataSource( ) ) );
+				dataSets.add( dataSet );
+				queries.add( (IQueryDefinition) query );
+			}
+			catch ( BirtException ex )
+			{
+				// the task thread defines the data set again and reports the
+				// error.
+				logger.log( Level.FINE, ex.getMessage( ), ex );
+			}
+		}
+		if ( queries.size( ) < 2 )
+		{
+			// nothing to execute in parallel
+			return;
+		}
+
+		// initialize the class loader in the task thread, the workers create
+		// their sessions with it.
+		final ClassLoader loader = context.getApplicationClassLoader( );
+		int threadCount = Math.min( maxThreads, queries.size( ) );
+		ArrayList<Worker> workers = new ArrayList<Worker>( );
+		for ( int i = 0; i < threadCount; i++ )
+		{
+			workers.add( new Worker( context.getLocale( ), context
+					.getTimeZone( ), loader ) );
+		}
+		for ( int i = 0; i < queries.size( ); i++ )
+		{
+			IQueryDefinition query = queries.get( i );
+			results.put( query, workers.get( i % threadCount ).addQuery(
+					query, dataSources.get( i ), dataSets.get( i ),
+					appContext ) );
+		}
+
+		final ClassLoader contextLoader = Thread.currentThread( )
+				.getContextClassLoader( );
+		executor = Executors.newFixedThreadPool( threadCount,
+				new ThreadFactory( ) {
+
+					public Thread newThread( Runnable r )
+					{
+						Thread thread = new Thread( r, "BIRT Query Prefetch" ); //$NON-NLS-1$
+						thread.setDaemon( true );
+						thread.setContextClassLoader( contextLoader );
+						return thread;
+					}
+				} );
+		for ( Worker worker : workers )
+		{
+			executor.execute( worker );
+		}
+		executor.shutdown( );
+	}
+
+	/**
+	 * test if the query can be executed in the worker thread.
+	 */
+	private boolean isIndependent( IQueryDefinition query,
+			ReportDesignHandle design )
+	{
+		if ( query.getParentQuery( ) != null
+				|| query.getSourceQuery( ) != null
+				|| query.getQueryResultsID( ) != null
+				|| !query.getLinks( ).isEmpty( )
+				|| query.getDataSetName( ) == null )
+		{
+			return false;
+		}
+		DataSetHandle dataSet = design.findDataSet( query.getDataSetName( ) );
+		if ( !( dataSet instanceof OdaDataSetHandle )
+				|| hasEventHandler( dataSet ) || hasPropertyBinding( dataSet ) )
+		{
+			return false;
+		}
+		DataSourceHandle dataSource = dataSet.getDataSource( );
+		if ( !( dataSource instanceof OdaDataSourceHandle )
+				|| hasEventHandler( dataSource )
+				|| hasPropertyBinding( dataSource ) )
+		{
+			return false;
+		}
+		return isScriptFree( query );
+	}
+
+	private boolean hasEventHandler( DesignElementHandle handle )
+	{
+		if ( handle.getEventHandlerClass( ) != null )
+		{
+			return true;
+		}
+		if ( handle instanceof DataSetHandle )
+		{
+			DataSetHandle dataSet = (DataSetHandle) handle;
+			return dataSet.getBeforeOpen( ) != null
+					|| dataSet.getAfterOpen( ) != null
+					|| dataSet.getBeforeClose( ) != null
+					|| dataSet.getAfterClose( ) != null
+					|| dataSet.getOnFetch( ) != null;
+		}
+		DataSourceHandle dataSource = (DataSourceHandle) handle;
+		return dataSource.getBeforeOpen( ) != null
+				|| dataSource.getAfterOpen( ) != null
+				|| dataSource.getBeforeClose( ) != null
+				|| dataSource.getAfterClose( ) != null;
+	}
+
+	/**
+	 * the property bindings are evaluated in the scope of the task.
+	 */
+	private boolean hasPropertyBinding( DesignElementHandle handle )
+	{
+		List bindings = handle.getPropertyBindings( );
+		return bindings != null && !bindings.isEmpty( );
+	}
+
+	/**
+	 * test if the expressions of the query only read the data rows and
+	 * literals.
+	 */
+	static boolean isScriptFree( IBaseQueryDefinition query )
+	{
+		Map bindings = query.getBindings( );
+		if ( bindings != null )
+		{
+			Iterator iter = bindings.values( ).iterator( );
+			while ( iter.hasNext( ) )
+			{
+				IBinding binding = (IBinding) iter.next( );
+				try
+				{
+					if ( !isScriptFree( binding.getExpression( ) )
+							|| !isScriptFree( binding.getFilter( ) )
+							|| !isScriptFree( binding.getArguments( ) ) )
+					{
+						return false;
+					}
+				}
+				catch ( BirtException ex )
+				{
+					return false;
+				}
+			}
+		}
+		if ( query instanceof IQueryDefinition
+				&& !isScriptFreeParameters( ( (IQueryDefinition) query )
+						.getInputParamBindings( ) ) )
+		{
+			return false;
+		}
+		List groups = query.getGroups( );
+		if ( groups != null )
+		{
+			for ( int i = 0; i < groups.size( ); i++ )
+			{
+				IGroupDefinition group = (IGroupDefinition) groups.get( i );
+				if ( !isScriptFree( group.getKeyExpression( ) )
+						|| !isScriptFree( (IBaseTransform) group ) )
+				{
+					return false;
+				}
+			}
+		}
+		return isScriptFree( (IBaseTransform) query );
+	}
+
+	private static boolean isScriptFree( IBaseTransform transform )
+	{
+		if ( !isScriptFreeFilters( transform.getFilters( ) )
+				|| !isScriptFreeSorts( transform.getSorts( ) ) )
+		{
+			return false;
+		}
+		Collection subqueries = transform.getSubqueries( );
+		if ( subqueries != null )
+		{
+			Iterator iter = subqueries.iterator( );
+			while ( iter.hasNext( ) )
+			{
+				if ( !isScriptFree( (IBaseQueryDefinition) iter.next( ) ) )
+				{
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * test if the expressions of the data set only read the data rows and
+	 * literals.
+	 */
+	static boolean isScriptFree( IBaseDataSetDesign dataSet )
+	{
+		if ( dataSet.getEventHandler( ) != null
+				|| dataSet.getBeforeOpenScript( ) != null
+				|| dataSet.getAfterOpenScript( ) != null
+				|| dataSet.getOnFetchScript( ) != null
+				|| dataSet.getBeforeCloseScript( ) != null
+				|| dataSet.getAfterCloseScript( ) != null )
+		{
+			return false;
+		}
+		List columns = dataSet.getComputedColumns( );
+		if ( columns != null )
+		{
+			for ( int i = 0; i < columns.size( ); i++ )
+			{
+				IComputedColumn column = (IComputedColumn) columns.get( i );
+				if ( !isScriptFree( column.getExpression( ) )
+						|| !isScriptFree( column.getAggregateFilter( ) )
+						|| !isScriptFree( column.getAggregateArgument( ) ) )
+				{
+					return false;
+				}
+			}
+		}
+		List parameters = dataSet.getParameters( );
+		if ( parameters != null )
+		{
+			for ( int i = 0; i < parameters.size( ); i++ )
+			{
+				// the parameters linked to the report parameters read params
+				if ( !isScriptFree( ( (IParameterDefinition) parameters
+						.get( i ) ).getDefaultInputValue( ) ) )
+				{
+					return false;
+				}
+			}
+		}
+		return isScriptFreeFilters( dataSet.getFilters( ) )
+				&& isScriptFreeSorts( dataSet.getSortHints( ) )
+				&& isScriptFreeParameters( dataSet.getInputParamBindings( ) );
+	}
+
+	private static boolean isScriptFreeFilters( List filters )
+	{
+		if ( filters != null )
+		{
+			for ( int i = 0; i < filters.size( ); i++ )
+			{
+				if ( !isScriptFree( ( (IFilterDefinition) filters.get( i ) )
+						.getExpression( ) ) )
+				{
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private static boolean isScriptFreeSorts( List sorts )
+	{
+		if ( sorts != null )
+		{
+			for ( int i = 0; i < sorts.size( ); i++ )
+			{
+				if ( !isScriptFree( ( (ISortDefinition) sorts.get( i ) )
+						.getExpression( ) ) )
+				{
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private static boolean isScriptFreeParameters( Collection bindings )
+	{
+		if ( bindings != null )
+		{
+			Iterator iter = bindings.iterator( );
+			while ( iter.hasNext( ) )
+			{
+				if ( !isScriptFree( ( (IInputParameterBinding) iter.next( ) )
+						.getExpr( ) ) )
+				{
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private static boolean isScriptFree( List expressions )
+	{
+		if ( expressions != null )
+		{
+			for ( int i = 0; i < expressions.size( ); i++ )
+			{
+				Object expr = expressions.get( i );
+				if ( expr instanceof IBaseExpression
+						&& !isScriptFree( (IBaseExpression) expr ) )
+				{
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private static boolean isScriptFree( IBaseExpression expr )
+	{
+		return ScriptExpressionUtil.isScriptFree( expr, ROW_ACCESSORS );
+	}
+
+	private static boolean isScriptFree( String script )
+	{
+		return ScriptExpressionUtil.isScriptFree( script, ROW_ACCESSORS );
+	}
+
+	/**
+	 * get the results of the query executed by the workers. The results can be
+	 * taken only once.
+	 *
+	 * @param query
+	 *            the top level query.
+	 * @return the results, null if the query is not executed by the workers or
+	 *         the execution failed.
+	 */
+	IQueryResults getResults( IQueryDefinition query )
+	{
+		FutureTask<IQueryResults> task = results.remove( query );
+		if ( task == null )
+		{
+			return null;
+		}
+		try
+		{
+			return task.get( );
+		}
+		catch ( InterruptedException ex )
+		{
+			Thread.currentThread( ).interrupt( );
+		}
+		catch ( CancellationException ex )
+		{
+			// the worker stopped before the query, the task thread executes
+			// it.
+		}
+		catch ( ExecutionException ex )
+		{
+			// the task thread executes the query again and reports the error.
+			logger.log( Level.FINE, ex.getMessage( ), ex.getCause( ) );
+		}
+		return null;
+	}
+
+	/**
+	 * close the results which are not taken by the task thread, and wait for
+	 * the workers to close their sessions.
+	 */
+	void close( )
+	{
+		closed = true;
+		boolean interrupted = false;
+		// the running queries can't be stopped, wait for them to close the
+		// results. The workers cancel the queries they don't start.
+		for ( FutureTask<IQueryResults> task : results.values( ) )
+		{
+			while ( true )
+			{
+				try
+				{
+					task.get( ).close( );
+					break;
+				}
+				catch ( InterruptedException ex )
+				{
+					interrupted = true;
+				}
+				catch ( CancellationException ex )
+				{
+					break;
+				}
+				catch ( Exception ex )
+				{
+					logger.log( Level.FINE, ex.getMessage( ), ex );
+					break;
+				}
+			}
+		}
+		results.clear( );
+		closeLatch.countDown( );
+		if ( executor != null )
+		{
+			while ( !executor.isTerminated( ) )
+			{
+				try
+				{
+					executor.awaitTermination( 1, TimeUnit.SECONDS );
+				}
+				catch ( InterruptedException ex )
+				{
+					interrupted = true;
+				}
+			}
+			executor = null;
+		}
+		if ( interrupted )
+		{
+			Thread.currentThread( ).interrupt( );
+		}
+	}
+
+	/**
+	 * executes the queries in a worker thread, each query in its own script
+	 * context and data session.
+	 */
+	private class Worker implements Runnable
+	{
+
+		private Locale locale;
+
+		private TimeZone timeZone;
+
+		private ClassLoader loader;
+
+		private ArrayList<FutureTask<IQueryResults>> tasks = new ArrayList<FutureTask<IQueryResults>>( );
+
+		private ArrayList<ScriptContext> scriptContexts = new ArrayList<ScriptContext>( );
+
+		private ArrayList<DataRequestSession> sessions = new ArrayList<DataRequestSession>( );
+
+		Worker( Locale locale, TimeZone timeZone, ClassLoader loader )
+		{
+			this.locale = locale;
+			this.timeZone = timeZone;
+			this.loader = loader;
+		}
+
+		FutureTask<IQueryResults> addQuery( final IQueryDefinition query,
+				final IBaseDataSourceDesign dataSource,
+				final IBaseDataSetDesign dataSet, final Map appContext )
+		{
+			FutureTask<IQueryResults> task = new FutureTask<IQueryResults>(
+					new Callable<IQueryResults>( ) {
+
+						public IQueryResults call( ) throws Exception
+						{
+							return execute( query, dataSource, dataSet,
+									appContext );
+						}
+					} );
+			tasks.add( task );
+			return task;
+		}
+
+		private IQueryResults execute( IQueryDefinition query,
+				IBaseDataSourceDesign dataSource,
+				IBaseDataSetDesign dataSet, Map appContext )
+				throws BirtException
+		{
+			ScriptContext scriptContext = new ScriptContext( );
+			scriptContexts.add( scriptContext );
+			scriptContext.setLocale( locale );
+			scriptContext.setTimeZone( timeZone );
+			scriptContext.setApplicationClassLoader( loader );
+			// the engine enters the JavaScript context of this thread.
+			scriptContext.getScriptEngine( IDataScriptEngine.ENGINE_NAME );
+			DataRequestSession session = context.newSession( dataEngine
+					.createSessionContext( scriptContext ) );
+			sessions.add( session );
+			session.defineDataSource( dataSource );
+			session.defineDataSet( dataSet );
+			IPreparedQuery pQuery = (IPreparedQuery) session.prepare( query,
+					appContext );
+			IQueryResults rsets = (IQueryResults) session.execute( pQuery,
+					null, scriptContext );
+			try
+			{
+				// the query is executed when the iterator is created.
+				rsets.getResultIterator( );
+			}
+			catch ( BirtException ex )
+			{
+				rsets.close( );
+				throw ex;
+			}
+			return rsets;
+		}
+
+		public void run( )
+		{
+			try
+			{
+				for ( FutureTask<IQueryResults> task : tasks )
+				{
+					if ( closed )
+					{
+						break;
+					}
+					task.run( );
+				}
+			}
+			finally
+			{
+				for ( FutureTask<IQueryResults> task : tasks )
+				{
+					task.cancel( false );
+				}
+				awaitClose( );
+				for ( DataRequestSession session : sessions )
+				{
+					session.shutdown( );
+				}
+				// the JavaScript contexts are exited in the reverse order.
+				for ( int i = scriptContexts.size( ) - 1; i >= 0; i-- )
+				{
+					scriptContexts.get( i ).close( );
+				}
+			}
+		}
+
+		/**
+		 * the task thread may read the results until the prefetcher is
+		 * closed.
+		 */
+		private void awaitClose( )
+		{
+			boolean interrupted = false;
+			while ( true )
+			{
+				try
+				{
+					closeLatch.await( );
+					break;
+				}
+				catch ( InterruptedException ex )
+				{
+					interrupted = true;
+				}
+			}
+			if ( interrupted )
+			{
+				Thread.currentThread( ).interrupt( );
+			}
+		}
+	}
+}
@@ -45,6 +45,7 @@ import org.eclipse.birt.report.engine.executor.ExecutionContext;
 import org.eclipse.birt.report.engine.i18n.MessageConstants;
 import org.eclipse.birt.report.engine.layout.emitter.util.Position;
 import org.eclipse.birt.report.engine.layout.pdf.util.PropertyUtil;
+import org.eclipse.birt.report.engine.util.ImageCache;
 import org.eclipse.birt.report.engine.util.ResourceLocatorWrapper;
 import org.eclipse.birt.report.engine.util.SvgFile;
 import org.eclipse.birt.report.model.api.IResourceLocator;
@@ -207,7 +208,7 @@ public class EmitterUtil
 									.transSvgToArray( new ByteArrayInputStream(
 											buffer ) );
 						}
-						image = Image.getInstance( buffer );
+						image = ImageCache.getImage( buffer );
 					}
 					break;
 				case IImageContent.IMAGE_NAME :
@@ -217,7 +218,7 @@ public class EmitterUtil
 					if ( SvgFile.isSvg( mimeType, uri, extension ) )
 						data = SvgFile.transSvgToArray( in );
 					in.close( );
-					image = Image.getInstance( data );
+					image = ImageCache.getImage( data );
 					break;
 
 				case IImageContent.IMAGE_URL :
@@ -20,6 +20,9 @@ public class HTMLEncodeUtil extends XMLEncodeUtil
 	static char[] HTML_WHITE_SPACE_ENCODING = new char[]{'&', '<', ' ', '\t',
 			'\r', '\n'};
 
+	static final boolean[] HTML_TEXT_ESCAPES = createEscapeTable( HTML_TEXT_ENCODING );
+	static final boolean[] HTML_WHITE_SPACE_ESCAPES = createEscapeTable( HTML_WHITE_SPACE_ENCODING );
+
 	static final String ESCAPE_BR = "<br/>";
 	static final String ESCAPE_NBSP = "&#xa0;";
 	static final String ESCAPE_AMP = "&amp;";
@@ -37,16 +40,16 @@ public class HTMLEncodeUtil extends XMLEncodeUtil
 	 */
 	static public String encodeText( String text, boolean whitespace )
 	{
-		char[] chars = text.toCharArray( );
-		int length = chars.length;
-		int index = testEscape( chars, whitespace
-				? HTML_WHITE_SPACE_ENCODING
-				: HTML_TEXT_ENCODING );
+		int length = text.length( );
+		int index = testEscape( text, whitespace
+				? HTML_WHITE_SPACE_ESCAPES
+				: HTML_TEXT_ESCAPES );
 
 		if ( index >= length )
 		{
 			return text;
 		}
+		char[] chars = text.toCharArray( );
 		StringBuilder sb = new StringBuilder( length * 2 );
 		sb.append( chars, 0, index );
 
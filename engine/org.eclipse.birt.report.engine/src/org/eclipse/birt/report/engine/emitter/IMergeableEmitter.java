@@ -0,0 +1,40 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.engine.emitter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Defines the interface of the emitters whose outputs can be merged.
+ *
+ * The render task may split the pages of a report document into continuous
+ * page ranges and render each range by its own emitter in parallel. The
+ * outputs of the ranges are then merged by this interface in the page order.
+ */
+public interface IMergeableEmitter
+{
+
+	/**
+	 * merge the outputs of the page ranges into one output.
+	 *
+	 * @param outputs
+	 *            the outputs of the page ranges, in the page order.
+	 * @param out
+	 *            the stream to write the merged output. It is closed by the
+	 *            caller.
+	 * @throws IOException
+	 */
+	public void mergeOutputs( InputStream[] outputs, OutputStream out )
+			throws IOException;
+}
@@ -88,8 +88,90 @@ public class XMLEncodeUtil
 		return length;
 	}
 
+	/**
+	 * create the table of the ASCII characters which need to be escaped. It
+	 * contains the invalid control characters and the ASCII characters in the
+	 * encodings.
+	 * 
+	 * @param encodings
+	 *            the characters to be escaped, may be null.
+	 * @return the table indexed by the ASCII character.
+	 */
+	protected static boolean[] createEscapeTable( char[] encodings )
+	{
+		boolean[] escapes = new boolean[128];
+		for ( int ch = 0; ch < escapes.length; ch++ )
+		{
+			escapes[ch] = !isValidCodePoint( ch );
+		}
+		if ( encodings != null )
+		{
+			for ( char ch : encodings )
+			{
+				if ( ch < escapes.length )
+				{
+					escapes[ch] = true;
+				}
+			}
+		}
+		return escapes;
+	}
+
+	/**
+	 * get the index of the first character which needs to be escaped. The
+	 * string is tested without being copied and the ASCII characters are
+	 * tested by a table lookup.
+	 * 
+	 * @param s
+	 *            the string to test
+	 * @param escapes
+	 *            the table created by createEscapeTable
+	 * @return the index of the first character to be escaped, the length of
+	 *         the string if there is no such character.
+	 */
+	protected static int testEscape( String s, boolean[] escapes )
+	{
+		int index = 0;
+		int length = s.length( );
+		while ( index < length )
+		{
+			char c1 = s.charAt( index++ );
+			if ( c1 < escapes.length )
+			{
+				if ( escapes[c1] )
+				{
+					return index - 1;
+				}
+			}
+			else if ( Character.isHighSurrogate( c1 ) )
+			{
+				if ( index < length )
+				{
+					char c2 = s.charAt( index++ );
+					if ( Character.isLowSurrogate( c2 ) )
+					{
+						int cp = Character.toCodePoint( c1, c2 );
+						if ( isValidCodePoint( cp ) )
+						{
+							continue;
+						}
+					}
+					return index - 2;
+				}
+				return index - 1;
+			}
+			else if ( !isValidCodePoint( c1 ) )
+			{
+				return index - 1;
+			}
+		}
+		return length;
+	}
+
 	protected static final char[] XML_TEXT_ENCODE = new char[]{'&', '<'};
 
+	protected static final boolean[] XML_TEXT_ESCAPES = createEscapeTable( XML_TEXT_ENCODE );
+
 	/**
 	 * Replace the escape character
 	 * 
@@ -102,13 +184,13 @@ public class XMLEncodeUtil
 	 */
 	static public String encodeText( String s )
 	{
-		char[] chars = s.toCharArray( );
-		int length = chars.length;
-		int index = testEscape( chars, XML_TEXT_ENCODE );
+		int length = s.length( );
+		int index = testEscape( s, XML_TEXT_ESCAPES );
 		if ( index >= length )
 		{
 			return s;
 		}
+		char[] chars = s.toCharArray( );
 
 		StringBuilder sb = new StringBuilder( 2 * length );
 		sb.append( chars, 0, index );
@@ -147,6 +229,10 @@ public class XMLEncodeUtil
 	protected static final char[] XML_ATTR_ENCODE = new char[]{'&', '<', '>',
 			'"', '\r', '\n', '\t'};
 
+	protected static final boolean[] XML_ATTR_ESCAPES = createEscapeTable( XML_ATTR_ENCODE );
+
+	protected static final boolean[] XML_CDATA_ESCAPES = createEscapeTable( null );
+
 	/**
 	 * Replaces the escape character in attribute value.
 	 * 
@@ -156,13 +242,13 @@ public class XMLEncodeUtil
 	 */
 	static public String encodeAttr( String s )
 	{
-		char[] chars = s.toCharArray( );
-		int length = chars.length;
-		int index = testEscape( chars, XML_ATTR_ENCODE );
+		int length = s.length( );
+		int index = testEscape( s, XML_ATTR_ESCAPES );
 		if ( index >= length )
 		{
 			return s;
 		}
+		char[] chars = s.toCharArray( );
 
 		StringBuilder sb = new StringBuilder( 2 * length );
 		sb.append( chars, 0, index );
@@ -216,13 +302,13 @@ public class XMLEncodeUtil
 
 	static public String encodeCdata( String s )
 	{
-		char[] chars = s.toCharArray( );
-		int length = chars.length;
-		int index = testEscape( chars, null );
+		int length = s.length( );
+		int index = testEscape( s, XML_CDATA_ESCAPES );
 		if ( index >= length )
 		{
 			return s;
 		}
+		char[] chars = s.toCharArray( );
 
 		StringBuilder sb = new StringBuilder( 2 * length );
 		sb.append( chars, 0, index );
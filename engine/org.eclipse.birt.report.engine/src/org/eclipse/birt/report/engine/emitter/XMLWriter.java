@@ -23,6 +23,8 @@ import java.util.logging.Logger;
  * Output the content following the XML specification. Only when the events of
  * endding the writer, the stream is flushed explictly.
  * 
+ * The content is collected in a char buffer which is written to the stream
+ * writer when it is full, so the encoder is called with large blocks only.
  */
 public class XMLWriter
 {
@@ -30,7 +32,7 @@ public class XMLWriter
 	/** logger */
 	protected static Logger log = Logger.getLogger( XMLWriter.class.getName( ) );
 
-	protected static final int MAX_BUFFER_SIZE = 1024;
+	protected static final int MAX_BUFFER_SIZE = 8192;
 	protected char[] buffer = new char[MAX_BUFFER_SIZE];
 	protected int bufferSize;
 
@@ -271,7 +273,11 @@ public class XMLWriter
 	 */
 	public void attribute( String attrName, float attrValue )
 	{
-		print( ' ' + attrName + "=\"" + Float.toString( attrValue ) + '\"' ); //$NON-NLS-1$ 
+		print( ' ' );
+		print( attrName );
+		print( "=\"" ); //$NON-NLS-1$
+		print( Float.toString( attrValue ) );
+		print( '\"' );
 	}
 
 	/**
@@ -284,7 +290,11 @@ public class XMLWriter
 	 */
 	public void attribute( String attrName, double attrValue )
 	{
-		print( ' ' + attrName + "=\"" + Double.toString( attrValue ) + '\"' ); //$NON-NLS-1$
+		print( ' ' );
+		print( attrName );
+		print( "=\"" ); //$NON-NLS-1$
+		print( Double.toString( attrValue ) );
+		print( '\"' );
 	}
 
 	/**
@@ -297,8 +307,11 @@ public class XMLWriter
 	 */
 	public void attribute( String attrName, int attrValue )
 	{
-		print( ' ' + attrName + "=\"" //$NON-NLS-1$
-				+ Integer.toString( attrValue ) + '\"' ); //$NON-NLS-1$
+		print( ' ' );
+		print( attrName );
+		print( "=\"" ); //$NON-NLS-1$
+		print( Integer.toString( attrValue ) );
+		print( '\"' );
 	}
 
 	/**
@@ -481,24 +494,25 @@ public class XMLWriter
 	public void print( String s )
 	{
 		int length = s.length( );
-		if ( bufferSize + length >= MAX_BUFFER_SIZE )
+		if ( bufferSize + length > MAX_BUFFER_SIZE )
 		{
-			try
-			{
-				writer.write( buffer, 0, bufferSize );
-				writer.write( s );
-				bufferSize = 0;
-			}
-			catch ( IOException ex )
+			flush( );
+			if ( length >= MAX_BUFFER_SIZE )
 			{
-				log.log( Level.SEVERE, ex.getMessage( ) );
+				// large content is written directly
+				try
+				{
+					writer.write( s );
+				}
+				catch ( IOException ex )
+				{
+					log.log( Level.SEVERE, ex.getMessage( ) );
+				}
+				return;
 			}
 		}
-		else
-		{
-			s.getChars( 0, length, buffer, bufferSize );
-			bufferSize += length;
-		}
+		s.getChars( 0, length, buffer, bufferSize );
+		bufferSize += length;
 	}
 
 	public void println( )
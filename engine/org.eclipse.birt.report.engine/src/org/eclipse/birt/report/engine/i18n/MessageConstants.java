@@ -141,6 +141,7 @@ public class MessageConstants
     public static final String  UNKNOWN_FIELD_ID = "Error.UnknownFieldID";
     public static final String  RESOURCE_NOT_ACCESSIBLE = "Error.ResourceNotAccessible";
 	public static final String DOCUMENT_ERROR = "Error.ERROR_WITH_STATUS";
+    public static final String  STREAM_CLOSED = "Error.StreamClosed";
     
     //Element ID for engine exception
     public static final String 	ELEMENT_ID = "Error.ElementID";
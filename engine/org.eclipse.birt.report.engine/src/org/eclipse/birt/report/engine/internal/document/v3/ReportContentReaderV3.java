@@ -14,6 +14,9 @@ package org.eclipse.birt.report.engine.internal.document.v3;
 import java.io.ByteArrayInputStream;
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -21,6 +24,7 @@ import org.eclipse.birt.core.archive.RAInputStream;
 import org.eclipse.birt.core.util.IOUtil;
 import org.eclipse.birt.report.engine.content.IContent;
 import org.eclipse.birt.report.engine.content.impl.AbstractContent;
+import org.eclipse.birt.report.engine.content.impl.ContentInputStream;
 import org.eclipse.birt.report.engine.content.impl.ReportContent;
 import org.eclipse.birt.report.engine.internal.document.DocumentExtension;
 
@@ -43,8 +47,31 @@ public class ReportContentReaderV3
 
 	protected final static int VERSION_0 = 0;
 	protected final static int VERSION_1 = 1;
+	protected final static int VERSION_2 = 2;
 	protected final static int VERSION_SIZE = 4;
 
+	protected final static long SHARED_VALUE_TAG = ReportContentWriterV3.SHARED_VALUE_TAG;
+
+	/**
+	 * the max count of the shared values cached by the reader.
+	 */
+	protected final static int MAX_CACHED_VALUE_COUNT = 1024;
+
+	/**
+	 * the shared values loaded by the reader, the key is the offset of the
+	 * value.
+	 */
+	protected Map<Long, Object> sharedValues = new LinkedHashMap<Long, Object>(
+			16, 0.75f, true ) {
+
+		private static final long serialVersionUID = 1L;
+
+		protected boolean removeEldestEntry( Map.Entry<Long, Object> eldest )
+		{
+			return size( ) > MAX_CACHED_VALUE_COUNT;
+		}
+	};
+
 	/**
 	 * the current offset of the stream.
 	 */
@@ -71,7 +98,7 @@ public class ReportContentReaderV3
 			{
 				version = VERSION_0;
 			}
-			else if ( version == VERSION_1 )
+			else if ( version == VERSION_1 || version == VERSION_2 )
 			{
 				if ( length == 4 )
 				{
@@ -135,11 +162,62 @@ public class ReportContentReaderV3
 			{
 				reportContent.readContent( oi, loader );
 				offset += INDEX_ENTRY_SIZE_V1 + 4 + size;
+				if ( version == VERSION_2 )
+				{
+					offset = skipSharedValues( offset );
+				}
 				rootOffset = offset;
 			}
 		}
 	}
 
+	/**
+	 * skip the shared values saved before the content.
+	 * 
+	 * @param index
+	 *            the offset of the shared value or the content.
+	 * @return the offset of the content.
+	 */
+	private long skipSharedValues( long index ) throws IOException
+	{
+		long length = stream.length( );
+		while ( VERSION_SIZE + index + 12 <= length )
+		{
+			stream.seek( VERSION_SIZE + index );
+			if ( stream.readLong( ) != SHARED_VALUE_TAG )
+			{
+				break;
+			}
+			index += 12 + stream.readInt( );
+		}
+		return index;
+	}
+
+	private Object loadSharedValue( long index, boolean isString )
+			throws IOException
+	{
+		Long key = Long.valueOf( index );
+		Object value = sharedValues.get( key );
+		if ( value == null || ( value instanceof String ) != isString )
+		{
+			stream.seek( VERSION_SIZE + index );
+			if ( stream.readLong( ) != SHARED_VALUE_TAG )
+			{
+				throw new IOException( "Invalid shared value offset:" + index );
+			}
+			int size = stream.readInt( );
+			byte[] bytes = new byte[size];
+			stream.readFully( bytes, 0, size );
+			value = bytes;
+			if ( isString )
+			{
+				value = new String( bytes, "UTF-8" ); //$NON-NLS-1$
+			}
+			sharedValues.put( key, value );
+		}
+		return value;
+	}
+
 	/**
 	 * read the content object from the input stream.
 	 * 
@@ -155,7 +233,7 @@ public class ReportContentReaderV3
 		{
 			stream.seek( offset );
 		}
-		else if ( VERSION_1 == version )
+		else
 		{
 			stream.seek( VERSION_SIZE + offset );
 		}
@@ -163,8 +241,15 @@ public class ReportContentReaderV3
 		int size = stream.readInt( );
 		byte[] buffer = new byte[size];
 		stream.readFully( buffer, 0, size );
-		DataInputStream oi = new DataInputStream( new ByteArrayInputStream(
-				buffer ) );
+		DataInputStream oi;
+		if ( VERSION_2 == version )
+		{
+			oi = new SharedValueInputStream( new ByteArrayInputStream( buffer ) );
+		}
+		else
+		{
+			oi = new DataInputStream( new ByteArrayInputStream( buffer ) );
+		}
 		AbstractContent object = null;
 		int contentType = IOUtil.readInt( oi );
 		switch ( contentType )
@@ -283,7 +368,7 @@ public class ReportContentReaderV3
 		{
 			return readContentV0( index );
 		}
-		else if ( VERSION_1 == version )
+		else if ( VERSION_1 == version || VERSION_2 == version )
 		{
 			return readContentV1( index );
 		}
@@ -326,7 +411,7 @@ public class ReportContentReaderV3
 		{
 			return readDocumentExtensionV0( index );
 		}
-		else if ( VERSION_1 == version )
+		else if ( VERSION_1 == version || VERSION_2 == version )
 		{
 			return readDocumentExtensionV1( index );
 		}
@@ -422,4 +507,23 @@ public class ReportContentReaderV3
 			dumpContent( level, next );
 		}
 	}
+
+	private class SharedValueInputStream extends ContentInputStream
+	{
+
+		SharedValueInputStream( InputStream in )
+		{
+			super( in );
+		}
+
+		protected String getSharedString( long reference ) throws IOException
+		{
+			return (String) loadSharedValue( reference, true );
+		}
+
+		protected byte[] getSharedBytes( long reference ) throws IOException
+		{
+			return (byte[]) loadSharedValue( reference, false );
+		}
+	}
 }
@@ -12,9 +12,12 @@
 package org.eclipse.birt.report.engine.internal.document.v3;
 
 import java.io.ByteArrayOutputStream;
-import java.io.DataOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Stack;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -24,6 +27,7 @@ import org.eclipse.birt.core.archive.RAOutputStream;
 import org.eclipse.birt.core.util.IOUtil;
 import org.eclipse.birt.report.engine.content.IContent;
 import org.eclipse.birt.report.engine.content.IReportContent;
+import org.eclipse.birt.report.engine.content.impl.ContentOutputStream;
 import org.eclipse.birt.report.engine.internal.document.DocumentExtension;
 import org.eclipse.birt.report.engine.internal.document.IReportContentWriter;
 
@@ -53,7 +57,7 @@ public class ReportContentWriterV3 implements IReportContentWriter
 	{
 		cntStream = writer.createRandomAccessStream( name );
 		// write the version information
-		cntStream.writeInt( VERSION_1 );
+		cntStream.writeInt( VERSION_2 );
 		cntOffset = 0;
 		rootOffset = -1;
 	}
@@ -94,7 +98,8 @@ public class ReportContentWriterV3 implements IReportContentWriter
 	/**
 	 * data output stream used to save the report content.
 	 */
-	private DataOutputStream bufferStream = new DataOutputStream( buffer );
+	private SharedValueOutputStream bufferStream = new SharedValueOutputStream(
+			buffer );
 
 	/**
 	 * stack used to save the parent's offset
@@ -111,15 +116,31 @@ public class ReportContentWriterV3 implements IReportContentWriter
 	 */
 	public long writeContent( IContent content ) throws IOException
 	{
-		//write the index into the stream
-		updateIndex(content);
-		
-		// get the byte[] of the content
+		// get the byte[] of the content, the shared values used by the
+		// content are saved before the content.
 		buffer.reset( );
-		IOUtil.writeInt( bufferStream, content.getContentType( ) );
-		content.writeContent( bufferStream );
-		bufferStream.flush( );
+		try
+		{
+			IOUtil.writeInt( bufferStream, content.getContentType( ) );
+			content.writeContent( bufferStream );
+			bufferStream.flush( );
+		}
+		catch ( IOException ex )
+		{
+			bufferStream.discardSharedValues( );
+			throw ex;
+		}
+		catch ( RuntimeException ex )
+		{
+			bufferStream.discardSharedValues( );
+			throw ex;
+		}
 		byte[] values = buffer.toByteArray( );
+		bufferStream.writeSharedValues( );
+
+		//write the index into the stream
+		updateIndex(content);
+
 		// write the content out as: length, data
 		cntStream.seek( cntOffset + VERSION_SIZE );
 		cntStream.writeInt( values.length );
@@ -135,6 +156,10 @@ public class ReportContentWriterV3 implements IReportContentWriter
 		return -1;
 	}
 
+	/**
+	 * write the report at the beginning of the stream. The report content
+	 * doesn't use any shared value.
+	 */
 	public long writeReport( IReportContent report ) throws IOException
 	{
 		cntStream.seek( VERSION_SIZE );
@@ -196,6 +221,24 @@ public class ReportContentWriterV3 implements IReportContentWriter
 	final static int VERSION_SIZE = 4;
 	
 	protected final static int VERSION_1 = 1;
+
+	/**
+	 * the contents are written by ContentOutputStream, the shared values are
+	 * saved before the first content using them.
+	 */
+	protected final static int VERSION_2 = 2;
+
+	/**
+	 * the tag of the shared value, the shared value is saved as: tag, length,
+	 * data.
+	 */
+	final static long SHARED_VALUE_TAG = -2;
+
+	/**
+	 * the max count of the shared values remembered by the writer. The value
+	 * removed out is saved again if it is used later.
+	 */
+	final static int MAX_SHARED_VALUE_COUNT = 4096;
 	
 	/**
 	 * There is a content start from the offset, which parent start from
@@ -264,4 +307,81 @@ public class ReportContentWriterV3 implements IReportContentWriter
 			cntStream.writeLong( index );
 		}
 	}
+
+	private class SharedValueOutputStream extends ContentOutputStream
+	{
+
+		/**
+		 * the offsets of the saved values.
+		 */
+		private LinkedHashMap<Object, Long> values = new LinkedHashMap<Object, Long>(
+				16, 0.75f, true ) {
+
+			private static final long serialVersionUID = 1L;
+
+			protected boolean removeEldestEntry( Map.Entry<Object, Long> eldest )
+			{
+				return size( ) > MAX_SHARED_VALUE_COUNT;
+			}
+		};
+
+		/**
+		 * the values used by the current content but not saved yet.
+		 */
+		private ArrayList<Object> pendingKeys = new ArrayList<Object>( );
+		private ArrayList<byte[]> pendingValues = new ArrayList<byte[]>( );
+		private long pendingOffset;
+
+		SharedValueOutputStream( OutputStream out )
+		{
+			super( out );
+		}
+
+		protected long getReference( Object key, byte[] bytes )
+				throws IOException
+		{
+			Long offset = values.get( key );
+			if ( offset != null )
+			{
+				return offset.longValue( );
+			}
+			if ( pendingKeys.isEmpty( ) )
+			{
+				pendingOffset = cntOffset;
+			}
+			long reference = pendingOffset;
+			pendingKeys.add( key );
+			pendingValues.add( bytes );
+			values.put( key, Long.valueOf( reference ) );
+			pendingOffset += 12 + bytes.length;
+			return reference;
+		}
+
+		/**
+		 * save the values used by the current content at the current offset.
+		 */
+		void writeSharedValues( ) throws IOException
+		{
+			for ( byte[] bytes : pendingValues )
+			{
+				cntStream.seek( cntOffset + VERSION_SIZE );
+				cntStream.writeLong( SHARED_VALUE_TAG );
+				cntStream.writeInt( bytes.length );
+				cntStream.write( bytes );
+				cntOffset = cntOffset + 12 + bytes.length;
+			}
+			pendingKeys.clear( );
+			pendingValues.clear( );
+		}
+
+		void discardSharedValues( )
+		{
+			for ( Object key : pendingKeys )
+			{
+				values.remove( key );
+			}
+			pendingKeys.clear( );
+			pendingValues.clear( );
+		}
+	}
 }
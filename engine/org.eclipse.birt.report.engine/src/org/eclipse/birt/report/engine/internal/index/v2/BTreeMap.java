@@ -35,6 +35,12 @@ class BTreeMap extends BTree<String, Object>
 	static final int LONG_VALUE = 1;
 	static final int BOOKMARK_VALUE = 2;
 
+	/**
+	 * the nodes cached by the reader, the readers are shared by the threads
+	 * searching the bookmarks and the TOCs.
+	 */
+	static final int READER_CACHE_SIZE = 64;
+
 	int indexVersion;
 	int indexType;
 
@@ -48,6 +54,7 @@ class BTreeMap extends BTree<String, Object>
 		option.setAllowDuplicate( false );
 		option.setValueSerializer( new ObjectSerializer( valueType ) );
 		option.setFile( new ArchiveInputFile( archive, name ) );
+		option.setCacheSize( READER_CACHE_SIZE );
 		return new BTreeMap( option, valueType );
 	}
 
@@ -148,9 +148,6 @@ public class IndexWriter implements IndexConstants
 					}
 				} );
 
-		for ( Map.Entry<String, Object> entry : entries )
-		{
-			btree.insert( entry.getKey( ), entry.getValue( ) );
-		}
+		btree.bulkLoad( entries.iterator( ) );
 	}
 }
@@ -0,0 +1,474 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.engine.layout.emitter;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.eclipse.birt.core.exception.BirtException;
+import org.eclipse.birt.report.engine.api.EngineException;
+import org.eclipse.birt.report.engine.api.IAction;
+import org.eclipse.birt.report.engine.api.IHTMLActionHandler;
+import org.eclipse.birt.report.engine.api.IRenderOption;
+import org.eclipse.birt.report.engine.api.IReportEngine;
+import org.eclipse.birt.report.engine.api.IReportRunnable;
+import org.eclipse.birt.report.engine.api.impl.Action;
+import org.eclipse.birt.report.engine.api.script.IReportContext;
+import org.eclipse.birt.report.engine.content.IAutoTextContent;
+import org.eclipse.birt.report.engine.content.IContent;
+import org.eclipse.birt.report.engine.content.IHyperlinkAction;
+import org.eclipse.birt.report.engine.content.IPageContent;
+import org.eclipse.birt.report.engine.content.IReportContent;
+import org.eclipse.birt.report.engine.emitter.ContentEmitterAdapter;
+import org.eclipse.birt.report.engine.emitter.IEmitterServices;
+import org.eclipse.birt.report.engine.i18n.MessageConstants;
+import org.eclipse.birt.report.engine.layout.ILayoutPageHandler;
+import org.eclipse.birt.report.engine.nLayout.area.IArea;
+import org.eclipse.birt.report.engine.nLayout.area.IContainerArea;
+
+/**
+ * Writes the laid out pages in a separate thread.
+ *
+ * The page emitter only draws the areas of the finished pages, so the task
+ * thread can generate and layout the next pages while the previous pages are
+ * written. The pages are written in order, at most maxPages pages are waiting
+ * to be written. The emitter is started and ended in the task thread after
+ * all the pages are written, so the output is the same as the output of the
+ * page emitter.
+ *
+ * The emitter thread doesn't touch the report context: the URLs of the
+ * actions are resolved by the action handler in the task thread before a page
+ * is queued, and the page handlers created by createPageHandler are notified
+ * in the task thread after the page is written.
+ */
+public class PipelinedPageEmitter extends ContentEmitterAdapter
+{
+
+	private PageEmitter emitter;
+
+	private int maxPages;
+
+	/**
+	 * the permits of the pages waiting to be written.
+	 */
+	private Semaphore permits;
+
+	/**
+	 * the single thread which writes the pages. The thread exits if it is idle,
+	 * so nothing is left if the task is stopped by an error.
+	 */
+	private ThreadPoolExecutor executor;
+
+	/**
+	 * the first error thrown by the emitter thread.
+	 */
+	private volatile Throwable error;
+
+	private IHTMLActionHandler actionHandler;
+
+	private IReportContext reportContext;
+
+	private String systemId;
+
+	/**
+	 * the resolved URLs of the actions in the area being written, or the
+	 * exceptions thrown by the action handler. It is only used by the emitter
+	 * thread.
+	 */
+	private Map<IHyperlinkAction, Object> urls;
+
+	/**
+	 * the page notifications of the written pages.
+	 */
+	private Queue<Runnable> writtenPages = new ConcurrentLinkedQueue<Runnable>( );
+
+	public PipelinedPageEmitter( PageEmitter emitter, int maxPages )
+	{
+		this.emitter = emitter;
+		this.maxPages = maxPages;
+		this.permits = new Semaphore( maxPages );
+		final ClassLoader loader = Thread.currentThread( )
+				.getContextClassLoader( );
+		executor = new ThreadPoolExecutor( 1, 1, 1, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>( ), new ThreadFactory( ) {
+
+					public Thread newThread( Runnable r )
+					{
+						Thread thread = new Thread( r, "BIRT Page Emitter" ); //$NON-NLS-1$
+						thread.setDaemon( true );
+						thread.setContextClassLoader( loader );
+						return thread;
+					}
+				} );
+		executor.allowCoreThreadTimeOut( true );
+	}
+
+	public String getOutputFormat( )
+	{
+		return emitter.getOutputFormat( );
+	}
+
+	public void initialize( IEmitterServices service ) throws BirtException
+	{
+		Object handler = service.getOption( IRenderOption.ACTION_HANDLER );
+		if ( handler instanceof IHTMLActionHandler )
+		{
+			actionHandler = (IHTMLActionHandler) handler;
+			reportContext = service.getReportContext( );
+			IReportRunnable runnable = service.getReportRunnable( );
+			systemId = runnable == null ? null : runnable.getReportName( );
+			service = new PipelinedEmitterServices( service );
+		}
+		emitter.initialize( service );
+	}
+
+	public void start( IReportContent report ) throws BirtException
+	{
+		emitter.start( report );
+	}
+
+	public void end( IReportContent report ) throws BirtException
+	{
+		// wait until all the pages are written
+		permits.acquireUninterruptibly( maxPages );
+		permits.release( maxPages );
+		executor.shutdown( );
+		notifyWrittenPages( );
+		checkError( );
+		emitter.end( report );
+	}
+
+	public void startPage( final IPageContent page ) throws BirtException
+	{
+		final Map<IHyperlinkAction, Object> pageUrls = resolveActions(
+				(IArea) page.getExtension( IContent.LAYOUT_EXTENSION ) );
+		submit( new PageJob( ) {
+
+			public void run( ) throws BirtException
+			{
+				urls = pageUrls;
+				try
+				{
+					emitter.startPage( page );
+					emitter.endPage( page );
+				}
+				finally
+				{
+					urls = null;
+				}
+			}
+		} );
+	}
+
+	public void endPage( IPageContent page ) throws BirtException
+	{
+		// the page is ended by the emitter thread after it is written
+	}
+
+	public void startAutoText( final IAutoTextContent autoText )
+			throws BirtException
+	{
+		final Map<IHyperlinkAction, Object> textUrls = resolveActions(
+				(IArea) autoText.getExtension( IContent.LAYOUT_EXTENSION ) );
+		submit( new PageJob( ) {
+
+			public void run( ) throws BirtException
+			{
+				urls = textUrls;
+				try
+				{
+					emitter.startAutoText( autoText );
+				}
+				finally
+				{
+					urls = null;
+				}
+			}
+		} );
+	}
+
+	/**
+	 * a page handler which reads the layout context when it is notified. The
+	 * layout goes on while the page is written, so the state of the context
+	 * is captured when the page is laid out and the handler is notified with
+	 * the captured state instead of the context.
+	 */
+	public interface IPageStateHandler extends ILayoutPageHandler
+	{
+
+		/**
+		 * captures the state of the layout context when the page is laid out.
+		 * 
+		 * @param page
+		 *            the page number.
+		 * @param context
+		 *            the layout context.
+		 * @return the state passed to onPage as the context.
+		 */
+		Object getPageState( long page, Object context );
+	}
+
+	/**
+	 * creates a page handler which is notified after the pages laid out so far
+	 * are written. The handler is notified in the task thread.
+	 * 
+	 * @param handler
+	 *            the page handler. If it is an IPageStateHandler, it is
+	 *            notified with the state captured when the page is laid out.
+	 * @return the page handler to be used by the layout engine.
+	 */
+	public ILayoutPageHandler createPageHandler(
+			final ILayoutPageHandler handler )
+	{
+		return new ILayoutPageHandler( ) {
+
+			public void onPage( final long page, Object layoutContext )
+			{
+				final Object context = handler instanceof IPageStateHandler
+						? ( (IPageStateHandler) handler ).getPageState( page,
+								layoutContext )
+						: layoutContext;
+				execute( new PageJob( ) {
+
+					public void run( )
+					{
+						writtenPages.add( new Runnable( ) {
+
+							public void run( )
+							{
+								handler.onPage( page, context );
+							}
+						} );
+					}
+				} );
+			}
+		};
+	}
+
+	private void notifyWrittenPages( )
+	{
+		Runnable notification = writtenPages.poll( );
+		while ( notification != null )
+		{
+			notification.run( );
+			notification = writtenPages.poll( );
+		}
+	}
+
+	/**
+	 * resolves the URLs of the actions of the area and its children.
+	 * 
+	 * @return the URLs of the actions, null if there is no action handler.
+	 */
+	private Map<IHyperlinkAction, Object> resolveActions( IArea area )
+	{
+		if ( actionHandler == null || area == null )
+		{
+			return null;
+		}
+		Map<IHyperlinkAction, Object> resolved = new HashMap<IHyperlinkAction, Object>( );
+		resolveActions( area, resolved );
+		return resolved;
+	}
+
+	private void resolveActions( IArea area,
+			Map<IHyperlinkAction, Object> resolved )
+	{
+		IHyperlinkAction action = area.getAction( );
+		if ( action != null && !resolved.containsKey( action ) )
+		{
+			try
+			{
+				resolved.put( action, actionHandler.getURL( new Action(
+						systemId, action ), reportContext ) );
+			}
+			catch ( RuntimeException ex )
+			{
+				// thrown again when the area is written
+				resolved.put( action, ex );
+			}
+		}
+		if ( area instanceof IContainerArea )
+		{
+			Iterator<IArea> children = ( (IContainerArea) area ).getChildren( );
+			while ( children.hasNext( ) )
+			{
+				resolveActions( children.next( ), resolved );
+			}
+		}
+	}
+
+	/**
+	 * returns the URL resolved in the task thread for an action of the area
+	 * being written.
+	 */
+	private String getURL( IAction action, Object context )
+	{
+		if ( urls != null && action instanceof Action )
+		{
+			IHyperlinkAction content = ( (Action) action ).getHyperlinkAction( );
+			if ( urls.containsKey( content ) )
+			{
+				Object url = urls.get( content );
+				if ( url instanceof RuntimeException )
+				{
+					throw (RuntimeException) url;
+				}
+				return (String) url;
+			}
+		}
+		return actionHandler.getURL( action, context );
+	}
+
+	private class ResolvedActionHandler implements IHTMLActionHandler
+	{
+
+		public String getURL( IAction action, Object context )
+		{
+			return PipelinedPageEmitter.this.getURL( action, context );
+		}
+
+		public String getURL( IAction action, IReportContext context )
+		{
+			return PipelinedPageEmitter.this.getURL( action, context );
+		}
+	}
+
+	/**
+	 * the services of the page emitter, the action handler returns the URLs
+	 * resolved in the task thread.
+	 */
+	private class PipelinedEmitterServices implements IEmitterServices
+	{
+
+		private IEmitterServices services;
+
+		private IHTMLActionHandler handler = new ResolvedActionHandler( );
+
+		PipelinedEmitterServices( IEmitterServices services )
+		{
+			this.services = services;
+		}
+
+		public HashMap getEmitterConfig( )
+		{
+			return services.getEmitterConfig( );
+		}
+
+		public IRenderOption getRenderOption( )
+		{
+			return services.getRenderOption( );
+		}
+
+		public String getReportName( )
+		{
+			return services.getReportName( );
+		}
+
+		public Object getRenderContext( )
+		{
+			return services.getRenderContext( );
+		}
+
+		public IReportRunnable getReportRunnable( )
+		{
+			return services.getReportRunnable( );
+		}
+
+		public Object getOption( String name )
+		{
+			if ( IRenderOption.ACTION_HANDLER.equals( name ) )
+			{
+				return handler;
+			}
+			return services.getOption( name );
+		}
+
+		public IReportContext getReportContext( )
+		{
+			return services.getReportContext( );
+		}
+
+		public IReportEngine getReportEngine( )
+		{
+			return services.getReportEngine( );
+		}
+	}
+
+	private interface PageJob
+	{
+
+		void run( ) throws BirtException;
+	}
+
+	private void submit( PageJob job ) throws BirtException
+	{
+		notifyWrittenPages( );
+		checkError( );
+		execute( job );
+	}
+
+	private void execute( final PageJob job )
+	{
+		permits.acquireUninterruptibly( );
+		executor.execute( new Runnable( ) {
+
+			public void run( )
+			{
+				try
+				{
+					if ( error == null )
+					{
+						job.run( );
+					}
+				}
+				catch ( Throwable t )
+				{
+					error = t;
+				}
+				finally
+				{
+					permits.release( );
+				}
+			}
+		} );
+	}
+
+	private void checkError( ) throws BirtException
+	{
+		Throwable t = error;
+		if ( t instanceof BirtException )
+		{
+			throw (BirtException) t;
+		}
+		if ( t instanceof RuntimeException )
+		{
+			throw (RuntimeException) t;
+		}
+		if ( t instanceof Error )
+		{
+			throw (Error) t;
+		}
+		if ( t != null )
+		{
+			throw new EngineException( MessageConstants.REPORT_RUN_ERROR, t );
+		}
+	}
+}
@@ -56,6 +56,12 @@ public class FontHandler
 	private FontMappingManager fontManager = null;
 
 	private Map fonts = new HashMap( );
+
+	/**
+	 * the fonts selected for the characters, shared by the handlers with the
+	 * same font families and style.
+	 */
+	private Map<Character, BaseFont> mappedFonts;
 	
 	/**
 	 * the characters which prefer to use the font of their previous character.
@@ -206,6 +212,22 @@ public class FontHandler
 				return bf;
 			}
 		}
+		if ( mappedFonts == null )
+		{
+			mappedFonts = fontManager.getMappedFonts( fontFamilies, fontStyle );
+		}
+		Character key = Character.valueOf( c );
+		BaseFont font = mappedFonts.get( key );
+		if ( font == null )
+		{
+			font = searchMappedFont( c );
+			mappedFonts.put( key, font );
+		}
+		return font;
+	}
+
+	private BaseFont searchMappedFont( char c )
+	{
 		// search in the font family to find one to display the character
 		for ( int i = 0; i < fontFamilies.length; i++ )
 		{
@@ -21,6 +21,8 @@ public class FontInfo
 {
 	private BaseFont bf;
 
+	private GlyphWidths widths;
+
 	private float fontSize;
 
 	private int fontStyle;
@@ -50,6 +52,7 @@ public class FontInfo
 	public FontInfo( FontInfo fontInfo )
 	{
 		this.bf = fontInfo.bf;
+		this.widths = fontInfo.widths;
 		this.fontStyle = fontInfo.fontStyle;
 		this.simulation = fontInfo.simulation;
 		this.fontSize = fontInfo.fontSize;
@@ -199,7 +202,11 @@ public class FontInfo
 			return word.length( ) * ( fontSize / 2 );
 		}
 
-		return bf.getWidthPoint( word, fontSize );
+		if ( widths == null )
+		{
+			widths = GlyphWidths.getGlyphWidths( bf );
+		}
+		return widths.getWidthPoint( word, fontSize );
 	}
 	
 	public int getItalicAdjust( )
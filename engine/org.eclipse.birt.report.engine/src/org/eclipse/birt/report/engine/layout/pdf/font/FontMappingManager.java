@@ -15,6 +15,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.lowagie.text.pdf.BaseFont;
 
@@ -43,6 +44,12 @@ public class FontMappingManager
 	 */
 	private Map compositeFonts = new HashMap( );
 
+	/**
+	 * the fonts selected to display the characters, keyed by the font
+	 * families and the font style.
+	 */
+	private ConcurrentHashMap<String, Map<Character, BaseFont>> mappedFonts = new ConcurrentHashMap<String, Map<Character, BaseFont>>( );
+
 	FontMappingManager( FontMappingManagerFactory factory,
 			FontMappingManager parent, FontMappingConfig config, Locale locale )
 	{
@@ -149,6 +156,40 @@ public class FontMappingManager
 		return fontAlias;
 	}
 
+	/**
+	 * Gets the fonts selected to display the characters with the font
+	 * families and the font style. The map is shared by all the users of this
+	 * manager.
+	 * 
+	 * @param fontFamilies
+	 *            the font families.
+	 * @param fontStyle
+	 *            font style
+	 * @return the map from the characters to the selected fonts.
+	 */
+	public Map<Character, BaseFont> getMappedFonts( String[] fontFamilies,
+			int fontStyle )
+	{
+		StringBuffer buffer = new StringBuffer( );
+		for ( int i = 0; i < fontFamilies.length; i++ )
+		{
+			buffer.append( fontFamilies[i] ).append( ',' );
+		}
+		String key = buffer.append( fontStyle ).toString( );
+		Map<Character, BaseFont> fonts = mappedFonts.get( key );
+		if ( fonts == null )
+		{
+			fonts = new ConcurrentHashMap<Character, BaseFont>( );
+			Map<Character, BaseFont> oldFonts = mappedFonts.putIfAbsent( key,
+					fonts );
+			if ( oldFonts != null )
+			{
+				fonts = oldFonts;
+			}
+		}
+		return fonts;
+	}
+
 	/**
 	 * Creates iText BaseFont with the given font family name.
 	 * 
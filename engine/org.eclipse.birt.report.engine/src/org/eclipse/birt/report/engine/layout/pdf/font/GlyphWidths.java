@@ -0,0 +1,111 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.engine.layout.pdf.font;
+
+import java.lang.ref.SoftReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+import com.lowagie.text.pdf.BaseFont;
+
+/**
+ * The advance widths of the characters of a font.
+ *
+ * The base fonts are shared by all the tasks of the engine, so are the widths.
+ * A width is measured by the font the first time the character is used. The
+ * width of a text is the sum of the widths of its characters, which is the
+ * same as the width returned by the font as the kerning is not used.
+ *
+ * The fonts are weakly referenced by the cache and the widths are softly
+ * referenced, so the widths are released when memory is low and the fonts
+ * unused by others are not kept alive by the cache.
+ */
+public class GlyphWidths
+{
+
+	private static final Map<BaseFont, SoftReference<GlyphWidths>> glyphWidths = new WeakHashMap<BaseFont, SoftReference<GlyphWidths>>( );
+
+	public static GlyphWidths getGlyphWidths( BaseFont bf )
+	{
+		synchronized ( glyphWidths )
+		{
+			SoftReference<GlyphWidths> ref = glyphWidths.get( bf );
+			GlyphWidths widths = ref == null ? null : ref.get( );
+			if ( widths == null )
+			{
+				widths = new GlyphWidths( bf );
+				glyphWidths.put( bf, new SoftReference<GlyphWidths>( widths ) );
+			}
+			return widths;
+		}
+	}
+
+	private BaseFont bf;
+
+	/**
+	 * the widths of the characters in pages of 256 characters. The value is
+	 * the width plus one, 0 means the width is not measured yet, so a page
+	 * seen by another thread before its values are filled only measures the
+	 * characters again.
+	 */
+	private int[][] pages = new int[256][];
+
+	private GlyphWidths( BaseFont bf )
+	{
+		this.bf = bf;
+	}
+
+	/**
+	 * Gets the width of the text in the normalized 1000 units of the font.
+	 */
+	public int getWidth( String text )
+	{
+		int total = 0;
+		int length = text.length( );
+		for ( int i = 0; i < length; i++ )
+		{
+			char c = text.charAt( i );
+			if ( Character.isHighSurrogate( c ) || Character.isLowSurrogate( c ) )
+			{
+				// the surrogate pair is measured as one character by the font
+				return bf.getWidth( text );
+			}
+			total += getWidth( c );
+		}
+		return total;
+	}
+
+	/**
+	 * Gets the width of the text in points.
+	 */
+	public float getWidthPoint( String text, float fontSize )
+	{
+		return getWidth( text ) * 0.001f * fontSize;
+	}
+
+	private int getWidth( char c )
+	{
+		int[] page = pages[c >>> 8];
+		if ( page == null )
+		{
+			page = new int[256];
+			pages[c >>> 8] = page;
+		}
+		int width = page[c & 0xff];
+		if ( width == 0 )
+		{
+			width = bf.getWidth( c ) + 1;
+			page[c & 0xff] = width;
+		}
+		return width - 1;
+	}
+}
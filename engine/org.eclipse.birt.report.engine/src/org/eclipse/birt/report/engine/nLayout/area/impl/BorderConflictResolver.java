@@ -255,14 +255,27 @@ public class BorderConflictResolver
 		{
 			return cache.border;
 		}
+		// the computed styles are shared by the contents of the same design
+		// element, so the rows with the same shape resolve the same borders.
+		StyleKey key = new StyleKey( styles );
+		BorderInfo border = cache.getBorder( key );
+		if ( border == null && !cache.hasBorder( key ) )
+		{
+			border = resolveBorder( styles );
+			cache.putBorder( key, border );
+		}
+		cache.setValues( styles, border );
+		return border;
+	}
 
+	private BorderInfo resolveBorder( BorderStyleInfo[] styles )
+	{
 		CSSValue[] borderStyles = new CSSValue[styles.length];
 		for ( int i = 0; i < styles.length; i++ )
 		{
 			borderStyles[i] = styles[i].getBorderStyle( );
 			if ( IStyle.HIDDEN_VALUE.equals( borderStyles[i] ) )
 			{
-				cache.setValues( styles, null );
 				return null;
 			}
 		}
@@ -329,9 +342,7 @@ public class BorderConflictResolver
 						borderWidths[maxStyleIndex] );
 			}
 		}
-		cache.setValues( styles, border );
 		return border;
-
 	}
 
 //	public void setRTL( boolean rtl )
@@ -397,17 +408,88 @@ public class BorderConflictResolver
 
 	}
 
+	private static class StyleKey
+	{
+
+		IStyle[] styles;
+		int hashCode;
+
+		StyleKey( BorderStyleInfo[] stylesInfo )
+		{
+			styles = new IStyle[stylesInfo.length];
+			for ( int i = 0; i < styles.length; i++ )
+			{
+				styles[i] = stylesInfo[i].style;
+				hashCode = hashCode * 31
+						+ System.identityHashCode( styles[i] );
+			}
+		}
+
+		public int hashCode( )
+		{
+			return hashCode;
+		}
+
+		public boolean equals( Object obj )
+		{
+			if ( !( obj instanceof StyleKey ) )
+			{
+				return false;
+			}
+			IStyle[] keyStyles = ( (StyleKey) obj ).styles;
+			if ( keyStyles.length != styles.length )
+			{
+				return false;
+			}
+			for ( int i = 0; i < styles.length; i++ )
+			{
+				if ( keyStyles[i] != styles[i] )
+				{
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
 	private static class BorderCache
 	{
 
+		/**
+		 * the max count of the resolved borders kept by the cache, the cache
+		 * is cleared if the styles are not reused.
+		 */
+		static final int MAX_BORDER_COUNT = 64;
+
 		IStyle[] styles;
 		BorderInfo border;
 
+		HashMap<StyleKey, BorderInfo> borders = new HashMap<StyleKey, BorderInfo>( );
+
 		BorderCache( int styleCount )
 		{
 			styles = new IStyle[styleCount];
 		}
 
+		public BorderInfo getBorder( StyleKey key )
+		{
+			return borders.get( key );
+		}
+
+		public boolean hasBorder( StyleKey key )
+		{
+			return borders.containsKey( key );
+		}
+
+		public void putBorder( StyleKey key, BorderInfo border )
+		{
+			if ( borders.size( ) >= MAX_BORDER_COUNT )
+			{
+				borders.clear( );
+			}
+			borders.put( key, border );
+		}
+
 		public void setValues( BorderStyleInfo[] stylesInfo, BorderInfo border )
 		{
 			this.border = border;
@@ -40,6 +40,7 @@ import org.eclipse.birt.report.engine.nLayout.LayoutContext;
 import org.eclipse.birt.report.engine.nLayout.area.IImageArea;
 import org.eclipse.birt.report.engine.nLayout.area.ILayout;
 import org.eclipse.birt.report.engine.nLayout.area.style.BoxStyle;
+import org.eclipse.birt.report.engine.util.ImageCache;
 
 import com.ibm.icu.util.ULocale;
 import com.lowagie.text.BadElementException;
@@ -99,7 +100,7 @@ public class ImageAreaLayout implements ILayout
 				{
 					try
 					{
-						imageObject = Image.getInstance( reader.getByteArray( ) );
+						imageObject = ImageCache.getImage( reader.getByteArray( ) );
 					}
 					catch ( Exception e )
 					{
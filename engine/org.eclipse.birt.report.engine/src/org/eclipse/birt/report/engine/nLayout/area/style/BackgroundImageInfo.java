@@ -18,6 +18,7 @@ import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
 
+import org.eclipse.birt.report.engine.util.ImageCache;
 import org.eclipse.birt.report.engine.util.ResourceLocatorWrapper;
 import org.eclipse.birt.report.engine.util.SvgFile;
 import org.w3c.dom.css.CSSValue;
@@ -137,7 +138,7 @@ public class BackgroundImageInfo extends AreaConstants
 		try
 		{
 
-			image = Image.getInstance( imageData );
+			image = ImageCache.getImage( imageData );
 		}
 		catch ( Exception e )
 		{
@@ -145,7 +146,7 @@ public class BackgroundImageInfo extends AreaConstants
 			{
 				imageData = SvgFile.transSvgToArray( new ByteArrayInputStream(
 						imageData ) );
-				image = Image.getInstance( imageData );
+				image = ImageCache.getImage( imageData );
 			}
 			catch ( Exception te )
 			{
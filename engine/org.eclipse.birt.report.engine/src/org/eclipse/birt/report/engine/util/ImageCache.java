@@ -0,0 +1,178 @@
+/*******************************************************************************
+ * Copyright (c) 2011 Actuate Corporation.
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *  Actuate Corporation  - initial API and implementation
+ *******************************************************************************/
+
+package org.eclipse.birt.report.engine.util;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import com.lowagie.text.BadElementException;
+import com.lowagie.text.Image;
+
+/**
+ * Caches the decoded images shared by all the tasks.
+ *
+ * The images are keyed by the content of the image data, so the same image
+ * loaded from different resources or by different tasks is decoded only once.
+ * The cached image is never returned: each call returns a copy which shares
+ * the decoded data with the cached image, so the users can scale and position
+ * the image freely. The copies keep the serial id of the cached image, so the
+ * PDF writer writes the image data once per document.
+ *
+ * The least recently used images are removed if the size of the cached image
+ * data is larger than the max size.
+ */
+public class ImageCache
+{
+
+	/**
+	 * the default max size of the cached image data in bytes.
+	 */
+	public static final long DEFAULT_MAX_SIZE = 16 * 1024 * 1024;
+
+	private static long maxSize = DEFAULT_MAX_SIZE;
+
+	private static long size;
+
+	private static LinkedHashMap<ImageKey, CachedImage> images = new LinkedHashMap<ImageKey, CachedImage>(
+			16, 0.75f, true );
+
+	/**
+	 * Gets the image of the image data.
+	 *
+	 * @param data
+	 *            the image data
+	 * @return a copy of the decoded image.
+	 */
+	public static Image getImage( byte[] data ) throws BadElementException,
+			IOException
+	{
+		ImageKey key = new ImageKey( data );
+		synchronized ( images )
+		{
+			CachedImage cachedImage = images.get( key );
+			if ( cachedImage != null )
+			{
+				return Image.getInstance( cachedImage.image );
+			}
+		}
+		// the cached image and the key keep their own copy of the data, the
+		// caller may reuse its buffer.
+		data = (byte[]) data.clone( );
+		key = new ImageKey( data, key.hashCode );
+		// decode the image outside of the lock
+		Image image = Image.getInstance( data );
+		CachedImage cachedImage = new CachedImage( image, getSize( data, image ) );
+		synchronized ( images )
+		{
+			if ( cachedImage.size <= maxSize
+					&& !images.containsKey( key ) )
+			{
+				images.put( key, cachedImage );
+				size += cachedImage.size;
+				evict( );
+			}
+		}
+		return Image.getInstance( image );
+	}
+
+	/**
+	 * Sets the max size of the cached image data in bytes, 0 disables the
+	 * cache.
+	 */
+	public static void setMaxSize( long maxSize )
+	{
+		synchronized ( images )
+		{
+			ImageCache.maxSize = maxSize;
+			evict( );
+		}
+	}
+
+	public static void clear( )
+	{
+		synchronized ( images )
+		{
+			images.clear( );
+			size = 0;
+		}
+	}
+
+	private static void evict( )
+	{
+		Iterator<CachedImage> iter = images.values( ).iterator( );
+		while ( size > maxSize && iter.hasNext( ) )
+		{
+			size -= iter.next( ).size;
+			iter.remove( );
+		}
+	}
+
+	private static long getSize( byte[] data, Image image )
+	{
+		byte[] rawData = image.getRawData( );
+		if ( rawData != null && rawData != data )
+		{
+			return data.length + rawData.length;
+		}
+		return data.length;
+	}
+
+	private static class CachedImage
+	{
+
+		Image image;
+		long size;
+
+		CachedImage( Image image, long size )
+		{
+			this.image = image;
+			this.size = size;
+		}
+	}
+
+	private static class ImageKey
+	{
+
+		byte[] data;
+		int hashCode;
+
+		ImageKey( byte[] data )
+		{
+			this.data = data;
+			this.hashCode = Arrays.hashCode( data );
+		}
+
+		ImageKey( byte[] data, int hashCode )
+		{
+			this.data = data;
+			this.hashCode = hashCode;
+		}
+
+		public int hashCode( )
+		{
+			return hashCode;
+		}
+
+		public boolean equals( Object obj )
+		{
+			if ( !( obj instanceof ImageKey ) )
+			{
+				return false;
+			}
+			ImageKey key = (ImageKey) obj;
+			return data == key.data || hashCode == key.hashCode
+					&& Arrays.equals( data, key.data );
+		}
+	}
+}
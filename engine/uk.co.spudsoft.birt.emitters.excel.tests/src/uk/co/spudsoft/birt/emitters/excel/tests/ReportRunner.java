@@ -78,6 +78,9 @@ public class ReportRunner {
 	protected Integer spannedRowHeight = null;
 	
 	protected String templateFile = null;
+
+	protected boolean streamingXlsx;
+	protected Integer streamingRowWindow = null;
 	
 	protected Map<String,Object> parameters = new HashMap<String, Object>();
 	protected long startTime;
@@ -556,6 +559,12 @@ public class ReportRunner {
 		if( templateFile != null ) {
 			renderOptions.setOption( ExcelEmitter.TEMPLATE_FILE, templateFile );
 		}
+		if( streamingXlsx ) {
+			renderOptions.setOption( ExcelEmitter.STREAMING_XLSX, true );
+		}
+		if( streamingRowWindow != null ) {
+			renderOptions.setOption( ExcelEmitter.STREAMING_ROW_WINDOW, streamingRowWindow );
+		}
 		
 		return renderOptions;
 	}
@@ -0,0 +1,107 @@
+/*************************************************************************************
+ * Copyright (c) 2011, 2012, 2013 James Talbut.
+ *  jim-emitters@spudsoft.co.uk
+ *  
+ * All rights reserved. This program and the accompanying materials 
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ * 
+ * Contributors:
+ *     James Talbut - Initial implementation.
+ ************************************************************************************/
+
+package uk.co.spudsoft.birt.emitters.excel.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.xssf.usermodel.XSSFRow;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.eclipse.birt.core.exception.BirtException;
+import org.junit.Test;
+
+public class StreamingXlsxTest extends ReportRunner {
+
+	private XSSFWorkbook renderWorkbook( String filename, boolean streaming ) throws BirtException, IOException {
+		streamingXlsx = streaming;
+		streamingRowWindow = streaming ? Integer.valueOf( 2 ) : null;
+		InputStream inputStream = runAndRenderReport(filename, "xlsx");
+		streamingXlsx = false;
+		streamingRowWindow = null;
+		assertNotNull(inputStream);
+		try {
+			XSSFWorkbook workbook = new XSSFWorkbook(inputStream);
+			assertNotNull(workbook);
+			return workbook;
+		} finally {
+			inputStream.close();
+		}
+	}
+	
+	private void assertSameWorkbook( XSSFWorkbook expected, XSSFWorkbook actual ) {
+		assertEquals( expected.getNumberOfSheets(), actual.getNumberOfSheets() );
+		for( int i = 0; i < expected.getNumberOfSheets(); ++i ) {
+			XSSFSheet expectedSheet = expected.getSheetAt(i);
+			XSSFSheet actualSheet = actual.getSheetAt(i);
+			assertEquals( expectedSheet.getSheetName(), actualSheet.getSheetName() );
+			assertEquals( expectedSheet.getLastRowNum(), actualSheet.getLastRowNum() );
+			for( int rowNum = 0; rowNum <= expectedSheet.getLastRowNum(); ++rowNum ) {
+				XSSFRow expectedRow = expectedSheet.getRow(rowNum);
+				XSSFRow actualRow = actualSheet.getRow(rowNum);
+				if( expectedRow == null ) {
+					continue;
+				}
+				assertNotNull( "rowNum=" + rowNum, actualRow );
+				assertEquals( "rowNum=" + rowNum, expectedRow.getCTRow().getOutlineLevel(), actualRow.getCTRow().getOutlineLevel() );
+				assertEquals( "rowNum=" + rowNum, expectedRow.getLastCellNum(), actualRow.getLastCellNum() );
+				for( Cell expectedCell : expectedRow ) {
+					Cell actualCell = actualRow.getCell( expectedCell.getColumnIndex() );
+					assertNotNull( "rowNum=" + rowNum, actualCell );
+					assertEquals( "rowNum=" + rowNum, expectedCell.toString(), actualCell.toString() );
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testGroupingsStreamed() throws BirtException, IOException {
+
+		XSSFWorkbook expected = renderWorkbook("Grouping.rptdesign", false);
+		XSSFWorkbook actual = renderWorkbook("Grouping.rptdesign", true);
+
+		assertEquals( 3, actual.getNumberOfSheets() );
+		assertTrue( actual.getSheetAt(0).getLastRowNum() > 50 );
+		assertSameWorkbook( expected, actual );
+	}
+
+	@Test
+	public void testGroupingsWithSummaryHeaderStreamed() throws BirtException, IOException {
+
+		groupSummaryHeader = Boolean.TRUE;
+		try {
+			XSSFWorkbook expected = renderWorkbook("Grouping.rptdesign", false);
+			XSSFWorkbook actual = renderWorkbook("Grouping.rptdesign", true);
+	
+			assertSameWorkbook( expected, actual );
+		} finally {
+			groupSummaryHeader = null;
+		}
+	}
+
+	@Test
+	public void testMultiSheetsStreamed() throws BirtException, IOException {
+
+		XSSFWorkbook expected = renderWorkbook("MultiSheets1.rptdesign", false);
+		XSSFWorkbook actual = renderWorkbook("MultiSheets1.rptdesign", true);
+
+		assertSameWorkbook( expected, actual );
+	}
+
+}
@@ -0,0 +1,186 @@
+/*************************************************************************************
+ * Copyright (c) 2011, 2012, 2013 James Talbut.
+ *  jim-emitters@spudsoft.co.uk
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ * http://www.eclipse.org/legal/epl-v10.html
+ *
+ * Contributors:
+ *     James Talbut - Initial implementation.
+ ************************************************************************************/
+
+package uk.co.spudsoft.birt.emitters.excel.tests;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Locale;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.eclipse.birt.report.engine.css.engine.BIRTCSSEngine;
+import org.eclipse.birt.report.engine.css.engine.CSSEngine;
+import org.eclipse.birt.report.engine.css.engine.StyleConstants;
+import org.eclipse.birt.report.engine.css.engine.value.DataFormatValue;
+import org.eclipse.birt.report.engine.css.engine.value.FloatValue;
+import org.eclipse.birt.report.engine.css.engine.value.ListValue;
+import org.eclipse.birt.report.engine.css.engine.value.RGBColorValue;
+import org.eclipse.birt.report.engine.css.engine.value.StringValue;
+import org.junit.Test;
+import org.w3c.dom.css.CSSPrimitiveValue;
+import org.w3c.dom.css.CSSValue;
+
+import uk.co.spudsoft.birt.emitters.excel.BirtStyle;
+import uk.co.spudsoft.birt.emitters.excel.FontManager;
+import uk.co.spudsoft.birt.emitters.excel.StyleManager;
+import uk.co.spudsoft.birt.emitters.excel.StyleManagerUtils;
+import uk.co.spudsoft.birt.emitters.excel.StyleManagerXUtils;
+import uk.co.spudsoft.birt.emitters.excel.framework.Logger;
+
+/**
+ * The StyleManager and FontManager caches are hash maps keyed on BIRT styles,
+ * so the hash codes must be consistent with the equivalence tests for every kind of CSSValue found in a style.
+ */
+public class StyleKeyHashingTest {
+
+	private static FloatValue number( float value ) {
+		return new FloatValue( CSSPrimitiveValue.CSS_NUMBER, value );
+	}
+
+	private static RGBColorValue colour( int red, int green, int blue ) {
+		return new RGBColorValue( number( red ), number( green ), number( blue ) );
+	}
+
+	private static ListValue fontFamily( String... names ) {
+		ListValue family = new ListValue();
+		for( String name : names ) {
+			family.append( new StringValue( CSSPrimitiveValue.CSS_STRING, name ) );
+		}
+		return family;
+	}
+
+	private static DataFormatValue numberFormat( String pattern, String locale ) {
+		DataFormatValue dataFormat = new DataFormatValue();
+		dataFormat.setNumberFormat( pattern, locale );
+		return dataFormat;
+	}
+
+	private static void assertValuesEqual( CSSValue value1, CSSValue value2 ) {
+		assertNotSame( value1, value2 );
+		assertTrue( StyleManagerUtils.objectsEqual( value1, value2 ) );
+		assertEquals( StyleManagerUtils.valueHashCode( value1 ), StyleManagerUtils.valueHashCode( value2 ) );
+	}
+
+	/**
+	 * Build a style from new value instances each time it is called, as the emitter does for every cell.
+	 */
+	private static BirtStyle cellStyle( CSSEngine cssEngine, float rotation, int red, String numberFormat ) {
+		BirtStyle style = new BirtStyle( cssEngine );
+		style.setProperty( StyleConstants.STYLE_TEXT_ALIGN, new StringValue( CSSPrimitiveValue.CSS_IDENT, "center" ) );
+		style.setProperty( BirtStyle.TEXT_ROTATION, new FloatValue( CSSPrimitiveValue.CSS_DEG, rotation ) );
+		style.setProperty( StyleConstants.STYLE_DATA_FORMAT, numberFormat( numberFormat, "en_GB" ) );
+		style.setProperty( StyleConstants.STYLE_FONT_FAMILY, fontFamily( "Arial", "sans-serif" ) );
+		style.setProperty( StyleConstants.STYLE_FONT_SIZE, new FloatValue( CSSPrimitiveValue.CSS_PT, 10 ) );
+		style.setProperty( StyleConstants.STYLE_COLOR, colour( red, 0, 0 ) );
+		return style;
+	}
+
+	@Test
+	public void testFloatValue() {
+		assertValuesEqual( new FloatValue( CSSPrimitiveValue.CSS_DEG, -0.0f ), new FloatValue( CSSPrimitiveValue.CSS_DEG, 0.0f ) );
+		assertValuesEqual( new FloatValue( CSSPrimitiveValue.CSS_PT, 10.5f ), new FloatValue( CSSPrimitiveValue.CSS_PT, 10.5f ) );
+		assertFalse( StyleManagerUtils.objectsEqual( new FloatValue( CSSPrimitiveValue.CSS_PT, 10 ), new FloatValue( CSSPrimitiveValue.CSS_PX, 10 ) ) );
+	}
+
+	@Test
+	public void testListValue() {
+		assertValuesEqual( fontFamily( "Arial", "sans-serif" ), fontFamily( "Arial", "sans-serif" ) );
+		assertValuesEqual( fontFamily(), fontFamily() );
+		assertFalse( StyleManagerUtils.objectsEqual( fontFamily( "Arial", "sans-serif" ), fontFamily( "sans-serif", "Arial" ) ) );
+	}
+
+	@Test
+	public void testRGBColorValue() {
+		assertValuesEqual( colour( 255, 128, 0 ), colour( 255, 128, 0 ) );
+		assertValuesEqual( new RGBColorValue( number( -0.0f ), number( 0 ), number( 0 ) ), colour( 0, 0, 0 ) );
+		assertFalse( StyleManagerUtils.objectsEqual( colour( 255, 128, 0 ), colour( 0, 128, 255 ) ) );
+	}
+
+	@Test
+	public void testDataFormatValue() {
+		DataFormatValue dataFormat1 = numberFormat( "#,##0.00", "en_GB" );
+		// The locale does not take part in the comparison
+		DataFormatValue dataFormat2 = numberFormat( "#,##0.00", "de_DE" );
+		assertTrue( StyleManagerUtils.dataFormatsEquivalent( dataFormat1, dataFormat2 ) );
+		assertEquals( StyleManagerUtils.dataFormatHashCode( dataFormat1 ), StyleManagerUtils.dataFormatHashCode( dataFormat2 ) );
+
+		DataFormatValue dateTimeFormat1 = new DataFormatValue();
+		dateTimeFormat1.setDateTimeFormat( "yyyy-MM-dd HH:mm", "en_GB" );
+		DataFormatValue dateTimeFormat2 = new DataFormatValue();
+		dateTimeFormat2.setDateTimeFormat( "yyyy-MM-dd HH:mm", null );
+		assertTrue( StyleManagerUtils.dataFormatsEquivalent( dateTimeFormat1, dateTimeFormat2 ) );
+		assertEquals( StyleManagerUtils.dataFormatHashCode( dateTimeFormat1 ), StyleManagerUtils.dataFormatHashCode( dateTimeFormat2 ) );
+
+		assertFalse( StyleManagerUtils.dataFormatsEquivalent( dataFormat1, dateTimeFormat1 ) );
+		assertTrue( StyleManagerUtils.dataFormatsEquivalent( null, null ) );
+		assertEquals( 0, StyleManagerUtils.dataFormatHashCode( null ) );
+	}
+
+	@Test
+	public void testFontHashCode() {
+		CSSEngine cssEngine = new BIRTCSSEngine();
+		BirtStyle style1 = cellStyle( cssEngine, 0.0f, 255, "0.00" );
+		BirtStyle style2 = cellStyle( cssEngine, -0.0f, 255, "#,##0" );
+		assertTrue( FontManager.fontsEquivalent( style1, style2 ) );
+		assertEquals( FontManager.fontHashCode( style1 ), FontManager.fontHashCode( style2 ) );
+	}
+
+	@Test
+	public void testEquivalentStylesShareCellStyle() {
+		XSSFWorkbook workbook = new XSSFWorkbook();
+		CSSEngine cssEngine = new BIRTCSSEngine();
+		Logger log = new Logger( "uk.co.spudsoft.birt.emitters.excel" );
+		StyleManager sm = new StyleManager( workbook, log, new StyleManagerXUtils( log ), cssEngine, Locale.UK );
+
+		CellStyle cellStyle = sm.getStyle( cellStyle( cssEngine, 0.0f, 255, "0.00" ) );
+		Font font = sm.getFontManager().getFont( cellStyle( cssEngine, 0.0f, 255, "0.00" ) );
+		int numCellStyles = workbook.getNumCellStyles();
+		short numFonts = workbook.getNumberOfFonts();
+
+		assertSame( cellStyle, sm.getStyle( cellStyle( cssEngine, -0.0f, 255, "0.00" ) ) );
+		assertSame( font, sm.getFontManager().getFont( cellStyle( cssEngine, -0.0f, 255, "#,##0" ) ) );
+		assertEquals( numCellStyles, workbook.getNumCellStyles() );
+		assertEquals( numFonts, workbook.getNumberOfFonts() );
+
+		assertNotSame( cellStyle, sm.getStyle( cellStyle( cssEngine, 0.0f, 255, "#,##0" ) ) );
+		assertEquals( numCellStyles + 1, workbook.getNumCellStyles() );
+		assertEquals( numFonts, workbook.getNumberOfFonts() );
+	}
+
+	@Test
+	public void testStyleCount() {
+		XSSFWorkbook workbook = new XSSFWorkbook();
+		CSSEngine cssEngine = new BIRTCSSEngine();
+		Logger log = new Logger( "uk.co.spudsoft.birt.emitters.excel" );
+		StyleManager sm = new StyleManager( workbook, log, new StyleManagerXUtils( log ), cssEngine, Locale.UK );
+		int numCellStyles = workbook.getNumCellStyles();
+		short numFonts = workbook.getNumberOfFonts();
+
+		// Two fonts (by colour) and four cell styles (by colour and format), requested afresh for every cell
+		for( int row = 0; row < 100; ++row ) {
+			for( int col = 0; col < 4; ++col ) {
+				sm.getStyle( cellStyle( cssEngine, ( row % 2 == 0 ) ? 0.0f : -0.0f, ( col % 2 == 0 ) ? 255 : 0, ( col < 2 ) ? "0.00" : "#,##0" ) );
+			}
+		}
+
+		assertEquals( numCellStyles + 4, workbook.getNumCellStyles() );
+		assertEquals( numFonts + 2, workbook.getNumberOfFonts() );
+	}
+
+}
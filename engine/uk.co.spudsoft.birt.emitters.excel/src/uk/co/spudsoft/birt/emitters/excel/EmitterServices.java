@@ -277,6 +277,37 @@ public class EmitterServices {
 	
 	
 	
+	public static int integerOption( ITaskOption options, IReportContent reportContent, String name, int defaultValue ) {
+		int result = defaultValue;
+		Object value = null;
+
+		if( reportContent != null ) {
+			Map<String,Expression> userProperties = reportContent.getDesign().getUserProperties();
+			if( userProperties != null ) {
+				Expression expression = userProperties.get(name);
+				if( expression instanceof Expression.Constant ) {
+					Expression.Constant constant = (Expression.Constant)expression;
+					value = constant.getValue();
+				}
+			}
+		}
+		
+		if( ( value == null ) && ( options != null ) ) {
+			value = options.getOption(name);
+		}
+		
+		if( value instanceof Number ) {
+			result = ((Number)value).intValue();
+		} else if( value != null ) {
+			try { 
+				result = Integer.parseInt( value.toString() );
+			} catch( Exception ex ) {
+			}
+		}
+		
+		return result;
+	}
+	
 	/**
 	 * Convert an Object to a boolean, with quite a few options about the class of the Object. 
 	 * @param value
@@ -84,6 +84,10 @@ public abstract class ExcelEmitter implements IContentEmitter {
 	public static final String DISPLAYZEROS_PROP = "ExcelEmitter.DisplayZeros";
 
 	public static final String TEMPLATE_FILE = "ExcelEmitter.TemplateFile";
+
+	public static final String STREAMING_XLSX = "ExcelEmitter.StreamingXlsx";
+	public static final String STREAMING_ROW_WINDOW = "ExcelEmitter.StreamingRowWindow";
+	public static final int DEFAULT_STREAMING_ROW_WINDOW = 100;
 	
 	/**
 	 * Logger.
@@ -163,6 +167,30 @@ public abstract class ExcelEmitter implements IContentEmitter {
 	 */
 	protected abstract Workbook openWorkbook( File templateFile ) throws IOException;
 	
+	/**
+	 * Wraps a workbook in a workbook that writes completed rows to temporary files instead of keeping them in memory.
+	 * <p>
+	 * The rows are only written when the handlers flush them, once they can no longer be revisited.
+	 * The default implementation does not support streaming and returns the workbook unchanged.
+	 * </p>
+	 * @param wb
+	 * The workbook created (or opened from a template) for the report.
+	 * @return
+	 * The workbook to be processed by the emitter.
+	 */
+	protected Workbook createStreamingWorkbook( Workbook wb ) {
+		log.warn( 0, "Streaming is not supported for " + getOutputFormat() + " output, the workbook will be kept in memory", null );
+		return wb;
+	}
+	
+	/**
+	 * Releases any resources held by the workbook once it has been written.
+	 * @param wb
+	 * The workbook processed by the emitter.
+	 */
+	protected void disposeWorkbook( Workbook wb ) {
+	}
+	
 	
 	public void initialize( IEmitterServices service ) throws BirtException {
 		renderOptions = service.getRenderOption();
@@ -210,12 +238,22 @@ public abstract class ExcelEmitter implements IContentEmitter {
 		    wb = createWorkbook();
 		}
 		
+		int streamingRowWindow = 0;
+		if( EmitterServices.booleanOption( renderOptions, report, STREAMING_XLSX, false ) ) {
+			Workbook streamingWb = createStreamingWorkbook( wb );
+			if( streamingWb != wb ) {
+				wb = streamingWb;
+				streamingRowWindow = Math.max( 1, EmitterServices.integerOption( renderOptions, report, STREAMING_ROW_WINDOW, DEFAULT_STREAMING_ROW_WINDOW ) );
+			}
+		}
+		
 	    CSSEngine cssEngine = report.getRoot().getCSSEngine();
 		StyleManagerUtils smu = utilsFactory.create(log);
 	    
 	    StyleManager sm = new StyleManager( wb, log, smu, cssEngine, report.getReportContext().getLocale() );
 	    
 		handlerState = new HandlerState(this, log, smu, wb, sm, renderOptions);
+		handlerState.setStreamingRowWindow( streamingRowWindow );
 		handlerState.setHandler( new PageHandler(log, null) );
 
 		if( EmitterServices.booleanOption( handlerState.getRenderOptions(), report, ExcelEmitter.SINGLE_SHEET_PAGE_BREAKS, false ) ) {
@@ -275,6 +313,7 @@ public abstract class ExcelEmitter implements IContentEmitter {
 					log.debug("ex:", ex.toString());
 				}
 			}
+			disposeWorkbook( handlerState.getWb() );
 			handlerState = null;
 			reportOutputFilename = null;			
 			reportOutputStream = null;
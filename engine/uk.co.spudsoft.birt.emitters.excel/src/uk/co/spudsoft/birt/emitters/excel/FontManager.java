@@ -14,8 +14,8 @@
 
 package uk.co.spudsoft.birt.emitters.excel;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.HashMap;
+import java.util.Map;
 
 import org.apache.poi.ss.usermodel.Font;
 import org.apache.poi.ss.usermodel.FontUnderline;
@@ -36,23 +36,39 @@ import org.w3c.dom.css.CSSValue;
 public class FontManager {
 	
 	/**
-	 * FontPair maintains the relationship between a BIRT style and a POI font.
+	 * FontKey allows BIRT styles to be used to look up POI fonts.
+	 * Two FontKeys are equal if their BIRT styles are equivalent according to fontsEquivalent.
 	 * @author Jim Talbut
 	 *
 	 */
-	private class FontPair {
-		public BirtStyle birtStyle;
-		public Font poiFont;
+	private static class FontKey {
+		private BirtStyle birtStyle;
+		private int hashCode;
 		
-		public FontPair(BirtStyle birtStyle, Font poiFont) {
+		public FontKey(BirtStyle birtStyle) {
 			this.birtStyle = birtStyle;
-			this.poiFont = poiFont;
+			this.hashCode = fontHashCode(birtStyle);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if( obj instanceof FontKey ) {
+				FontKey other = (FontKey)obj;
+				return ( hashCode == other.hashCode ) && fontsEquivalent(birtStyle, other.birtStyle);
+			}
+			return false;
 		}
 	}
 	
 	private Workbook workbook;
 	private StyleManagerUtils smu;
-	private List<FontPair> fonts = new ArrayList<FontPair>();
+	private Map<FontKey, Font> fonts = new HashMap<FontKey, Font>();
+	private Map<Short, BirtStyle> fontStyles = new HashMap<Short, BirtStyle>();
 	private Font defaultFont = null;
 	private CSSEngine cssEngine;
 
@@ -138,6 +154,23 @@ public class FontManager {
 		return true;
 	}
 	
+	/**
+	 * Calculate a hash code for the font definition of a BIRT style.
+	 * <br/>
+	 * Every attribute tested in fontsEquivalent must be used in the calculation of the hash code.
+	 * @param style
+	 * The BIRT style to calculate the hash code for.
+	 * @return
+	 * A hash code that is the same for any two styles for which fontsEquivalent returns true.
+	 */
+	public static int fontHashCode(BirtStyle style) {
+		int result = 0;
+		for( int i = 0; i < COMPARE_CSS_PROPERTIES.length; ++i ) {
+			result = 31 * result + StyleManagerUtils.valueHashCode( style.getProperty( COMPARE_CSS_PROPERTIES[ i ] ) );
+		}
+		return result;
+	}
+	
 	/**
 	 * Create a new POI Font based upon a BIRT style.
 	 * @param birtStyle
@@ -177,7 +210,9 @@ public class FontManager {
 		// Colour
 		smu.addColourToFont( workbook, font, cleanupQuotes( birtStyle.getProperty( StyleConstants.STYLE_COLOR ) ) );
 						
-		fonts.add(new FontPair(birtStyle, font));
+		BirtStyle fontStyle = birtStyle.clone();
+		fonts.put(new FontKey(fontStyle), font);
+		fontStyles.put(font.getIndex(), fontStyle);
 		return font;
 	}
 	
@@ -221,20 +256,18 @@ public class FontManager {
 			return getDefaultFont();
 		}
 		
-		for(FontPair fontPair : fonts) {
-			if(fontsEquivalent(birtStyle, fontPair.birtStyle)) {
-				return fontPair.poiFont;
-			}
+		Font font = fonts.get(new FontKey(birtStyle));
+		if( font != null ) {
+			return font;
 		}
 		
 		return createFont(birtStyle);
 	}
 	
 	private BirtStyle birtStyleFromFont( Font source ) {
-		for(FontPair fontPair : fonts) {
-			if( source.equals(fontPair.poiFont) ) {
-				return fontPair.birtStyle.clone();
-			}
+		BirtStyle birtStyle = fontStyles.get(source.getIndex());
+		if( birtStyle != null ) {
+			return birtStyle.clone();
 		}
 		
 		return new BirtStyle(cssEngine);
@@ -13,6 +13,7 @@
 
 package uk.co.spudsoft.birt.emitters.excel;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -20,6 +21,8 @@ import java.util.Map;
 
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.eclipse.birt.core.exception.BirtException;
 import org.eclipse.birt.report.engine.api.IRenderOption;
 import org.eclipse.birt.report.engine.api.ReportEngine;
 import org.eclipse.birt.report.engine.emitter.IContentEmitter;
@@ -64,6 +67,10 @@ public class HandlerState {
 	 * Report engine
 	 */
 	private ReportEngine reportEngine;
+	/**
+	 * The number of completed rows kept in memory when the workbook is streamed, zero if it is not.
+	 */
+	private int streamingRowWindow;
 	
 	/**
 	 * The current POI sheet being processed.
@@ -95,6 +102,10 @@ public class HandlerState {
 	public float requiredRowHeightInPoints;
 	public int rowOffset;
 	public int colOffset;
+	/**
+	 * The rows before this one on the current sheet have been flushed from the streamed workbook
+	 */
+	public int flushedRowNum;
 	/**
 	 * Set to true when end() is called and pageEnd has to be called
 	 */
@@ -166,6 +177,14 @@ public class HandlerState {
 		return reportEngine;
 	}
 
+	public int getStreamingRowWindow() {
+		return streamingRowWindow;
+	}
+
+	public void setStreamingRowWindow(int streamingRowWindow) {
+		this.streamingRowWindow = streamingRowWindow;
+	}
+
 	public IHandler getHandler() {
 		return handler;
 	}
@@ -291,4 +310,44 @@ public class HandlerState {
     	}
     	return 0;
     }
+    
+    /**
+     * Find the first row of the current sheet that has to be kept in memory, all the rows before it may be flushed.
+     * The rows of spans that are still open are kept, because the heights of those rows are still needed.
+     * @return
+     * The first row to keep, this is flushedRowNum if the workbook is not streamed or no more rows can be flushed.
+     */
+    public int getFirstRowToKeep() {
+    	if( ( streamingRowWindow <= 0 ) || ! ( currentSheet instanceof SXSSFSheet ) ) {
+    		return flushedRowNum;
+    	}
+    	int result = rowNum - streamingRowWindow;
+        for(Area a : rowSpans) {
+        	if( ( a.y.getRow() >= rowNum ) && ( a.x.getRow() < result ) ) {
+        		result = a.x.getRow();
+        	}
+        }
+    	return Math.max( result, flushedRowNum );
+    }
+    
+    /**
+     * Write the rows of the current sheet before firstRowToKeep to the temporary file of the streamed workbook.
+     * Once flushed the rows can no longer be accessed, currentSheet.getRow() will return null for them.
+     * @param firstRowToKeep
+     * The first row to keep in memory, as returned by getFirstRowToKeep().
+     */
+    public void flushRows( int firstRowToKeep ) throws BirtException {
+    	if( firstRowToKeep > flushedRowNum ) {
+    		log.debug( "Flushing rows ", flushedRowNum, " - ", firstRowToKeep - 1 );
+    		try {
+    			((SXSSFSheet)currentSheet).flushRows( Math.max( 0, currentSheet.getLastRowNum() + 1 - firstRowToKeep ) );
+    		} catch( IOException ex ) {
+				throw new BirtException( EmitterServices.getPluginName()
+						, "Unable to flush rows to the temporary file"
+						, ex
+						);			
+    		}
+    		flushedRowNum = firstRowToKeep;
+    	}
+    }
 }
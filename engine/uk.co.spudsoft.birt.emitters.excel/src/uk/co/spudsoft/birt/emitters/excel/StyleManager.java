@@ -13,9 +13,9 @@
 
 package uk.co.spudsoft.birt.emitters.excel;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.HashMap;
 import java.util.Locale;
+import java.util.Map;
 
 import org.apache.poi.ss.usermodel.CellStyle;
 import org.apache.poi.ss.usermodel.Font;
@@ -39,23 +39,39 @@ import uk.co.spudsoft.birt.emitters.excel.framework.Logger;
 public class StyleManager {
 	
 	/**
-	 * StylePair maintains the relationship between a BIRT style and a POI style.
+	 * StyleKey allows BIRT styles to be used to look up POI styles.
+	 * Two StyleKeys are equal if their BIRT styles are equivalent according to stylesEquivalent.
 	 * @author Jim Talbut
 	 *
 	 */
-	private class StylePair {
-		public BirtStyle birtStyle;
-		public CellStyle poiStyle;
+	private static class StyleKey {
+		private BirtStyle birtStyle;
+		private int hashCode;
 		
-		public StylePair(BirtStyle birtStyle, CellStyle poiStyle) {
+		public StyleKey(BirtStyle birtStyle) {
 			this.birtStyle = birtStyle;
-			this.poiStyle = poiStyle;
+			this.hashCode = styleHashCode(birtStyle);
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if( obj instanceof StyleKey ) {
+				StyleKey other = (StyleKey)obj;
+				return ( hashCode == other.hashCode ) && stylesEquivalent(birtStyle, other.birtStyle);
+			}
+			return false;
 		}
 	}
 	
 	private Workbook workbook;
 	private FontManager fm;
-	private List<StylePair> styles = new ArrayList<StylePair>();
+	private Map<StyleKey, CellStyle> styles = new HashMap<StyleKey, CellStyle>();
+	private Map<Short, BirtStyle> cellStyles = new HashMap<Short, BirtStyle>();
 	private StyleManagerUtils smu;
 	private CSSEngine cssEngine;
 	private Logger log;
@@ -121,7 +137,7 @@ public class StyleManager {
 	 * @return
 	 * true if style1 and style2 would produce identical CellStyles if passed to createStyle.
 	 */
-	private boolean stylesEquivalent( BirtStyle style1, BirtStyle style2) {
+	private static boolean stylesEquivalent( BirtStyle style1, BirtStyle style2) {
 		
 		// System.out.println( "style1: " + style1 );
 		// System.out.println( "style2: " + style2 );
@@ -156,6 +172,26 @@ public class StyleManager {
 		return true;
 	}
 	
+	/**
+	 * Calculate a hash code for a BIRT style, as far as the attributes understood by POI are concerned.
+	 * <br/>
+	 * Every attribute tested in stylesEquivalent must be used in the calculation of the hash code.
+	 * @param style
+	 * The BIRT style to calculate the hash code for.
+	 * @return
+	 * A hash code that is the same for any two styles for which stylesEquivalent returns true.
+	 */
+	private static int styleHashCode( BirtStyle style ) {
+		int result = 0;
+		for( int i = 0; i < COMPARE_CSS_PROPERTIES.length; ++i ) {
+			result = 31 * result + StyleManagerUtils.valueHashCode( style.getProperty( COMPARE_CSS_PROPERTIES[ i ] ) );
+		}
+		result = 31 * result + StyleManagerUtils.valueHashCode( style.getProperty( BirtStyle.TEXT_ROTATION ) );
+		result = 31 * result + StyleManagerUtils.dataFormatHashCode( (DataFormatValue)style.getProperty( StyleConstants.STYLE_DATA_FORMAT ) );
+		result = 31 * result + FontManager.fontHashCode( style );
+		return result;
+	}
+	
 	/**
 	 * Create a new POI CellStyle based upon a BIRT style.
 	 * @param birtStyle
@@ -202,26 +238,25 @@ public class StyleManager {
 			poiStyle.setRotation( (short) ((FloatValue)rotation).getFloatValue() );
 		}
 
-		styles.add(new StylePair( birtStyle.clone(), poiStyle ) );
+		BirtStyle cellStyle = birtStyle.clone();
+		styles.put( new StyleKey( cellStyle ), poiStyle );
+		cellStyles.put( poiStyle.getIndex(), cellStyle );
 		return poiStyle;
 	}
 
 	public CellStyle getStyle( BirtStyle birtStyle ) {
-		for(StylePair stylePair : styles) {
-			if(stylesEquivalent(birtStyle, stylePair.birtStyle)) {
-				// System.err.println( "Equivalent :\n\t" + birtStyle + "\n\t" + stylePair.birtStyle );
-				return stylePair.poiStyle;
-			}
+		CellStyle poiStyle = styles.get( new StyleKey( birtStyle ) );
+		if( poiStyle != null ) {
+			return poiStyle;
 		}
 		
 		return createStyle(birtStyle);		
 	}
 	
 	private BirtStyle birtStyleFromCellStyle( CellStyle source ) {
-		for(StylePair stylePair : styles) {
-			if( source.equals(stylePair.poiStyle) ) {
-				return stylePair.birtStyle.clone();
-			}
+		BirtStyle birtStyle = cellStyles.get( source.getIndex() );
+		if( birtStyle != null ) {
+			return birtStyle.clone();
 		}
 		
 		return new BirtStyle(cssEngine);
@@ -24,6 +24,7 @@ import java.net.MalformedURLException;
 import java.net.URLConnection;
 import java.text.AttributedString;
 import java.text.DateFormat;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.List;
 import java.util.Locale;
@@ -42,6 +43,9 @@ import org.apache.poi.xssf.usermodel.extensions.XSSFCellBorder.BorderSide;
 import org.eclipse.birt.report.engine.content.IPageContent;
 import org.eclipse.birt.report.engine.css.engine.StyleConstants;
 import org.eclipse.birt.report.engine.css.engine.value.DataFormatValue;
+import org.eclipse.birt.report.engine.css.engine.value.FloatValue;
+import org.eclipse.birt.report.engine.css.engine.value.ListValue;
+import org.eclipse.birt.report.engine.css.engine.value.RGBColorValue;
 import org.eclipse.birt.report.engine.css.engine.value.StringValue;
 import org.eclipse.birt.report.engine.css.engine.value.css.CSSConstants;
 import org.eclipse.birt.report.engine.ir.DimensionType;
@@ -100,6 +104,45 @@ public abstract class StyleManagerUtils {
 		return (lhs == null) ? (rhs == null) : lhs.equals(rhs);  
 	}
 	
+	/**
+	 * Calculate a hash code for a BIRT CSSValue that is consistent with its equals method.
+	 * <br/>
+	 * The BIRT CSSValue classes override equals but not hashCode, so they cannot be used directly in hash keys.
+	 * @param value
+	 * The value to calculate the hash code for, may be null.
+	 * @return
+	 * A hash code that is the same for any two values for which objectsEqual returns true.
+	 */
+	public static int valueHashCode(CSSValue value) {
+		if( value == null ) {
+			return 0;
+		}
+		if( value instanceof FloatValue ) {
+			FloatValue floatValue = (FloatValue)value;
+			// Adding 0.0f turns -0.0f into 0.0f, the two are equal as far as FloatValue.equals is concerned
+			return 31 * floatValue.getPrimitiveType() + Float.floatToIntBits( floatValue.getFloatValue() + 0.0f );
+		}
+		if( value instanceof StringValue ) {
+			StringValue stringValue = (StringValue)value;
+			String string = stringValue.getStringValue();
+			return 31 * stringValue.getPrimitiveType() + ( string == null ? 0 : string.hashCode() );
+		}
+		if( value instanceof RGBColorValue ) {
+			RGBColorValue colour = (RGBColorValue)value;
+			return 31 * ( 31 * valueHashCode( colour.getRed() ) + valueHashCode( colour.getGreen() ) ) + valueHashCode( colour.getBlue() );
+		}
+		if( value instanceof ListValue ) {
+			ListValue listValue = (ListValue)value;
+			int result = 1;
+			for( int i = 0; i < listValue.getLength(); ++i ) {
+				result = 31 * result + valueHashCode( listValue.item( i ) );
+			}
+			return result;
+		}
+		// Any other value is only equal to itself
+		return System.identityHashCode( value );
+	}
+	
 	public static boolean dataFormatsEquivalent( DataFormatValue dataFormat1, DataFormatValue dataFormat2 ) {
 		if( dataFormat1 == null ) {
 			return ( dataFormat2 == null );
@@ -116,6 +159,20 @@ public abstract class StyleManagerUtils {
         return true;
 	}
 	
+	/**
+	 * Calculate a hash code for a DataFormatValue that is consistent with dataFormatsEquivalent.
+	 * @param dataFormat
+	 * The data format to calculate the hash code for, may be null.
+	 * @return
+	 * A hash code that is the same for any two data formats for which dataFormatsEquivalent returns true.
+	 */
+	public static int dataFormatHashCode( DataFormatValue dataFormat ) {
+		if( dataFormat == null ) {
+			return 0;
+		}
+		return Arrays.hashCode( new Object[] { dataFormat.getNumberPattern(), dataFormat.getDatePattern(), dataFormat.getDateTimePattern(), dataFormat.getTimePattern() } );
+	}
+	
 	
 	
 	/**
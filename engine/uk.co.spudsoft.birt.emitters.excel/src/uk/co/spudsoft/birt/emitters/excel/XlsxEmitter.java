@@ -19,6 +19,7 @@ import java.io.IOException;
 import java.io.InputStream;
 
 import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
 /**
@@ -51,5 +52,16 @@ public class XlsxEmitter extends ExcelEmitter {
 			stream.close();
 		}
 	}
+	
+	protected Workbook createStreamingWorkbook( Workbook wb ) {
+		// Rows are never flushed automatically, the handlers flush them once they cannot be revisited
+		return new SXSSFWorkbook( (XSSFWorkbook)wb, -1 );
+	}
+	
+	protected void disposeWorkbook( Workbook wb ) {
+		if( wb instanceof SXSSFWorkbook ) {
+			((SXSSFWorkbook)wb).dispose();
+		}
+	}
 
 }
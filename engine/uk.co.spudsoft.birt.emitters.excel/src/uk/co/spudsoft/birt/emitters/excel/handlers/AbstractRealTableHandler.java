@@ -137,10 +137,15 @@ public class AbstractRealTableHandler extends AbstractHandler implements ITableH
 		
 		if( ( startDetailsRow > 0 ) && ( endDetailsRow > startDetailsRow ) ) {
 			boolean forceAutoColWidths = EmitterServices.booleanOption( state.getRenderOptions(), table, ExcelEmitter.FORCEAUTOCOLWIDTHS_PROP, false );
+			int sampleStartRow = startDetailsRow;
+			if( sampleStartRow < state.flushedRowNum ) {
+				// The first details rows have been flushed from the streamed workbook, so size the columns from the last ones
+				sampleStartRow = Math.max( state.flushedRowNum, endDetailsRow - 12 );
+			}
 			for( int col = 0; col < table.getColumnCount(); ++col ) {
 				int oldWidth = state.currentSheet.getColumnWidth(col);
 				if( forceAutoColWidths || ( oldWidth == 256 * state.currentSheet.getDefaultColumnWidth() ) ) {
-					FilteredSheet filteredSheet = new FilteredSheet( state.currentSheet, startDetailsRow, Math.min(endDetailsRow, startDetailsRow + 12) );
+					FilteredSheet filteredSheet = new FilteredSheet( state.currentSheet, sampleStartRow, Math.min(endDetailsRow, sampleStartRow + 12) );
 			        double calcWidth = SheetUtil.getColumnWidth( filteredSheet, col, false );
 
 			        if (calcWidth > 1.0) {
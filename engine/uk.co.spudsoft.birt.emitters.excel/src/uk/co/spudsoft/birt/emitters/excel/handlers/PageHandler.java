@@ -14,6 +14,7 @@
 package uk.co.spudsoft.birt.emitters.excel.handlers;
 
 import java.util.Collection;
+import java.util.Iterator;
 
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.ClientAnchor;
@@ -234,16 +235,10 @@ public class PageHandler extends AbstractHandler {
 			state.sheetPassword = null;
 		}
 
-		Drawing drawing = null;
-		if( ! state.images.isEmpty() ) {
-			drawing = state.currentSheet.createDrawingPatriarch();
-		}
-		for( CellImage cellImage : state.images ) {
-			processCellImage(state,drawing,cellImage);
-		}
-		state.images.clear();
+		processCellImages(state, Integer.MAX_VALUE);
 		state.rowNum = 0;
 		state.colNum = 0;
+		state.flushedRowNum = 0;
 		state.clearRowSpans();
 		state.areaBorders.clear();
 		
@@ -260,6 +255,30 @@ public class PageHandler extends AbstractHandler {
 		return null;
 	}
 
+	/**
+	 * <p>
+	 * Process the CellImages from the images list that are located before endRow and place the images on the sheet.
+	 * </p><p>
+	 * This is normally only done at the end of the page, but when the workbook is streamed the images have to be 
+	 * placed before their rows are flushed.
+	 * </p>
+	 * @param endRow
+	 * The first row whose images are left in the images list.
+	 */
+	void processCellImages( HandlerState state, int endRow ) {
+		Drawing drawing = null;
+		for( Iterator<CellImage> iter = state.images.iterator(); iter.hasNext(); ) {
+			CellImage cellImage = iter.next();
+			if( cellImage.location.getRow() < endRow ) {
+				if( drawing == null ) {
+					drawing = state.currentSheet.createDrawingPatriarch();
+				}
+				processCellImage(state,drawing,cellImage);
+				iter.remove();
+			}
+		}
+	}
+
 	/**
 	 * <p>
 	 * Process a CellImage from the images list and place the image on the sheet.
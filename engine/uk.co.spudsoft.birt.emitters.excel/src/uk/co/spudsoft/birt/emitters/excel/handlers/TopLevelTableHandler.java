@@ -30,7 +30,31 @@ import uk.co.spudsoft.birt.emitters.excel.framework.Logger;
 
 public class TopLevelTableHandler extends AbstractRealTableHandler {
 	
-	private Stack<Integer> groupStarts;
+	/**
+	 * A group of rows, opened by startTableGroup and grouped on the sheet by endTableGroup.
+	 * When the workbook is streamed the rows of the group that are flushed before the group ends
+	 * have to be grouped before they are flushed.
+	 */
+	private static class RowGroup {
+		int start;
+		boolean grouped;
+		int firstRowToGroup;
+		
+		RowGroup(int start, boolean grouped, int firstRowToGroup) {
+			this.start = start;
+			this.grouped = grouped;
+			this.firstRowToGroup = firstRowToGroup;
+		}
+		
+		void groupRows(HandlerState state, int endRow) {
+			if( grouped && ( firstRowToGroup < endRow ) ) {
+				state.currentSheet.groupRow(firstRowToGroup, endRow - 1);
+				firstRowToGroup = endRow;
+			}
+		}
+	}
+	
+	private Stack<RowGroup> groupStarts;
 	
 	public TopLevelTableHandler(Logger log,IHandler parent, ITableContent table) {
 		super(log, parent, table);
@@ -83,9 +107,21 @@ public class TopLevelTableHandler extends AbstractRealTableHandler {
 	public void startTableGroup(HandlerState state, ITableGroupContent group) throws BirtException {
 		log.debug( "startTableGroup @" + state.rowNum + " called " + group.getBookmark() );
 		if( groupStarts == null ) {
-			groupStarts = new Stack<Integer>();
+			groupStarts = new Stack<RowGroup>();
+		}
+		
+		boolean disableGrouping = false;
+		
+		// Report user props and context first
+		if( EmitterServices.booleanOption( state.getRenderOptions(), group, ExcelEmitter.DISABLE_GROUPING, false ) ) {
+			disableGrouping = true;
+		}
+		
+		if( state.currentSheet.getRowSumsBelow() ) {
+			groupStarts.push(new RowGroup(state.rowNum, ! disableGrouping, state.rowNum));
+		} else {
+			groupStarts.push(new RowGroup(state.rowNum, ! disableGrouping, state.rowNum + 1));
 		}
-		groupStarts.push(state.rowNum);
 		
 		Object groupDesignObject = group.getGenerateBy();
 		if( groupDesignObject instanceof TableGroupDesign ) {
@@ -106,25 +142,32 @@ public class TopLevelTableHandler extends AbstractRealTableHandler {
 	@Override
 	public void endTableGroup(HandlerState state, ITableGroupContent group) throws BirtException {
 		log.debug( "endTableGroup @" + state.rowNum + " called " + group.getBookmark() );
-		int start = groupStarts.pop();
-		if( start < state.rowNum - 1 ) {
-			
-			boolean disableGrouping = false;
-			
-			// Report user props and context first
-			if( EmitterServices.booleanOption( state.getRenderOptions(), group, ExcelEmitter.DISABLE_GROUPING, false ) ) {
-				disableGrouping = true;
+		RowGroup rowGroup = groupStarts.pop();
+		if( rowGroup.start < state.rowNum - 1 ) {
+			if( state.currentSheet.getRowSumsBelow() ) {
+				log.debug( "TableGroup of rows below ", rowGroup.firstRowToGroup, " - ", state.rowNum - 2 );
+				rowGroup.groupRows(state, state.rowNum - 1);
+			} else {
+				log.debug( "TableGroup of rows above ", rowGroup.firstRowToGroup, " - ", state.rowNum - 1 );
+				rowGroup.groupRows(state, state.rowNum);
 			}
-
-			if( ! disableGrouping ) {
-				if( state.currentSheet.getRowSumsBelow() ) {
-					log.debug( "TableGroup of rows below ", start, " - ", state.rowNum - 2 );
-					state.currentSheet.groupRow(start, state.rowNum - 2);
-				} else {
-					log.debug( "TableGroup of rows above ", start + 1, " - ", state.rowNum - 1 );
-					state.currentSheet.groupRow(start + 1, state.rowNum - 1);
+		}
+	}
+	
+	/**
+	 * Flush the completed rows that can no longer be revisited when the workbook is streamed.
+	 * The images and the open groups on those rows are placed on the sheet before the rows are flushed.
+	 */
+	void flushRows(HandlerState state) throws BirtException {
+		int firstRowToKeep = state.getFirstRowToKeep();
+		if( firstRowToKeep > state.flushedRowNum ) {
+			getAncestor(PageHandler.class).processCellImages(state, firstRowToKeep);
+			if( groupStarts != null ) {
+				for( RowGroup rowGroup : groupStarts ) {
+					rowGroup.groupRows(state, firstRowToKeep);
 				}
 			}
+			state.flushRows(firstRowToKeep);
 		}
 	}
 	